@@ -36,7 +36,9 @@ import org.iotivity.cloud.accountserver.resources.credprov.cert.CertificateResou
 import org.iotivity.cloud.accountserver.resources.credprov.crl.CrlResource;
 import org.iotivity.cloud.base.ServerSystem;
 import org.iotivity.cloud.base.resource.CloudPingResource;
+import org.iotivity.cloud.base.resource.ResourceExecutor;
 import org.iotivity.cloud.base.server.CoapServer;
+import org.iotivity.cloud.util.DBAuditLog;
 import org.iotivity.cloud.util.Log;
 
 /**
@@ -50,6 +52,7 @@ public class AccountServer {
     private static boolean tlsMode;
     private static String  databaseHost;
     private static String  webLogHost;
+    private static int     resourceThreads = ResourceExecutor.DEFAULT_THREAD_COUNT;
 
     public static void main(String[] args) throws Exception {
         System.out.println("-----Account SERVER-----");
@@ -68,6 +71,8 @@ public class AccountServer {
         AccountDBManager.createInstance(databaseHost);
 
         ServerSystem serverSystem = new ServerSystem();
+        serverSystem.setResourceExecutor(new ResourceExecutor(resourceThreads,
+                ResourceExecutor.DEFAULT_QUEUE_SIZE));
 
         serverSystem.addResource(new CloudPingResource());
         serverSystem.addResource(new AccountResource());
@@ -89,8 +94,14 @@ public class AccountServer {
         Scanner in = new Scanner(System.in, "UTF-8");
 
         System.out.println("press 'q' to terminate");
+        System.out.println("'audit <n>' logs every n-th DB change, 0 for off");
 
-        while (!in.nextLine().equals("q"));
+        String command;
+        while (!(command = in.nextLine()).equals("q")) {
+            if (command.startsWith("audit ")) {
+                setAuditSampleRate(command.substring(6).trim());
+            }
+        }
 
         in.close();
 
@@ -102,6 +113,16 @@ public class AccountServer {
     }
 
     private static boolean parseConfiguration(String[] args) {
+        // worker threads for blocking resources, from docker env in any mode
+        String resourceThreadsEnv = System.getenv("RESOURCE_THREADS");
+        if (resourceThreadsEnv != null)
+            resourceThreads = Integer.parseInt(resourceThreadsEnv);
+
+        // DB change tracing, can be changed later from the console
+        String auditSampleRateEnv = System.getenv("DB_AUDIT_SAMPLE_RATE");
+        if (auditSampleRateEnv != null)
+            setAuditSampleRate(auditSampleRateEnv);
+
         // configuration provided by arguments
         if (args.length == 4 || args.length == 6) {
             coapServerPort = Integer.parseInt(args[0]);
@@ -123,4 +144,13 @@ public class AccountServer {
         }
         return false;
     }
+
+    private static void setAuditSampleRate(String sampleRate) {
+        try {
+            DBAuditLog.setSampleRate(Integer.parseInt(sampleRate));
+            Log.i("DB audit sample rate " + DBAuditLog.getSampleRate());
+        } catch (NumberFormatException e) {
+            Log.w("Invalid DB audit sample rate " + sampleRate);
+        }
+    }
 }
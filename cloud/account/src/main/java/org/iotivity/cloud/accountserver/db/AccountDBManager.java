@@ -28,6 +28,7 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.bson.Document;
 import org.iotivity.cloud.accountserver.Constants;
@@ -42,6 +43,7 @@ public class AccountDBManager {
 
     private static AccountDBManager            accountDBManager;
     private MongoDB                            mongoDB;
+    private AsyncMongoDB                       asyncMongoDB;
     private HashMap<String, ArrayList<String>> keyField        = new HashMap<String, ArrayList<String>>();
 
     private AccountDBManager(String dbHost) {
@@ -54,6 +56,7 @@ public class AccountDBManager {
 
         try {
             mongoDB = new MongoDB(dbHost, Constants.DB_NAME);
+            asyncMongoDB = new AsyncMongoDB(dbHost, Constants.DB_NAME);
         } catch (Exception e) {
             e.printStackTrace();
             throw new InternalServerErrorException(
@@ -275,6 +278,71 @@ public class AccountDBManager {
 
     }
 
+    /**
+     * API for inserting a record into DB table without blocking. the record
+     * will be replaced if duplicated one.
+     * 
+     * @param tableName
+     *            table name to be inserted
+     * @param replace
+     *            record to be inserted
+     * @return completed when the record is stored, or exceptionally with
+     *         InternalServerErrorException
+     */
+    public CompletableFuture<Void> insertAndReplaceRecordAsync(
+            String tableName, HashMap<String, Object> replace) {
+
+        return checkResult(
+                asyncMongoDB.insertAndReplaceRecord(tableName,
+                        getKeyFilter(tableName, replace),
+                        createDocument(replace)),
+                "Database record insert failed");
+    }
+
+    /**
+     * API for selecting records from DB table without blocking.
+     * 
+     * @param tableName
+     *            table name to be selected
+     * @param condition
+     *            condition record to be selected
+     * @return completed with selected records
+     */
+    public CompletableFuture<ArrayList<HashMap<String, Object>>> selectRecordAsync(
+            String tableName, HashMap<String, Object> condition) {
+
+        return asyncMongoDB.selectRecord(tableName,
+                createDocument(condition));
+    }
+
+    /**
+     * API for deleting records from DB table without blocking.
+     * 
+     * @param tableName
+     *            table name to be deleted
+     * @param condition
+     *            condition record to be deleted
+     * @return completed when the records are deleted, or exceptionally with
+     *         InternalServerErrorException
+     */
+    public CompletableFuture<Void> deleteRecordAsync(String tableName,
+            HashMap<String, Object> condition) {
+
+        return checkResult(
+                asyncMongoDB.deleteRecord(tableName,
+                        createDocument(condition)),
+                "Database record delete failed");
+    }
+
+    private CompletableFuture<Void> checkResult(
+            CompletableFuture<Boolean> result, String errorMessage) {
+
+        return result.thenAccept(success -> {
+            if (!success)
+                throw new InternalServerErrorException(errorMessage);
+        });
+    }
+
     private Boolean _insertRecord(String tableName,
             HashMap<String, Object> record) {
 
@@ -30,13 +30,17 @@ import java.util.Map.Entry;
 import java.util.Set;
 
 import org.bson.Document;
+import org.iotivity.cloud.util.DBAuditLog;
 import org.iotivity.cloud.util.Log;
 
+import com.mongodb.ErrorCategory;
 import com.mongodb.MongoClient;
+import com.mongodb.MongoWriteException;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.client.result.DeleteResult;
 
 /**
@@ -136,15 +140,17 @@ public class MongoDB {
 
         try {
 
-            if (collection.find(doc).first() == null) {
+            // Duplicates are rejected by the unique key index
+            collection.insertOne(doc);
 
-                collection.insertOne(doc);
-
-            } else {
+        } catch (MongoWriteException e) {
 
+            if (e.getError().getCategory() == ErrorCategory.DUPLICATE_KEY) {
                 Log.w("DB insert failed due to duplecated one.");
-                return false;
+            } else {
+                e.printStackTrace();
             }
+            return false;
 
         } catch (Exception e) {
 
@@ -152,7 +158,7 @@ public class MongoDB {
             return false;
         }
 
-        showRecord(tableName);
+        DBAuditLog.logChange(tableName, "insert", doc);
 
         return true;
     }
@@ -180,10 +186,8 @@ public class MongoDB {
 
         try {
 
-            if (collection.findOneAndReplace(filter, doc) == null) {
-
-                collection.insertOne(doc);
-            }
+            collection.replaceOne(filter, doc,
+                    new UpdateOptions().upsert(true));
 
         } catch (Exception e) {
 
@@ -191,7 +195,7 @@ public class MongoDB {
             return false;
         }
 
-        showRecord(tableName);
+        DBAuditLog.logChange(tableName, "replace", doc);
 
         return true;
     }
@@ -222,7 +226,7 @@ public class MongoDB {
             return false;
         }
 
-        showRecord(tableName);
+        DBAuditLog.logChange(tableName, "update", record);
 
         return true;
     }
@@ -259,7 +263,7 @@ public class MongoDB {
             return false;
         }
 
-        showRecord(tableName);
+        DBAuditLog.logChange(tableName, "delete", record);
 
         return true;
     }
@@ -299,7 +303,7 @@ public class MongoDB {
         return recordList;
     }
 
-    private HashMap<String, Object> convertDocumentToHashMap(Document doc) {
+    static HashMap<String, Object> convertDocumentToHashMap(Document doc) {
         HashMap<String, Object> resourceMap = new HashMap<String, Object>();
 
         Set<Entry<String, Object>> entrySet = doc.entrySet();
@@ -336,25 +340,4 @@ public class MongoDB {
 
         return resourceMap;
     }
-
-    private void showRecord(String tableName) {
-
-        MongoCollection<Document> collection = db.getCollection(tableName);
-        MongoCursor<Document> cursor = collection.find().iterator();
-
-        Log.i("<" + tableName + ">");
-
-        HashMap<String, Object> records = null;
-        int index = 0;
-        while (cursor.hasNext()) {
-
-            Document doc = cursor.next();
-            records = convertDocumentToHashMap(doc);
-
-            Log.i("[" + index + "] " + records.toString());
-            index++;
-        }
-
-        cursor.close();
-    }
 }
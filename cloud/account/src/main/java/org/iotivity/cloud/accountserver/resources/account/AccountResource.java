@@ -54,6 +54,7 @@ public class AccountResource extends Resource {
 
     public AccountResource() {
         super(Arrays.asList(Constants.PREFIX_OIC, Constants.ACCOUNT_URI));
+        setBlocking(true);
 
     }
 
@@ -52,6 +52,7 @@ public class SessionResource extends Resource {
     public SessionResource() {
         super(Arrays.asList(Constants.PREFIX_OIC, Constants.ACCOUNT_URI,
                 Constants.SESSION_URI));
+        setBlocking(true);
     }
 
     @Override
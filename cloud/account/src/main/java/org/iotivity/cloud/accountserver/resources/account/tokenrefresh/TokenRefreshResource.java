@@ -52,6 +52,7 @@ public class TokenRefreshResource extends Resource {
     public TokenRefreshResource() {
         super(Arrays.asList(Constants.PREFIX_OIC, Constants.ACCOUNT_URI,
                 Constants.TOKEN_REFRESH_URI));
+        setBlocking(true);
     }
 
     @Override
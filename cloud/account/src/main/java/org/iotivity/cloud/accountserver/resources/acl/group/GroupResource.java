@@ -48,6 +48,7 @@ public class GroupResource extends Resource {
     public GroupResource() {
         super(Arrays.asList(Constants.PREFIX_OIC, Constants.ACL_URI,
                 Constants.GROUP_URI));
+        setBlocking(true);
     }
 
     @Override
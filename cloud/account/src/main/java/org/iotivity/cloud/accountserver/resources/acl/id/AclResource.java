@@ -46,6 +46,7 @@ public class AclResource extends Resource {
     public AclResource() {
         super(Arrays.asList(Constants.PREFIX_OIC, Constants.ACL_URI,
                 Constants.ID_URI));
+        setBlocking(true);
     }
 
     public static AclManager getInstance() {
@@ -57,6 +57,7 @@ public class InviteResource extends Resource {
     public InviteResource() {
         super(Arrays.asList(Constants.PREFIX_OIC, Constants.ACL_URI,
                 Constants.INVITE_URI));
+        setBlocking(true);
     }
 
     @Override
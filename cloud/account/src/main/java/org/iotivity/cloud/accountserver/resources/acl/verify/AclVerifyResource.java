@@ -25,6 +25,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.iotivity.cloud.accountserver.Constants;
 import org.iotivity.cloud.accountserver.db.AccountDBManager;
@@ -56,7 +57,7 @@ public class AclVerifyResource extends Resource {
     public void onDefaultRequestReceived(Device srcDevice, IRequest request)
             throws ServerException {
 
-        IResponse response = null;
+        CompletableFuture<IResponse> response = null;
 
         switch (request.getMethod()) {
             case GET:
@@ -67,7 +68,8 @@ public class AclVerifyResource extends Resource {
                         request.getMethod() + " request type is not supported");
         }
 
-        srcDevice.sendResponse(response);
+        // Answered from database callbacks, not blocking the caller
+        sendResponseAsync(srcDevice, request, response);
     }
 
     private boolean checkPermission(int permissionValue, String rme)
@@ -99,15 +101,20 @@ public class AclVerifyResource extends Resource {
         return false;
     }
 
-    private boolean verifyAcl(String sid, String di, String rm, String uri)
-            throws ServerException {
+    private CompletableFuture<Boolean> verifyAcl(String sid, String di,
+            String rm, String uri) throws ServerException {
 
         HashMap<String, Object> condition = new HashMap<>();
         condition.put(Constants.KEYFIELD_DI, di);
 
         // Query AclTable with condition deviceId(di)
-        ArrayList<HashMap<String, Object>> aclResult = AccountDBManager
-                .getInstance().selectRecord(Constants.ACL_TABLE, condition);
+        return AccountDBManager.getInstance()
+                .selectRecordAsync(Constants.ACL_TABLE, condition)
+                .thenApply(aclResult -> verifyAcl(aclResult, sid, rm, uri));
+    }
+
+    private boolean verifyAcl(ArrayList<HashMap<String, Object>> aclResult,
+            String sid, String rm, String uri) throws ServerException {
 
         // if aclResult size is zero then (di) does not exist
         if (aclResult == null || aclResult.size() == 0) {
@@ -140,7 +147,7 @@ public class AclVerifyResource extends Resource {
         return false;
     }
 
-    private IResponse handleGetRequest(IRequest request)
+    private CompletableFuture<IResponse> handleGetRequest(IRequest request)
             throws ServerException {
 
         String sid = null;
@@ -159,18 +166,20 @@ public class AclVerifyResource extends Resource {
         rm = queryMap.get(Constants.REQ_REQUEST_METHOD).get(0);
         uri = queryMap.get(Constants.REQ_REQUEST_URI).get(0);
 
-        HashMap<String, Object> responsePayload = new HashMap<>();
-        if (verifyAcl(sid, di, rm, uri)) {
-            responsePayload.put(Constants.RESP_GROUP_PERMISSION,
-                    Constants.RESP_ACL_ALLOWED);
-        } else {
-            responsePayload.put(Constants.RESP_GROUP_PERMISSION,
-                    Constants.RESP_ACL_DENIED);
-        }
+        return verifyAcl(sid, di, rm, uri).thenApply(allowed -> {
+            HashMap<String, Object> responsePayload = new HashMap<>();
+            if (allowed) {
+                responsePayload.put(Constants.RESP_GROUP_PERMISSION,
+                        Constants.RESP_ACL_ALLOWED);
+            } else {
+                responsePayload.put(Constants.RESP_GROUP_PERMISSION,
+                        Constants.RESP_ACL_DENIED);
+            }
 
-        return MessageBuilder.createResponse(request, ResponseStatus.CONTENT,
-                ContentFormat.APPLICATION_CBOR,
-                mCbor.encodingPayloadToCbor(responsePayload));
+            return MessageBuilder.createResponse(request,
+                    ResponseStatus.CONTENT, ContentFormat.APPLICATION_CBOR,
+                    mCbor.encodingPayloadToCbor(responsePayload));
+        });
     }
 
 }
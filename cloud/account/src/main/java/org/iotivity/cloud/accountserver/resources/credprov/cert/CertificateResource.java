@@ -99,6 +99,7 @@ public class CertificateResource extends Resource {
      */
     public CertificateResource() {
         super(Arrays.asList(PREFIX_OIC, CREDPROV_URI, CERT_URI));
+        setBlocking(true);
     }
 
     @Override
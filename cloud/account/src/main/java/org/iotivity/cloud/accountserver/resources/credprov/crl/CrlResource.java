@@ -65,6 +65,7 @@ public class CrlResource extends Resource {
     public CrlResource() {
         super(Arrays.asList(Constants.PREFIX_OIC, Constants.CREDPROV_URI,
                 Constants.REQ_CRL));
+        setBlocking(true);
 
     }
 
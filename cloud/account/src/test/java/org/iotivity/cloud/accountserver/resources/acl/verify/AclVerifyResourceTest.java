@@ -55,7 +55,7 @@ import org.mockito.stubbing.Answer;
 public class AclVerifyResourceTest {
     private static final String           ACL_ID_URI         = Constants.ACL_ID_FULL_URI;
     private static final String           ACL_VERIFY_URI     = Constants.ACL_VERIFY_FULL_URI;
-    final CountDownLatch                  mLatch             = new CountDownLatch(
+    private CountDownLatch                mLatch             = new CountDownLatch(
             1);
     private final String                  mDeviceUuid        = "9cfbeb8e-5a1e-4d1c-9d01-2ae6fdb";
     private final String                  mOwnerUuid         = "123e4567-e89b-12d3-a456-4266554";
@@ -118,11 +118,13 @@ public class AclVerifyResourceTest {
         createAclId(mMockDevice, mDeviceUuid, mOwnerUuid);
         hashmapGetAclId(mResponse, "aclid");
         addIndividualAce(mMockDevice, mAclId);
+        // verify is answered asynchronously
+        mLatch = new CountDownLatch(1);
         verifyAcl(mMockDevice, mSubjectUuid, mDeviceUuid, mRmType,
                 mResourceUri);
+        assertTrue(mLatch.await(2L, SECONDS));
         assertTrue(methodCheck(mResponse, ResponseStatus.CONTENT));
         assertTrue(hashmapCheck(mResponse, "gp"));
-        assertTrue(mLatch.await(2L, SECONDS));
     }
 
     private void createAclId(CoapDevice device, String di, String oid)
@@ -22,8 +22,12 @@
 package org.iotivity.cloud.ciserver;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
 
+import org.iotivity.cloud.base.Transport;
+import org.iotivity.cloud.base.connector.ConnectionGroup.SelectionPolicy;
 import org.iotivity.cloud.base.connector.ConnectorPool;
 import org.iotivity.cloud.base.server.CoapServer;
 import org.iotivity.cloud.base.server.HttpServer;
@@ -39,6 +43,7 @@ import org.iotivity.cloud.ciserver.resources.proxy.account.AclInvite;
 import org.iotivity.cloud.ciserver.resources.proxy.account.Certificate;
 import org.iotivity.cloud.ciserver.resources.proxy.account.Crl;
 import org.iotivity.cloud.ciserver.resources.proxy.mq.MessageQueue;
+import org.iotivity.cloud.ciserver.resources.proxy.rd.DeviceListCache;
 import org.iotivity.cloud.ciserver.resources.proxy.rd.DevicePresence;
 import org.iotivity.cloud.ciserver.resources.proxy.rd.ResourceDirectory;
 import org.iotivity.cloud.ciserver.resources.proxy.rd.ResourceFind;
@@ -47,20 +52,26 @@ import org.iotivity.cloud.util.Log;
 
 public class CloudInterfaceServer {
 
-    private static int     coapServerPort;
-    private static boolean tlsMode;
-    private static boolean keepAlive = false;
-    private static boolean hcProxyMode;
-    private static int     hcProxyPort;
-    private static boolean websocketMode;
-    private static int     websocketPort;
-    private static String  resourceDirectoryAddress;
-    private static int     resourceDirectoryPort;
-    private static String  accountServerAddress;
-    private static int     accountServerPort;
-    private static String  messageQueueAddress;
-    private static int     messageQueuePort;
-    private static String  webLogHost;
+    private static int       coapServerPort;
+    private static boolean   tlsMode;
+    private static boolean   keepAlive          = false;
+    private static boolean   hcProxyMode;
+    private static int       hcProxyPort;
+    private static boolean   websocketMode;
+    private static int       websocketPort;
+    private static String    resourceDirectoryAddress;
+    private static int       resourceDirectoryPort;
+    private static String    accountServerAddress;
+    private static int       accountServerPort;
+    private static String    messageQueueAddress;
+    private static int       messageQueuePort;
+    private static String    webLogHost;
+    private static boolean   zeroCopyDecoding;
+    private static boolean   pooledMessages;
+    private static Transport transport          = Transport.AUTO;
+    private static int       acceptorCount      = 1;
+    private static int       workerCount        = 0;
+    private static int       flushConsolidation = 0;
 
     public static void main(String[] args) throws Exception {
         System.out.println("-----CI SERVER-------");
@@ -69,7 +80,8 @@ public class CloudInterfaceServer {
         if (!parseConfiguration(args)) {
             Log.e("\nCoAP-server <Port> RD-server <Address> <Port> Account-server <Address> <Port> MQ-broker <Address> <Port> HC-proxy [HTTP-port] "
                     + "Websocket-server <Port> and TLS-mode <0|1> are required. WebSocketLog-Server <Addres> <Port> "
-                    + "and KeepAlive for cloud components <0|1> are optional.\n"
+                    + "and KeepAlive for cloud components <0|1> are optional. "
+                    + "Transport <auto|epoll|nio> <Acceptor-threads> can follow.\n"
                     + "ex) " + Constants.DEFAULT_COAP_PORT
                     + " 127.0.0.1 " + Constants.DEFAULT_RESOURCE_DIRECTORY_PORT
                     + " 127.0.0.1 " + Constants.DEFAULT_ACCOUNT_SERVER_PORT
@@ -82,22 +94,78 @@ public class CloudInterfaceServer {
             Log.InitWebLog(webLogHost,
                     CloudInterfaceServer.class.getSimpleName().toString());
 
+        ConnectorPool.setTransport(transport);
+
+        // Zero-copy decoding keeps payloads as views on the receive buffers
+        zeroCopyDecoding = "1".equals(System.getenv("ZERO_COPY_DECODING"));
+        ConnectorPool.setZeroCopyDecoding(zeroCopyDecoding);
+
+        // Pooled messages are recycled once every handler released them
+        pooledMessages = "1".equals(System.getenv("POOLED_MESSAGES"));
+        ConnectorPool.setPooledMessages(pooledMessages);
+
+        // Device connections are served by the given number of event loops
+        String workerCountEnv = System.getenv("WORKER_THREADS");
+        if (workerCountEnv != null) {
+            workerCount = Integer.parseInt(workerCountEnv);
+        }
+
+        // Responses written meanwhile to a device are flushed together
+        String flushConsolidationEnv = System.getenv("FLUSH_CONSOLIDATION");
+        if (flushConsolidationEnv != null) {
+            flushConsolidation = Integer.parseInt(flushConsolidationEnv);
+        }
+
+        // Upstream requests time out and are limited per connection
+        String requestTimeout = System.getenv("REQUEST_TIMEOUT");
+        if (requestTimeout != null) {
+            ConnectorPool.setRequestTimeout(Long.parseLong(requestTimeout));
+        }
+        String maxInFlightRequests = System.getenv("MAX_INFLIGHT_REQUESTS");
+        if (maxInFlightRequests != null) {
+            ConnectorPool.setMaxInFlightRequests(
+                    Integer.parseInt(maxInFlightRequests));
+        }
+
+        // Backend addresses may list replicas separated by commas, each
+        // served by several connections
+        int connectionCount = 1;
+        String connectionCountEnv = System.getenv("CONNECTIONS_PER_SERVER");
+        if (connectionCountEnv != null) {
+            connectionCount = Integer.parseInt(connectionCountEnv);
+        }
+        ConnectorPool.setSelectionPolicy(SelectionPolicy
+                .fromName(System.getenv("CONNECTION_SELECTION")));
+
         ConnectorPool.requestConnection("rd",
-                new InetSocketAddress(resourceDirectoryAddress, resourceDirectoryPort),
-                tlsMode, keepAlive);
+                parseAddresses(resourceDirectoryAddress, resourceDirectoryPort),
+                connectionCount, tlsMode, keepAlive);
         ConnectorPool.requestConnection("account",
-                new InetSocketAddress(accountServerAddress, accountServerPort),
-                tlsMode, keepAlive);
+                parseAddresses(accountServerAddress, accountServerPort),
+                connectionCount, tlsMode, keepAlive);
         ConnectorPool.requestConnection("mq",
-                new InetSocketAddress(messageQueueAddress, messageQueuePort),
-                tlsMode, keepAlive);
+                parseAddresses(messageQueueAddress, messageQueuePort),
+                connectionCount, tlsMode, keepAlive);
 
         DeviceServerSystem deviceServer = new DeviceServerSystem();
 
         Account acHandler = new Account();
         AccountSession acSessionHandler = new AccountSession();
         ResourceDirectory rdHandler = new ResourceDirectory();
-        ResourceFind resHandler = new ResourceFind();
+        // Group device lists of users are cached for repeated discovery
+        long discoveryCacheTtl = DeviceListCache.DEFAULT_TTL;
+        String discoveryCacheTtlEnv = System.getenv("DISCOVERY_CACHE_TTL");
+        if (discoveryCacheTtlEnv != null) {
+            discoveryCacheTtl = Long.parseLong(discoveryCacheTtlEnv);
+        }
+        int discoveryCacheSize = DeviceListCache.DEFAULT_MAX_SIZE;
+        String discoveryCacheSizeEnv = System.getenv("DISCOVERY_CACHE_SIZE");
+        if (discoveryCacheSizeEnv != null) {
+            discoveryCacheSize = Integer.parseInt(discoveryCacheSizeEnv);
+        }
+        ResourceFind resHandler = new ResourceFind(discoveryCacheTtl > 0
+                ? new DeviceListCache(discoveryCacheSize, discoveryCacheTtl)
+                : null);
         ResourcePresence adHandler = new ResourcePresence();
         DevicePresence prsHandler = new DevicePresence();
         MessageQueue mqHandler = new MessageQueue();
@@ -139,16 +207,31 @@ public class CloudInterfaceServer {
 
         deviceServer.addResource(new RouteResource(devicePool));
 
-        deviceServer.addServer(
-                new CoapServer(new InetSocketAddress(coapServerPort)));
-
-        if (hcProxyMode)
-            deviceServer.addServer(
-                    new HttpServer(new InetSocketAddress(hcProxyPort)));
+        CoapServer coapServer = new CoapServer(
+                new InetSocketAddress(coapServerPort), zeroCopyDecoding,
+                pooledMessages);
+        coapServer.setTransport(transport);
+        // Several acceptors bind the CoAP port with SO_REUSEPORT
+        coapServer.setAcceptorCount(acceptorCount);
+        coapServer.setWorkerCount(workerCount);
+        // Notification bursts to a device go out with one syscall
+        coapServer.setFlushConsolidation(flushConsolidation);
+        deviceServer.addServer(coapServer);
+
+        if (hcProxyMode) {
+            HttpServer httpServer = new HttpServer(
+                    new InetSocketAddress(hcProxyPort));
+            httpServer.setTransport(transport);
+            deviceServer.addServer(httpServer);
+        }
 
-        if (websocketMode)
-            deviceServer.addServer(
-                    new WebSocketServer(new InetSocketAddress(websocketPort)));
+        if (websocketMode) {
+            WebSocketServer webSocketServer = new WebSocketServer(
+                    new InetSocketAddress(websocketPort));
+            webSocketServer.setTransport(transport);
+            webSocketServer.setFlushConsolidation(flushConsolidation);
+            deviceServer.addServer(webSocketServer);
+        }
 
         deviceServer.startSystem(tlsMode);
 
@@ -171,9 +254,23 @@ public class CloudInterfaceServer {
         System.out.println("Terminated");
     }
 
+    // Parses "host[:port],host[:port]..." using the given port by default
+    private static List<InetSocketAddress> parseAddresses(String addresses,
+            int defaultPort) {
+        List<InetSocketAddress> addressList = new ArrayList<>();
+        for (String address : addresses.split(",")) {
+            String[] hostPort = address.trim().split(":");
+            addressList.add(new InetSocketAddress(hostPort[0],
+                    hostPort.length > 1 ? Integer.parseInt(hostPort[1])
+                            : defaultPort));
+        }
+        return addressList;
+    }
+
     private static boolean parseConfiguration(String[] args) {
         // configuration provided by arguments
-        if (args.length == 10 || args.length == 13) {
+        if (args.length == 10 || args.length == 12 || args.length == 13
+                || args.length == 15) {
             coapServerPort = Integer.parseInt(args[0]);
             resourceDirectoryAddress = args[1];
             resourceDirectoryPort = Integer.parseInt(args[2]);
@@ -186,10 +283,14 @@ public class CloudInterfaceServer {
             websocketPort = Integer.parseInt(args[8]);
             websocketMode = websocketPort != 0;
             tlsMode = Integer.parseInt(args[9]) == 1;
-            if (args.length == 13) {
+            if (args.length >= 13) {
                 webLogHost = args[10] + ":" + args[11];
                 keepAlive = Integer.parseInt(args[12]) == 1;
             }
+            if (args.length == 12 || args.length == 15) {
+                transport = Transport.fromName(args[args.length - 2]);
+                acceptorCount = Integer.parseInt(args[args.length - 1]);
+            }
 
             return true;
         }
@@ -210,6 +311,11 @@ public class CloudInterfaceServer {
             websocketPort = Constants.DEFAULT_WEBSOCKET_PORT;
             keepAlive = Integer.parseInt(System.getenv("KEEPALIVE_CLOUD")) == 1;
             tlsMode = Integer.parseInt(tlsModeEnv) == 1;
+            transport = Transport.fromName(System.getenv("TRANSPORT"));
+            String acceptorCountEnv = System.getenv("ACCEPTOR_THREADS");
+            if (acceptorCountEnv != null) {
+                acceptorCount = Integer.parseInt(acceptorCountEnv);
+            }
 
             return true;
         }
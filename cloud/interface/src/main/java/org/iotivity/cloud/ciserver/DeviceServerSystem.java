@@ -22,8 +22,8 @@
 package org.iotivity.cloud.ciserver;
 
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.iotivity.cloud.base.OICConstants;
 import org.iotivity.cloud.base.ServerSystem;
@@ -58,6 +58,7 @@ import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelPromise;
+import io.netty.util.ReferenceCountUtil;
 
 /**
  *
@@ -76,7 +77,13 @@ public class DeviceServerSystem extends ServerSystem {
      *
      */
     public static class CoapDevicePool {
-        HashMap<String, Device> mMapDevice = new HashMap<>();
+        ConcurrentHashMap<String, Device>                                  mMapDevice       = new ConcurrentHashMap<>();
+
+        // Observing devices of each target device, and the reverse, so a
+        // disconnect only visits devices observing through it. Each pair
+        // counts its subscriptions, and is dropped when the last one ends
+        ConcurrentHashMap<Device, ConcurrentHashMap<Device, Integer>> mObservers       = new ConcurrentHashMap<>();
+        ConcurrentHashMap<Device, ConcurrentHashMap<Device, Integer>> mObservedDevices = new ConcurrentHashMap<>();
 
         /**
          * API for adding device information into pool.
@@ -86,9 +93,7 @@ public class DeviceServerSystem extends ServerSystem {
          */
         public void addDevice(Device device) {
             String deviceId = ((CoapDevice) device).getDeviceId();
-            synchronized (mMapDevice) {
-                mMapDevice.put(deviceId, device);
-            }
+            mMapDevice.put(deviceId, device);
         }
 
         /**
@@ -99,26 +104,97 @@ public class DeviceServerSystem extends ServerSystem {
          */
         public void removeDevice(Device device) throws ClientException {
             String deviceId = ((CoapDevice) device).getDeviceId();
-            synchronized (mMapDevice) {
-                if (mMapDevice.get(deviceId) == device) {
-                    mMapDevice.remove(deviceId);
-                }
-            }
+            mMapDevice.remove(deviceId, device);
             removeObserveDevice(device);
         }
 
+        /**
+         * API for recording that a device observes resources of another
+         * device. Entries are kept until every subscription of the observer
+         * to the target ends or either device is removed.
+         * 
+         * @param targetDevice
+         *            device hosting observed resources
+         * @param observerDevice
+         *            device observing
+         */
+        public void addObserver(Device targetDevice, Device observerDevice) {
+            addIndexEntry(mObservers, targetDevice, observerDevice);
+            addIndexEntry(mObservedDevices, observerDevice, targetDevice);
+        }
+
+        /**
+         * API for recording that a subscription of a device to resources of
+         * another device ended.
+         * 
+         * @param targetDevice
+         *            device hosting observed resources
+         * @param observerDevice
+         *            device observing
+         */
+        public void removeObserver(Device targetDevice,
+                Device observerDevice) {
+            removeIndexEntry(mObservers, targetDevice, observerDevice);
+            removeIndexEntry(mObservedDevices, observerDevice, targetDevice);
+        }
+
         private void removeObserveDevice(Device device) throws ClientException {
-            synchronized (mMapDevice) {
-                Iterator<String> iterator = mMapDevice.keySet().iterator();
-                while (iterator.hasNext()) {
-                    String deviceId = iterator.next();
-                    CoapDevice getDevice = (CoapDevice) queryDevice(deviceId);
-                    getDevice.removeObserveChannel(
-                            ((CoapDevice) device).getRequestChannel());
+            // Devices observing through the removed device
+            ConcurrentHashMap<Device, Integer> observers = mObservers
+                    .remove(device);
+            if (observers != null) {
+                IRequestChannel requestChannel = ((CoapDevice) device)
+                        .getRequestChannel();
+                for (Device observer : observers.keySet()) {
+                    dropIndexEntry(mObservedDevices, observer, device);
+                    ((CoapDevice) observer)
+                            .removeObserveChannel(requestChannel);
+                }
+            }
+
+            // Devices observed by the removed device
+            ConcurrentHashMap<Device, Integer> observedDevices = mObservedDevices
+                    .remove(device);
+            if (observedDevices != null) {
+                for (Device observedDevice : observedDevices.keySet()) {
+                    dropIndexEntry(mObservers, observedDevice, device);
                 }
             }
         }
 
+        private void addIndexEntry(
+                ConcurrentHashMap<Device, ConcurrentHashMap<Device, Integer>> index,
+                Device key, Device value) {
+            index.compute(key, (device, devices) -> {
+                if (devices == null) {
+                    devices = new ConcurrentHashMap<>();
+                }
+                devices.merge(value, 1, Integer::sum);
+                return devices;
+            });
+        }
+
+        // Ends one subscription of the pair
+        private void removeIndexEntry(
+                ConcurrentHashMap<Device, ConcurrentHashMap<Device, Integer>> index,
+                Device key, Device value) {
+            index.computeIfPresent(key, (device, devices) -> {
+                devices.computeIfPresent(value,
+                        (observer, count) -> count > 1 ? count - 1 : null);
+                return devices.isEmpty() ? null : devices;
+            });
+        }
+
+        // Ends every subscription of the pair, when either device is removed
+        private void dropIndexEntry(
+                ConcurrentHashMap<Device, ConcurrentHashMap<Device, Integer>> index,
+                Device key, Device value) {
+            index.computeIfPresent(key, (device, devices) -> {
+                devices.remove(value);
+                return devices.isEmpty() ? null : devices;
+            });
+        }
+
         /**
          * API for getting device information.
          * 
@@ -126,11 +202,16 @@ public class DeviceServerSystem extends ServerSystem {
          *            device id to get device
          */
         public Device queryDevice(String deviceId) {
-            Device device = null;
-            synchronized (mMapDevice) {
-                device = mMapDevice.get(deviceId);
-            }
-            return device;
+            return mMapDevice.get(deviceId);
+        }
+
+        /**
+         * API for getting number of devices in pool.
+         * 
+         * @return device count
+         */
+        public int getDeviceCount() {
+            return mMapDevice.size();
         }
     }
 
@@ -169,8 +250,9 @@ public class DeviceServerSystem extends ServerSystem {
                         int RouteResourcePathSize = Constants.ROUTE_FULL_URI
                                 .split("/").length;
                         List<String> uriPath = coapRequest.getUriPathSegments();
+                        CoapDevice targetDevice = null;
                         if (uriPath != null && !uriPath.isEmpty()) {
-                            CoapDevice targetDevice = (CoapDevice) mDevicePool
+                            targetDevice = (CoapDevice) mDevicePool
                                     .queryDevice(uriPath
                                             .get(RouteResourcePathSize - 1));
                             targetChannel = targetDevice.getRequestChannel();
@@ -183,11 +265,19 @@ public class DeviceServerSystem extends ServerSystem {
                                                 coapRequest.getToken()),
                                         coapRequest);
                                 coapDevice.addObserveChannel(targetChannel);
+                                if (targetDevice != null) {
+                                    mDevicePool.addObserver(targetDevice,
+                                            coapDevice);
+                                }
                                 break;
                             case UNSUBSCRIBE:
                                 coapDevice.removeObserveChannel(targetChannel);
                                 coapDevice.removeObserveRequest(Bytes
                                         .bytesToLong(coapRequest.getToken()));
+                                if (targetDevice != null) {
+                                    mDevicePool.removeObserver(targetDevice,
+                                            coapDevice);
+                                }
                                 break;
                             default:
                                 break;
@@ -453,6 +543,7 @@ public class DeviceServerSystem extends ServerSystem {
                 ctx.writeAndFlush(MessageBuilder
                         .createResponse((CoapRequest) msg, responseStatus));
                 Log.f(ctx.channel(), t);
+                ReferenceCountUtil.release(msg);
             }
         }
     }
@@ -553,6 +644,7 @@ public class DeviceServerSystem extends ServerSystem {
                             (CoapSignaling) msg, responseStatus));
                 }
                 Log.f(ctx.channel(), t);
+                ReferenceCountUtil.release(msg);
             }
         }
 
@@ -21,14 +21,11 @@
  */
 package org.iotivity.cloud.ciserver.resources;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.iotivity.cloud.base.device.Device;
 import org.iotivity.cloud.base.exception.ServerException;
@@ -41,6 +38,13 @@ import org.iotivity.cloud.base.protocols.enums.ResponseStatus;
 import org.iotivity.cloud.base.resource.Resource;
 import org.iotivity.cloud.ciserver.Constants;
 import org.iotivity.cloud.util.Cbor;
+import org.iotivity.cloud.util.Log;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
+import io.netty.util.concurrent.DefaultThreadFactory;
 
 /**
  *
@@ -49,10 +53,13 @@ import org.iotivity.cloud.util.Cbor;
  *
  */
 public class KeepAliveResource extends Resource {
-    private int[]                         mIntervals      = null;
-    private Timer                         mTimer          = new Timer();
-    private Cbor<HashMap<String, Object>> mCbor           = new Cbor<>();
-    private HashMap<Device, Long>         mConnectionPool = new HashMap<>();
+    private int[]                                   mIntervals    = null;
+    private volatile HashedWheelTimer               mTimer        = null;
+    private Cbor<HashMap<String, Object>>           mCbor         = new Cbor<>();
+    private ConcurrentHashMap<Device, SessionEntry> mSessions     = new ConcurrentHashMap<>();
+
+    private AtomicLong                              mPingCount    = new AtomicLong();
+    private AtomicLong                              mExpiredCount = new AtomicLong();
 
     public KeepAliveResource(int[] intervals) {
         super(Arrays.asList(Constants.PREFIX_OIC, Constants.KEEP_ALIVE_URI));
@@ -83,12 +90,63 @@ public class KeepAliveResource extends Resource {
         srcDevice.sendResponse(response);
     }
 
+    /**
+     * API for starting session expiry. Each session is expired by its own
+     * timeout on a timing wheel, so no scan over all sessions is made.
+     * 
+     * @param startTime
+     *            delay in milliseconds before sessions registered so far are
+     *            checked
+     * @param intervalTime
+     *            tick of the timing wheel in milliseconds, which bounds how
+     *            late a session is expired
+     */
     public void startSessionChecker(int startTime, int intervalTime) {
-        mTimer.schedule(new KeepAliveTask(), startTime, intervalTime);
+        mTimer = new HashedWheelTimer(
+                new DefaultThreadFactory("keep-alive-timer", true),
+                intervalTime, TimeUnit.MILLISECONDS);
+
+        // Sessions made before the timer existed
+        for (SessionEntry session : mSessions.values()) {
+            synchronized (session) {
+                if (session.timeout == null) {
+                    session.schedule(startTime);
+                }
+            }
+        }
     }
 
     public void stopSessionChecker() {
-        mTimer.cancel();
+        if (mTimer != null) {
+            mTimer.stop();
+        }
+    }
+
+    /**
+     * API for getting number of ping requests received
+     * 
+     * @return ping count
+     */
+    public long getPingCount() {
+        return mPingCount.get();
+    }
+
+    /**
+     * API for getting number of sessions closed for missing pings
+     * 
+     * @return expired session count
+     */
+    public long getExpiredCount() {
+        return mExpiredCount.get();
+    }
+
+    /**
+     * API for getting number of devices having a session
+     * 
+     * @return session count
+     */
+    public int getSessionCount() {
+        return mSessions.size();
     }
 
     /**
@@ -114,41 +172,107 @@ public class KeepAliveResource extends Resource {
 
         checkPayloadException(Constants.REQ_PING, payloadData);
 
-        Long pingTime = (long) (Integer
+        long pingTime = (long) (Integer
                 .valueOf(payloadData.get(Constants.REQ_PING).toString())
                 * (long) 60000 * 1.1);
-        Long connectionTime = System.currentTimeMillis() + pingTime;
-        mConnectionPool.put(srcDevice, connectionTime);
+        updateSession(srcDevice, pingTime);
 
         return MessageBuilder.createResponse(request, ResponseStatus.VALID);
     }
 
+    // Moves the session deadline. A timeout firing before the deadline is
+    // rescheduled, so a ping does not touch the timer unless it shortens it
+    void updateSession(Device device, long pingTime) {
+        mPingCount.incrementAndGet();
+
+        SessionEntry session = mSessions.computeIfAbsent(device,
+                SessionEntry::new);
+
+        synchronized (session) {
+            boolean firstPing = session.deadline == 0;
+            session.deadline = System.currentTimeMillis() + pingTime;
+            if (session.timeout == null
+                    || session.scheduledTime > session.deadline) {
+                if (session.timeout != null) {
+                    session.timeout.cancel();
+                }
+                session.schedule(pingTime);
+            }
+            if (firstPing) {
+                session.watchConnection();
+            }
+        }
+    }
+
     /**
      * API for managing session
      */
-    private class KeepAliveTask extends TimerTask {
+    private class SessionEntry implements TimerTask {
+        private final Device device;
+        private long         deadline      = 0;
+        private long         scheduledTime = 0;
+        private Timeout      timeout       = null;
+
+        SessionEntry(Device device) {
+            this.device = device;
+        }
+
+        // Session of a closed connection is dropped right away
+        private void watchConnection() {
+            ChannelHandlerContext ctx = device.getCtx();
+            if (ctx != null) {
+                ctx.channel().closeFuture()
+                        .addListener(future -> removeSession(this));
+            }
+        }
+
+        // Called with the session locked
+        private void schedule(long delay) {
+            HashedWheelTimer timer = mTimer;
+            if (timer == null) {
+                return;
+            }
+            scheduledTime = System.currentTimeMillis() + delay;
+            timeout = timer.newTimeout(this, delay, TimeUnit.MILLISECONDS);
+        }
 
         @Override
-        public void run() {
-            Map<Device, Long> map = Collections
-                    .synchronizedMap(mConnectionPool);
-
-            List<Device> deleteList = new ArrayList<>();
-
-            synchronized (map) {
-                Long currentTime = System.currentTimeMillis();
-                for (Device device : map.keySet()) {
-                    Long lifeTime = (Long) map.get(device);
-                    if (lifeTime != null && lifeTime < currentTime) {
-                        deleteList.add(device);
-                    }
+        public void run(Timeout expired) {
+            synchronized (this) {
+                if (expired != timeout) {
+                    return;
+                }
+
+                long remainingTime = deadline - System.currentTimeMillis();
+                if (remainingTime > 0) {
+                    schedule(remainingTime);
+                    return;
                 }
             }
 
-            for (Device device : deleteList) {
-                mConnectionPool.remove(device);
-                device.getCtx().fireChannelInactive();
-                device.getCtx().close();
+            if (!mSessions.remove(device, this)) {
+                return;
+            }
+
+            Log.d("Session of " + device.getDeviceId() + " expired");
+
+            ChannelHandlerContext ctx = device.getCtx();
+            if (ctx != null) {
+                ctx.executor().execute(() -> {
+                    ctx.fireChannelInactive();
+                    ctx.close();
+                });
+            }
+            mExpiredCount.incrementAndGet();
+        }
+    }
+
+    private void removeSession(SessionEntry session) {
+        if (mSessions.remove(session.device, session)) {
+            synchronized (session) {
+                if (session.timeout != null) {
+                    session.timeout.cancel();
+                }
             }
         }
     }
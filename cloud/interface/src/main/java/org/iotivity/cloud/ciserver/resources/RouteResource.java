@@ -21,10 +21,10 @@
  */
 package org.iotivity.cloud.ciserver.resources;
 
-import java.util.ArrayList;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 
 import org.iotivity.cloud.base.OICConstants;
 import org.iotivity.cloud.base.connector.ConnectorPool;
@@ -45,6 +45,15 @@ import org.iotivity.cloud.base.resource.Resource;
 import org.iotivity.cloud.ciserver.Constants;
 import org.iotivity.cloud.ciserver.DeviceServerSystem.CoapDevicePool;
 import org.iotivity.cloud.util.Cbor;
+import org.iotivity.cloud.util.Log;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+import io.netty.util.ReferenceCountUtil;
 
 /**
  *
@@ -54,12 +63,20 @@ import org.iotivity.cloud.util.Cbor;
  */
 public class RouteResource extends Resource {
 
-    private CoapDevicePool                mDevicePool = null;
-    private Cbor<HashMap<String, Object>> mCbor       = new Cbor<>();
+    private static final CBORFactory      mCborFactory = new CBORFactory();
+
+    private CoapDevicePool                mDevicePool  = null;
+    private Cbor<HashMap<String, Object>> mCbor        = new Cbor<>();
+
+    // Route prefix and its length with the trailing slash, e.g. /oic/route/
+    private final String                  mRoutePrefix;
+    private final int                     mDeviceIdStart;
 
     public RouteResource(CoapDevicePool devicePool) {
         super(Arrays.asList(Constants.PREFIX_OIC, Constants.REQ_DEVICE_ROUTE));
         mDevicePool = devicePool;
+        mRoutePrefix = "/" + String.join("/", getUriPathSegments());
+        mDeviceIdStart = mRoutePrefix.length() + 1;
     }
 
     private IRequestChannel getTargetDeviceChannel(IRequest request)
@@ -76,43 +93,25 @@ public class RouteResource extends Resource {
         return targetDevice.getRequestChannel();
     }
 
+    // Slices the target path out of /oic/route/{di}/{target path}
     private String extractTargetUriPath(IRequest request) {
-        List<String> uriPathSegment = request.getUriPathSegments();
-
-        // Remove prefix path
-        if (uriPathSegment != null) {
-            for (String path : getUriPathSegments()) {
-                uriPathSegment.remove(path);
-            }
-            uriPathSegment.remove(0);
-
-            StringBuilder uriPath = new StringBuilder();
-            for (String path : uriPathSegment) {
-                uriPath.append("/" + path);
-            }
-
-            return uriPath.toString();
+        String uriPath = request.getUriPath();
+        if (uriPath != null && uriPath.length() > mDeviceIdStart) {
+            int targetStart = uriPath.indexOf('/', mDeviceIdStart);
+            return targetStart < 0 ? "" : uriPath.substring(targetStart);
         }
         throw new InternalServerErrorException(
                 "Can not extract TargetUriPath from uriPath!");
     }
 
-    private IResponse convertReponseUri(IResponse response, String di) {
+    private IResponse convertReponseUri(IResponse response, String routePath) {
 
         String convertedUri = new String();
 
-        CoapResponse coapResponse = (CoapResponse) response;
-
-        StringBuilder uriPath = new StringBuilder();
-        for (String path : getUriPathSegments()) {
-            uriPath.append("/" + path);
-        }
-
-        String resUriPath = coapResponse.getUriPath();
+        String resUriPath = ((CoapResponse) response).getUriPath();
 
         if (resUriPath != null && !resUriPath.isEmpty()) {
-            convertedUri = uriPath.toString() + "/" + di
-                    + coapResponse.getUriPath();
+            convertedUri = routePath + resUriPath;
         }
 
         return MessageBuilder.modifyResponse(response, convertedUri, null,
@@ -120,12 +119,18 @@ public class RouteResource extends Resource {
     }
 
     private String getDeviceId(IRequest request) {
-        List<String> uriPathSegment = request.getUriPathSegments();
-        if (uriPathSegment == null)
+        String uriPath = request.getUriPath();
+        if (uriPath == null || uriPath.length() <= mDeviceIdStart)
             throw new InternalServerErrorException(
                     "Can not find deviceId from uriPath!");
 
-        return uriPathSegment.get(getUriPathSegments().size());
+        int deviceIdEnd = uriPath.indexOf('/', mDeviceIdStart);
+        return uriPath.substring(mDeviceIdStart,
+                deviceIdEnd < 0 ? uriPath.length() : deviceIdEnd);
+    }
+
+    private String getRoutePath(String di) {
+        return mRoutePrefix + "/" + di;
     }
 
     /**
@@ -135,63 +140,91 @@ public class RouteResource extends Resource {
      *
      */
     class LinkInterfaceHandler implements IResponseEventHandler {
-        private Cbor<List<HashMap<String, Object>>> mCbor      = new Cbor<>();
-        private String                              mTargetDI  = null;
-        private Device                              mSrcDevice = null;
-        private IRequest                            mRequest   = null;
+        private String   mRoutePath = null;
+        private Device   mSrcDevice = null;
+        private IRequest mRequest   = null;
 
         public LinkInterfaceHandler(String targetDI, Device srcDevice,
                 IRequest request) {
-            mTargetDI = targetDI;
+            mRoutePath = getRoutePath(targetDI);
             mSrcDevice = srcDevice;
             mRequest = request;
         }
 
-        private void convertHref(List<HashMap<String, Object>> linkPayload) {
-
-            StringBuilder uriPath = new StringBuilder();
-            for (String path : getUriPathSegments()) {
-                uriPath.append("/" + path);
+        // Copies the link list token by token, prefixing href of each link
+        // with the route path. Returns null if the payload is not a list.
+        private byte[] convertHref(byte[] linkPayload) throws IOException {
+            if (linkPayload == null) {
+                return null;
             }
 
-            for (HashMap<String, Object> link : linkPayload) {
-                link.put("href", uriPath.toString() + "/" + mTargetDI
-                        + link.get("href"));
+            ByteArrayOutputStream out = new ByteArrayOutputStream(
+                    linkPayload.length + 64);
+
+            try (JsonParser parser = mCborFactory.createParser(linkPayload);
+                    JsonGenerator generator = mCborFactory
+                            .createGenerator(out)) {
+
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    return null;
+                }
+                generator.copyCurrentEvent(parser);
+
+                JsonToken token;
+                while ((token = parser.nextToken()) != null) {
+                    if (token == JsonToken.VALUE_STRING && isLinkHref(parser)) {
+                        generator.writeString(mRoutePath + parser.getText());
+                    } else {
+                        generator.copyCurrentEvent(parser);
+                    }
+                }
             }
+
+            return out.toByteArray();
+        }
+
+        // href directly in a link of the top level list
+        private boolean isLinkHref(JsonParser parser) throws IOException {
+            JsonStreamContext context = parser.getParsingContext();
+            return context.inObject() && context.getParent().inArray()
+                    && context.getParent().getParent().inRoot()
+                    && "href".equals(parser.getCurrentName());
         }
 
         @Override
         public void onResponseReceived(IResponse response) {
-            List<HashMap<String, Object>> linkPayload = null;
+            byte[] linkPayload = null;
             if (response.getStatus().equals(ResponseStatus.CONTENT)) {
-                linkPayload = mCbor.parsePayloadFromCbor(response.getPayload(),
-                        ArrayList.class);
+                try {
+                    linkPayload = convertHref(response.getPayload());
+                } catch (IOException e) {
+                    Log.e("Link payload is not valid cbor, " + e.getMessage());
+                }
                 if (linkPayload == null) {
                     mSrcDevice.sendResponse(MessageBuilder.createResponse(
                             mRequest, ResponseStatus.NOT_FOUND));
+                    return;
                 }
-                convertHref(linkPayload);
             }
             mSrcDevice.sendResponse(MessageBuilder.modifyResponse(
-                    convertReponseUri(response, mTargetDI),
-                    ContentFormat.APPLICATION_CBOR, linkPayload != null
-                            ? mCbor.encodingPayloadToCbor(linkPayload) : null));
+                    convertReponseUri(response, mRoutePath),
+                    ContentFormat.APPLICATION_CBOR, linkPayload));
         }
     }
 
     class DefaultResponseHandler implements IResponseEventHandler {
-        private String mTargetDI  = null;
+        private String mRoutePath = null;
         private Device mSrcDevice = null;
 
         public DefaultResponseHandler(String targetDI, Device srcDevice) {
-            mTargetDI = targetDI;
+            mRoutePath = getRoutePath(targetDI);
             mSrcDevice = srcDevice;
         }
 
         @Override
         public void onResponseReceived(IResponse response) {
 
-            mSrcDevice.sendResponse(convertReponseUri(response, mTargetDI));
+            mSrcDevice.sendResponse(convertReponseUri(response, mRoutePath));
         }
     }
 
@@ -200,28 +233,32 @@ public class RouteResource extends Resource {
         private Device   mSrcDevice = null;
 
         public AccountReceiveHandler(Device srcDevice, IRequest request) {
-            mRequest = request;
+            // Kept beyond the current read until the response arrives
+            mRequest = ReferenceCountUtil.retain(request);
             mSrcDevice = srcDevice;
         }
 
         @Override
         public void onResponseReceived(IResponse response) {
-            switch (response.getStatus()) {
-                case CONTENT:
-                    HashMap<String, Object> payloadData = mCbor
-                            .parsePayloadFromCbor(response.getPayload(),
-                                    HashMap.class);
-                    checkPayloadException(Constants.RESP_GRANT_POLICY,
-                            payloadData);
-                    String gp = (String) payloadData
-                            .get(Constants.RESP_GRANT_POLICY);
-                    verifyRequest(mSrcDevice, mRequest, gp);
-                    break;
-
-                default:
-                    mSrcDevice.sendResponse(response);
+            try {
+                switch (response.getStatus()) {
+                    case CONTENT:
+                        HashMap<String, Object> payloadData = mCbor
+                                .parsePayloadFromCbor(response.getPayload(),
+                                        HashMap.class);
+                        checkPayloadException(Constants.RESP_GRANT_POLICY,
+                                payloadData);
+                        String gp = (String) payloadData
+                                .get(Constants.RESP_GRANT_POLICY);
+                        verifyRequest(mSrcDevice, mRequest, gp);
+                        break;
+
+                    default:
+                        mSrcDevice.sendResponse(response);
+                }
+            } finally {
+                ReferenceCountUtil.release(mRequest);
             }
-
         }
     }
 
@@ -243,12 +280,15 @@ public class RouteResource extends Resource {
                     break;
                 }
 
-                IResponseEventHandler responseHandler = new DefaultResponseHandler(
-                        getDeviceId(request), srcDevice);
+                String di = getDeviceId(request);
+                IResponseEventHandler responseHandler = null;
                 if (request.getUriQuery() != null && request.getUriQuery()
                         .contains(Constants.LINK_INTERFACE)) {
-                    responseHandler = new LinkInterfaceHandler(
-                            getDeviceId(request), srcDevice, request);
+                    responseHandler = new LinkInterfaceHandler(di, srcDevice,
+                            request);
+                } else {
+                    responseHandler = new DefaultResponseHandler(di,
+                            srcDevice);
                 }
 
                 String uriPath = extractTargetUriPath(request);
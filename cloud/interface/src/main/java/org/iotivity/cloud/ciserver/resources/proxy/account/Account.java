@@ -37,6 +37,8 @@ import org.iotivity.cloud.base.protocols.enums.ResponseStatus;
 import org.iotivity.cloud.base.resource.Resource;
 import org.iotivity.cloud.ciserver.Constants;
 
+import io.netty.util.ReferenceCountUtil;
+
 /**
  *
  * This class provides a set of APIs to send requests about account to account
@@ -58,20 +60,26 @@ public class Account extends Resource {
         public RDReceiveHandler(IRequest request, IResponse response,
                 Device srcDevice) {
             mSrcDevice = srcDevice;
-            mRequest = request;
-            mResponse = response;
+            // Kept beyond the current read until the response arrives
+            mRequest = ReferenceCountUtil.retain(request);
+            mResponse = ReferenceCountUtil.retain(response);
         }
 
         @Override
         public void onResponseReceived(IResponse response)
                 throws ClientException {
-            switch (response.getStatus()) {
-                case DELETED:
-                    mSrcDevice.sendResponse(mResponse);
-                    break;
-                default:
-                    mSrcDevice.sendResponse(MessageBuilder.createResponse(
-                            mRequest, ResponseStatus.BAD_REQUEST));
+            try {
+                switch (response.getStatus()) {
+                    case DELETED:
+                        mSrcDevice.sendResponse(mResponse);
+                        break;
+                    default:
+                        mSrcDevice.sendResponse(MessageBuilder.createResponse(
+                                mRequest, ResponseStatus.BAD_REQUEST));
+                }
+            } finally {
+                ReferenceCountUtil.release(mRequest);
+                ReferenceCountUtil.release(mResponse);
             }
         }
     }
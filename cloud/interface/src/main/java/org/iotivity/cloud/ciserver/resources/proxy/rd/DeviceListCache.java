@@ -0,0 +1,290 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.ciserver.resources.proxy.rd;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.iotivity.cloud.base.OICConstants;
+import org.iotivity.cloud.base.connector.ConnectorPool;
+import org.iotivity.cloud.base.device.IRequestChannel;
+import org.iotivity.cloud.base.device.IResponseEventHandler;
+import org.iotivity.cloud.base.protocols.IRequest;
+import org.iotivity.cloud.base.protocols.IResponse;
+import org.iotivity.cloud.base.protocols.MessageBuilder;
+import org.iotivity.cloud.base.protocols.coap.CoapRequest;
+import org.iotivity.cloud.base.protocols.enums.Observe;
+import org.iotivity.cloud.base.protocols.enums.RequestMethod;
+import org.iotivity.cloud.base.protocols.enums.ResponseStatus;
+import org.iotivity.cloud.ciserver.Constants;
+import org.iotivity.cloud.util.Bytes;
+import org.iotivity.cloud.util.Log;
+
+/**
+ *
+ * This class provides a set of APIs to cache device lists of users' groups.
+ * Entries expire after a TTL, and are dropped when the account server
+ * notifies a group change of the user.
+ *
+ */
+public class DeviceListCache {
+
+    public static final int                    DEFAULT_MAX_SIZE = 10000;
+    public static final long                   DEFAULT_TTL      = 30000;
+
+    private final int                          mMaxSize;
+    private final long                         mTtl;
+    private final LinkedHashMap<String, Entry> mEntries;
+    // subscriptions of evicted users, unsubscribed once the lock is released
+    private final List<GroupChangeHandler>     mEvicted         = new ArrayList<>();
+
+    private AtomicLong                         mHitCount        = new AtomicLong();
+    private AtomicLong                         mMissCount       = new AtomicLong();
+
+    private class Entry {
+        private List<String>       devices      = null;
+        private long               expireTime   = 0;
+        private GroupChangeHandler subscription = null;
+    }
+
+    /**
+     * @param maxSize
+     *            number of users kept, least recently used users are evicted
+     *            beyond it
+     * @param ttl
+     *            milliseconds a device list is served, which bounds how stale
+     *            it gets if a group change notification is lost
+     */
+    public DeviceListCache(int maxSize, long ttl) {
+        mMaxSize = maxSize;
+        mTtl = ttl;
+        mEntries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<String, Entry> eldest) {
+                if (size() > mMaxSize) {
+                    takeSubscription(eldest.getValue(), mEvicted);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * API for getting cached device list of user
+     * 
+     * @param uid
+     *            user id
+     * @return device list, or null if not cached or expired
+     */
+    public synchronized List<String> get(String uid) {
+        Entry entry = mEntries.get(uid);
+        if (entry == null || entry.devices == null
+                || entry.expireTime < System.currentTimeMillis()) {
+            mMissCount.incrementAndGet();
+            return null;
+        }
+        mHitCount.incrementAndGet();
+        return entry.devices;
+    }
+
+    /**
+     * API for caching device list of user. The first time a user is cached,
+     * group changes of the user are subscribed from the account server.
+     * 
+     * @param uid
+     *            user id
+     * @param devices
+     *            device list of groups the user belongs to
+     */
+    public void put(String uid, List<String> devices) {
+        GroupChangeHandler subscription = null;
+        List<GroupChangeHandler> evicted = Collections.emptyList();
+
+        synchronized (this) {
+            Entry entry = mEntries.get(uid);
+            if (entry == null) {
+                entry = new Entry();
+                mEntries.put(uid, entry);
+            }
+            entry.devices = Collections.unmodifiableList(devices);
+            entry.expireTime = System.currentTimeMillis() + mTtl;
+
+            if (entry.subscription == null) {
+                entry.subscription = new GroupChangeHandler(uid);
+                subscription = entry.subscription;
+            }
+
+            if (!mEvicted.isEmpty()) {
+                evicted = new ArrayList<>(mEvicted);
+                mEvicted.clear();
+            }
+        }
+
+        // Sent outside the lock, a failure calls back into the cache
+        for (GroupChangeHandler evictedSubscription : evicted) {
+            evictedSubscription.unsubscribe();
+        }
+
+        if (subscription != null) {
+            subscription.subscribe();
+        }
+    }
+
+    /**
+     * API for dropping cached device list of user
+     * 
+     * @param uid
+     *            user id
+     */
+    public synchronized void invalidate(String uid) {
+        Entry entry = mEntries.get(uid);
+        if (entry != null) {
+            entry.devices = null;
+        }
+    }
+
+    /**
+     * API for dropping every cached device list
+     */
+    public void clear() {
+        List<GroupChangeHandler> subscriptions = new ArrayList<>();
+
+        synchronized (this) {
+            Iterator<Entry> iterator = mEntries.values().iterator();
+            while (iterator.hasNext()) {
+                takeSubscription(iterator.next(), subscriptions);
+                iterator.remove();
+            }
+        }
+
+        for (GroupChangeHandler subscription : subscriptions) {
+            subscription.unsubscribe();
+        }
+    }
+
+    public synchronized int size() {
+        return mEntries.size();
+    }
+
+    public long getHitCount() {
+        return mHitCount.get();
+    }
+
+    public long getMissCount() {
+        return mMissCount.get();
+    }
+
+    private void takeSubscription(Entry entry,
+            List<GroupChangeHandler> subscriptions) {
+        if (entry.subscription != null) {
+            subscriptions.add(entry.subscription);
+            entry.subscription = null;
+        }
+    }
+
+    // Called when the subscription of the user failed or ended
+    private synchronized void onSubscriptionLost(String uid,
+            GroupChangeHandler subscription) {
+        Entry entry = mEntries.get(uid);
+        if (entry != null && entry.subscription == subscription) {
+            entry.devices = null;
+            entry.subscription = null;
+        }
+    }
+
+    /**
+     *
+     * This class provides a set of APIs to observe group changes of a user on
+     * the account server.
+     *
+     */
+    class GroupChangeHandler implements IResponseEventHandler {
+        private final String mUid;
+        // Token is unique, as subscriptions are told apart by it upstream
+        private final byte[] mToken;
+        private boolean      mSubscribed = false;
+
+        GroupChangeHandler(String uid) {
+            mUid = uid;
+            mToken = Bytes.longTo8Bytes(ThreadLocalRandom.current().nextLong());
+        }
+
+        void subscribe() {
+            sendRequest(Observe.SUBSCRIBE, this);
+        }
+
+        void unsubscribe() {
+            sendRequest(Observe.UNSUBSCRIBE, response -> {
+            });
+        }
+
+        private void sendRequest(Observe observe,
+                IResponseEventHandler responseHandler) {
+            IRequestChannel accountChannel = ConnectorPool
+                    .getConnection("account");
+            if (accountChannel == null) {
+                return;
+            }
+
+            String uriQuery = Constants.USER_ID + "=" + mUid + ";"
+                    + Constants.REQ_MEMBER_LIST + "=" + mUid;
+            IRequest request = MessageBuilder.createRequest(RequestMethod.GET,
+                    OICConstants.GROUP_FULL_URI, uriQuery);
+            ((CoapRequest) request).setToken(mToken);
+            ((CoapRequest) request).setObserve(observe);
+
+            try {
+                accountChannel.sendRequest(request, responseHandler);
+            } catch (Throwable t) {
+                Log.w("Group subscription of " + mUid + " is not sent, "
+                        + t.getMessage());
+                onSubscriptionLost(mUid, this);
+            }
+        }
+
+        @Override
+        public void onResponseReceived(IResponse response) {
+            if (response.getStatus() != ResponseStatus.CONTENT) {
+                onSubscriptionLost(mUid, this);
+                return;
+            }
+
+            // First response tells the subscription is made, the others a
+            // group of the user changed
+            if (!mSubscribed) {
+                mSubscribed = true;
+                return;
+            }
+            invalidate(mUid);
+        }
+    }
+}
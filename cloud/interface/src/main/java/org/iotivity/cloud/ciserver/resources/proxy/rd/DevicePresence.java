@@ -41,6 +41,8 @@ import org.iotivity.cloud.base.resource.Resource;
 import org.iotivity.cloud.ciserver.Constants;
 import org.iotivity.cloud.util.Cbor;
 
+import io.netty.util.ReferenceCountUtil;
+
 /**
  *
  * This class provides a set of APIs to send requests about device presence to
@@ -63,48 +65,53 @@ public class DevicePresence extends Resource {
 
         public AccountReceiveHandler(IRequest request, Device srcDevice) {
             mSrcDevice = srcDevice;
-            mRequest = request;
+            // Kept beyond the current read until the response arrives
+            mRequest = ReferenceCountUtil.retain(request);
         }
 
         @Override
         public void onResponseReceived(IResponse response)
                 throws ClientException {
-            switch (response.getStatus()) {
-                case CONTENT:
-                    HashMap<String, Object> payloadData = mCbor
-                            .parsePayloadFromCbor(response.getPayload(),
-                                    HashMap.class);
-
-                    ArrayList<String> devices = (ArrayList<String>) getResponseDeviceList(
-                            payloadData);
-
-                    if (mRequest.getUriQuery() != null
-                            && mRequest.getUriQueryMap()
-                                    .containsKey(Constants.REQ_DEVICE_ID)) {
-                        if (!devices.containsAll(mRequest.getUriQueryMap()
-                                .get(Constants.REQ_DEVICE_ID))) {
-                            mSrcDevice.sendResponse(
-                                    MessageBuilder.createResponse(mRequest,
-                                            ResponseStatus.BAD_REQUEST));
-                        }
-                    } else {
-                        String additionalQuery = makeAdditionalQuery(
-                                payloadData, mSrcDevice.getDeviceId());
-                        if (additionalQuery != null) {
-                            String uriQuery = additionalQuery.toString()
-                                    + (mRequest.getUriQuery() != null
-                                            ? (";" + mRequest.getUriQuery())
-                                            : "");
-                            mRequest = MessageBuilder.modifyRequest(mRequest,
-                                    null, uriQuery, null, null);
+            try {
+                switch (response.getStatus()) {
+                    case CONTENT:
+                        HashMap<String, Object> payloadData = mCbor
+                                .parsePayloadFromCbor(response.getPayload(),
+                                        HashMap.class);
+
+                        ArrayList<String> devices = (ArrayList<String>) getResponseDeviceList(
+                                payloadData);
+
+                        if (mRequest.getUriQuery() != null
+                                && mRequest.getUriQueryMap()
+                                        .containsKey(Constants.REQ_DEVICE_ID)) {
+                            if (!devices.containsAll(mRequest.getUriQueryMap()
+                                    .get(Constants.REQ_DEVICE_ID))) {
+                                mSrcDevice.sendResponse(
+                                        MessageBuilder.createResponse(mRequest,
+                                                ResponseStatus.BAD_REQUEST));
+                            }
+                        } else {
+                            String additionalQuery = makeAdditionalQuery(
+                                    payloadData, mSrcDevice.getDeviceId());
+                            if (additionalQuery != null) {
+                                String uriQuery = additionalQuery.toString()
+                                        + (mRequest.getUriQuery() != null
+                                                ? (";" + mRequest.getUriQuery())
+                                                : "");
+                                mRequest = MessageBuilder.modifyRequest(mRequest,
+                                        null, uriQuery, null, null);
+                            }
                         }
-                    }
 
-                    ConnectorPool.getConnection("rd").sendRequest(mRequest, mSrcDevice);
-                    break;
+                        ConnectorPool.getConnection("rd").sendRequest(mRequest, mSrcDevice);
+                        break;
 
-                default:
-                    mSrcDevice.sendResponse(response);
+                    default:
+                        mSrcDevice.sendResponse(response);
+                }
+            } finally {
+                ReferenceCountUtil.release(mRequest);
             }
         }
 
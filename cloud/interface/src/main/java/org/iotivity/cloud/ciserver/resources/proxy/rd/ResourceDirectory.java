@@ -41,6 +41,8 @@ import org.iotivity.cloud.base.resource.Resource;
 import org.iotivity.cloud.ciserver.Constants;
 import org.iotivity.cloud.util.Cbor;
 
+import io.netty.util.ReferenceCountUtil;
+
 /**
  *
  * This class provides a set of APIs to send requests about publish resource to
@@ -103,28 +105,32 @@ public class ResourceDirectory extends Resource {
 
         public AccountReceiveHandler(IRequest request, Device srcDevice) {
             mSrcDevice = srcDevice;
-            mRequest = request;
+            // Kept beyond the current read until the response arrives
+            mRequest = ReferenceCountUtil.retain(request);
         }
 
         @Override
         public void onResponseReceived(IResponse response)
                 throws ClientException {
-
-            switch (response.getStatus()) {
-                case CHANGED:
-                    byte[] convertedPayload = convertPublishHref(mRequest,
-                            mSrcDevice);
-
-                    mRequest = MessageBuilder.modifyRequest(mRequest, null,
-                            null, ContentFormat.APPLICATION_CBOR,
-                            convertedPayload);
-
-                    ConnectorPool.getConnection("rd").sendRequest(mRequest,
-                            new PublishResponseHandler(mSrcDevice));
-                    break;
-
-                default:
-                    mSrcDevice.sendResponse(response);
+            try {
+                switch (response.getStatus()) {
+                    case CHANGED:
+                        byte[] convertedPayload = convertPublishHref(mRequest,
+                                mSrcDevice);
+
+                        mRequest = MessageBuilder.modifyRequest(mRequest, null,
+                                null, ContentFormat.APPLICATION_CBOR,
+                                convertedPayload);
+
+                        ConnectorPool.getConnection("rd").sendRequest(mRequest,
+                                new PublishResponseHandler(mSrcDevice));
+                        break;
+
+                    default:
+                        mSrcDevice.sendResponse(response);
+                }
+            } finally {
+                ReferenceCountUtil.release(mRequest);
             }
         }
 
@@ -40,6 +40,8 @@ import org.iotivity.cloud.base.resource.Resource;
 import org.iotivity.cloud.ciserver.Constants;
 import org.iotivity.cloud.util.Cbor;
 
+import io.netty.util.ReferenceCountUtil;
+
 /**
  *
  * This class provides a set of APIs to send requests about find resource to
@@ -48,10 +50,21 @@ import org.iotivity.cloud.util.Cbor;
  */
 
 public class ResourceFind extends Resource {
-    private Cbor<HashMap<String, Object>> mCbor     = new Cbor<>();
+    private Cbor<HashMap<String, Object>> mCbor            = new Cbor<>();
+    private DeviceListCache               mDeviceListCache = null;
 
     public ResourceFind() {
+        this(null);
+    }
+
+    /**
+     * @param deviceListCache
+     *            cache of group device lists, or null to ask the account
+     *            server on every discovery
+     */
+    public ResourceFind(DeviceListCache deviceListCache) {
         super(Arrays.asList(Constants.PREFIX_OIC, Constants.WELL_KNOWN_URI));
+        mDeviceListCache = deviceListCache;
     }
 
     class AccountReceiveHandler implements IResponseEventHandler {
@@ -62,59 +75,38 @@ public class ResourceFind extends Resource {
         public AccountReceiveHandler(IRequest request, Device srcDevice) {
 
             mSrcDevice = srcDevice;
-            mRequest = request;
+            // Kept beyond the current read until the response arrives
+            mRequest = ReferenceCountUtil.retain(request);
         }
 
         @Override
         public void onResponseReceived(IResponse response)
                 throws ClientException {
-            switch (response.getStatus()) {
-                case CONTENT:
-                    HashMap<String, Object> payloadData = mCbor
-                            .parsePayloadFromCbor(response.getPayload(),
-                                    HashMap.class);
-
-                    ArrayList<String> devices = (ArrayList<String>) getResponseDeviceList(
-                            payloadData);
-
-                    StringBuilder additionalQuery = makeAdditionalQuery(
-                            devices);
-                    String uriQuery = (additionalQuery != null
-                            ? additionalQuery.toString() : "")
-                            + (mRequest.getUriQuery() != null
-                                    ? (";" + mRequest.getUriQuery()) : "");
-                    mRequest = MessageBuilder.modifyRequest(mRequest, null,
-                            uriQuery, null, null);
-
-                    ConnectorPool.getConnection("rd").sendRequest(mRequest, mSrcDevice);
-                    break;
-
-                default:
-                    mSrcDevice.sendResponse(response);
-            }
-        }
-
-        private StringBuilder makeAdditionalQuery(
-                ArrayList<String> deviceList) {
-
-            StringBuilder additionalQuery = new StringBuilder();
-
-            if (deviceList == null) {
-                return null;
-            }
-
-            if (deviceList.isEmpty()) {
-                return null;
-            }
-
-            int index = deviceList.size();
-            for (String device : deviceList) {
-                additionalQuery.append(Constants.REQ_DEVICE_ID + "=" + device);
-                if (--index > 0) {
-                    additionalQuery.append(";");
+            try {
+                switch (response.getStatus()) {
+                    case CONTENT:
+                        HashMap<String, Object> payloadData = mCbor
+                                .parsePayloadFromCbor(response.getPayload(),
+                                        HashMap.class);
+
+                        ArrayList<String> devices = (ArrayList<String>) getResponseDeviceList(
+                                payloadData);
+
+                        if (mDeviceListCache != null && devices != null) {
+                            mDeviceListCache.put(mSrcDevice.getUserId(),
+                                    new ArrayList<>(devices));
+                        }
+
+                        sendToResourceDirectory(mRequest, mSrcDevice,
+                                devices);
+                        break;
+
+                    default:
+                        mSrcDevice.sendResponse(response);
                 }
+            } finally {
+                ReferenceCountUtil.release(mRequest);
             }
-            return additionalQuery;
         }
 
         @SuppressWarnings("unchecked")
@@ -129,6 +121,41 @@ public class ResourceFind extends Resource {
         }
     }
 
+    private void sendToResourceDirectory(IRequest request, Device srcDevice,
+            List<String> devices) {
+        StringBuilder additionalQuery = makeAdditionalQuery(devices);
+        String uriQuery = (additionalQuery != null
+                ? additionalQuery.toString() : "")
+                + (request.getUriQuery() != null
+                        ? (";" + request.getUriQuery()) : "");
+        IRequest requestToRD = MessageBuilder.modifyRequest(request, null,
+                uriQuery, null, null);
+
+        ConnectorPool.getConnection("rd").sendRequest(requestToRD, srcDevice);
+    }
+
+    private StringBuilder makeAdditionalQuery(List<String> deviceList) {
+
+        StringBuilder additionalQuery = new StringBuilder();
+
+        if (deviceList == null) {
+            return null;
+        }
+
+        if (deviceList.isEmpty()) {
+            return null;
+        }
+
+        int index = deviceList.size();
+        for (String device : deviceList) {
+            additionalQuery.append(Constants.REQ_DEVICE_ID + "=" + device);
+            if (--index > 0) {
+                additionalQuery.append(";");
+            }
+        }
+        return additionalQuery;
+    }
+
     @Override
     public void onDefaultRequestReceived(Device srcDevice, IRequest request)
             throws ServerException {
@@ -138,6 +165,14 @@ public class ResourceFind extends Resource {
             ConnectorPool.getConnection("rd").sendRequest(request, srcDevice);
 
         } else {
+            // Repeated discovery of a user skips the account server
+            List<String> devices = mDeviceListCache != null
+                    ? mDeviceListCache.get(srcDevice.getUserId()) : null;
+            if (devices != null) {
+                sendToResourceDirectory(request, srcDevice, devices);
+                return;
+            }
+
             StringBuffer additionalQuery = new StringBuffer();
             additionalQuery
                     .append(Constants.USER_ID + "=" + srcDevice.getUserId());
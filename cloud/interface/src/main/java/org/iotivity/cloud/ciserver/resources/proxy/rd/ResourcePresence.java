@@ -39,6 +39,8 @@ import org.iotivity.cloud.base.resource.Resource;
 import org.iotivity.cloud.ciserver.Constants;
 import org.iotivity.cloud.util.Cbor;
 
+import io.netty.util.ReferenceCountUtil;
+
 /**
  *
  * This class provides a set of APIs to send requests about resource presence to
@@ -60,33 +62,38 @@ public class ResourcePresence extends Resource {
 
         public AccountReceiveHandler(IRequest request, Device srcDevice) {
             mSrcDevice = srcDevice;
-            mRequest = request;
+            // Kept beyond the current read until the response arrives
+            mRequest = ReferenceCountUtil.retain(request);
         }
 
         @Override
         public void onResponseReceived(IResponse response)
                 throws ClientException {
-            switch (response.getStatus()) {
-                case CONTENT:
-                    HashMap<String, Object> payloadData = mCbor
-                            .parsePayloadFromCbor(response.getPayload(),
-                                    HashMap.class);
-
-                    String additionalQuery = makeAdditionalQuery(payloadData,
-                            mSrcDevice.getDeviceId());
-                    if (additionalQuery != null) {
-                        String uriQuery = additionalQuery.toString()
-                                + (mRequest.getUriQuery() != null
-                                        ? (";" + mRequest.getUriQuery()) : "");
-                        mRequest = MessageBuilder.modifyRequest(mRequest, null,
-                                uriQuery, null, null);
-
-                        ConnectorPool.getConnection("rd").sendRequest(mRequest, mSrcDevice);
-                    }
-                    break;
-
-                default:
-                    mSrcDevice.sendResponse(response);
+            try {
+                switch (response.getStatus()) {
+                    case CONTENT:
+                        HashMap<String, Object> payloadData = mCbor
+                                .parsePayloadFromCbor(response.getPayload(),
+                                        HashMap.class);
+
+                        String additionalQuery = makeAdditionalQuery(payloadData,
+                                mSrcDevice.getDeviceId());
+                        if (additionalQuery != null) {
+                            String uriQuery = additionalQuery.toString()
+                                    + (mRequest.getUriQuery() != null
+                                            ? (";" + mRequest.getUriQuery()) : "");
+                            mRequest = MessageBuilder.modifyRequest(mRequest, null,
+                                    uriQuery, null, null);
+
+                            ConnectorPool.getConnection("rd").sendRequest(mRequest, mSrcDevice);
+                        }
+                        break;
+
+                    default:
+                        mSrcDevice.sendResponse(response);
+                }
+            } finally {
+                ReferenceCountUtil.release(mRequest);
             }
         }
 
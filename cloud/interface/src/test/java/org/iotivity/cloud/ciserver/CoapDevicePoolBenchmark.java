@@ -0,0 +1,133 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.ciserver;
+
+import java.util.concurrent.TimeUnit;
+
+import org.iotivity.cloud.base.device.CoapDevice;
+import org.iotivity.cloud.base.device.Device;
+import org.iotivity.cloud.base.device.IRequestChannel;
+import org.iotivity.cloud.base.exception.ClientException;
+import org.iotivity.cloud.ciserver.DeviceServerSystem.CoapDevicePool;
+import org.iotivity.cloud.util.Log;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.DefaultChannelId;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+/**
+ *
+ * This class compares disconnect cleanup through the observer index of the
+ * device pool with a scan over every connected device.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CoapDevicePoolBenchmark {
+
+    private static final int OBSERVER_COUNT = 16;
+
+    @Param({ "100000", "1000000" })
+    private int              deviceCount;
+
+    private CoapDevicePool   mDevicePool;
+    private EmbeddedChannel  mTargetChannel;
+    private CoapDevice       mTargetDevice;
+    private CoapDevice[]     mObserverDevices;
+
+    @Setup
+    public void setUp() {
+        Log.setLogLevel(Log.ERROR);
+
+        mDevicePool = new CoapDevicePool();
+        mObserverDevices = new CoapDevice[OBSERVER_COUNT];
+        for (int i = 0; i < deviceCount; i++) {
+            CoapDevice device = new CoapDevice(null);
+            device.updateDevice("device-" + i, "user", "token");
+            mDevicePool.addDevice(device);
+            if (i < OBSERVER_COUNT) {
+                mObserverDevices[i] = device;
+            }
+        }
+
+        mTargetChannel = new EmbeddedChannel(DefaultChannelId.newInstance(),
+                new ChannelInboundHandlerAdapter());
+        mTargetDevice = new CoapDevice(
+                mTargetChannel.pipeline().firstContext());
+        mTargetDevice.updateDevice("target", "user", "token");
+        connectTarget();
+    }
+
+    @TearDown
+    public void tearDown() {
+        mTargetChannel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public void indexedDisconnect() throws ClientException {
+        mDevicePool.removeDevice(mTargetDevice);
+        connectTarget();
+    }
+
+    @Benchmark
+    public void fullScanDisconnect() throws ClientException {
+        mDevicePool.mMapDevice.remove(mTargetDevice.getDeviceId());
+        IRequestChannel requestChannel = mTargetDevice.getRequestChannel();
+        for (Device device : mDevicePool.mMapDevice.values()) {
+            ((CoapDevice) device).removeObserveChannel(requestChannel);
+        }
+        connectTarget();
+    }
+
+    private void connectTarget() {
+        mDevicePool.addDevice(mTargetDevice);
+        IRequestChannel requestChannel = mTargetDevice.getRequestChannel();
+        for (CoapDevice observer : mObserverDevices) {
+            observer.addObserveChannel(requestChannel);
+            mDevicePool.addObserver(mTargetDevice, observer);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(CoapDevicePoolBenchmark.class.getSimpleName()).build())
+                        .run();
+    }
+}
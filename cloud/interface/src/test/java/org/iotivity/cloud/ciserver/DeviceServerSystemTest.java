@@ -43,6 +43,7 @@ import org.iotivity.cloud.base.protocols.coap.CoapRequest;
 import org.iotivity.cloud.base.protocols.coap.CoapResponse;
 import org.iotivity.cloud.base.protocols.coap.CoapSignaling;
 import org.iotivity.cloud.base.protocols.enums.ContentFormat;
+import org.iotivity.cloud.base.protocols.enums.Observe;
 import org.iotivity.cloud.base.protocols.enums.RequestMethod;
 import org.iotivity.cloud.base.protocols.enums.ResponseStatus;
 import org.iotivity.cloud.base.protocols.enums.SignalingMethod;
@@ -234,6 +235,60 @@ public class DeviceServerSystemTest {
         devicePool.removeDevice(coapDevice);
     }
 
+    @Test
+    public void testUnsubscribeRemovesObserver() throws Exception {
+        CoapDevice targetDevice = addTargetDevice();
+        CoapDevicePool devicePool = mDeviceServerSystem.getDevicePool();
+
+        sendObserveRequest(Observe.SUBSCRIBE);
+
+        assertTrue(devicePool.mObservers.get(targetDevice)
+                .containsKey(mMockDevice));
+
+        sendObserveRequest(Observe.UNSUBSCRIBE);
+
+        assertTrue(devicePool.mObservers.isEmpty());
+        assertTrue(devicePool.mObservedDevices.isEmpty());
+    }
+
+    @Test
+    public void testTargetRemovedAfterOneOfTwoUnsubscribed() throws Exception {
+        CoapDevice targetDevice = addTargetDevice();
+        CoapDevicePool devicePool = mDeviceServerSystem.getDevicePool();
+
+        sendObserveRequest(Observe.SUBSCRIBE);
+        sendObserveRequest(Observe.SUBSCRIBE);
+        sendObserveRequest(Observe.UNSUBSCRIBE);
+
+        // the other subscription is still observed through the target
+        assertTrue(devicePool.mObservers.get(targetDevice)
+                .containsKey(mMockDevice));
+
+        devicePool.removeDevice(targetDevice);
+
+        Mockito.verify(mMockDevice, Mockito.times(2))
+                .removeObserveChannel(mRequestChannel);
+        assertTrue(devicePool.mObservers.isEmpty());
+        assertTrue(devicePool.mObservedDevices.isEmpty());
+    }
+
+    private CoapDevice addTargetDevice() {
+        CoapDevice targetDevice = mock(CoapDevice.class);
+        Mockito.doReturn(mDi).when(targetDevice).getDeviceId();
+        Mockito.doReturn(mRequestChannel).when(targetDevice)
+                .getRequestChannel();
+        mDeviceServerSystem.getDevicePool().addDevice(targetDevice);
+        return targetDevice;
+    }
+
+    private void sendObserveRequest(Observe observe) {
+        CoapRequest request = (CoapRequest) MessageBuilder.createRequest(
+                RequestMethod.GET,
+                OICConstants.ROUTE_FULL_URI + "/" + mDi + "/a/light", null);
+        request.setObserve(observe);
+        mCoapLifecycleHandler.channelRead(mCtx, request);
+    }
+
     @Test
     public void testQueryDevice() throws Exception {
         CoapDevice coapDevice = new CoapDevice(null);
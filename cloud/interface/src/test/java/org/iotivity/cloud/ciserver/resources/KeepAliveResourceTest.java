@@ -22,13 +22,16 @@
 
 package org.iotivity.cloud.ciserver.resources;
 
+import static com.jayway.awaitility.Awaitility.await;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.iotivity.cloud.base.device.CoapDevice;
 import org.iotivity.cloud.base.protocols.IRequest;
@@ -47,6 +50,10 @@ import org.mockito.MockitoAnnotations;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.DefaultChannelId;
+import io.netty.channel.embedded.EmbeddedChannel;
+
 public class KeepAliveResourceTest {
 
     private KeepAliveResource                         keepAliveResource;
@@ -117,6 +124,53 @@ public class KeepAliveResourceTest {
         assertTrue(methodCheck(mRes, ResponseStatus.VALID));
     }
 
+    @Test
+    public void testPingCounted() {
+        HashMap<String, Integer> payloadData = new HashMap<>();
+        Cbor<HashMap<String, Object>> cbor = new Cbor<>();
+        payloadData.put("in", 8);
+        IRequest request = MessageBuilder.createRequest(RequestMethod.PUT,
+                "/oic/ping", null, ContentFormat.APPLICATION_CBOR,
+                cbor.encodingPayloadToCbor(payloadData));
+        keepAliveResource.onDefaultRequestReceived(mockDevice, request);
+        keepAliveResource.onDefaultRequestReceived(mockDevice, request);
+        assertEquals(2, keepAliveResource.getPingCount());
+        assertEquals(1, keepAliveResource.getSessionCount());
+        assertEquals(0, keepAliveResource.getExpiredCount());
+    }
+
+    @Test
+    public void testSessionExpired() {
+        keepAliveResource.stopSessionChecker();
+        keepAliveResource.startSessionChecker(0, 10);
+
+        EmbeddedChannel channel = new EmbeddedChannel(
+                DefaultChannelId.newInstance(),
+                new ChannelInboundHandlerAdapter());
+        CoapDevice device = new CoapDevice(channel.pipeline().firstContext());
+        keepAliveResource.updateSession(device, 50);
+
+        await().atMost(5, TimeUnit.SECONDS)
+                .until(() -> keepAliveResource.getExpiredCount() == 1);
+        channel.runPendingTasks();
+        assertFalse(channel.isOpen());
+        assertEquals(0, keepAliveResource.getSessionCount());
+    }
+
+    @Test
+    public void testSessionRemovedOnClose() {
+        EmbeddedChannel channel = new EmbeddedChannel(
+                DefaultChannelId.newInstance(),
+                new ChannelInboundHandlerAdapter());
+        CoapDevice device = new CoapDevice(channel.pipeline().firstContext());
+        keepAliveResource.updateSession(device, 60000);
+        assertEquals(1, keepAliveResource.getSessionCount());
+
+        channel.close();
+        assertEquals(0, keepAliveResource.getSessionCount());
+        assertEquals(0, keepAliveResource.getExpiredCount());
+    }
+
     private boolean methodCheck(IResponse response,
             ResponseStatus responseStatus) {
         if (responseStatus == response.getStatus())
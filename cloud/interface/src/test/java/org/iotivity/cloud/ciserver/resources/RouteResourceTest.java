@@ -232,6 +232,23 @@ public class RouteResourceTest {
         assertTrue(mLatch.await(1L, SECONDS));
     }
 
+    @Test
+    public void testLinkInterfaceHrefConverted() throws InterruptedException {
+        IResponse response = makeContentLinkResponse();
+        linkInterfaceHandler.onResponseReceived(response);
+        assertTrue(mLatch.await(1L, SECONDS));
+
+        Cbor<ArrayList<HashMap<String, Object>>> cbor = new Cbor<>();
+        ArrayList<HashMap<String, Object>> linkPayload = cbor
+                .parsePayloadFromCbor(mRes.getPayload(), ArrayList.class);
+        assertEquals(3, linkPayload.size());
+        for (HashMap<String, Object> link : linkPayload) {
+            assertEquals("/oic/route/targetDeviceId" + "hrefsample1",
+                    link.get("href"));
+            assertEquals("oic.r.light", link.get("rt"));
+        }
+    }
+
     private IRequest makePutRequest() {
         HashMap<String, Object> payloadData = new HashMap<>();
         payloadData.put("state", true);
@@ -291,6 +308,7 @@ public class RouteResourceTest {
         ArrayList<HashMap<String, Object>> linkPayload = new ArrayList<>();
 
         payloadData.put("href", "hrefsample1");
+        payloadData.put("rt", "oic.r.light");
         linkPayload.add(payloadData);
         linkPayload.add(payloadData);
         linkPayload.add(payloadData);
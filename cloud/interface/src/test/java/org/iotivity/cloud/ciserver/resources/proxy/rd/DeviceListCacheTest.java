@@ -0,0 +1,115 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.ciserver.resources.proxy.rd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.iotivity.cloud.base.connector.ConnectorPool;
+import org.iotivity.cloud.base.device.IRequestChannel;
+import org.iotivity.cloud.base.device.IResponseEventHandler;
+import org.iotivity.cloud.base.protocols.IRequest;
+import org.iotivity.cloud.base.protocols.enums.Observe;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(ConnectorPool.class)
+public class DeviceListCacheTest {
+
+    @Test
+    public void testGetCachedDeviceList() {
+        DeviceListCache deviceListCache = new DeviceListCache(10, 60000);
+        assertNull(deviceListCache.get("user1"));
+
+        deviceListCache.put("user1", Arrays.asList("device1", "device2"));
+        assertEquals(Arrays.asList("device1", "device2"),
+                deviceListCache.get("user1"));
+        assertEquals(1, deviceListCache.getHitCount());
+        assertEquals(1, deviceListCache.getMissCount());
+    }
+
+    @Test
+    public void testDeviceListExpired() throws Exception {
+        DeviceListCache deviceListCache = new DeviceListCache(10, 10);
+        deviceListCache.put("user1", Arrays.asList("device1"));
+        Thread.sleep(50);
+        assertNull(deviceListCache.get("user1"));
+    }
+
+    @Test
+    public void testDeviceListInvalidated() {
+        DeviceListCache deviceListCache = new DeviceListCache(10, 60000);
+        deviceListCache.put("user1", Arrays.asList("device1"));
+        deviceListCache.invalidate("user1");
+        assertNull(deviceListCache.get("user1"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+        DeviceListCache deviceListCache = new DeviceListCache(2, 60000);
+        deviceListCache.put("user1", Arrays.asList("device1"));
+        deviceListCache.put("user2", Arrays.asList("device2"));
+        deviceListCache.get("user1");
+        deviceListCache.put("user3", Arrays.asList("device3"));
+
+        assertEquals(2, deviceListCache.size());
+        assertNull(deviceListCache.get("user2"));
+        assertEquals(Arrays.asList("device1"), deviceListCache.get("user1"));
+    }
+
+    @Test
+    public void testEvictedUnsubscribedOutsideLock() throws Exception {
+        DeviceListCache deviceListCache = new DeviceListCache(1, 60000);
+        List<Boolean> unsubscribeLocked = new ArrayList<>();
+
+        IRequestChannel accountChannel = mock(IRequestChannel.class);
+        Mockito.doAnswer(invocation -> {
+            IRequest request = (IRequest) invocation.getArguments()[0];
+            if (request.getObserve() == Observe.UNSUBSCRIBE) {
+                unsubscribeLocked.add(Thread.holdsLock(deviceListCache));
+            }
+            return null;
+        }).when(accountChannel).sendRequest(Mockito.any(IRequest.class),
+                Mockito.any(IResponseEventHandler.class));
+        PowerMockito.mockStatic(ConnectorPool.class);
+        PowerMockito.when(ConnectorPool.getConnection("account"))
+                .thenReturn(accountChannel);
+
+        deviceListCache.put("user1", Arrays.asList("device1"));
+        deviceListCache.put("user2", Arrays.asList("device2"));
+
+        assertEquals(1, unsubscribeLocked.size());
+        assertFalse(unsubscribeLocked.get(0));
+        assertNull(deviceListCache.get("user1"));
+    }
+}
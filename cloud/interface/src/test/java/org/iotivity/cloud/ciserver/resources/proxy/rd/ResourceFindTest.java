@@ -24,6 +24,8 @@ package org.iotivity.cloud.ciserver.resources.proxy.rd;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
@@ -35,6 +37,7 @@ import java.util.concurrent.CountDownLatch;
 import org.iotivity.cloud.base.connector.ConnectorPool;
 import org.iotivity.cloud.base.device.CoapDevice;
 import org.iotivity.cloud.base.device.IRequestChannel;
+import org.iotivity.cloud.base.device.IResponseEventHandler;
 import org.iotivity.cloud.base.exception.ClientException;
 import org.iotivity.cloud.base.protocols.IRequest;
 import org.iotivity.cloud.base.protocols.IResponse;
@@ -42,6 +45,7 @@ import org.iotivity.cloud.base.protocols.MessageBuilder;
 import org.iotivity.cloud.base.protocols.coap.CoapRequest;
 import org.iotivity.cloud.base.protocols.coap.CoapResponse;
 import org.iotivity.cloud.base.protocols.enums.ContentFormat;
+import org.iotivity.cloud.base.protocols.enums.Observe;
 import org.iotivity.cloud.base.protocols.enums.RequestMethod;
 import org.iotivity.cloud.base.protocols.enums.ResponseStatus;
 import org.iotivity.cloud.ciserver.Constants;
@@ -237,6 +241,57 @@ public class ResourceFindTest {
         assertEquals(mReq.getUriPath(), Constants.WELL_KNOWN_FULL_URI);
     }
 
+    @Test
+    public void testCachedDeviceListOnRequestReceived() throws Exception {
+        DeviceListCache deviceListCache = new DeviceListCache(
+                DeviceListCache.DEFAULT_MAX_SIZE, DeviceListCache.DEFAULT_TTL);
+        ResourceFind resHandler = new ResourceFind(deviceListCache);
+
+        ArrayList<IRequest> requestsToAS = new ArrayList<>();
+        ArrayList<IResponseEventHandler> handlersToAS = new ArrayList<>();
+        Mockito.doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation)
+                    throws Throwable {
+                Object[] args = invocation.getArguments();
+                requestsToAS.add((IRequest) args[0]);
+                handlersToAS.add((IResponseEventHandler) args[1]);
+                return null;
+            }
+        }).when(mRequestChannelASServer).sendRequest(
+                Mockito.any(IRequest.class),
+                Mockito.any(IResponseEventHandler.class));
+
+        // First discovery asks the account server and subscribes the group
+        resHandler.onRequestReceived(mMockDevice, MessageBuilder
+                .createRequest(RequestMethod.GET, TEST_RESOURCE_FIND_URI,
+                        "rt=core.light"));
+        assertEquals(1, requestsToAS.size());
+        handlersToAS.get(0).onResponseReceived(responseFromAccountServer());
+        assertEquals(2, requestsToAS.size());
+        assertEquals(Observe.SUBSCRIBE, requestsToAS.get(1).getObserve());
+        assertEquals(Constants.GROUP_FULL_URI, requestsToAS.get(1).getUriPath());
+
+        // Repeated discovery is sent to the resource directory right away
+        mReq = null;
+        resHandler.onRequestReceived(mMockDevice, MessageBuilder
+                .createRequest(RequestMethod.GET, TEST_RESOURCE_FIND_URI,
+                        "rt=core.light"));
+        assertEquals(2, requestsToAS.size());
+        assertEquals(Constants.WELL_KNOWN_FULL_URI, mReq.getUriPath());
+        HashMap<String, List<String>> queryMap = mReq.getUriQueryMap();
+        assertTrue(queryMap.get("di").contains("device3"));
+        assertFalse(queryMap.containsKey("uid"));
+        assertEquals(1, deviceListCache.getHitCount());
+
+        // Group change notification drops the cached list
+        IResponseEventHandler groupChangeHandler = handlersToAS.get(1);
+        groupChangeHandler.onResponseReceived(responseFromAccountServer());
+        assertTrue(deviceListCache.get("mockUserId") != null);
+        groupChangeHandler.onResponseReceived(responseFromAccountServer());
+        assertNull(deviceListCache.get("mockUserId"));
+    }
+
     private IResponse responseFromAccountServer() {
         // make response which has "CONTENT" status
         Cbor<HashMap<String, Object>> cbor = new Cbor<>();
@@ -27,13 +27,46 @@ public class Constants extends OICConstants {
 	public static final int    DEFAULT_COAP_PORT	   = 5686;
 
     public static final String MQ_TOPICLIST            = "topiclist";
+    public static final String MQ_DURABILITY           = "acks";
+
+    // messages kept in memory for each topic
+    public static final int    MQ_TOPIC_HISTORY_SIZE   = 16;
+    public static final String MQ_SINCE                = "since";
+    public static final String MQ_MESSAGES             = "messages";
+    public static final String MQ_SEQUENCE             = "seq";
+    public static final String MQ_MESSAGE              = "message";
+    // how soon messages published before are read again, when failed
+    public static final long   MQ_HISTORY_RETRY_PERIOD = 10000;
 
     // For Kafka
     public static final int    KAFKA_SESSION_TIMEOUT   = 10000;
     public static final int    KAFKA_CONNECT_TIMEOUT   = 10000;
 
-    public static final int    KAFKA_CONSUMMER_THREADS = 1;
+    // consumers shared by all topics, each on its own thread
+    public static final int    KAFKA_CONSUMER_COUNT    = Runtime.getRuntime()
+            .availableProcessors();
 
     public static final String KAFKA_COMMIT_INTERVAL   = "6000";
 
+    public static final long   KAFKA_POLL_TIMEOUT      = 100;
+    // longest wait before polling again after failed polls
+    public static final long   KAFKA_POLL_RETRY_MAX    = 5000;
+    // topic changes meanwhile are subscribed at once, in one rebalance
+    public static final long   KAFKA_SUBSCRIBE_PERIOD  = 1000;
+    // how soon partitions of new topics are found
+    public static final String KAFKA_METADATA_MAX_AGE  = "1000";
+    public static final String KAFKA_HEARTBEAT_PERIOD  = "500";
+
+    // messages published meanwhile, by any device, are sent in one batch
+    public static final int    KAFKA_LINGER_TIME       = 5;
+    public static final int    KAFKA_BATCH_SIZE        = 65536;
+
+    // For embedded broker
+    public static final int    MQ_LOG_SEGMENT_SIZE     = 1024 * 1024;
+    // kept for each topic
+    public static final long   MQ_LOG_RETENTION_SIZE   = 64 * 1024 * 1024;
+    public static final long   MQ_LOG_RETENTION_TIME   = 7 * 24 * 60 * 60
+            * 1000L;
+    public static final long   MQ_LOG_CHECK_PERIOD     = 60 * 1000;
+
 }
\ No newline at end of file
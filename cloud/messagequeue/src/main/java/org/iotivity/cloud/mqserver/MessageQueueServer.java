@@ -26,7 +26,9 @@ import java.util.Scanner;
 
 import org.iotivity.cloud.base.ServerSystem;
 import org.iotivity.cloud.base.resource.CloudPingResource;
+import org.iotivity.cloud.base.resource.ResourceExecutor;
 import org.iotivity.cloud.base.server.CoapServer;
+import org.iotivity.cloud.mqserver.broker.EmbeddedBroker;
 import org.iotivity.cloud.mqserver.resources.MQBrokerResource;
 import org.iotivity.cloud.util.Log;
 
@@ -36,7 +38,11 @@ public class MessageQueueServer {
     private static boolean tlsMode;
     private static String  zookeeperHost;
     private static String  kafkaHost;
+    private static String  storagePath;
     private static String  webLogHost;
+    private static int     resourceThreads = ResourceExecutor.DEFAULT_THREAD_COUNT;
+    private static long    retentionSize   = Constants.MQ_LOG_RETENTION_SIZE;
+    private static long    retentionTime   = Constants.MQ_LOG_RETENTION_TIME;
 
     public static void main(String[] args) throws Exception {
         System.out.println("-----MQ SERVER-----");
@@ -46,7 +52,9 @@ public class MessageQueueServer {
             Log.e("\nCoAP-server <Port> Zookeeper <Address> <Port> Kafka <Address> <Port> TLS-mode <0|1> are required. "
                     + "WebSocketLog-Server <Addres> <Port> is optional.\n"
                     + "ex) " + Constants.DEFAULT_COAP_PORT
-                    + " 127.0.0.1 2181 127.0.0.1 9092 0\n");
+                    + " 127.0.0.1 2181 127.0.0.1 9092 0\n"
+                    + "With MQ_STORAGE_PATH, CoAP-server <Port> TLS-mode <0|1> are required.\n"
+                    + "ex) " + Constants.DEFAULT_COAP_PORT + " 0\n");
             return;
         }
         if (webLogHost != null)
@@ -54,9 +62,18 @@ public class MessageQueueServer {
                     MessageQueueServer.class.getSimpleName().toString());
 
         ServerSystem serverSystem = new ServerSystem();
+        serverSystem.setResourceExecutor(new ResourceExecutor(resourceThreads,
+                ResourceExecutor.DEFAULT_QUEUE_SIZE));
 
         MQBrokerResource MQBroker = new MQBrokerResource();
-        MQBroker.setKafkaInformation(zookeeperHost, kafkaHost);
+        if (storagePath != null) {
+            Log.i("Messages are stored in " + storagePath);
+            MQBroker.setMessageBroker(new EmbeddedBroker(storagePath,
+                    Constants.MQ_LOG_SEGMENT_SIZE, retentionSize,
+                    retentionTime));
+        } else {
+            MQBroker.setKafkaInformation(zookeeperHost, kafkaHost);
+        }
 
         serverSystem.addResource(MQBroker);
         serverSystem.addResource(new CloudPingResource());
@@ -78,10 +95,36 @@ public class MessageQueueServer {
 
         serverSystem.stopSystem();
 
+        MQBroker.closeMessageBroker();
+
         System.out.println("Terminated");
     }
 
     private static boolean parseConfiguration(String[] args) {
+        // worker threads for blocking resources, from docker env in any mode
+        String resourceThreadsEnv = System.getenv("RESOURCE_THREADS");
+        if (resourceThreadsEnv != null)
+            resourceThreads = Integer.parseInt(resourceThreadsEnv);
+
+        // embedded broker used instead of Kafka, from docker env in any mode
+        storagePath = System.getenv("MQ_STORAGE_PATH");
+
+        String retentionSizeEnv = System.getenv("MQ_RETENTION_SIZE");
+        if (retentionSizeEnv != null)
+            retentionSize = Long.parseLong(retentionSizeEnv);
+
+        String retentionTimeEnv = System.getenv("MQ_RETENTION_TIME");
+        if (retentionTimeEnv != null)
+            retentionTime = Long.parseLong(retentionTimeEnv);
+
+        // configuration provided by arguments, without Kafka
+        if (storagePath != null && (args.length == 2 || args.length == 4)) {
+            coapServerPort = Integer.parseInt(args[0]);
+            tlsMode = Integer.parseInt(args[1]) == 1;
+            if (args.length == 4)
+                webLogHost = args[2] + ":" + args[3];
+            return true;
+        }
         // configuration provided by arguments
         if (args.length == 6 || args.length == 8) {
             coapServerPort = Integer.parseInt(args[0]);
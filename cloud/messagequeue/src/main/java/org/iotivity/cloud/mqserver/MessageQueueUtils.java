@@ -22,7 +22,11 @@
 package org.iotivity.cloud.mqserver;
 
 import java.util.HashMap;
+import java.util.List;
 
+import org.iotivity.cloud.base.exception.ServerException.BadRequestException;
+import org.iotivity.cloud.base.protocols.IRequest;
+import org.iotivity.cloud.mqserver.topic.Durability;
 import org.iotivity.cloud.util.Cbor;
 import org.iotivity.cloud.util.Log;
 
@@ -82,4 +86,31 @@ public class MessageQueueUtils {
 
         return cbor.encodingPayloadToCbor(map);
     }
-}
\ No newline at end of file
+
+    /**
+     * API to get durability of the topic to create from the acks query
+     * 
+     * @param request
+     *            received request for topic creation
+     *
+     * @return durability in the query, or ALL_ACK if not included
+     */
+    public static Durability extractDurability(IRequest request) {
+
+        HashMap<String, List<String>> query = request.getUriQueryMap();
+
+        if (query == null
+                || query.containsKey(Constants.MQ_DURABILITY) == false) {
+            return Durability.ALL_ACK;
+        }
+
+        String acks = query.get(Constants.MQ_DURABILITY).get(0);
+        Durability durability = Durability.fromAcks(acks);
+
+        if (durability == null) {
+            throw new BadRequestException("acks " + acks + " not supported");
+        }
+
+        return durability;
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.mqserver.broker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.iotivity.cloud.mqserver.Constants;
+import org.iotivity.cloud.mqserver.topic.Topic;
+import org.iotivity.cloud.mqserver.topic.TopicHistory.Message;
+import org.iotivity.cloud.util.Log;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ *
+ * This class provides a message broker backend storing messages in local
+ * segment files, so the MessageQueue server runs without Kafka and
+ * zookeeper. Each topic has its own SegmentLog, and a published message is
+ * handed to its topic as soon as it is appended. Topics are not kept across
+ * restarts of the server, so logs left by an earlier run are deleted when the
+ * broker is created: nothing would trim them, and a topic created again with
+ * the same name would get the old messages. The logs are kept in a
+ * subdirectory of their own, and only segment files in it are deleted.
+ * 
+ * As the logs do not outlive the server, appended messages are not forced to
+ * the disk for any durability: they are in the page cache once appended, and
+ * a segment is forced when it is sealed.
+ *
+ */
+public class EmbeddedBroker implements IMessageBroker {
+
+    // under the storage path, only the broker writes in it
+    static final String         LOG_DIRECTORY  = "mq-topic-logs";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static class TopicLog {
+        TopicLog(Topic topic, SegmentLog log) {
+            mTopic = topic;
+            mLog = log;
+        }
+
+        public Topic      mTopic;
+        public SegmentLog mLog;
+    }
+
+    private File                                mDirectory     = null;
+    private int                                 mSegmentSize   = 0;
+    private long                                mRetentionSize = 0;
+    private long                                mRetentionTime = 0;
+
+    // topic name, log of the topic
+    private ConcurrentHashMap<String, TopicLog> mTopicLogs     = new ConcurrentHashMap<>();
+
+    private HashedWheelTimer                    mTimer         = new HashedWheelTimer(
+            new DefaultThreadFactory("mq-log-retention", true));
+
+    public EmbeddedBroker(String directory) {
+        this(directory, Constants.MQ_LOG_SEGMENT_SIZE,
+                Constants.MQ_LOG_RETENTION_SIZE,
+                Constants.MQ_LOG_RETENTION_TIME);
+    }
+
+    /**
+     * API to create broker storing messages in the directory
+     * 
+     * @param directory
+     *            directory to keep a log for each topic under
+     * @param segmentSize
+     *            size of each segment file in bytes
+     * @param retentionSize
+     *            size in bytes each topic is kept under
+     * @param retentionTime
+     *            time in milliseconds messages are kept for
+     */
+    public EmbeddedBroker(String directory, int segmentSize,
+            long retentionSize, long retentionTime) {
+
+        mDirectory = new File(directory, LOG_DIRECTORY);
+        mSegmentSize = segmentSize;
+        mRetentionSize = retentionSize;
+        mRetentionTime = retentionTime;
+
+        deleteLogs(mDirectory);
+
+        mTimer.newTimeout(new RetentionTask(), Constants.MQ_LOG_CHECK_PERIOD,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean createTopic(Topic topic) {
+
+        String logName = toLogName(topic.getName());
+
+        try {
+            SegmentLog log = new SegmentLog(new File(mDirectory, logName),
+                    mSegmentSize, mRetentionSize, mRetentionTime);
+
+            if (mTopicLogs.putIfAbsent(logName,
+                    new TopicLog(topic, log)) != null) {
+                // created by another request at the same time
+                log.close();
+                return false;
+            }
+
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean removeTopic(Topic topic) {
+
+        TopicLog topicLog = mTopicLogs.remove(toLogName(topic.getName()));
+
+        if (topicLog == null) {
+            return false;
+        }
+
+        synchronized (topicLog) {
+            topicLog.mLog.delete();
+        }
+
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<Long> publishMessage(Topic topic,
+            byte[] message) {
+
+        CompletableFuture<Long> result = new CompletableFuture<>();
+
+        TopicLog topicLog = mTopicLogs.get(toLogName(topic.getName()));
+
+        if (topicLog == null) {
+            result.completeExceptionally(
+                    new IllegalStateException("topic is not created"));
+            return result;
+        }
+
+        // handed to the topic in order of sequence number
+        synchronized (topicLog) {
+            try {
+                long sequence = topicLog.mLog.append(message);
+
+                topicLog.mTopic.onMessagePublished(message, sequence);
+
+                result.complete(sequence);
+
+            } catch (Exception e) {
+                Log.e("embedded publishMessage failed - " + topic.getName());
+                result.completeExceptionally(e);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public ArrayList<Message> getLatestMessages(Topic topic, int count) {
+
+        TopicLog topicLog = mTopicLogs.get(toLogName(topic.getName()));
+
+        if (topicLog == null) {
+            return null;
+        }
+
+        try {
+            return topicLog.mLog.getLatest(count);
+
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    @Override
+    public void close() {
+
+        mTimer.stop();
+
+        for (TopicLog topicLog : mTopicLogs.values()) {
+            topicLog.mLog.close();
+        }
+    }
+
+    private class RetentionTask implements TimerTask {
+
+        @Override
+        public void run(Timeout timeout) {
+
+            long now = System.currentTimeMillis();
+
+            for (TopicLog topicLog : mTopicLogs.values()) {
+                topicLog.mLog.applyRetention(now);
+            }
+
+            mTimer.newTimeout(this, Constants.MQ_LOG_CHECK_PERIOD,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void deleteLogs(File directory) {
+
+        File[] logDirectories = directory.listFiles(File::isDirectory);
+
+        if (logDirectories == null) {
+            return;
+        }
+
+        for (File logDirectory : logDirectories) {
+            Log.i("delete log left from earlier run - "
+                    + logDirectory.getName());
+
+            File[] segments = logDirectory.listFiles(
+                    file -> file.getName().endsWith(SEGMENT_SUFFIX));
+
+            if (segments == null) {
+                continue;
+            }
+
+            for (File segment : segments) {
+                segment.delete();
+            }
+
+            // kept if anything else is in it
+            logDirectory.delete();
+        }
+    }
+
+    // percent-encoded, so names of different topics do not collide
+    private String toLogName(String topicName) {
+
+        try {
+            return URLEncoder.encode(topicName, "UTF-8");
+
+        } catch (UnsupportedEncodingException e) {
+            // every JVM supports UTF-8
+            throw new IllegalStateException(e);
+        }
+    }
+}
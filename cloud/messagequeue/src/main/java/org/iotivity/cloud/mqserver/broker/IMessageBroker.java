@@ -0,0 +1,93 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.mqserver.broker;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+
+import org.iotivity.cloud.mqserver.topic.Topic;
+import org.iotivity.cloud.mqserver.topic.TopicHistory.Message;
+
+/**
+ *
+ * This interface provides a set of APIs a message broker backend implements to
+ * store messages published to topics. Messages are numbered in order of
+ * publication within a topic, and are handed to the topic they are published
+ * to through Topic.onMessagePublished.
+ *
+ */
+public interface IMessageBroker {
+
+    /**
+     * API to create topic. Messages published to the topic are handed to it
+     * from then on.
+     * 
+     * @param topic
+     *            topic to create
+     * 
+     * @return returns true if the topic is successfully created, otherwise
+     *         false
+     */
+    public boolean createTopic(Topic topic);
+
+    /**
+     * API to remove topic and its messages
+     * 
+     * @param topic
+     *            topic to remove
+     * 
+     * @return returns true if the topic is successfully removed, otherwise
+     *         false
+     */
+    public boolean removeTopic(Topic topic);
+
+    /**
+     * API to publish message to topic
+     * 
+     * @param topic
+     *            topic to publish
+     * @param message
+     *            message to publish
+     * 
+     * @return completed with sequence number of the message when stored as
+     *         durability of the topic requires, or exceptionally if publish
+     *         failed
+     */
+    public CompletableFuture<Long> publishMessage(Topic topic, byte[] message);
+
+    /**
+     * API to get the last messages of topic
+     * 
+     * @param topic
+     *            topic to get messages
+     * @param count
+     *            maximum number of messages to get
+     * 
+     * @return the last messages, oldest first, or null if failed
+     */
+    public ArrayList<Message> getLatestMessages(Topic topic, int count);
+
+    /**
+     * API to close the broker
+     */
+    public void close();
+}
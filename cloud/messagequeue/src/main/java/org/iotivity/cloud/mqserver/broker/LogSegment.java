@@ -0,0 +1,298 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.mqserver.broker;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.iotivity.cloud.mqserver.topic.TopicHistory.Message;
+import org.iotivity.cloud.util.Log;
+
+/**
+ *
+ * This class provides a set of APIs to append messages to a segment file and
+ * to read them back. Each message is written as a 4-byte length (payload
+ * size + 1, 0 meaning no message), an 8-byte publish time and the payload.
+ * The length is written last, so a message partly written is not read when
+ * the segment is opened again. Only the segment messages are appended to is
+ * memory-mapped, sealed segments are read from the file.
+ *
+ */
+class LogSegment {
+
+    static final int         HEADER_SIZE    = 12;
+
+    private File             mFile          = null;
+    // mapped while the segment is appended to, null once sealed
+    private MappedByteBuffer mBuffer        = null;
+
+    // sequence number of the first message in the segment
+    private long             mBaseSequence  = 0;
+    // file position of each message
+    private int[]            mPositions     = new int[64];
+    private int              mCount         = 0;
+    private int              mWritePosition = 0;
+    private long             mLastTime      = 0;
+
+    /**
+     * API to open segment file. Messages written before are read to find
+     * where to append. The segment is sealed until it is activated.
+     * 
+     * @param file
+     *            segment file
+     * @param baseSequence
+     *            sequence number of the first message in the segment
+     * @throws IOException
+     */
+    LogSegment(File file, long baseSequence) throws IOException {
+
+        mFile = file;
+        mBaseSequence = baseSequence;
+
+        if (file.exists()) {
+            try (FileChannel channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.READ)) {
+                recover(channel);
+            }
+        }
+    }
+
+    /**
+     * API to map the segment file to append messages, creating it if not
+     * found
+     * 
+     * @param capacity
+     *            size of the segment file if created
+     * @throws IOException
+     */
+    void activate(int capacity) throws IOException {
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(mFile,
+                "rw")) {
+            // the mapping is kept when the file is closed
+            mBuffer = randomAccessFile.getChannel().map(
+                    FileChannel.MapMode.READ_WRITE, 0,
+                    Math.max(capacity, randomAccessFile.length()));
+        }
+    }
+
+    /**
+     * API to write messages appended to the disk and to unmap the segment
+     * file. Messages are read from the file afterwards.
+     */
+    void seal() {
+
+        if (mBuffer == null) {
+            return;
+        }
+
+        mBuffer.force();
+        unmap(mBuffer);
+        mBuffer = null;
+    }
+
+    /**
+     * API to append message
+     * 
+     * @param payload
+     *            message to append
+     * @param time
+     *            publish time in milliseconds
+     * 
+     * @return sequence number of the message, or -1 if the segment is full
+     */
+    long append(byte[] payload, long time) {
+
+        int position = mWritePosition;
+
+        if (position + HEADER_SIZE + payload.length > mBuffer.capacity()) {
+            return -1;
+        }
+
+        mBuffer.position(position + HEADER_SIZE);
+        mBuffer.put(payload);
+        mBuffer.putLong(position + 4, time);
+        mBuffer.putInt(position, payload.length + 1);
+
+        addPosition(position);
+        mWritePosition = position + HEADER_SIZE + payload.length;
+        mLastTime = time;
+
+        return mBaseSequence + mCount - 1;
+    }
+
+    /**
+     * API to read messages from the index to the last one
+     * 
+     * @param index
+     *            index of the first message to read in the segment
+     * 
+     * @return messages read, oldest first
+     * @throws IOException
+     */
+    ArrayList<Message> readFrom(int index) throws IOException {
+
+        ArrayList<Message> messages = new ArrayList<>();
+
+        if (mBuffer != null) {
+            // duplicate, so reads do not move the position appends use
+            ByteBuffer buffer = mBuffer.duplicate();
+
+            for (int i = index; i < mCount; i++) {
+                byte[] payload = new byte[getPayloadSize(i)];
+                buffer.position(mPositions[i] + HEADER_SIZE);
+                buffer.get(payload);
+                messages.add(new Message(mBaseSequence + i, payload));
+            }
+
+            return messages;
+        }
+
+        try (FileChannel channel = FileChannel.open(mFile.toPath(),
+                StandardOpenOption.READ)) {
+
+            for (int i = index; i < mCount; i++) {
+                byte[] payload = new byte[getPayloadSize(i)];
+                readFully(channel, ByteBuffer.wrap(payload),
+                        mPositions[i] + HEADER_SIZE);
+                messages.add(new Message(mBaseSequence + i, payload));
+            }
+        }
+
+        return messages;
+    }
+
+    /**
+     * API to close and delete the segment file
+     */
+    void delete() {
+
+        if (mBuffer != null) {
+            unmap(mBuffer);
+            mBuffer = null;
+        }
+
+        mFile.delete();
+    }
+
+    long getBaseSequence() {
+        return mBaseSequence;
+    }
+
+    long getNextSequence() {
+        return mBaseSequence + mCount;
+    }
+
+    int getCount() {
+        return mCount;
+    }
+
+    int getSize() {
+        return mWritePosition;
+    }
+
+    long getLastTime() {
+        return mLastTime;
+    }
+
+    private int getPayloadSize(int index) {
+
+        int end = index + 1 < mCount ? mPositions[index + 1] : mWritePosition;
+
+        return end - mPositions[index] - HEADER_SIZE;
+    }
+
+    private void recover(FileChannel channel) throws IOException {
+
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        int position = 0;
+
+        while (position + HEADER_SIZE <= size) {
+            header.clear();
+            readFully(channel, header, position);
+
+            int length = header.getInt(0);
+
+            if (length <= 0 || position + HEADER_SIZE + length - 1 > size) {
+                break;
+            }
+
+            addPosition(position);
+            mLastTime = header.getLong(4);
+            position += HEADER_SIZE + length - 1;
+        }
+
+        mWritePosition = position;
+    }
+
+    private void addPosition(int position) {
+
+        if (mCount == mPositions.length) {
+            mPositions = Arrays.copyOf(mPositions, mCount * 2);
+        }
+
+        mPositions[mCount++] = position;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer,
+            long position) throws IOException {
+
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+
+            if (read < 0) {
+                throw new EOFException(position + " of " + channel.size());
+            }
+
+            position += read;
+        }
+    }
+
+    // a process may hold a limited number of mappings, so they are released
+    // at once instead of when the buffer is collected
+    private static void unmap(MappedByteBuffer buffer) {
+
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+
+            Object cleaner = cleanerMethod.invoke(buffer);
+
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            Log.w("segment mapping is left to the garbage collector", e);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.mqserver.broker;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import org.iotivity.cloud.mqserver.topic.TopicHistory.Message;
+import org.iotivity.cloud.util.Log;
+
+/**
+ *
+ * This class provides a set of APIs to keep messages of a topic in a
+ * directory of segment files. Messages are appended to the last segment, and
+ * a new segment is started when it is full. Only the last segment is mapped
+ * to memory, the others are sealed. Old segments are deleted once the log
+ * grows over its retention size, or their messages are older than the
+ * retention time.
+ *
+ */
+public class SegmentLog {
+
+    private static final String   SEGMENT_SUFFIX  = ".log";
+
+    private File                  mDirectory      = null;
+    private int                   mSegmentSize    = 0;
+    private long                  mRetentionSize  = 0;
+    private long                  mRetentionTime  = 0;
+
+    // oldest first, messages are appended to the last one
+    private ArrayList<LogSegment> mSegments       = new ArrayList<>();
+    private long                  mSize           = 0;
+
+    /**
+     * API to open log in the directory, creating it if not found
+     * 
+     * @param directory
+     *            directory of the segment files
+     * @param segmentSize
+     *            size of each segment file in bytes
+     * @param retentionSize
+     *            size in bytes the log is kept under
+     * @param retentionTime
+     *            time in milliseconds messages are kept for
+     * @throws IOException
+     */
+    public SegmentLog(File directory, int segmentSize, long retentionSize,
+            long retentionTime) throws IOException {
+
+        mDirectory = directory;
+        mSegmentSize = segmentSize;
+        mRetentionSize = retentionSize;
+        mRetentionTime = retentionTime;
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("cannot create " + directory);
+        }
+
+        // segment file is named after its base sequence number
+        ArrayList<Long> baseSequences = new ArrayList<>();
+        for (String name : directory.list()) {
+            if (name.endsWith(SEGMENT_SUFFIX)) {
+                baseSequences.add(Long.parseLong(name.substring(0,
+                        name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        Collections.sort(baseSequences);
+
+        for (long baseSequence : baseSequences) {
+            openSegment(baseSequence);
+        }
+
+        if (mSegments.isEmpty()) {
+            openSegment(0);
+        }
+
+        getActiveSegment().activate(mSegmentSize);
+    }
+
+    /**
+     * API to append message
+     * 
+     * @param payload
+     *            message to append
+     * 
+     * @return sequence number of the message
+     * @throws IOException
+     */
+    public synchronized long append(byte[] payload) throws IOException {
+
+        if (LogSegment.HEADER_SIZE + payload.length > mSegmentSize) {
+            throw new IOException("message is larger than a segment");
+        }
+
+        long time = System.currentTimeMillis();
+        LogSegment activeSegment = getActiveSegment();
+        long sequence = activeSegment.append(payload, time);
+
+        if (sequence >= 0) {
+            mSize += LogSegment.HEADER_SIZE + payload.length;
+            return sequence;
+        }
+
+        // written out and unmapped before the next segment is used
+        activeSegment.seal();
+        activeSegment = openSegment(activeSegment.getNextSequence());
+        activeSegment.activate(mSegmentSize);
+        sequence = activeSegment.append(payload, time);
+        mSize += LogSegment.HEADER_SIZE + payload.length;
+
+        // checked as segments are added, and by EmbeddedBroker periodically
+        applyRetention(time);
+
+        return sequence;
+    }
+
+    /**
+     * API to get the last messages
+     * 
+     * @param count
+     *            maximum number of messages to get
+     * 
+     * @return the last messages, oldest first
+     * @throws IOException
+     */
+    public synchronized ArrayList<Message> getLatest(int count)
+            throws IOException {
+
+        ArrayList<Message> messages = new ArrayList<>();
+
+        for (int i = mSegments.size() - 1; i >= 0
+                && messages.size() < count; i--) {
+            LogSegment segment = mSegments.get(i);
+
+            int index = Math.max(0,
+                    segment.getCount() - (count - messages.size()));
+
+            messages.addAll(0, segment.readFrom(index));
+        }
+
+        return messages;
+    }
+
+    /**
+     * API to delete old segments out of retention. The segment messages are
+     * appended to is kept.
+     * 
+     * @param now
+     *            current time in milliseconds
+     */
+    public synchronized void applyRetention(long now) {
+
+        while (mSegments.size() > 1) {
+            LogSegment oldest = mSegments.get(0);
+
+            if (mSize <= mRetentionSize
+                    && oldest.getLastTime() >= now - mRetentionTime) {
+                break;
+            }
+
+            Log.d("delete log segment " + oldest.getBaseSequence() + " of "
+                    + mDirectory.getName());
+
+            mSegments.remove(0);
+            mSize -= oldest.getSize();
+            oldest.delete();
+        }
+    }
+
+    /**
+     * API to get sequence number the next message is given
+     * 
+     * @return next sequence number
+     */
+    public synchronized long getNextSequence() {
+        return getActiveSegment().getNextSequence();
+    }
+
+    /**
+     * API to get size of messages kept
+     * 
+     * @return size in bytes
+     */
+    public synchronized long getSize() {
+        return mSize;
+    }
+
+    /**
+     * API to close the log, writing messages appended to the disk
+     */
+    public synchronized void close() {
+        getActiveSegment().seal();
+    }
+
+    /**
+     * API to delete the log and its directory
+     */
+    public synchronized void delete() {
+
+        for (LogSegment segment : mSegments) {
+            segment.delete();
+        }
+
+        mSegments.clear();
+        mSize = 0;
+        mDirectory.delete();
+    }
+
+    private LogSegment getActiveSegment() {
+        return mSegments.get(mSegments.size() - 1);
+    }
+
+    private LogSegment openSegment(long baseSequence) throws IOException {
+
+        File file = new File(mDirectory,
+                String.format("%020d", baseSequence) + SEGMENT_SUFFIX);
+
+        LogSegment segment = new LogSegment(file, baseSequence);
+
+        mSegments.add(segment);
+        mSize += segment.getSize();
+
+        return segment;
+    }
+}
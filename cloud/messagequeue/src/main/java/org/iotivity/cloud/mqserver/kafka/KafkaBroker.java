@@ -0,0 +1,116 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.mqserver.kafka;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.iotivity.cloud.mqserver.Constants;
+import org.iotivity.cloud.mqserver.broker.IMessageBroker;
+import org.iotivity.cloud.mqserver.topic.Topic;
+import org.iotivity.cloud.mqserver.topic.TopicHistory.Message;
+
+/**
+ *
+ * This class provides a message broker backend storing messages in Kafka. The
+ * offset of a message in Kafka is used as its sequence number.
+ *
+ */
+public class KafkaBroker implements IMessageBroker {
+
+    private KafkaCommonWrapper   mKafkaCommonOperator   = null;
+    // shared by all topics
+    private KafkaProducerWrapper mKafkaProducerOperator = null;
+    private KafkaConsumerWrapper mKafkaConsumerOperator = null;
+
+    public KafkaBroker(String zookeeper, String broker) {
+
+        mKafkaCommonOperator = new KafkaCommonWrapper(zookeeper, broker);
+        mKafkaProducerOperator = new KafkaProducerWrapper(broker);
+        mKafkaConsumerOperator = new KafkaConsumerWrapper(broker);
+        mKafkaConsumerOperator.startConsumers(Constants.KAFKA_CONSUMER_COUNT);
+    }
+
+    @Override
+    public boolean createTopic(Topic topic) {
+
+        // before the consumers can find it, so no message is missed
+        mKafkaConsumerOperator.addTopic(topic);
+
+        if (mKafkaCommonOperator.createTopic(topic.getName()) == false) {
+            mKafkaConsumerOperator.removeTopic(topic);
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean removeTopic(Topic topic) {
+
+        // consumers leave it before it is gone from Kafka
+        mKafkaConsumerOperator.removeTopic(topic);
+
+        if (mKafkaCommonOperator.deleteTopic(topic.getName()) == false) {
+            mKafkaConsumerOperator.addTopic(topic);
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<Long> publishMessage(Topic topic,
+            byte[] message) {
+
+        return mKafkaProducerOperator.publishMessage(topic.getName(), message,
+                topic.getDurability());
+    }
+
+    @Override
+    public ArrayList<Message> getLatestMessages(Topic topic, int count) {
+
+        ArrayList<ConsumerRecord<byte[], byte[]>> records = mKafkaConsumerOperator
+                .getLatestMessages(topic.getName(), count);
+
+        if (records == null) {
+            return null;
+        }
+
+        ArrayList<Message> messages = new ArrayList<>(records.size());
+
+        for (ConsumerRecord<byte[], byte[]> record : records) {
+            messages.add(new Message(record.offset(), record.value()));
+        }
+
+        return messages;
+    }
+
+    @Override
+    public void close() {
+
+        mKafkaConsumerOperator.closeConnection();
+        mKafkaProducerOperator.closeConnection();
+        mKafkaCommonOperator.closeConnection();
+    }
+}
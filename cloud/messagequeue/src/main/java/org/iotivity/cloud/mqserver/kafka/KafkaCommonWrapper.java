@@ -103,4 +103,12 @@ public class KafkaCommonWrapper {
         return true;
     }
 
+    /**
+     * API to close connection to the zookeeper
+     */
+    public void closeConnection() {
+
+        mZkUtils.close();
+    }
+
 }
\ No newline at end of file
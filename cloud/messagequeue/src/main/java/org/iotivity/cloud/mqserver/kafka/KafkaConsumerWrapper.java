@@ -24,74 +24,88 @@ package org.iotivity.cloud.mqserver.kafka;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.I0Itec.zkclient.ZkClient;
-import org.I0Itec.zkclient.ZkConnection;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.errors.WakeupException;
 import org.iotivity.cloud.mqserver.Constants;
 import org.iotivity.cloud.mqserver.topic.Topic;
 import org.iotivity.cloud.util.Log;
 
-import kafka.admin.AdminUtils;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import kafka.api.FetchRequest;
 import kafka.api.FetchRequestBuilder;
 import kafka.api.PartitionOffsetRequestInfo;
 import kafka.common.TopicAndPartition;
-import kafka.consumer.Consumer;
-import kafka.consumer.ConsumerConfig;
-import kafka.consumer.KafkaStream;
 import kafka.javaapi.FetchResponse;
 import kafka.javaapi.OffsetResponse;
-import kafka.javaapi.consumer.ConsumerConnector;
 import kafka.javaapi.consumer.SimpleConsumer;
 import kafka.javaapi.message.ByteBufferMessageSet;
-import kafka.message.MessageAndMetadata;
 import kafka.message.MessageAndOffset;
-import kafka.utils.ZKStringSerializer$;
-import kafka.utils.ZkUtils;
 
 /**
  *
  * This class provides a set of APIs to use Kafka consumer APIs for receiving
- * messages.
+ * messages. A small pool of consumers, shared by every topic of the broker,
+ * subscribes to the topics and hands each message to its topic.
  *
  */
 public class KafkaConsumerWrapper {
 
-    private String            mTopicName         = null;
+    private String                                   mBroker           = null;
+    private String                                   mGroupId          = null;
 
-    private String            mZookeeper         = null;
-    private String            mBroker            = null;
+    // Kafka topic name, topic to receive its messages
+    private ConcurrentHashMap<String, Topic>         mTopics           = new ConcurrentHashMap<>();
+    // bumped on topic changes, consumers subscribe again when it moves, at
+    // most once every KAFKA_SUBSCRIBE_PERIOD
+    private AtomicInteger                            mTopicsVersion    = new AtomicInteger();
 
-    private ZkClient          mZkClient          = null;
-    private ZkUtils           mZkUtils           = null;
+    private ArrayList<KafkaConsumer<byte[], byte[]>> mConsumers        = new ArrayList<>();
+    private ExecutorService                          mConsumerExecutor = null;
 
-    private ConsumerConnector mConsumerConnector = null;
-    private ExecutorService   mConsumerExecutor  = null;
+    private volatile boolean                         mConsumerStarted  = false;
 
-    private Topic             mInternalConsumer  = null;
+    public KafkaConsumerWrapper(String brokerAddress) {
 
-    private boolean           mConsumerStarted   = false;
+        mBroker = brokerAddress;
+
+        // Own group, so every broker instance receives every message
+        mGroupId = "iotivity-mq-" + UUID.randomUUID();
+    }
+
+    /**
+     * API to start the consumers of the pool
+     * 
+     * @param consumerCount
+     *            number of consumers, each running on its own thread
+     */
+    public void startConsumers(int consumerCount) {
 
-    public KafkaConsumerWrapper(String zookeeperAddress, String brokerAddress,
-            Topic consumer) {
+        Log.d("kafka start consumers - " + consumerCount);
 
-        mTopicName = consumer.getName().replace("/", ".");
+        mConsumerExecutor = Executors.newFixedThreadPool(consumerCount,
+                new DefaultThreadFactory("kafka-consumer", true));
 
-        mZookeeper = zookeeperAddress;
-        mBroker = brokerAddress;
-        mInternalConsumer = consumer;
+        for (int i = 0; i < consumerCount; i++) {
+
+            KafkaConsumer<byte[], byte[]> consumer = new KafkaConsumer<>(
+                    buildPropertiesForSubscribe());
+
+            mConsumers.add(consumer);
 
-        mZkClient = new ZkClient(zookeeperAddress,
-                Constants.KAFKA_SESSION_TIMEOUT,
-                Constants.KAFKA_CONNECT_TIMEOUT, ZKStringSerializer$.MODULE$);
+            mConsumerExecutor.execute(() -> consume(consumer));
+        }
 
-        mZkUtils = new ZkUtils(mZkClient, new ZkConnection(zookeeperAddress),
-                false);
+        mConsumerStarted = true;
     }
 
     /**
@@ -104,90 +118,27 @@ public class KafkaConsumerWrapper {
     }
 
     /**
-     * API to subscribe Kafka topic to receive messages
+     * API to receive messages published to the topic
      * 
-     * @return returns true if the topic is successfully subscribed, otherwise
-     *         false
+     * @param topic
+     *            topic to receive messages
      */
-    public boolean subscribeTopic() {
-
-        Log.d("kafka subscribeTopic - " + mTopicName);
-
-        if (mConsumerStarted == true) {
-            return true;
-        }
-
-        // remove consumer group info if already exist
-        List<String> subscribers = mZkClient
-                .getChildren(ZkUtils.ConsumersPath());
-
-        if (subscribers.contains(mTopicName)) {
-            AdminUtils.deleteConsumerGroupInZK(mZkUtils, mTopicName);
-        }
-
-        ConsumerConfig consumerConfig = new ConsumerConfig(
-                buildPropertiesForSubscribe());
-
-        mConsumerConnector = Consumer
-                .createJavaConsumerConnector(consumerConfig);
+    public void addTopic(Topic topic) {
 
-        Map<String, Integer> topicCountMap = new HashMap<>();
-        topicCountMap.put(mTopicName, Constants.KAFKA_CONSUMMER_THREADS);
-
-        Map<String, List<KafkaStream<byte[], byte[]>>> consumerMap = mConsumerConnector
-                .createMessageStreams(topicCountMap);
-
-        List<KafkaStream<byte[], byte[]>> streams = consumerMap.get(mTopicName);
-
-        mConsumerExecutor = Executors
-                .newFixedThreadPool(Constants.KAFKA_CONSUMMER_THREADS);
-
-        for (final KafkaStream<byte[], byte[]> stream : streams) {
-
-            Log.d("kafka subscribe complete");
-
-            mConsumerExecutor.execute(new Runnable() {
-
-                public void run() {
-
-                    for (final MessageAndMetadata<byte[], byte[]> messageAndMetadata : stream) {
-
-                        mInternalConsumer.onMessagePublished(
-                                messageAndMetadata.message());
-                    }
-                }
-            });
-        }
-
-        mConsumerStarted = true;
-
-        return true;
+        mTopics.put(toKafkaTopicName(topic.getName()), topic);
+        mTopicsVersion.incrementAndGet();
     }
 
     /**
-     * API to unsubscribe Kafka topic to stop receiving messages
+     * API to stop receiving messages published to the topic
      * 
-     * @return returns true if the topic is successfully unsubscribed, otherwise
-     *         false
+     * @param topic
+     *            topic to stop receiving messages
      */
-    public boolean unsubscribeTopic() {
-
-        Log.d("kafka unsubscribeTopic - " + mTopicName);
-
-        // remove consumer group info in zookeeper
-        List<String> subscribers = mZkClient
-                .getChildren(ZkUtils.ConsumersPath());
-
-        if (subscribers.contains(mTopicName)) {
-            AdminUtils.deleteConsumerGroupInZK(mZkUtils, mTopicName);
-        }
-
-        mConsumerExecutor.shutdown();
-        mConsumerConnector.shutdown();
+    public void removeTopic(Topic topic) {
 
-        mConsumerStarted = false;
-
-        return true;
+        mTopics.remove(toKafkaTopicName(topic.getName()));
+        mTopicsVersion.incrementAndGet();
     }
 
     /**
@@ -195,80 +146,183 @@ public class KafkaConsumerWrapper {
      */
     public void closeConnection() {
 
-        if (mConsumerStarted == true) {
-            unsubscribeTopic();
+        mConsumerStarted = false;
+
+        for (KafkaConsumer<byte[], byte[]> consumer : mConsumers) {
+            consumer.wakeup();
         }
 
-        mZkUtils.close();
-        mZkClient.close();
+        if (mConsumerExecutor != null) {
+            mConsumerExecutor.shutdown();
+        }
     }
 
     /**
-     * API to get all messages from Kafka topic
+     * API to get the last messages from Kafka topic. Only the tail of the
+     * topic is fetched, however many messages it has.
      * 
-     * @return returns the list of messages published to the topic
+     * @param topicName
+     *            name of the topic
+     * @param count
+     *            maximum number of messages to get
+     * 
+     * @return returns the list of last messages published to the topic, oldest
+     *         first, or null if failed
      */
-    public ArrayList<byte[]> getMessages() {
+    public ArrayList<ConsumerRecord<byte[], byte[]>> getLatestMessages(
+            String topicName, int count) {
+
+        topicName = toKafkaTopicName(topicName);
 
-        Log.d("kafka get all messages - " + mTopicName);
+        Log.d("kafka get latest messages - " + topicName);
 
         String brokerHost = mBroker.substring(0, mBroker.indexOf(':'));
         int brokerPort = Integer
                 .parseInt(mBroker.substring(mBroker.indexOf(':') + 1));
 
-        Log.d("host " + brokerHost + ", port " + brokerPort);
-
         // TODO check options - Timeout: Int, bufferSize: Int
         SimpleConsumer simpleConsumer = new SimpleConsumer(brokerHost,
-                brokerPort, 100000, 64 * 1024, mTopicName);
+                brokerPort, 100000, 64 * 1024, topicName);
+
+        try {
+            // offset of the message to be published next
+            long endOffset = getLastOffset(simpleConsumer, topicName, 0,
+                    kafka.api.OffsetRequest.LatestTime(), topicName);
+            long startOffset = Math.max(
+                    getLastOffset(simpleConsumer, topicName, 0,
+                            kafka.api.OffsetRequest.EarliestTime(), topicName),
+                    endOffset - count);
+
+            ArrayList<ConsumerRecord<byte[], byte[]>> latestData = new ArrayList<>();
+
+            if (startOffset >= endOffset) {
+                return latestData;
+            }
+
+            // TODO check option - fetch size
+            FetchRequest req = new FetchRequestBuilder().clientId(topicName)
+                    .addFetch(topicName, 0, startOffset, 100000).build();
+
+            FetchResponse fetchResponse = simpleConsumer.fetch(req);
+
+            if (fetchResponse == null || fetchResponse.hasError()) {
+
+                Log.e("Error fetching data from the Broker");
+                return null;
+            }
+
+            ByteBufferMessageSet messageSet = fetchResponse
+                    .messageSet(topicName, 0);
+
+            if (messageSet != null) {
+                for (MessageAndOffset messageAndOffset : messageSet) {
+
+                    long currentOffset = messageAndOffset.offset();
+                    // a compressed set may start before the offset requested
+                    if (currentOffset < startOffset) {
+                        continue;
+                    }
+
+                    ByteBuffer payload = messageAndOffset.message().payload();
 
-        long lastOffset = getLastOffset(simpleConsumer, mTopicName, 0,
-                kafka.api.OffsetRequest.EarliestTime(), mTopicName);
+                    if (payload != null) {
+                        byte[] bytes = new byte[payload.limit()];
+                        payload.get(bytes);
 
-        // TODO check option - fetch size
-        FetchRequest req = new FetchRequestBuilder().clientId(mTopicName)
-                .addFetch(mTopicName, 0, lastOffset, 100000).build();
+                        latestData.add(new ConsumerRecord<>(topicName, 0,
+                                currentOffset, null, bytes));
+                    }
+                }
+            }
 
-        FetchResponse fetchResponse = simpleConsumer.fetch(req);
+            Log.d("kafka get latest messages complete");
 
-        if (fetchResponse == null || fetchResponse.hasError()) {
+            return latestData;
 
-            Log.e("Error fetching data from the Broker");
-            return null;
+        } finally {
+            simpleConsumer.close();
         }
+    }
 
-        ArrayList<byte[]> initialData = new ArrayList<>();
+    private void consume(KafkaConsumer<byte[], byte[]> consumer) {
 
-        ByteBufferMessageSet messageSet = fetchResponse.messageSet(mTopicName,
-                0);
+        int subscribedVersion = -1;
+        long subscribedTime = 0;
+        long retryDelay = Constants.KAFKA_POLL_TIMEOUT;
 
-        if (messageSet != null) {
-            for (MessageAndOffset messageAndOffset : messageSet) {
+        try {
+            while (mConsumerStarted) {
 
-                long currentOffset = messageAndOffset.offset();
-                if (currentOffset < lastOffset) {
-                    Log.e("Found an old offset: " + currentOffset
-                            + " Expecting: " + lastOffset);
-                    continue;
+                // Topics are subscribed by name rather than by pattern, as
+                // the 0.9 client fails every poll once a topic matching the
+                // pattern is deleted. Each subscribe rebalances the group,
+                // so changes made meanwhile are subscribed together
+                int topicsVersion = mTopicsVersion.get();
+                long now = System.currentTimeMillis();
+
+                if (topicsVersion != subscribedVersion && now
+                        - subscribedTime >= Constants.KAFKA_SUBSCRIBE_PERIOD) {
+                    subscribedVersion = topicsVersion;
+                    subscribedTime = now;
+
+                    if (mTopics.isEmpty()) {
+                        consumer.unsubscribe();
+                    } else {
+                        consumer.subscribe(new ArrayList<>(mTopics.keySet()));
+                    }
                 }
 
-                lastOffset = messageAndOffset.nextOffset();
-                ByteBuffer payload = messageAndOffset.message().payload();
+                if (consumer.subscription().isEmpty()) {
+                    Thread.sleep(Constants.KAFKA_POLL_TIMEOUT);
+                    continue;
+                }
 
-                if (payload != null) {
-                    byte[] bytes = new byte[payload.limit()];
-                    payload.get(bytes);
+                ConsumerRecords<byte[], byte[]> records = null;
+
+                try {
+                    records = consumer.poll(Constants.KAFKA_POLL_TIMEOUT);
+                    retryDelay = Constants.KAFKA_POLL_TIMEOUT;
+                } catch (WakeupException e) {
+                    throw e;
+                } catch (Exception e) {
+                    // keeps on serving the other topics, waiting longer
+                    // while the poll keeps failing
+                    Log.w("kafka poll failed, retry in " + retryDelay + "ms",
+                            e);
+                    Thread.sleep(retryDelay);
+                    retryDelay = Math.min(retryDelay * 2,
+                            Constants.KAFKA_POLL_RETRY_MAX);
+                    continue;
+                }
 
-                    initialData.add(bytes);
+                for (ConsumerRecord<byte[], byte[]> record : records) {
+                    dispatch(record);
                 }
             }
+        } catch (WakeupException | InterruptedException e) {
+            Log.d("kafka consumer closed");
+        } finally {
+            consumer.close();
         }
+    }
 
-        simpleConsumer.close();
+    private void dispatch(ConsumerRecord<byte[], byte[]> record) {
 
-        Log.d("kafka get all messages complete");
+        Topic topic = mTopics.get(record.topic());
+
+        if (topic == null) {
+            return;
+        }
+
+        try {
+            topic.onMessagePublished(record.value(), record.offset());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
 
-        return initialData;
+    private String toKafkaTopicName(String topicName) {
+        return topicName.replace("/", ".");
     }
 
     private Properties buildPropertiesForSubscribe() {
@@ -276,10 +330,17 @@ public class KafkaConsumerWrapper {
         // TODO check property settings
         Properties props = new Properties();
 
-        props.put("group.id", mTopicName);
-        props.put("zookeeper.connect", mZookeeper);
+        props.put("bootstrap.servers", mBroker);
+        props.put("group.id", mGroupId);
         props.put("enable.auto.commit", "true");
         props.put("auto.commit.interval.ms", Constants.KAFKA_COMMIT_INTERVAL);
+        props.put("auto.offset.reset", "earliest");
+        props.put("metadata.max.age.ms", Constants.KAFKA_METADATA_MAX_AGE);
+        props.put("heartbeat.interval.ms", Constants.KAFKA_HEARTBEAT_PERIOD);
+        props.put("key.deserializer",
+                "org.apache.kafka.common.serialization.ByteArrayDeserializer");
+        props.put("value.deserializer",
+                "org.apache.kafka.common.serialization.ByteArrayDeserializer");
 
         return props;
     }
@@ -21,75 +21,119 @@
  */
 package org.iotivity.cloud.mqserver.kafka;
 
+import java.util.EnumMap;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.iotivity.cloud.mqserver.Constants;
+import org.iotivity.cloud.mqserver.topic.Durability;
 import org.iotivity.cloud.util.Log;
 
 /**
  *
  * This class provides a set of APIs to use Kafka producer APIs for publishing
- * messages.
+ * messages. Producers are shared by every topic of the broker, one for each
+ * durability, so messages of many devices are sent in the same batches.
  *
  */
 public class KafkaProducerWrapper {
 
-    private String                   mTopicName = null;
-    private String                   mBroker    = null;
+    private String                                        mBroker    = null;
 
-    private Producer<byte[], byte[]> mProducer  = null;
+    // acks is set per producer, so each durability has its own
+    private EnumMap<Durability, Producer<byte[], byte[]>> mProducers = new EnumMap<>(
+            Durability.class);
 
-    public KafkaProducerWrapper(String brokerAddress, String topic) {
-
-        mTopicName = topic.replace("/", ".");
+    public KafkaProducerWrapper(String brokerAddress) {
 
         mBroker = brokerAddress;
-
-        mProducer = new KafkaProducer<>(buildPropertiesForPublish());
     }
 
     /**
-     * API to publish message to Kafka topic
+     * API to publish message to Kafka topic. The message is sent in a batch
+     * with others, and the result is notified from the send callback.
      * 
+     * @param topic
+     *            name of the topic to publish
      * @param message
      *            message to publish
+     * @param durability
+     *            how far the message is stored before completion
      * 
-     * @return returns true if the message is successfully published, otherwise
-     *         false
+     * @return completed with Kafka offset of the message when stored as
+     *         durability requires, or exceptionally if publish failed
      */
-    public boolean publishMessage(byte[] message) {
-
-        Log.d("kafka publishMessage - " + mTopicName);
+    public CompletableFuture<Long> publishMessage(String topic, byte[] message,
+            Durability durability) {
 
-        ProducerRecord<byte[], byte[]> record = new ProducerRecord<>(
-                mTopicName, message);
+        String topicName = topic.replace("/", ".");
 
-        mProducer.send(record);
-        mProducer.flush();
+        Log.d("kafka publishMessage - " + topicName);
 
-        return true;
+        ProducerRecord<byte[], byte[]> record = new ProducerRecord<>(
+                topicName, message);
+
+        CompletableFuture<Long> result = new CompletableFuture<>();
+
+        try {
+            getProducer(durability).send(record, (metadata, exception) -> {
+                if (exception != null) {
+                    Log.e("kafka publishMessage failed - " + topicName);
+                    result.completeExceptionally(exception);
+                } else {
+                    result.complete(metadata.offset());
+                }
+            });
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+        }
+
+        return result;
     }
 
     /**
-     * API to close Kafka producer connection
+     * API to close Kafka producer connection. Messages not sent yet are sent
+     * before closing.
      */
     public void closeConnection() {
 
-        mProducer.close();
+        synchronized (mProducers) {
+            for (Producer<byte[], byte[]> producer : mProducers.values()) {
+                producer.close();
+            }
+
+            mProducers.clear();
+        }
+    }
+
+    private Producer<byte[], byte[]> getProducer(Durability durability) {
+
+        synchronized (mProducers) {
+            Producer<byte[], byte[]> producer = mProducers.get(durability);
+
+            if (producer == null) {
+                producer = new KafkaProducer<>(
+                        buildPropertiesForPublish(durability));
+                mProducers.put(durability, producer);
+            }
+
+            return producer;
+        }
     }
 
-    private Properties buildPropertiesForPublish() {
+    private Properties buildPropertiesForPublish(Durability durability) {
 
         // TODO check property settings
         Properties props = new Properties();
 
         props.put("bootstrap.servers", mBroker);
-        props.put("acks", "all");
+        props.put("acks", durability.getAcks());
         props.put("retries", 0);
-        props.put("batch.size", 16384);
-        props.put("linger.ms", 1);
+        props.put("batch.size", Constants.KAFKA_BATCH_SIZE);
+        props.put("linger.ms", Constants.KAFKA_LINGER_TIME);
         props.put("buffer.memory", 33554432);
         props.put("key.serializer",
                 "org.apache.kafka.common.serialization.ByteArraySerializer");
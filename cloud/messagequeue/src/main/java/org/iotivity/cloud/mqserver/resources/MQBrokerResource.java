@@ -25,6 +25,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.iotivity.cloud.base.device.Device;
 import org.iotivity.cloud.base.exception.ServerException;
@@ -40,6 +41,7 @@ import org.iotivity.cloud.base.protocols.enums.ResponseStatus;
 import org.iotivity.cloud.base.resource.Resource;
 import org.iotivity.cloud.mqserver.Constants;
 import org.iotivity.cloud.mqserver.MessageQueueUtils;
+import org.iotivity.cloud.mqserver.broker.IMessageBroker;
 import org.iotivity.cloud.mqserver.topic.Topic;
 import org.iotivity.cloud.mqserver.topic.TopicManager;
 
@@ -54,6 +56,7 @@ public class MQBrokerResource extends Resource {
 
     public MQBrokerResource() {
         super(Arrays.asList(Constants.PREFIX_OIC, Constants.MQ_BROKER_URI));
+        setBlocking(true);
     }
 
     /**
@@ -68,6 +71,29 @@ public class MQBrokerResource extends Resource {
         mTopicManager.setKafkaInformation(zookeeper, broker);
     }
 
+    /**
+     * API to set backend storing messages, instead of Kafka
+     * 
+     * @param messageBroker
+     *            message broker backend
+     */
+    public void setMessageBroker(IMessageBroker messageBroker) {
+        mTopicManager.setMessageBroker(messageBroker);
+    }
+
+    /**
+     * API to close backend storing messages
+     */
+    public void closeMessageBroker() {
+
+        IMessageBroker messageBroker = mTopicManager.getMessageBroker();
+
+        // not set when the server failed to start
+        if (messageBroker != null) {
+            messageBroker.close();
+        }
+    }
+
     @Override
     public void onDefaultRequestReceived(Device srcDevice, IRequest request)
             throws ServerException {
@@ -82,8 +108,10 @@ public class MQBrokerResource extends Resource {
                 response = handlePutRequest(request);
                 break;
             case POST:
-                response = handlePostRequest(request);
-                break;
+                // answered from the publish callback, not blocking the caller
+                sendResponseAsync(srcDevice, request,
+                        handlePostRequest(request));
+                return;
             case DELETE:
                 response = handleDeleteRequest(request);
                 break;
@@ -130,7 +158,7 @@ public class MQBrokerResource extends Resource {
     }
 
     // PUBLISH
-    private IResponse handlePostRequest(IRequest request) {
+    private CompletableFuture<IResponse> handlePostRequest(IRequest request) {
 
         return publishMessage(request);
     }
@@ -216,7 +244,7 @@ public class MQBrokerResource extends Resource {
         return topic.handleUnsubscribeTopic(request);
     }
 
-    private IResponse publishMessage(IRequest request) {
+    private CompletableFuture<IResponse> publishMessage(IRequest request) {
 
         Topic topic = mTopicManager.getTopic(request.getUriPath());
 
@@ -265,8 +293,10 @@ public class MQBrokerResource extends Resource {
 
         String type = new String();
 
-        if (request.getUriQueryMap() != null) {
-            type = request.getUriQueryMap().get("rt").get(0);
+        if (request.getUriQueryMap() != null && request.getUriQueryMap()
+                .containsKey(Constants.RS_RESOURCE_TYPE)) {
+            type = request.getUriQueryMap().get(Constants.RS_RESOURCE_TYPE)
+                    .get(0);
         }
 
         StringBuilder stringBuilder = new StringBuilder();
@@ -285,7 +315,8 @@ public class MQBrokerResource extends Resource {
             throw new ForbiddenException("topic already exist");
         }
 
-        Topic newTopic = new Topic(topicName, type, mTopicManager);
+        Topic newTopic = new Topic(topicName, type,
+                MessageQueueUtils.extractDurability(request), mTopicManager);
 
         if (mTopicManager.createTopic(newTopic) == false) {
             throw new InternalServerErrorException("create topic falied");
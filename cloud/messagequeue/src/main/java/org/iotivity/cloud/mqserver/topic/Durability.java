@@ -0,0 +1,72 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.mqserver.topic;
+
+/**
+ *
+ * This enum defines how far a message published to a topic is stored before
+ * the publisher is answered. It is chosen on topic creation with the acks
+ * query, e.g. acks=1.
+ *
+ */
+public enum Durability {
+    // answered once the message is sent to the broker
+    FIRE_AND_FORGET("0"),
+    // answered once the partition leader has stored the message
+    LEADER_ACK("1"),
+    // answered once every in-sync replica has stored the message
+    ALL_ACK("all");
+
+    private String mAcks;
+
+    Durability(String acks) {
+        mAcks = acks;
+    }
+
+    /**
+     * API to get Kafka acks setting of the durability
+     * 
+     * @return value of acks
+     */
+    public String getAcks() {
+        return mAcks;
+    }
+
+    /**
+     * API to find durability by Kafka acks setting
+     * 
+     * @param acks
+     *            value of acks query
+     * 
+     * @return durability, or null if acks is not known
+     */
+    public static Durability fromAcks(String acks) {
+
+        for (Durability durability : values()) {
+            if (durability.mAcks.equals(acks)) {
+                return durability;
+            }
+        }
+
+        return null;
+    }
+}
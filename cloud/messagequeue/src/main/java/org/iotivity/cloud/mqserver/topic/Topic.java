@@ -22,9 +22,13 @@
 package org.iotivity.cloud.mqserver.topic;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.iotivity.cloud.base.device.Device;
+import org.iotivity.cloud.base.exception.ServerException.BadRequestException;
 import org.iotivity.cloud.base.exception.ServerException.ForbiddenException;
 import org.iotivity.cloud.base.exception.ServerException.InternalServerErrorException;
 import org.iotivity.cloud.base.exception.ServerException.NotFoundException;
@@ -34,8 +38,9 @@ import org.iotivity.cloud.base.protocols.IResponse;
 import org.iotivity.cloud.base.protocols.MessageBuilder;
 import org.iotivity.cloud.base.protocols.enums.ContentFormat;
 import org.iotivity.cloud.base.protocols.enums.ResponseStatus;
-import org.iotivity.cloud.mqserver.kafka.KafkaConsumerWrapper;
-import org.iotivity.cloud.mqserver.kafka.KafkaProducerWrapper;
+import org.iotivity.cloud.mqserver.Constants;
+import org.iotivity.cloud.mqserver.MessageQueueUtils;
+import org.iotivity.cloud.mqserver.topic.TopicHistory.Message;
 import org.iotivity.cloud.util.Cbor;
 
 /**
@@ -49,45 +54,55 @@ public class Topic {
 
     private String                 mName         = null;
     private String                 mType         = null;
+    private Durability             mDurability   = Durability.ALL_ACK;
     private HashMap<String, Topic> mSubtopics    = null;
 
-    private byte[]                 mLatestData   = null;
+    // last messages, with sequence numbers given by the broker
+    private TopicHistory           mHistory      = new TopicHistory(
+            Constants.MQ_TOPIC_HISTORY_SIZE);
+    // messages published before the topic is consumed are read once, and
+    // a failed read is tried again no sooner than the retry period
+    private volatile boolean       mHistoryRead  = false;
+    private long                   mHistoryRetry = 0;
+    private final Object           mHistoryLock  = new Object();
+    // answered while no message is published
+    private byte[]                 mEmptyData    = null;
 
     private static class TopicSubscriber {
-        TopicSubscriber(Device subscriber, IRequest request) {
+        TopicSubscriber(Device subscriber, IRequest request,
+                boolean withSequence) {
             mSubscriber = subscriber;
             mRequest = request;
+            mWithSequence = withSequence;
         }
 
         public Device   mSubscriber;
         public IRequest mRequest;
+        // notified with sequence numbers, as asked by since query
+        public boolean  mWithSequence;
     }
 
-    private HashMap<String, TopicSubscriber> mSubscribers           = null;
+    private HashMap<String, TopicSubscriber> mSubscribers = null;
 
-    private KafkaProducerWrapper             mKafkaProducerOperator = null;
-    private KafkaConsumerWrapper             mKafkaConsumerOperator = null;
-
-    Cbor<HashMap<String, Object>>            mCbor                  = new Cbor<>();
+    Cbor<HashMap<String, Object>>            mCbor        = new Cbor<>();
 
     public Topic(String name, String type, TopicManager topicManager) {
+        this(name, type, Durability.ALL_ACK, topicManager);
+    }
+
+    public Topic(String name, String type, Durability durability,
+            TopicManager topicManager) {
 
         mTopicManager = topicManager;
         mName = name;
         mType = type;
+        mDurability = durability;
 
         mSubtopics = new HashMap<>();
         mSubscribers = new HashMap<>();
 
-        String kafka_zookeeper = topicManager.getKafkaZookeeper();
-        String kafka_broker = topicManager.getKafkaBroker();
-
-        mKafkaProducerOperator = new KafkaProducerWrapper(kafka_broker, name);
-        mKafkaConsumerOperator = new KafkaConsumerWrapper(kafka_zookeeper,
-                kafka_broker, this);
-
         HashMap<String, Object> data = new HashMap<>();
-        mLatestData = mCbor.encodingPayloadToCbor(data);
+        mEmptyData = mCbor.encodingPayloadToCbor(data);
     }
 
     /**
@@ -108,6 +123,15 @@ public class Topic {
         return mType;
     }
 
+    /**
+     * API to get durability of messages published to the topic
+     * 
+     * @return durability of the topic
+     */
+    public Durability getDurability() {
+        return mDurability;
+    }
+
     /**
      * API to handle request to create subtopic
      * 
@@ -123,8 +147,10 @@ public class Topic {
 
         String newTopicType = new String();
 
-        if (request.getUriQueryMap() != null) {
-            newTopicType = request.getUriQueryMap().get("rt").get(0);
+        if (request.getUriQueryMap() != null && request.getUriQueryMap()
+                .containsKey(Constants.RS_RESOURCE_TYPE)) {
+            newTopicType = request.getUriQueryMap()
+                    .get(Constants.RS_RESOURCE_TYPE).get(0);
         }
 
         if (getSubtopic(newTopicName) != null) {
@@ -132,7 +158,7 @@ public class Topic {
         }
 
         Topic newTopic = new Topic(mName + "/" + newTopicName, newTopicType,
-                mTopicManager);
+                MessageQueueUtils.extractDurability(request), mTopicManager);
 
         if (mTopicManager.createTopic(newTopic) == false) {
             throw new InternalServerErrorException("create topic falied");
@@ -185,7 +211,9 @@ public class Topic {
     }
 
     /**
-     * API to handle request to subscribe the topic
+     * API to handle request to subscribe the topic. With since query, the
+     * messages after the sequence number are answered, and notifications
+     * carry sequence numbers.
      * 
      * @param srcDevice
      *            device that sent request for topic subscription
@@ -196,27 +224,19 @@ public class Topic {
      */
     public IResponse handleSubscribeTopic(Device srcDevice, IRequest request) {
 
-        // get latest data from kafka if consumer started for the first time
-        if (mKafkaConsumerOperator.consumerStarted() == false) {
+        Long since = getSinceQuery(request);
 
-            ArrayList<byte[]> data = mKafkaConsumerOperator.getMessages();
-
-            if (data != null && !data.isEmpty()) {
-                mLatestData = data.get(data.size() - 1);
-            }
-        }
-
-        if (mKafkaConsumerOperator.subscribeTopic() == false) {
-            throw new InternalServerErrorException("subscribe topic failed");
+        if (mHistoryRead == false) {
+            updateLatestData();
         }
 
         synchronized (mSubscribers) {
+
             mSubscribers.put(request.getRequestId(),
-                    new TopicSubscriber(srcDevice, request));
-        }
+                    new TopicSubscriber(srcDevice, request, since != null));
 
-        return MessageBuilder.createResponse(request, ResponseStatus.CONTENT,
-                ContentFormat.APPLICATION_CBOR, mLatestData);
+            return createMessageResponse(request, since);
+        }
     }
 
     /**
@@ -231,31 +251,23 @@ public class Topic {
 
         synchronized (mSubscribers) {
 
-            TopicSubscriber subscriber = mSubscribers
-                    .get(request.getRequestId());
+            mSubscribers.remove(request.getRequestId());
 
-            mSubscribers.remove(subscriber.mRequest.getRequestId());
-
-            // if there's no more subscriber, stop subscribing topic
-            // with kafka consumer
-            if (mSubscribers.isEmpty()) {
-                mKafkaConsumerOperator.unsubscribeTopic();
-            }
+            return createMessageResponse(request, null);
         }
-
-        return MessageBuilder.createResponse(request, ResponseStatus.CONTENT,
-                ContentFormat.APPLICATION_CBOR, mLatestData);
     }
 
     /**
-     * API to handle request to publish message to the topic
+     * API to handle request to publish message to the topic. The publisher is
+     * answered once the message is stored as the topic durability requires.
      * 
      * @param request
      *            received request for message publication
      * 
-     * @return response of message publication
+     * @return completed with response of message publication
      */
-    public IResponse handlePublishMessage(IRequest request) {
+    public CompletableFuture<IResponse> handlePublishMessage(
+            IRequest request) {
         byte[] payload = request.getPayload();
 
         if (payload == null) {
@@ -269,15 +281,22 @@ public class Topic {
             throw new PreconditionFailedException("message is not included");
         }
 
-        if (mKafkaProducerOperator.publishMessage(payload) == false) {
-            throw new InternalServerErrorException("publish message failed");
-        }
-
-        return MessageBuilder.createResponse(request, ResponseStatus.CHANGED);
+        return mTopicManager.getMessageBroker()
+                .publishMessage(this, payload)
+                .handle((offset, error) -> {
+                    if (error != null) {
+                        throw new InternalServerErrorException(
+                                "publish message failed");
+                    }
+
+                    return MessageBuilder.createResponse(request,
+                            ResponseStatus.CHANGED);
+                });
     }
 
     /**
-     * API to handle request to read latest message in the topic
+     * API to handle request to read latest message in the topic. With since
+     * query, the messages after the sequence number are read instead.
      * 
      * @param request
      *            received request for reading latest message in topic
@@ -285,40 +304,145 @@ public class Topic {
      * @return response of reading latest message in topic
      */
     public IResponse handleReadMessage(IRequest request) {
-        // if consumer is not started, get data from kafka broker
-        if (mKafkaConsumerOperator.consumerStarted() == false) {
 
-            ArrayList<byte[]> data = mKafkaConsumerOperator.getMessages();
+        Long since = getSinceQuery(request);
 
-            if (data != null && !data.isEmpty()) {
-                mLatestData = data.get(data.size() - 1);
-            }
+        if (mHistoryRead == false) {
+            updateLatestData();
         }
 
-        return MessageBuilder.createResponse(request, ResponseStatus.CONTENT,
-                ContentFormat.APPLICATION_CBOR, mLatestData);
+        synchronized (mSubscribers) {
+
+            return createMessageResponse(request, since);
+        }
     }
 
     /**
-     * API to close connection of Kafka producer and consumer
+     * API to stop notifying subscribers of the topic
      */
     public void cleanup() {
 
-        mKafkaProducerOperator.closeConnection();
-        mKafkaConsumerOperator.closeConnection();
+        synchronized (mSubscribers) {
+            mSubscribers.clear();
+        }
     }
 
     /**
-     * callback from Kafka Consumer to get published message
+     * callback from message broker to get published message
      * 
      * @param message
      *            published message
+     * @param offset
+     *            sequence number of the message, e.g. Kafka offset
      */
-    public void onMessagePublished(byte[] message) {
+    public void onMessagePublished(byte[] message, long offset) {
+
+        synchronized (mSubscribers) {
+
+            // sent already, or answered to subscribers as the latest data
+            if (mHistory.add(offset, message) == false) {
+                return;
+            }
+
+            notifyPublishedMessage(offset, message);
+        }
+    }
+
+    // Only the messages the history can keep are fetched from the broker.
+    // Messages published later are added by onMessagePublished, so the
+    // broker is asked once, and again only if it failed to answer. The fetch
+    // may block, so requests to this topic wait for it on the history lock
+    // while the consumer thread notifies subscribers of other topics
+    private void updateLatestData() {
+
+        synchronized (mHistoryLock) {
 
-        mLatestData = message;
+            long currentTime = System.currentTimeMillis();
 
-        notifyPublishedMessage();
+            if (mHistoryRead || currentTime < mHistoryRetry) {
+                return;
+            }
+
+            ArrayList<Message> data = mTopicManager.getMessageBroker()
+                    .getLatestMessages(this, mHistory.getCapacity());
+
+            if (data == null) {
+                mHistoryRetry = currentTime
+                        + Constants.MQ_HISTORY_RETRY_PERIOD;
+                return;
+            }
+
+            synchronized (mSubscribers) {
+                mergeLatestData(data);
+            }
+
+            mHistoryRead = true;
+        }
+    }
+
+    private void mergeLatestData(ArrayList<Message> data) {
+
+        if (data.isEmpty()) {
+            return;
+        }
+
+        // messages in between are not kept, so the history starts over
+        Message latest = mHistory.getLatest();
+        if (latest != null
+                && data.get(0).getSequence() > latest.getSequence() + 1) {
+            mHistory.clear();
+        }
+
+        for (Message message : data) {
+            mHistory.add(message.getSequence(), message.getPayload());
+        }
+    }
+
+    private Long getSinceQuery(IRequest request) {
+
+        HashMap<String, List<String>> query = request.getUriQueryMap();
+
+        if (query == null || query.containsKey(Constants.MQ_SINCE) == false) {
+            return null;
+        }
+
+        try {
+            return Long.parseLong(query.get(Constants.MQ_SINCE).get(0));
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("since is not a sequence number");
+        }
+    }
+
+    private IResponse createMessageResponse(IRequest request, Long since) {
+
+        byte[] payload = null;
+
+        if (since != null) {
+            payload = encodeMessages(mHistory.getSince(since));
+        } else {
+            Message latest = mHistory.getLatest();
+            payload = latest == null ? mEmptyData : latest.getPayload();
+        }
+
+        return MessageBuilder.createResponse(request, ResponseStatus.CONTENT,
+                ContentFormat.APPLICATION_CBOR, payload);
+    }
+
+    // {"messages": [{"seq": sequence, "message": message}, ...]}
+    private byte[] encodeMessages(List<Message> messages) {
+
+        ArrayList<HashMap<String, Object>> messageList = new ArrayList<>();
+
+        for (Message message : messages) {
+            HashMap<String, Object> entry = new HashMap<>();
+            entry.put(Constants.MQ_SEQUENCE, message.getSequence());
+            entry.put(Constants.MQ_MESSAGE, mCbor.parsePayloadFromCbor(
+                    message.getPayload(), HashMap.class));
+            messageList.add(entry);
+        }
+
+        return MessageQueueUtils.buildPayload(Constants.MQ_MESSAGES,
+                messageList);
     }
 
     private Topic getSubtopic(String topicName) {
@@ -332,14 +456,28 @@ public class Topic {
         return topic;
     }
 
-    private void notifyPublishedMessage() {
+    private void notifyPublishedMessage(long sequence, byte[] message) {
         synchronized (mSubscribers) {
+
+            // encoded once, for subscribers asked with since query
+            byte[] sequencedMessage = null;
+
             for (TopicSubscriber subscriber : mSubscribers.values()) {
 
+                byte[] payload = message;
+
+                if (subscriber.mWithSequence) {
+                    if (sequencedMessage == null) {
+                        sequencedMessage = encodeMessages(Arrays
+                                .asList(new Message(sequence, message)));
+                    }
+                    payload = sequencedMessage;
+                }
+
                 subscriber.mSubscriber.sendResponse(
                         MessageBuilder.createResponse(subscriber.mRequest,
                                 ResponseStatus.CONTENT,
-                                ContentFormat.APPLICATION_CBOR, mLatestData));
+                                ContentFormat.APPLICATION_CBOR, payload));
             }
         }
     }
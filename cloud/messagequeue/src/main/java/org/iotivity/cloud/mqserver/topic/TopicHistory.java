@@ -0,0 +1,154 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.mqserver.topic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ *
+ * This class provides a set of APIs to keep the last messages published to a
+ * topic in a ring buffer. Each message is kept with its sequence number, the
+ * offset of the message in the broker, so readers can ask for the messages
+ * after the last one they have seen.
+ *
+ */
+public class TopicHistory {
+
+    /**
+     *
+     * This class holds a message with its sequence number.
+     *
+     */
+    public static class Message {
+        private long   mSequence;
+        private byte[] mPayload;
+
+        public Message(long sequence, byte[] payload) {
+            mSequence = sequence;
+            mPayload = payload;
+        }
+
+        public long getSequence() {
+            return mSequence;
+        }
+
+        public byte[] getPayload() {
+            return mPayload;
+        }
+    }
+
+    private Message[] mMessages = null;
+    // index to put next message at
+    private int       mHead     = 0;
+    private int       mCount    = 0;
+
+    public TopicHistory(int capacity) {
+        mMessages = new Message[capacity];
+    }
+
+    /**
+     * API to add message published to the topic. The oldest message is
+     * dropped if the history is full.
+     * 
+     * @param sequence
+     *            sequence number of the message
+     * @param payload
+     *            published message
+     * 
+     * @return returns true if the message is added, false if it is not newer
+     *         than the latest message
+     */
+    public synchronized boolean add(long sequence, byte[] payload) {
+
+        if (mCount > 0 && sequence <= getLatest().getSequence()) {
+            return false;
+        }
+
+        mMessages[mHead] = new Message(sequence, payload);
+        mHead = (mHead + 1) % mMessages.length;
+
+        if (mCount < mMessages.length) {
+            mCount++;
+        }
+
+        return true;
+    }
+
+    /**
+     * API to drop every message kept
+     */
+    public synchronized void clear() {
+
+        Arrays.fill(mMessages, null);
+        mHead = 0;
+        mCount = 0;
+    }
+
+    /**
+     * API to get latest message
+     * 
+     * @return latest message, or null if no message is kept
+     */
+    public synchronized Message getLatest() {
+
+        if (mCount == 0) {
+            return null;
+        }
+
+        return mMessages[(mHead - 1 + mMessages.length) % mMessages.length];
+    }
+
+    /**
+     * API to get messages after specific sequence number
+     * 
+     * @param sequence
+     *            sequence number of the last message seen
+     * 
+     * @return messages kept with a greater sequence number, oldest first
+     */
+    public synchronized ArrayList<Message> getSince(long sequence) {
+
+        ArrayList<Message> messages = new ArrayList<>();
+
+        int oldest = (mHead - mCount + mMessages.length) % mMessages.length;
+
+        for (int i = 0; i < mCount; i++) {
+            Message message = mMessages[(oldest + i) % mMessages.length];
+
+            if (message.getSequence() > sequence) {
+                messages.add(message);
+            }
+        }
+
+        return messages;
+    }
+
+    /**
+     * API to get number of messages the history keeps
+     * 
+     * @return capacity of the history
+     */
+    public int getCapacity() {
+        return mMessages.length;
+    }
+}
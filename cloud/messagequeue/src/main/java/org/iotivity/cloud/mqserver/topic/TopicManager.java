@@ -23,7 +23,8 @@ package org.iotivity.cloud.mqserver.topic;
 
 import java.util.ArrayList;
 
-import org.iotivity.cloud.mqserver.kafka.KafkaCommonWrapper;
+import org.iotivity.cloud.mqserver.broker.IMessageBroker;
+import org.iotivity.cloud.mqserver.kafka.KafkaBroker;
 
 /**
  *
@@ -32,13 +33,15 @@ import org.iotivity.cloud.mqserver.kafka.KafkaCommonWrapper;
  */
 public class TopicManager {
 
-    private ArrayList<Topic>   mTopics              = new ArrayList<>();
+    // indexed by uri path and type
+    private TopicTree      mTopics         = new TopicTree();
 
     // for Kafka
-    String                     mKafkaZookeeper      = null;
-    String                     mKafkaBroker         = null;
+    String                 mKafkaZookeeper = null;
+    String                 mKafkaBroker    = null;
 
-    private KafkaCommonWrapper mKafkaCommonOperator = null;
+    // backend storing messages of all topics
+    private IMessageBroker mMessageBroker  = null;
 
     /**
      * API to create topic
@@ -50,12 +53,12 @@ public class TopicManager {
      */
     public boolean createTopic(Topic topic) {
 
-        if (mKafkaCommonOperator.createTopic(topic.getName()) == false) {
+        if (mMessageBroker.createTopic(topic) == false) {
             return false;
         }
 
         synchronized (mTopics) {
-            mTopics.add(topic);
+            mTopics.put(topic);
         }
 
         return true;
@@ -81,15 +84,7 @@ public class TopicManager {
      */
     public ArrayList<String> getTopicList() {
 
-        ArrayList<String> topicList = new ArrayList<>();
-
-        synchronized (mTopics) {
-            for (Topic topic : mTopics) {
-                topicList.add(topic.getName());
-            }
-        }
-
-        return topicList;
+        return getTopicNames(mTopics.getAll());
     }
 
     /**
@@ -102,18 +97,7 @@ public class TopicManager {
      */
     public ArrayList<String> getTopicListByType(String type) {
 
-        ArrayList<String> topicList = new ArrayList<>();
-
-        synchronized (mTopics) {
-
-            for (Topic topic : mTopics) {
-                if (type.equals(topic.getType())) {
-                    topicList.add(topic.getName());
-                }
-            }
-        }
-
-        return topicList;
+        return getTopicNames(mTopics.getByType(type));
     }
 
     /**
@@ -126,19 +110,7 @@ public class TopicManager {
      */
     public Topic getTopic(String topicName) {
 
-        Topic foundTopic = null;
-
-        synchronized (mTopics) {
-
-            for (Topic topic : mTopics) {
-                if (topicName.equals(topic.getName())) {
-                    foundTopic = topic;
-                    break;
-                }
-            }
-        }
-
-        return foundTopic;
+        return mTopics.get(topicName);
     }
 
     /**
@@ -153,7 +125,17 @@ public class TopicManager {
         mKafkaZookeeper = zookeeper;
         mKafkaBroker = broker;
 
-        mKafkaCommonOperator = new KafkaCommonWrapper(zookeeper, broker);
+        setMessageBroker(new KafkaBroker(zookeeper, broker));
+    }
+
+    /**
+     * API to set backend storing messages, instead of Kafka
+     * 
+     * @param messageBroker
+     *            message broker backend
+     */
+    public void setMessageBroker(IMessageBroker messageBroker) {
+        mMessageBroker = messageBroker;
     }
 
     /**
@@ -174,24 +156,42 @@ public class TopicManager {
         return mKafkaBroker;
     }
 
+    /**
+     * API to get backend storing messages of topics
+     * 
+     * @return message broker backend
+     */
+    public IMessageBroker getMessageBroker() {
+        return mMessageBroker;
+    }
+
     private boolean removeTopics(String topicName) {
 
         synchronized (mTopics) {
 
-            for (Topic topic : new ArrayList<>(mTopics)) {
+            // the topic and its subtopics, not topics sharing the name prefix
+            for (Topic topic : mTopics.getSubtree(topicName)) {
 
-                if (topic.getName().startsWith(topicName)) {
-
-                    if (mKafkaCommonOperator.deleteTopic(topic.getName()) == false) {
-                        return false;
-                    }
-
-                    mTopics.remove(topic);
+                if (mMessageBroker.removeTopic(topic) == false) {
+                    return false;
                 }
+
+                mTopics.remove(topic);
             }
         }
 
         return true;
     }
 
+    private ArrayList<String> getTopicNames(ArrayList<Topic> topics) {
+
+        ArrayList<String> topicList = new ArrayList<>(topics.size());
+
+        for (Topic topic : topics) {
+            topicList.add(topic.getName());
+        }
+
+        return topicList;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,226 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.mqserver.topic;
+
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *
+ * This class provides a set of APIs to index topics by the segments of their
+ * uri path, and by their type. Lookups walk the path and are not locked, so
+ * their cost depends on path length rather than on the number of topics.
+ * Changes are expected to be made one at a time by TopicManager.
+ *
+ */
+class TopicTree {
+
+    private static class TopicNode {
+        // path segment, node of the child topic
+        ConcurrentHashMap<String, TopicNode> mChildren = new ConcurrentHashMap<>();
+        volatile Topic                       mTopic    = null;
+    }
+
+    private TopicNode                             mRoot      = new TopicNode();
+
+    // topic type, topics having the type
+    private ConcurrentHashMap<String, Set<Topic>> mTypeIndex = new ConcurrentHashMap<>();
+
+    /**
+     * API to add topic
+     * 
+     * @param topic
+     *            topic to add
+     */
+    void put(Topic topic) {
+
+        TopicNode node = mRoot;
+
+        for (String segment : getSegments(topic.getName())) {
+            node = node.mChildren.computeIfAbsent(segment,
+                    key -> new TopicNode());
+        }
+
+        node.mTopic = topic;
+
+        mTypeIndex.computeIfAbsent(topic.getType(),
+                key -> ConcurrentHashMap.newKeySet()).add(topic);
+    }
+
+    /**
+     * API to remove topic. The topics under it are kept.
+     * 
+     * @param topic
+     *            topic to remove
+     */
+    void remove(Topic topic) {
+
+        ArrayList<TopicNode> path = new ArrayList<>();
+        path.add(mRoot);
+
+        TopicNode node = mRoot;
+
+        for (String segment : getSegments(topic.getName())) {
+            node = node.mChildren.get(segment);
+
+            if (node == null) {
+                return;
+            }
+
+            path.add(node);
+        }
+
+        if (node.mTopic != topic) {
+            return;
+        }
+
+        node.mTopic = null;
+
+        Set<Topic> typedTopics = mTypeIndex.get(topic.getType());
+        if (typedTopics != null) {
+            typedTopics.remove(topic);
+            if (typedTopics.isEmpty()) {
+                mTypeIndex.remove(topic.getType(), typedTopics);
+            }
+        }
+
+        // nodes left with neither topic nor children are dropped
+        String[] segments = getSegments(topic.getName());
+        for (int i = path.size() - 1; i > 0; i--) {
+            TopicNode child = path.get(i);
+
+            if (child.mTopic != null || !child.mChildren.isEmpty()) {
+                break;
+            }
+
+            path.get(i - 1).mChildren.remove(segments[i - 1], child);
+        }
+    }
+
+    /**
+     * API to get topic with topic name
+     * 
+     * @param topicName
+     *            topic name to search
+     * 
+     * @return topic searched with the topic name, or null if not found
+     */
+    Topic get(String topicName) {
+
+        TopicNode node = findNode(topicName);
+
+        return node == null ? null : node.mTopic;
+    }
+
+    /**
+     * API to get the topic and every topic under it
+     * 
+     * @param topicName
+     *            topic name to search
+     * 
+     * @return topics found, parents before their subtopics
+     */
+    ArrayList<Topic> getSubtree(String topicName) {
+
+        ArrayList<Topic> topics = new ArrayList<>();
+
+        TopicNode node = findNode(topicName);
+
+        if (node != null) {
+            collectTopics(node, topics);
+        }
+
+        return topics;
+    }
+
+    /**
+     * API to get every topic
+     * 
+     * @return all topics, parents before their subtopics
+     */
+    ArrayList<Topic> getAll() {
+
+        ArrayList<Topic> topics = new ArrayList<>();
+
+        collectTopics(mRoot, topics);
+
+        return topics;
+    }
+
+    /**
+     * API to get topics with specific topic type
+     * 
+     * @param type
+     *            topic type
+     * 
+     * @return topics having the type
+     */
+    ArrayList<Topic> getByType(String type) {
+
+        Set<Topic> typedTopics = mTypeIndex.get(type);
+
+        if (typedTopics == null) {
+            return new ArrayList<>();
+        }
+
+        return new ArrayList<>(typedTopics);
+    }
+
+    private TopicNode findNode(String topicName) {
+
+        TopicNode node = mRoot;
+
+        for (String segment : getSegments(topicName)) {
+            node = node.mChildren.get(segment);
+
+            if (node == null) {
+                return null;
+            }
+        }
+
+        return node;
+    }
+
+    private void collectTopics(TopicNode node, ArrayList<Topic> topics) {
+
+        Topic topic = node.mTopic;
+
+        if (topic != null) {
+            topics.add(topic);
+        }
+
+        for (TopicNode child : node.mChildren.values()) {
+            collectTopics(child, topics);
+        }
+    }
+
+    private String[] getSegments(String topicName) {
+
+        // uri path starts with '/'
+        if (topicName.startsWith("/")) {
+            topicName = topicName.substring(1);
+        }
+
+        return topicName.isEmpty() ? new String[0] : topicName.split("/");
+    }
+}
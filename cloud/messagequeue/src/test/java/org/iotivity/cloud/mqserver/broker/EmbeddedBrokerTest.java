@@ -0,0 +1,250 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.mqserver.broker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.iotivity.cloud.base.device.CoapDevice;
+import org.iotivity.cloud.base.protocols.IRequest;
+import org.iotivity.cloud.base.protocols.IResponse;
+import org.iotivity.cloud.base.protocols.MessageBuilder;
+import org.iotivity.cloud.base.protocols.coap.CoapRequest;
+import org.iotivity.cloud.base.protocols.enums.ContentFormat;
+import org.iotivity.cloud.base.protocols.enums.Observe;
+import org.iotivity.cloud.base.protocols.enums.RequestMethod;
+import org.iotivity.cloud.base.protocols.enums.ResponseStatus;
+import org.iotivity.cloud.mqserver.Constants;
+import org.iotivity.cloud.mqserver.resources.MQBrokerResource;
+import org.iotivity.cloud.mqserver.topic.Topic;
+import org.iotivity.cloud.mqserver.topic.TopicManager;
+import org.iotivity.cloud.util.Cbor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class EmbeddedBrokerTest {
+    private final String     MQ_BROKER_URI     = Constants.MQ_BROKER_FULL_URI;
+
+    private File             mDirectory        = null;
+    private MQBrokerResource mMqBrokerResource = null;
+    private CoapDevice       mMockDevice       = null;
+    private IResponse        mResponse         = null;
+    private IResponse        mNotification     = null;
+
+    @Before
+    public void setUp() throws Exception {
+        mDirectory = Files.createTempDirectory("mqbroker").toFile();
+        mMqBrokerResource = new MQBrokerResource();
+        mMqBrokerResource.setMessageBroker(
+                new EmbeddedBroker(mDirectory.getPath()));
+
+        mMockDevice = mock(CoapDevice.class);
+        Mockito.doAnswer(invocation -> {
+            mResponse = (IResponse) invocation.getArguments()[0];
+            return null;
+        }).when(mMockDevice).sendResponse(Mockito.anyObject());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mMqBrokerResource.closeMessageBroker();
+        deleteDirectory(mDirectory);
+    }
+
+    @Test
+    public void testPublishAndRead() throws Exception {
+        String topic = MQ_BROKER_URI + "/readTest";
+        sendRequest(mMockDevice, MessageBuilder.createRequest(RequestMethod.PUT,
+                topic, null));
+        assertEquals(ResponseStatus.CREATED, mResponse.getStatus());
+
+        publish(topic, "on");
+        assertEquals(ResponseStatus.CHANGED, mResponse.getStatus());
+        publish(topic, "off");
+
+        sendRequest(mMockDevice, MessageBuilder.createRequest(RequestMethod.GET,
+                topic, null));
+        assertEquals(ResponseStatus.CONTENT, mResponse.getStatus());
+        assertEquals("off", parsePayload(mResponse).get("status"));
+
+        sendRequest(mMockDevice, MessageBuilder.createRequest(RequestMethod.GET,
+                topic, "since=0"));
+        ArrayList<HashMap<String, Object>> messages = (ArrayList<HashMap<String, Object>>) parsePayload(
+                mResponse).get(Constants.MQ_MESSAGES);
+        assertEquals(1, messages.size());
+        assertEquals(1,
+                ((Number) messages.get(0).get(Constants.MQ_SEQUENCE))
+                        .intValue());
+    }
+
+    @Test
+    public void testSubscribeNotify() throws Exception {
+        String topic = MQ_BROKER_URI + "/notifyTest";
+        sendRequest(mMockDevice, MessageBuilder.createRequest(RequestMethod.PUT,
+                topic, null));
+
+        CoapDevice mockSubscriber = mock(CoapDevice.class);
+        Mockito.doAnswer(invocation -> {
+            mNotification = (IResponse) invocation.getArguments()[0];
+            return null;
+        }).when(mockSubscriber).sendResponse(Mockito.anyObject());
+
+        CoapRequest subscribeRequest = (CoapRequest) MessageBuilder
+                .createRequest(RequestMethod.GET, topic, null);
+        subscribeRequest.setObserve(Observe.SUBSCRIBE);
+        sendRequest(mockSubscriber, subscribeRequest);
+        assertEquals(ResponseStatus.CONTENT, mNotification.getStatus());
+
+        // handed to the subscriber as soon as it is appended
+        publish(topic, "on");
+        assertEquals(ResponseStatus.CONTENT, mNotification.getStatus());
+        assertEquals("on", parsePayload(mNotification).get("status"));
+    }
+
+    @Test
+    public void testRemoveTopic() throws Exception {
+        String topic = MQ_BROKER_URI + "/removeTest";
+        sendRequest(mMockDevice, MessageBuilder.createRequest(RequestMethod.PUT,
+                topic, null));
+        publish(topic, "on");
+
+        sendRequest(mMockDevice, MessageBuilder
+                .createRequest(RequestMethod.DELETE, topic, null));
+        assertEquals(ResponseStatus.DELETED, mResponse.getStatus());
+        assertTrue(getLogDirectory().list().length == 0);
+    }
+
+    @Test
+    public void testRestart_logsDeleted() throws Exception {
+        String topic = MQ_BROKER_URI + "/restartTest";
+        sendRequest(mMockDevice, MessageBuilder.createRequest(RequestMethod.PUT,
+                topic, null));
+        publish(topic, "on");
+
+        mMqBrokerResource.closeMessageBroker();
+        mMqBrokerResource = new MQBrokerResource();
+        mMqBrokerResource.setMessageBroker(
+                new EmbeddedBroker(mDirectory.getPath()));
+        assertTrue(getLogDirectory().list().length == 0);
+
+        // created again, without the messages of the earlier run
+        sendRequest(mMockDevice, MessageBuilder.createRequest(RequestMethod.PUT,
+                topic, null));
+        assertEquals(ResponseStatus.CREATED, mResponse.getStatus());
+        sendRequest(mMockDevice, MessageBuilder.createRequest(RequestMethod.GET,
+                topic, "since=0"));
+        assertEquals(ResponseStatus.CONTENT, mResponse.getStatus());
+        assertTrue(((ArrayList<?>) parsePayload(mResponse)
+                .get(Constants.MQ_MESSAGES)).isEmpty());
+    }
+
+    @Test
+    public void testRestart_otherFilesKept() throws Exception {
+        File other = new File(mDirectory, "other");
+        assertTrue(other.mkdir());
+        assertTrue(new File(other, "data.log").createNewFile());
+        File unknown = new File(getLogDirectory(), "unknown");
+        assertTrue(unknown.mkdirs());
+        assertTrue(new File(unknown, "data.txt").createNewFile());
+
+        mMqBrokerResource.closeMessageBroker();
+        mMqBrokerResource = new MQBrokerResource();
+        mMqBrokerResource.setMessageBroker(
+                new EmbeddedBroker(mDirectory.getPath()));
+
+        // only segment files of the broker are deleted
+        assertTrue(new File(other, "data.log").exists());
+        assertTrue(new File(unknown, "data.txt").exists());
+    }
+
+    @Test
+    public void testTopicNames_noCollision() throws Exception {
+        EmbeddedBroker broker = new EmbeddedBroker(
+                new File(mDirectory, "names").getPath());
+        TopicManager topicManager = new TopicManager();
+
+        Topic dotted = new Topic(MQ_BROKER_URI + "/a.b", "type",
+                topicManager);
+        Topic nested = new Topic(MQ_BROKER_URI + "/a/b", "type",
+                topicManager);
+
+        assertTrue(broker.createTopic(dotted));
+        assertTrue(broker.createTopic(nested));
+        assertFalse(broker.createTopic(nested));
+
+        broker.publishMessage(dotted, new byte[] { 1 }).get();
+
+        assertEquals(1, broker.getLatestMessages(dotted, 10).size());
+        assertTrue(broker.getLatestMessages(nested, 10).isEmpty());
+
+        broker.close();
+    }
+
+    @Test
+    public void testCloseMessageBroker_notSet() throws Exception {
+        // nothing to close when the server failed to start
+        new MQBrokerResource().closeMessageBroker();
+    }
+
+    private void publish(String topic, String status) throws Exception {
+        HashMap<String, Object> message = new HashMap<>();
+        message.put("status", status);
+        sendRequest(mMockDevice,
+                MessageBuilder.createRequest(RequestMethod.POST, topic, null,
+                        ContentFormat.APPLICATION_CBOR,
+                        new Cbor<HashMap<String, Object>>()
+                                .encodingPayloadToCbor(message)));
+    }
+
+    private void sendRequest(CoapDevice device, IRequest request)
+            throws Exception {
+        mMqBrokerResource.onDefaultRequestReceived(device, request);
+    }
+
+    private HashMap<String, Object> parsePayload(IResponse response) {
+        return new Cbor<HashMap<String, Object>>()
+                .parsePayloadFromCbor(response.getPayload(), HashMap.class);
+    }
+
+    private File getLogDirectory() {
+        return new File(mDirectory, EmbeddedBroker.LOG_DIRECTORY);
+    }
+
+    private void deleteDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                deleteDirectory(file);
+            }
+        }
+        directory.delete();
+    }
+}
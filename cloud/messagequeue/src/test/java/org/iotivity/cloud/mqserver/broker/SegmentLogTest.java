@@ -0,0 +1,206 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.mqserver.broker;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import org.iotivity.cloud.mqserver.topic.TopicHistory.Message;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SegmentLogTest {
+    // two messages of 20 bytes fit in a segment
+    private static final int SEGMENT_SIZE = 2 * (LogSegment.HEADER_SIZE + 20);
+
+    private File             mDirectory   = null;
+
+    @Before
+    public void setUp() throws Exception {
+        mDirectory = Files.createTempDirectory("mqlog").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+    }
+
+    @Test
+    public void testAppend() throws Exception {
+        SegmentLog log = openLog(Long.MAX_VALUE, Long.MAX_VALUE);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, log.append(makeMessage(i)));
+        }
+
+        ArrayList<Message> messages = log.getLatest(3);
+
+        // oldest first, read across segments
+        assertEquals(3, messages.size());
+        assertEquals(2, messages.get(0).getSequence());
+        assertArrayEquals(makeMessage(2), messages.get(0).getPayload());
+        assertEquals(4, messages.get(2).getSequence());
+        assertArrayEquals(makeMessage(4), messages.get(2).getPayload());
+        assertEquals(5, log.getLatest(10).size());
+    }
+
+    @Test
+    public void testReopen() throws Exception {
+        SegmentLog log = openLog(Long.MAX_VALUE, Long.MAX_VALUE);
+
+        for (int i = 0; i < 3; i++) {
+            log.append(makeMessage(i));
+        }
+        log.close();
+
+        log = openLog(Long.MAX_VALUE, Long.MAX_VALUE);
+
+        // messages kept, and sequence numbers go on
+        assertEquals(3, log.getNextSequence());
+        assertEquals(3, log.getLatest(10).size());
+        assertEquals(3, log.append(makeMessage(3)));
+        assertArrayEquals(makeMessage(3),
+                log.getLatest(1).get(0).getPayload());
+    }
+
+    @Test
+    public void testReopen_sealedSegments() throws Exception {
+        SegmentLog log = openLog(Long.MAX_VALUE, Long.MAX_VALUE);
+
+        for (int i = 0; i < 5; i++) {
+            log.append(makeMessage(i));
+        }
+        log.close();
+
+        log = openLog(Long.MAX_VALUE, Long.MAX_VALUE);
+
+        // read from the files of sealed segments
+        ArrayList<Message> messages = log.getLatest(10);
+
+        assertEquals(5, messages.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, messages.get(i).getSequence());
+            assertArrayEquals(makeMessage(i), messages.get(i).getPayload());
+        }
+    }
+
+    @Test
+    public void testReopen_tornRecord() throws Exception {
+        SegmentLog log = openLog(Long.MAX_VALUE, Long.MAX_VALUE);
+
+        log.append(makeMessage(0));
+        log.close();
+
+        // the second record was cut off while its payload was written
+        File segment = mDirectory.listFiles()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            int position = LogSegment.HEADER_SIZE + 20;
+            file.seek(position);
+            file.writeInt(20 + 1);
+            file.writeLong(System.currentTimeMillis());
+            file.write(makeMessage(1), 0, 10);
+            file.setLength(position + LogSegment.HEADER_SIZE + 10);
+        }
+
+        log = openLog(Long.MAX_VALUE, Long.MAX_VALUE);
+
+        // the partial record is not read, and is written over
+        assertEquals(1, log.getNextSequence());
+        assertEquals(1, log.getLatest(10).size());
+        assertEquals(1, log.append(makeMessage(1)));
+        assertEquals(2, log.append(makeMessage(2)));
+
+        ArrayList<Message> messages = log.getLatest(10);
+
+        assertEquals(3, messages.size());
+        assertArrayEquals(makeMessage(1), messages.get(1).getPayload());
+        assertArrayEquals(makeMessage(2), messages.get(2).getPayload());
+    }
+
+    @Test
+    public void testRetention_size() throws Exception {
+        // one segment kept besides the one appended to
+        SegmentLog log = openLog(3 * SEGMENT_SIZE / 2, Long.MAX_VALUE);
+
+        for (int i = 0; i < 5; i++) {
+            log.append(makeMessage(i));
+        }
+
+        ArrayList<Message> messages = log.getLatest(10);
+
+        assertEquals(3, messages.size());
+        assertEquals(2, messages.get(0).getSequence());
+        assertTrue(log.getSize() <= 3 * SEGMENT_SIZE / 2);
+        assertEquals(2, mDirectory.list().length);
+    }
+
+    @Test
+    public void testRetention_time() throws Exception {
+        SegmentLog log = openLog(Long.MAX_VALUE, 1000);
+
+        for (int i = 0; i < 5; i++) {
+            log.append(makeMessage(i));
+        }
+
+        log.applyRetention(System.currentTimeMillis() + 2000);
+
+        // the segment appended to is kept
+        ArrayList<Message> messages = log.getLatest(10);
+
+        assertEquals(1, messages.size());
+        assertEquals(4, messages.get(0).getSequence());
+        assertEquals(5, log.append(makeMessage(5)));
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void testAppend_tooLarge() throws Exception {
+        SegmentLog log = openLog(Long.MAX_VALUE, Long.MAX_VALUE);
+
+        log.append(new byte[SEGMENT_SIZE]);
+    }
+
+    private SegmentLog openLog(long retentionSize, long retentionTime)
+            throws Exception {
+        return new SegmentLog(mDirectory, SEGMENT_SIZE, retentionSize,
+                retentionTime);
+    }
+
+    private byte[] makeMessage(int index) {
+        byte[] message = new byte[20];
+        message[0] = (byte) index;
+        message[19] = (byte) index;
+        return message;
+    }
+}
@@ -24,6 +24,7 @@ package org.iotivity.cloud.mqserver.resources;
 
 import static com.jayway.awaitility.Awaitility.await;
 import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
@@ -38,6 +39,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import org.I0Itec.zkclient.ZkClient;
 import org.I0Itec.zkclient.ZkConnection;
 import org.iotivity.cloud.base.device.CoapDevice;
+import org.iotivity.cloud.base.exception.ServerException.BadRequestException;
 import org.iotivity.cloud.base.exception.ServerException.ForbiddenException;
 import org.iotivity.cloud.base.exception.ServerException.NotFoundException;
 import org.iotivity.cloud.base.exception.ServerException.PreconditionFailedException;
@@ -115,7 +117,11 @@ public class MQBrokerResourceTest {
 
         String[] arr = { "--topic", topic };
         TopicCommandOptions opts = new TopicCommandOptions(arr);
-        TopicCommand.deleteTopic(zkUtils, opts);
+        try {
+            TopicCommand.deleteTopic(zkUtils, opts);
+        } catch (IllegalArgumentException e) {
+            // no topic left by the test
+        }
 
         zkClient.close();
         zkUtils.close();
@@ -162,6 +168,59 @@ public class MQBrokerResourceTest {
         assertTrue(methodCheck(mResponse, ResponseStatus.CHANGED));
     }
 
+    @Test
+    // test topic publish with durability
+    public void testTopicPublishWithAcksOnDefaultRequestReceived()
+            throws Exception {
+        System.out.println(
+                "\t--------------Topic Publish with Acks Test------------");
+        String topic = mTopicPrefix + "ForPubAcks";
+        // topic creation, answered once stored by the leader
+        CreateTopicWithRt(mMockDevice, topic, "acks=1");
+        // topic publish
+        PublishTopic(mMockDevice, topic);
+        // assertion: if the response status is "CHANGED"
+        assertTrue(methodCheck(mResponse, ResponseStatus.CHANGED));
+        // read topic
+        ReadTopic(topic);
+        // assertion: if the published message is read
+        assertTrue(methodCheck(mResponse, ResponseStatus.CONTENT));
+        assertTrue(payloadCheck(mResponse));
+    }
+
+    @Test(expected = BadRequestException.class)
+    // test topic creation with unknown durability
+    public void testTopicCreationWithInvalidAcksOnDefaultRequestReceived()
+            throws Exception {
+        System.out.println(
+                "\t--------------Topic Creation with Invalid Acks Test------------");
+        String topic = mTopicPrefix + "InvalidAcks";
+        CreateTopicWithRt(mMockDevice, topic, "acks=2");
+    }
+
+    @Test
+    // topic read request with since query
+    public void testTopicReadSinceOnDefaultRequestReceived() throws Exception {
+        System.out.println("\t--------------Topic Read Since Test------------");
+        String topic = mTopicPrefix + "ReadSinceTest";
+        // create topic
+        CreateTopic(mMockDevice, topic);
+        // publish topic twice, sequence number 0 and 1
+        PublishTopic(mMockDevice, topic);
+        PublishTopic(mMockDevice, topic);
+        // read messages after the first one
+        ReadTopicWithQuery(topic, "since=0");
+        // assertion1 : if the response status is "CONTENT"
+        // assertion2 : if the second message is read with its sequence number
+        assertTrue(methodCheck(mResponse, ResponseStatus.CONTENT));
+        Cbor<HashMap<String, ArrayList<HashMap<String, Object>>>> cbor = new Cbor<>();
+        ArrayList<HashMap<String, Object>> messages = cbor
+                .parsePayloadFromCbor(mResponse.getPayload(), HashMap.class)
+                .get("messages");
+        assertEquals(1, messages.size());
+        assertEquals(1, ((Number) messages.get(0).get("seq")).intValue());
+    }
+
     @Test
     // test subscribe request
     public void testSubscribeOnDefaultRequestReceived() throws Exception {
@@ -621,7 +680,10 @@ public class MQBrokerResourceTest {
         System.out.println("-----PublishTopic : " + topicName);
         IRequest request = null;
         request = PublishTopicRequest(topicName);
+        mLatch = new CountDownLatch(1);
         mMqBrokerResource.onDefaultRequestReceived(mockDevice, request);
+        // answered once stored in the broker, as a publisher waits for it
+        assertTrue(mLatch.await(2L, SECONDS));
     }
 
     private void SubscribeTopic(CoapDevice mockSubscriber, String topicName,
@@ -667,6 +729,14 @@ public class MQBrokerResourceTest {
                 requestToDiscover);
     }
 
+    private void ReadTopicWithQuery(String topicName, String query)
+            throws Exception {
+        System.out.println("-----ReadTopic : " + topicName + "?" + query);
+        IRequest readRequest = MessageBuilder.createRequest(RequestMethod.GET,
+                MQ_BROKER_URI + "/" + topicName, query);
+        mMqBrokerResource.onDefaultRequestReceived(mMockDevice, readRequest);
+    }
+
     private void ReadTopic(String topicName) throws Exception {
         System.out.println("-----ReadTopic : " + topicName);
         CoapRequest readRequest = null;
@@ -0,0 +1,96 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.mqserver.topic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.iotivity.cloud.mqserver.topic.TopicHistory.Message;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TopicHistoryTest {
+    private TopicHistory mHistory = null;
+
+    @Before
+    public void setUp() throws Exception {
+        mHistory = new TopicHistory(3);
+    }
+
+    @Test
+    public void testGetLatest() throws Exception {
+        assertNull(mHistory.getLatest());
+
+        mHistory.add(0, new byte[] { 0 });
+        mHistory.add(1, new byte[] { 1 });
+
+        assertEquals(1, mHistory.getLatest().getSequence());
+        assertArrayEquals(new byte[] { 1 },
+                mHistory.getLatest().getPayload());
+    }
+
+    @Test
+    public void testAdd_notNewer() throws Exception {
+        assertTrue(mHistory.add(5, new byte[] { 5 }));
+        assertFalse(mHistory.add(5, new byte[] { 6 }));
+        assertFalse(mHistory.add(4, new byte[] { 4 }));
+
+        assertEquals(1, mHistory.getSince(-1).size());
+        assertArrayEquals(new byte[] { 5 },
+                mHistory.getLatest().getPayload());
+    }
+
+    @Test
+    public void testGetSince_oldestDropped() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            mHistory.add(i, new byte[] { (byte) i });
+        }
+
+        ArrayList<Message> messages = mHistory.getSince(-1);
+
+        // oldest first, the first two dropped
+        assertEquals(3, messages.size());
+        assertEquals(2, messages.get(0).getSequence());
+        assertEquals(4, messages.get(2).getSequence());
+
+        messages = mHistory.getSince(3);
+
+        assertEquals(1, messages.size());
+        assertEquals(4, messages.get(0).getSequence());
+        assertTrue(mHistory.getSince(4).isEmpty());
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        mHistory.add(0, new byte[] { 0 });
+        mHistory.clear();
+
+        assertNull(mHistory.getLatest());
+        assertTrue(mHistory.getSince(-1).isEmpty());
+        assertTrue(mHistory.add(0, new byte[] { 0 }));
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.mqserver.topic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.iotivity.cloud.base.protocols.IResponse;
+import org.iotivity.cloud.base.protocols.MessageBuilder;
+import org.iotivity.cloud.base.protocols.enums.RequestMethod;
+import org.iotivity.cloud.mqserver.Constants;
+import org.iotivity.cloud.mqserver.broker.IMessageBroker;
+import org.iotivity.cloud.mqserver.topic.TopicHistory.Message;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class TopicTest {
+    private final String   MQ_BROKER_URI  = Constants.MQ_BROKER_FULL_URI;
+
+    private IMessageBroker mMessageBroker = null;
+    private Topic          mTopic         = null;
+
+    @Before
+    public void setUp() throws Exception {
+        mMessageBroker = mock(IMessageBroker.class);
+        TopicManager topicManager = new TopicManager();
+        topicManager.setMessageBroker(mMessageBroker);
+        mTopic = new Topic(MQ_BROKER_URI + "/topic", "type", topicManager);
+    }
+
+    @Test
+    public void testReadMessage_failedFetchNotRepeated() throws Exception {
+        Mockito.doReturn(null).when(mMessageBroker)
+                .getLatestMessages(Mockito.any(), Mockito.anyInt());
+
+        readMessage();
+        readMessage();
+
+        // tried again only after the retry period
+        Mockito.verify(mMessageBroker, Mockito.times(1))
+                .getLatestMessages(Mockito.any(), Mockito.anyInt());
+    }
+
+    @Test
+    public void testPublishedWhileFetching() throws Exception {
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch fetched = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            fetching.countDown();
+            fetched.await();
+            ArrayList<Message> messages = new ArrayList<>();
+            messages.add(new Message(0, new byte[] { 0 }));
+            return messages;
+        }).when(mMessageBroker).getLatestMessages(Mockito.any(),
+                Mockito.anyInt());
+
+        CompletableFuture<Void> read = CompletableFuture
+                .runAsync(() -> readMessage());
+        assertTrue(fetching.await(10, TimeUnit.SECONDS));
+
+        // not held by the fetch of earlier messages
+        mTopic.onMessagePublished(new byte[] { 1 }, 1);
+
+        fetched.countDown();
+        read.get(10, TimeUnit.SECONDS);
+
+        // the fetched message is older than the published one
+        assertArrayEquals(new byte[] { 1 }, readMessage().getPayload());
+    }
+
+    private IResponse readMessage() {
+        return mTopic.handleReadMessage(MessageBuilder
+                .createRequest(RequestMethod.GET, mTopic.getName(), null));
+    }
+}
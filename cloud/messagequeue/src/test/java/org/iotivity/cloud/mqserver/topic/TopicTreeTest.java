@@ -0,0 +1,102 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.mqserver.topic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TopicTreeTest {
+    private TopicTree mTopicTree = null;
+
+    @Before
+    public void setUp() throws Exception {
+        mTopicTree = new TopicTree();
+    }
+
+    @Test
+    public void testGet() throws Exception {
+        Topic main = putTopic("/oic/ps/main", "");
+        Topic sub = putTopic("/oic/ps/main/sub", "core.light");
+
+        assertSame(main, mTopicTree.get("/oic/ps/main"));
+        assertSame(sub, mTopicTree.get("/oic/ps/main/sub"));
+        assertNull(mTopicTree.get("/oic/ps"));
+        assertNull(mTopicTree.get("/oic/ps/mai"));
+        assertNull(mTopicTree.get("/oic/ps/main/sub/none"));
+    }
+
+    @Test
+    public void testGetSubtree() throws Exception {
+        Topic main = putTopic("/oic/ps/main", "");
+        Topic sub = putTopic("/oic/ps/main/sub", "");
+        putTopic("/oic/ps/mainOther", "");
+
+        ArrayList<Topic> subtree = mTopicTree.getSubtree("/oic/ps/main");
+
+        // parents before their subtopics, topics sharing the prefix excluded
+        assertEquals(2, subtree.size());
+        assertSame(main, subtree.get(0));
+        assertSame(sub, subtree.get(1));
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        Topic main = putTopic("/oic/ps/main", "core.light");
+        Topic sub = putTopic("/oic/ps/main/sub", "core.light");
+
+        mTopicTree.remove(main);
+
+        assertNull(mTopicTree.get("/oic/ps/main"));
+        assertSame(sub, mTopicTree.get("/oic/ps/main/sub"));
+        assertEquals(1, mTopicTree.getByType("core.light").size());
+
+        mTopicTree.remove(sub);
+
+        assertTrue(mTopicTree.getAll().isEmpty());
+        assertTrue(mTopicTree.getByType("core.light").isEmpty());
+    }
+
+    @Test
+    public void testGetByType() throws Exception {
+        Topic light = putTopic("/oic/ps/light", "core.light");
+        putTopic("/oic/ps/fan", "core.fan");
+
+        ArrayList<Topic> topics = mTopicTree.getByType("core.light");
+
+        assertEquals(1, topics.size());
+        assertSame(light, topics.get(0));
+        assertTrue(mTopicTree.getByType("core.none").isEmpty());
+    }
+
+    private Topic putTopic(String name, String type) {
+        Topic topic = new Topic(name, type, null);
+        mTopicTree.put(topic);
+        return topic;
+    }
+}
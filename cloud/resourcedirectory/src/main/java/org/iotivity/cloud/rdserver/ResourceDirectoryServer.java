@@ -26,12 +26,17 @@ import java.util.Scanner;
 
 import org.iotivity.cloud.base.ServerSystem;
 import org.iotivity.cloud.base.resource.CloudPingResource;
+import org.iotivity.cloud.base.resource.ResourceExecutor;
 import org.iotivity.cloud.base.server.CoapServer;
 import org.iotivity.cloud.rdserver.db.DBManager;
+import org.iotivity.cloud.rdserver.db.MVStoreStorage;
+import org.iotivity.cloud.rdserver.resources.directory.ResourceIndex;
 import org.iotivity.cloud.rdserver.resources.directory.rd.ResourceDirectoryResource;
 import org.iotivity.cloud.rdserver.resources.directory.res.DiscoveryResource;
+import org.iotivity.cloud.rdserver.resources.presence.PresenceManager;
 import org.iotivity.cloud.rdserver.resources.presence.device.DevicePresenceResource;
 import org.iotivity.cloud.rdserver.resources.presence.resource.ResPresenceResource;
+import org.iotivity.cloud.util.DBAuditLog;
 import org.iotivity.cloud.util.Log;
 
 /**
@@ -44,7 +49,9 @@ public class ResourceDirectoryServer {
     private static int     coapServerPort;
     private static boolean tlsMode;
     private static String  databaseHost;
+    private static String  storagePath;
     private static String  webLogHost;
+    private static int     resourceThreads = ResourceExecutor.DEFAULT_THREAD_COUNT;
 
     public static void main(String[] args) throws Exception {
         System.out.println("-----RD SERVER-----");
@@ -60,9 +67,18 @@ public class ResourceDirectoryServer {
             Log.InitWebLog(webLogHost,
                     ResourceDirectoryServer.class.getSimpleName().toString());
 
-        DBManager.createInstance(databaseHost);
+        if (storagePath != null) {
+            Log.i("Resource directory is stored in " + storagePath);
+            DBManager.createInstance(new MVStoreStorage(storagePath));
+        } else {
+            DBManager.createInstance(databaseHost);
+        }
+        // Loaded here, publishing on the event loop must not wait for it
+        ResourceIndex.getInstance();
 
         ServerSystem serverSystem = new ServerSystem();
+        serverSystem.setResourceExecutor(new ResourceExecutor(resourceThreads,
+                ResourceExecutor.DEFAULT_QUEUE_SIZE));
 
         serverSystem.addResource(new CloudPingResource());
         serverSystem.addResource(new ResourceDirectoryResource());
@@ -78,8 +94,14 @@ public class ResourceDirectoryServer {
         Scanner in = new Scanner(System.in);
 
         System.out.println("press 'q' to terminate");
+        System.out.println("'audit <n>' logs every n-th DB change, 0 for off");
 
-        while (!in.nextLine().equals("q"));
+        String command;
+        while (!(command = in.nextLine()).equals("q")) {
+            if (command.startsWith("audit ")) {
+                setAuditSampleRate(command.substring(6).trim());
+            }
+        }
 
         in.close();
 
@@ -87,10 +109,33 @@ public class ResourceDirectoryServer {
 
         serverSystem.stopSystem();
 
+        DBManager.getInstance().close();
+
         System.out.println("Terminated");
     }
 
     private static boolean parseConfiguration(String[] args) {
+        // worker threads for blocking resources, from docker env in any mode
+        String resourceThreadsEnv = System.getenv("RESOURCE_THREADS");
+        if (resourceThreadsEnv != null)
+            resourceThreads = Integer.parseInt(resourceThreadsEnv);
+
+        // DB change tracing, can be changed later from the console
+        String auditSampleRateEnv = System.getenv("DB_AUDIT_SAMPLE_RATE");
+        if (auditSampleRateEnv != null)
+            setAuditSampleRate(auditSampleRateEnv);
+
+        // presence changes of a device folded into one notification
+        String coalescingWindowEnv = System
+                .getenv("PRESENCE_COALESCING_WINDOW");
+        if (coalescingWindowEnv != null)
+            PresenceManager.getInstance().setCoalescingWindow(
+                    Long.parseLong(coalescingWindowEnv));
+
+        // embedded store file used instead of MongoDB, from docker env in any
+        // mode
+        storagePath = System.getenv("RD_STORAGE_PATH");
+
         // configuration provided by arguments
         if (args.length == 4 || args.length == 6) {
             coapServerPort = Integer.parseInt(args[0]);
@@ -111,4 +156,13 @@ public class ResourceDirectoryServer {
         }
         return false;
     }
+
+    private static void setAuditSampleRate(String sampleRate) {
+        try {
+            DBAuditLog.setSampleRate(Integer.parseInt(sampleRate));
+            Log.i("DB audit sample rate " + DBAuditLog.getSampleRate());
+        } catch (NumberFormatException e) {
+            Log.w("Invalid DB audit sample rate " + sampleRate);
+        }
+    }
 }
@@ -0,0 +1,233 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.rdserver.db;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.bson.Document;
+import org.iotivity.cloud.util.DBAuditLog;
+
+import com.mongodb.async.SingleResultCallback;
+import com.mongodb.async.client.MongoClient;
+import com.mongodb.async.client.MongoClients;
+import com.mongodb.async.client.MongoCollection;
+import com.mongodb.async.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+
+/**
+ *
+ * This class provides a set of APIs to use MongoDB without blocking the
+ * calling thread. Results are completed from callbacks of the driver.
+ *
+ */
+public class AsyncMongoDB {
+
+    private MongoClient   mongoClient = null;
+    private MongoDatabase db          = null;
+
+    /**
+     * API creating asynchronous MongoClient and initializing MongoDatabase
+     *
+     * @param host
+     *            host of MongoDatabase
+     * @param dbname
+     *            database name to use
+     */
+    public AsyncMongoDB(String host, String dbname) {
+
+        mongoClient = MongoClients.create("mongodb://" + host);
+        db = mongoClient.getDatabase(dbname);
+    }
+
+    /**
+     * API for inserting a record into DB table. the record will be replaced if
+     * duplicated one.
+     * 
+     * @param tableName
+     *            table name to be inserted
+     * @param filter
+     *            document filter
+     * @param doc
+     *            document to be inserted
+     * @return completed with true if the record is inserted and replaced
+     *         successfully, or with false
+     */
+    public CompletableFuture<Boolean> insertAndReplaceRecord(String tableName,
+            Document filter, Document doc) {
+
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        if (tableName == null || filter == null || doc == null) {
+            result.complete(false);
+            return result;
+        }
+
+        MongoCollection<Document> collection = db.getCollection(tableName);
+
+        collection.replaceOne(filter, doc, new UpdateOptions().upsert(true),
+                completeWith(result, tableName, "replace", doc));
+
+        return result;
+    }
+
+    /**
+     * API for inserting records into DB table in one round trip. each record
+     * will be replaced if duplicated one.
+     * 
+     * @param tableName
+     *            table name to be inserted
+     * @param filters
+     *            document filters, one for each document
+     * @param docs
+     *            documents to be inserted
+     * @return completed with true if the records are inserted and replaced
+     *         successfully, or with false
+     */
+    public CompletableFuture<Boolean> insertAndReplaceRecords(String tableName,
+            List<Document> filters, List<Document> docs) {
+
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        if (tableName == null || filters == null || docs == null
+                || filters.size() != docs.size()) {
+            result.complete(false);
+            return result;
+        }
+
+        if (docs.isEmpty()) {
+            result.complete(true);
+            return result;
+        }
+
+        MongoCollection<Document> collection = db.getCollection(tableName);
+
+        List<WriteModel<Document>> requests = new ArrayList<>(docs.size());
+        UpdateOptions upsert = new UpdateOptions().upsert(true);
+
+        for (int i = 0; i < docs.size(); i++) {
+            requests.add(
+                    new ReplaceOneModel<>(filters.get(i), docs.get(i), upsert));
+        }
+
+        collection.bulkWrite(requests, new BulkWriteOptions().ordered(false),
+                completeWith(result, tableName, "replace", docs));
+
+        return result;
+    }
+
+    /**
+     * API for deleting records from DB table.
+     * 
+     * @param tableName
+     *            table name for the record to be deleted
+     * @param record
+     *            record filter to be deleted
+     * @return completed with true if the record is deleted successfully, or
+     *         with false
+     */
+    public CompletableFuture<Boolean> deleteRecord(String tableName,
+            Document record) {
+
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        if (tableName == null || record == null) {
+            result.complete(false);
+            return result;
+        }
+
+        MongoCollection<Document> collection = db.getCollection(tableName);
+
+        collection.deleteMany(record,
+                completeWith(result, tableName, "delete", record));
+
+        return result;
+    }
+
+    /**
+     * API for selecting records from DB table.
+     * 
+     * @param tableName
+     *            table name for the record to be selected
+     * @param doc
+     *            document filter to be selected
+     * @return completed with record list according to the filter document
+     */
+    public CompletableFuture<ArrayList<HashMap<String, Object>>> selectRecord(
+            String tableName, Document doc) {
+
+        CompletableFuture<ArrayList<HashMap<String, Object>>> result = new CompletableFuture<>();
+
+        if (tableName == null || doc == null) {
+            result.complete(new ArrayList<>());
+            return result;
+        }
+
+        MongoCollection<Document> collection = db.getCollection(tableName);
+
+        collection.find(doc).into(new ArrayList<Document>(),
+                (selectedDocs, error) -> {
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                        return;
+                    }
+
+                    ArrayList<HashMap<String, Object>> recordList = new ArrayList<>();
+                    for (Document selectedDoc : selectedDocs) {
+                        recordList.add(
+                                MongoDB.convertDocumentToHashMap(selectedDoc));
+                    }
+                    result.complete(recordList);
+                });
+
+        return result;
+    }
+
+    /**
+     * API for closing connections to MongoDB
+     */
+    public void close() {
+
+        mongoClient.close();
+    }
+
+    private <T> SingleResultCallback<T> completeWith(
+            CompletableFuture<Boolean> result, String tableName,
+            String operation, Object record) {
+
+        return (writeResult, error) -> {
+            if (error != null) {
+                error.printStackTrace();
+                result.complete(false);
+                return;
+            }
+
+            DBAuditLog.logChange(tableName, operation, record);
+            result.complete(true);
+        };
+    }
+}
@@ -22,13 +22,11 @@
 package org.iotivity.cloud.rdserver.db;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
-import org.bson.Document;
 import org.iotivity.cloud.base.exception.ServerException.InternalServerErrorException;
 import org.iotivity.cloud.rdserver.Constants;
 
@@ -39,14 +37,12 @@ import org.iotivity.cloud.rdserver.Constants;
  */
 public class DBManager {
 
-    private static DBManager                   mDBManager;
-    private MongoDB                            mMongoDB   = null;
-    private HashMap<String, ArrayList<String>> mKeyField  = new HashMap<>();
+    private static DBManager mDBManager;
+    private IStorage         mStorage = null;
 
-    private DBManager(String dbHost) {
-        createDatabase(dbHost);
+    private DBManager(IStorage storage) {
+        mStorage = storage;
         createTables();
-        createIndexes();
     }
 
     /**
@@ -56,7 +52,7 @@ public class DBManager {
      */
     public static DBManager getInstance() {
         if (mDBManager == null)
-            mDBManager = new DBManager("127.0.0.1");
+            mDBManager = new DBManager(createMongoDBStorage("127.0.0.1"));
         return mDBManager;
     }
 
@@ -67,13 +63,26 @@ public class DBManager {
      */
     public static DBManager createInstance(String dbHost) {
         if (mDBManager == null)
-            mDBManager = new DBManager(dbHost);
+            mDBManager = new DBManager(createMongoDBStorage(dbHost));
         return mDBManager;
     }
 
-    private void createDatabase(String dbHost) {
+    /**
+     * API to create DBManager instance with specific storage engine
+     *
+     * @param storage
+     *            storage engine to keep the tables
+     * @return created DB manager
+     */
+    public static DBManager createInstance(IStorage storage) {
+        if (mDBManager == null)
+            mDBManager = new DBManager(storage);
+        return mDBManager;
+    }
+
+    private static IStorage createMongoDBStorage(String dbHost) {
         try {
-            mMongoDB = new MongoDB(dbHost, Constants.RD_DB_NAME);
+            return new MongoDBStorage(dbHost, Constants.RD_DB_NAME);
         } catch (Exception e) {
             e.printStackTrace();
             throw new InternalServerErrorException("Database create failed!");
@@ -81,25 +90,28 @@ public class DBManager {
     }
 
     private void createTables() {
-        mMongoDB.createTable(Constants.RD_TABLE);
-        mMongoDB.createTable(Constants.PRESENCE_TABLE);
-    }
-
-    private void createIndexes() {
 
         ArrayList<String> keys = new ArrayList<>();
         keys.add(Constants.DEVICE_ID);
         keys.add(Constants.INS);
 
-        mMongoDB.createIndex(Constants.RD_TABLE, keys);
-        mKeyField.put(Constants.RD_TABLE, keys);
+        mStorage.createTable(Constants.RD_TABLE, keys);
 
         keys = new ArrayList<>();
         keys.add(Constants.DEVICE_ID);
 
-        mMongoDB.createIndex(Constants.PRESENCE_TABLE, keys);
-        mKeyField.put(Constants.PRESENCE_TABLE, keys);
+        mStorage.createTable(Constants.PRESENCE_TABLE, keys);
 
+        // resource records persist across restarts but presence does not: no
+        // device is connected right after start, so forget every state
+        mStorage.deleteRecord(Constants.PRESENCE_TABLE, new HashMap<>());
+    }
+
+    /**
+     * API for closing the storage engine. stored records are kept.
+     */
+    public void close() {
+        mStorage.close();
     }
 
     /**
@@ -113,7 +125,7 @@ public class DBManager {
      */
     public void insertRecord(String tableName, HashMap<String, Object> insert) {
 
-        if (!_insertRecord(tableName, insert))
+        if (!mStorage.insertRecord(tableName, insert))
             throw new InternalServerErrorException(
                     "Database record insert failed");
     }
@@ -130,7 +142,25 @@ public class DBManager {
     public void insertAndReplaceRecord(String tableName,
             HashMap<String, Object> replace) {
 
-        if (!_insertAndReplaceRecord(tableName, replace))
+        if (!mStorage.insertAndReplaceRecords(tableName,
+                Arrays.asList(replace)))
+            throw new InternalServerErrorException(
+                    "Database record insert failed");
+    }
+
+    /**
+     * API for inserting records into DB table in one round trip. each record
+     * will be replaced if duplicated one.
+     * 
+     * @param tableName
+     *            table name to be inserted or replaced
+     * @param replaceList
+     *            records to be inserted
+     */
+    public void insertAndReplaceRecords(String tableName,
+            List<HashMap<String, Object>> replaceList) {
+
+        if (!mStorage.insertAndReplaceRecords(tableName, replaceList))
             throw new InternalServerErrorException(
                     "Database record insert failed");
     }
@@ -147,7 +177,7 @@ public class DBManager {
     public ArrayList<HashMap<String, Object>> selectRecord(String tableName,
             HashMap<String, Object> condition) {
 
-        return _selectRecord(tableName, condition);
+        return mStorage.selectRecord(tableName, condition);
     }
 
     /**
@@ -164,8 +194,8 @@ public class DBManager {
     public HashMap<String, Object> selectOneRecord(String tableName,
             HashMap<String, Object> condition) {
 
-        ArrayList<HashMap<String, Object>> records = _selectRecord(tableName,
-                condition);
+        ArrayList<HashMap<String, Object>> records = mStorage
+                .selectRecord(tableName, condition);
 
         if (records != null && records.size() > 1) {
             throw new InternalServerErrorException(
@@ -191,7 +221,7 @@ public class DBManager {
     public void deleteRecord(String tableName,
             HashMap<String, Object> condition) {
 
-        if (!_deleteRecord(tableName, condition))
+        if (!mStorage.deleteRecord(tableName, condition))
             throw new InternalServerErrorException(
                     "Database record delete failed");
     }
@@ -207,83 +237,113 @@ public class DBManager {
     public void updateRecord(String tableName,
             HashMap<String, Object> replace) {
 
-        if (!_updateRecord(tableName, replace))
+        if (!mStorage.updateRecord(tableName, replace))
             throw new InternalServerErrorException(
                     "Database record update failed");
 
     }
 
-    private Boolean _insertRecord(String tableName,
-            HashMap<String, Object> record) {
-
-        Document doc = createDocument(record);
-
-        return mMongoDB.insertRecord(tableName, doc);
-    }
-
-    private Boolean _insertAndReplaceRecord(String tableName,
-            HashMap<String, Object> record) {
-
-        Document doc = createDocument(record);
-        Document filter = getKeyFilter(tableName, record);
+    /**
+     * API for inserting a record into DB table without blocking. the record
+     * will be replaced if duplicated one.
+     * 
+     * @param tableName
+     *            table name to be inserted or replaced
+     * @param replace
+     *            record to be inserted
+     * @return completed when the record is stored, or exceptionally with
+     *         InternalServerErrorException
+     */
+    public CompletableFuture<Void> insertAndReplaceRecordAsync(
+            String tableName, HashMap<String, Object> replace) {
 
-        return mMongoDB.insertAndReplaceRecord(tableName, filter, doc);
+        return checkResult(mStorage.insertAndReplaceRecordsAsync(tableName,
+                Arrays.asList(replace)),
+                "Database record insert failed");
     }
 
-    private Boolean _deleteRecord(String tableName,
-            HashMap<String, Object> condition) {
-
-        Document doc = createDocument(condition);
+    /**
+     * API for inserting records into DB table in one round trip without
+     * blocking. each record will be replaced if duplicated one.
+     * 
+     * @param tableName
+     *            table name to be inserted or replaced
+     * @param replaceList
+     *            records to be inserted
+     * @return completed when the records are stored, or exceptionally with
+     *         InternalServerErrorException
+     */
+    public CompletableFuture<Void> insertAndReplaceRecordsAsync(
+            String tableName, List<HashMap<String, Object>> replaceList) {
 
-        return mMongoDB.deleteRecord(tableName, doc);
+        return checkResult(
+                mStorage.insertAndReplaceRecordsAsync(tableName, replaceList),
+                "Database record insert failed");
     }
 
-    private Boolean _updateRecord(String tableName,
-            HashMap<String, Object> record) {
-
-        Document replace = createDocument(record);
-        Document filter = getKeyFilter(tableName, record);
+    /**
+     * API for selecting records from DB table without blocking.
+     * 
+     * @param tableName
+     *            table name to be selected
+     * @param condition
+     *            condition record to be selected
+     * @return completed with selected records
+     */
+    public CompletableFuture<ArrayList<HashMap<String, Object>>> selectRecordAsync(
+            String tableName, HashMap<String, Object> condition) {
 
-        return mMongoDB.updateRecord(tableName, filter, replace);
+        return mStorage.selectRecordAsync(tableName, condition);
     }
 
-    private ArrayList<HashMap<String, Object>> _selectRecord(String tableName,
-            HashMap<String, Object> record) {
-
-        Document doc = createDocument(record);
+    /**
+     * API for deleting records from DB table without blocking.
+     * 
+     * @param tableName
+     *            table name to be deleted
+     * @param condition
+     *            condition record to be deleted
+     * @return completed when the records are deleted, or exceptionally with
+     *         InternalServerErrorException
+     */
+    public CompletableFuture<Void> deleteRecordAsync(String tableName,
+            HashMap<String, Object> condition) {
 
-        return mMongoDB.selectRecord(tableName, doc);
+        return checkResult(
+                mStorage.deleteRecordAsync(tableName, condition),
+                "Database record delete failed");
     }
 
-    private Document getKeyFilter(String tableName,
-            HashMap<String, Object> record) {
-
-        Document filterDoc = new Document();
-
-        ArrayList<String> keys = mKeyField.get(tableName);
-
-        for (String key : keys) {
-
-            Object value = record.get(key);
-            filterDoc.append(key, value);
-        }
+    /**
+     * API for deleting records, matching the condition and one of the values
+     * of a field, from DB table in one round trip without blocking.
+     * 
+     * @param tableName
+     *            table name to be deleted
+     * @param condition
+     *            condition record to be deleted
+     * @param field
+     *            field to be matched with one of the values
+     * @param values
+     *            values of the field to be deleted
+     * @return completed when the records are deleted, or exceptionally with
+     *         InternalServerErrorException
+     */
+    public CompletableFuture<Void> deleteRecordsAsync(String tableName,
+            HashMap<String, Object> condition, String field,
+            List<?> values) {
 
-        return filterDoc;
+        return checkResult(mStorage.deleteRecordsAsync(tableName, condition,
+                field, values), "Database record delete failed");
     }
 
-    private Document createDocument(HashMap<String, Object> record) {
-
-        Document doc = new Document();
-        Set<Entry<String, Object>> resEntrySet = record.entrySet();
-        Iterator<Entry<String, Object>> entryIter = resEntrySet.iterator();
-
-        while (entryIter.hasNext()) {
-            Map.Entry<String, Object> entry = (Map.Entry<String, Object>) entryIter
-                    .next();
-            doc.append(entry.getKey().toString(), entry.getValue());
-        }
+    private CompletableFuture<Void> checkResult(
+            CompletableFuture<Boolean> result, String errorMessage) {
 
-        return doc;
+        return result.thenAccept(success -> {
+            if (!success)
+                throw new InternalServerErrorException(errorMessage);
+        });
     }
 
-}
\ No newline at end of file
+}
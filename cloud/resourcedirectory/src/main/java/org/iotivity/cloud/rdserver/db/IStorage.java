@@ -0,0 +1,204 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.rdserver.db;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ *
+ * This interface provides a set of APIs a storage engine implements to keep
+ * the tables of the resource directory. A record is identified in its table by
+ * the values of the key fields given when the table is created.
+ *
+ */
+public interface IStorage {
+
+    /**
+     * API for creating a table, or opening it if it is already stored
+     * 
+     * @param tableName
+     *            table name
+     * @param keys
+     *            key fields of the table
+     */
+    public void createTable(String tableName, ArrayList<String> keys);
+
+    /**
+     * API for inserting a record into table. the record will not be inserted
+     * if duplicated one.
+     * 
+     * @param tableName
+     *            table name to be inserted
+     * @param record
+     *            record to be inserted
+     * @return true if the record is inserted
+     */
+    public Boolean insertRecord(String tableName,
+            HashMap<String, Object> record);
+
+    /**
+     * API for inserting records into table. each record will be replaced if
+     * duplicated one.
+     * 
+     * @param tableName
+     *            table name to be inserted or replaced
+     * @param records
+     *            records to be inserted
+     * @return true if every record is stored
+     */
+    public Boolean insertAndReplaceRecords(String tableName,
+            List<HashMap<String, Object>> records);
+
+    /**
+     * API for updating a record, found by its key fields, in table
+     * 
+     * @param tableName
+     *            table name to be updated
+     * @param record
+     *            record to be updated
+     * @return true if the record is updated
+     */
+    public Boolean updateRecord(String tableName,
+            HashMap<String, Object> record);
+
+    /**
+     * API for deleting records from table
+     * 
+     * @param tableName
+     *            table name to be deleted
+     * @param condition
+     *            condition record to be deleted
+     * @return false if the records could not be deleted
+     */
+    public Boolean deleteRecord(String tableName,
+            HashMap<String, Object> condition);
+
+    /**
+     * API for deleting records, matching the condition and one of the values
+     * of a field, from table at once
+     * 
+     * @param tableName
+     *            table name to be deleted
+     * @param condition
+     *            condition record to be deleted
+     * @param field
+     *            field to be matched with one of the values
+     * @param values
+     *            values of the field to be deleted
+     * @return false if the records could not be deleted
+     */
+    public Boolean deleteRecords(String tableName,
+            HashMap<String, Object> condition, String field,
+            List<?> values);
+
+    /**
+     * API for selecting records from table. a field of the condition matches
+     * the same value, or a list that contains it.
+     * 
+     * @param tableName
+     *            table name to be selected
+     * @param condition
+     *            condition record to be selected
+     * @return selected records
+     */
+    public ArrayList<HashMap<String, Object>> selectRecord(String tableName,
+            HashMap<String, Object> condition);
+
+    /**
+     * API for inserting records into table without blocking. engines that
+     * answer from local storage complete it before returning.
+     * 
+     * @param tableName
+     *            table name to be inserted or replaced
+     * @param records
+     *            records to be inserted
+     * @return completed with true if every record is stored
+     */
+    public default CompletableFuture<Boolean> insertAndReplaceRecordsAsync(
+            String tableName, List<HashMap<String, Object>> records) {
+
+        return CompletableFuture
+                .completedFuture(insertAndReplaceRecords(tableName, records));
+    }
+
+    /**
+     * API for deleting records from table without blocking
+     * 
+     * @param tableName
+     *            table name to be deleted
+     * @param condition
+     *            condition record to be deleted
+     * @return completed with false if the records could not be deleted
+     */
+    public default CompletableFuture<Boolean> deleteRecordAsync(
+            String tableName, HashMap<String, Object> condition) {
+
+        return CompletableFuture
+                .completedFuture(deleteRecord(tableName, condition));
+    }
+
+    /**
+     * API for deleting records, matching the condition and one of the values
+     * of a field, from table at once without blocking
+     * 
+     * @param tableName
+     *            table name to be deleted
+     * @param condition
+     *            condition record to be deleted
+     * @param field
+     *            field to be matched with one of the values
+     * @param values
+     *            values of the field to be deleted
+     * @return completed with false if the records could not be deleted
+     */
+    public default CompletableFuture<Boolean> deleteRecordsAsync(
+            String tableName, HashMap<String, Object> condition, String field,
+            List<?> values) {
+
+        return CompletableFuture.completedFuture(
+                deleteRecords(tableName, condition, field, values));
+    }
+
+    /**
+     * API for selecting records from table without blocking
+     * 
+     * @param tableName
+     *            table name to be selected
+     * @param condition
+     *            condition record to be selected
+     * @return completed with selected records
+     */
+    public default CompletableFuture<ArrayList<HashMap<String, Object>>> selectRecordAsync(
+            String tableName, HashMap<String, Object> condition) {
+
+        return CompletableFuture
+                .completedFuture(selectRecord(tableName, condition));
+    }
+
+    /**
+     * API for releasing the storage. stored records are kept.
+     */
+    public void close();
+}
@@ -0,0 +1,320 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.rdserver.db;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.iotivity.cloud.util.Cbor;
+import org.iotivity.cloud.util.DBAuditLog;
+import org.iotivity.cloud.util.Log;
+
+/**
+ *
+ * This class provides a set of APIs to keep the tables of the resource
+ * directory in an embedded MVStore file. Each table is a map from the values of
+ * its key fields to the CBOR encoded record, and every change is committed to
+ * the file before it is acknowledged.
+ *
+ */
+public class MVStoreStorage implements IStorage {
+
+    // joins the values of key fields, so records of a device are adjacent
+    private static final char                                KEY_SEPARATOR = '\u0000';
+
+    private MVStore                                          mStore        = null;
+    private ConcurrentHashMap<String, MVMap<String, byte[]>> mTable        = new ConcurrentHashMap<>();
+    private ConcurrentHashMap<String, ArrayList<String>>     mKeyField     = new ConcurrentHashMap<>();
+    private Cbor<HashMap<String, Object>>                    mCbor         = new Cbor<>();
+
+    /**
+     * API opening the store file, created if it does not exist
+     * 
+     * @param fileName
+     *            path of the store file
+     */
+    public MVStoreStorage(String fileName) {
+
+        mStore = new MVStore.Builder().fileName(fileName).compress().open();
+    }
+
+    @Override
+    public void createTable(String tableName, ArrayList<String> keys) {
+
+        mKeyField.put(tableName, keys);
+        mTable.put(tableName, mStore.openMap(tableName));
+    }
+
+    @Override
+    public Boolean insertRecord(String tableName,
+            HashMap<String, Object> record) {
+
+        String key = getKey(tableName, record);
+
+        if (key == null)
+            return false;
+
+        if (getTable(tableName).putIfAbsent(key, encode(record)) != null) {
+            Log.w("DB insert failed due to duplecated one.");
+            return false;
+        }
+
+        mStore.commit();
+        DBAuditLog.logChange(tableName, "insert", record);
+
+        return true;
+    }
+
+    @Override
+    public Boolean insertAndReplaceRecords(String tableName,
+            List<HashMap<String, Object>> records) {
+
+        MVMap<String, byte[]> table = getTable(tableName);
+
+        ArrayList<String> keys = new ArrayList<>(records.size());
+        for (HashMap<String, Object> record : records) {
+            String key = getKey(tableName, record);
+
+            if (key == null)
+                return false;
+
+            keys.add(key);
+        }
+
+        for (int i = 0; i < records.size(); i++) {
+            table.put(keys.get(i), encode(records.get(i)));
+        }
+
+        mStore.commit();
+        DBAuditLog.logChange(tableName, "replace", records);
+
+        return true;
+    }
+
+    @Override
+    public Boolean updateRecord(String tableName,
+            HashMap<String, Object> record) {
+
+        String key = getKey(tableName, record);
+
+        if (key == null)
+            return false;
+
+        if (getTable(tableName).replace(key, encode(record)) == null) {
+            Log.w("DB update failed due to no matched record!");
+            return false;
+        }
+
+        mStore.commit();
+        DBAuditLog.logChange(tableName, "update", record);
+
+        return true;
+    }
+
+    @Override
+    public Boolean deleteRecord(String tableName,
+            HashMap<String, Object> condition) {
+
+        MVMap<String, byte[]> table = getTable(tableName);
+
+        for (String key : findRecords(tableName, condition).keySet()) {
+            table.remove(key);
+        }
+
+        mStore.commit();
+        DBAuditLog.logChange(tableName, "delete", condition);
+
+        return true;
+    }
+
+    @Override
+    public Boolean deleteRecords(String tableName,
+            HashMap<String, Object> condition, String field,
+            List<?> values) {
+
+        MVMap<String, byte[]> table = getTable(tableName);
+        HashMap<String, Object> valueCondition = new HashMap<>(condition);
+
+        for (Object value : values) {
+            valueCondition.put(field, value);
+
+            for (String key : findRecords(tableName, valueCondition)
+                    .keySet()) {
+                table.remove(key);
+            }
+        }
+
+        // committed once for every value
+        mStore.commit();
+        valueCondition.put(field, values);
+        DBAuditLog.logChange(tableName, "delete", valueCondition);
+
+        return true;
+    }
+
+    @Override
+    public ArrayList<HashMap<String, Object>> selectRecord(String tableName,
+            HashMap<String, Object> condition) {
+
+        return new ArrayList<>(findRecords(tableName, condition).values());
+    }
+
+    @Override
+    public void close() {
+
+        mStore.close();
+    }
+
+    private MVMap<String, byte[]> getTable(String tableName) {
+
+        MVMap<String, byte[]> table = mTable.get(tableName);
+
+        if (table == null) {
+            throw new IllegalArgumentException(
+                    "table (" + tableName + ") is not created");
+        }
+
+        return table;
+    }
+
+    // key of the record, or null if a key field is missing
+    private String getKey(String tableName, HashMap<String, Object> record) {
+
+        StringBuilder key = new StringBuilder();
+
+        for (String keyField : mKeyField.get(tableName)) {
+            Object value = record.get(keyField);
+
+            if (value == null) {
+                Log.w("DB record has no key field (" + keyField + ")");
+                return null;
+            }
+
+            key.append(value.toString()).append(KEY_SEPARATOR);
+        }
+
+        return key.toString();
+    }
+
+    // looks up by key when the condition holds every key field, scans the
+    // records of the first key field when it holds that, and scans the table
+    // otherwise
+    private HashMap<String, HashMap<String, Object>> findRecords(
+            String tableName, HashMap<String, Object> condition) {
+
+        MVMap<String, byte[]> table = getTable(tableName);
+        HashMap<String, HashMap<String, Object>> found = new HashMap<>();
+
+        StringBuilder prefix = new StringBuilder();
+        int keyCount = 0;
+
+        for (String keyField : mKeyField.get(tableName)) {
+            Object value = condition.get(keyField);
+
+            if (value == null || value instanceof List)
+                break;
+
+            prefix.append(value.toString()).append(KEY_SEPARATOR);
+            keyCount++;
+        }
+
+        if (keyCount == mKeyField.get(tableName).size()) {
+            String key = prefix.toString();
+            addMatchedRecord(found, key, table.get(key), condition);
+            return found;
+        }
+
+        String from = keyCount == 0 ? null : prefix.toString();
+        Iterator<String> keyIter = table.keyIterator(from);
+
+        while (keyIter.hasNext()) {
+            String key = keyIter.next();
+
+            if (from != null && !key.startsWith(from))
+                break;
+
+            addMatchedRecord(found, key, table.get(key), condition);
+        }
+
+        return found;
+    }
+
+    private void addMatchedRecord(
+            HashMap<String, HashMap<String, Object>> found, String key,
+            byte[] value, HashMap<String, Object> condition) {
+
+        if (value == null)
+            return;
+
+        HashMap<String, Object> record = mCbor.parsePayloadFromCbor(value,
+                HashMap.class);
+
+        for (Entry<String, Object> entry : condition.entrySet()) {
+            if (!matchValue(record.get(entry.getKey()), entry.getValue()))
+                return;
+        }
+
+        found.put(key, record);
+    }
+
+    // same as an equality query of MongoDB, a list matches any of its elements
+    private boolean matchValue(Object stored, Object expected) {
+
+        if (equalValue(stored, expected))
+            return true;
+
+        if (stored instanceof List && !(expected instanceof List)) {
+            for (Object element : (List<?>) stored) {
+                if (equalValue(element, expected))
+                    return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean equalValue(Object stored, Object expected) {
+
+        if (stored == null || expected == null)
+            return stored == expected;
+
+        // decoded width of a number may differ from the one given
+        if (stored instanceof Number && expected instanceof Number
+                && !(stored instanceof Double || stored instanceof Float)
+                && !(expected instanceof Double || expected instanceof Float))
+            return ((Number) stored).longValue() == ((Number) expected)
+                    .longValue();
+
+        return stored.equals(expected);
+    }
+
+    private byte[] encode(HashMap<String, Object> record) {
+
+        return mCbor.encodingPayloadToCbor(record);
+    }
+}
@@ -24,18 +24,26 @@ package org.iotivity.cloud.rdserver.db;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
 import org.bson.Document;
+import org.iotivity.cloud.util.DBAuditLog;
 import org.iotivity.cloud.util.Log;
 
+import com.mongodb.ErrorCategory;
 import com.mongodb.MongoClient;
+import com.mongodb.MongoWriteException;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
 
 /**
  *
@@ -59,7 +67,6 @@ public class MongoDB {
     public MongoDB(String host, String dbname) throws Exception {
 
         mongoClient = new MongoClient(host);
-        mongoClient.dropDatabase(dbname);
         db = mongoClient.getDatabase(dbname);
     }
 
@@ -71,6 +78,13 @@ public class MongoDB {
      */
     public void createTable(String tableName) {
 
+        // records are kept across restarts, so it may be there already
+        for (String name : db.listCollectionNames()) {
+            if (name.equals(tableName)) {
+                return;
+            }
+        }
+
         db.createCollection(tableName);
     }
 
@@ -135,15 +149,17 @@ public class MongoDB {
 
         try {
 
-            if (collection.find(doc).first() == null) {
+            // Duplicates are rejected by the unique key index
+            collection.insertOne(doc);
 
-                collection.insertOne(doc);
-
-            } else {
+        } catch (MongoWriteException e) {
 
+            if (e.getError().getCategory() == ErrorCategory.DUPLICATE_KEY) {
                 Log.w("DB insert failed due to duplecated one.");
-                return false;
+            } else {
+                e.printStackTrace();
             }
+            return false;
 
         } catch (Exception e) {
 
@@ -151,7 +167,7 @@ public class MongoDB {
             return false;
         }
 
-        showRecord(tableName);
+        DBAuditLog.logChange(tableName, "insert", doc);
 
         return true;
     }
@@ -179,10 +195,57 @@ public class MongoDB {
 
         try {
 
-            if (collection.findOneAndReplace(filter, doc) == null) {
+            collection.replaceOne(filter, doc,
+                    new UpdateOptions().upsert(true));
 
-                collection.insertOne(doc);
-            }
+        } catch (Exception e) {
+
+            e.printStackTrace();
+            return false;
+        }
+
+        DBAuditLog.logChange(tableName, "replace", doc);
+
+        return true;
+    }
+
+    /**
+     * API for inserting records into DB table in one round trip. each record
+     * will be replaced if duplicated one.
+     * 
+     * @param tableName
+     *            table name to be inserted
+     * @param filters
+     *            document filters, one for each document
+     * @param docs
+     *            documents to be inserted
+     * @return returns true if the records are inserted and replaced
+     *         successfully, or returns false
+     */
+    public Boolean insertAndReplaceRecords(String tableName,
+            List<Document> filters, List<Document> docs) {
+
+        if (tableName == null || filters == null || docs == null
+                || filters.size() != docs.size())
+            return false;
+
+        if (docs.isEmpty())
+            return true;
+
+        MongoCollection<Document> collection = db.getCollection(tableName);
+
+        List<WriteModel<Document>> requests = new ArrayList<>(docs.size());
+        UpdateOptions upsert = new UpdateOptions().upsert(true);
+
+        for (int i = 0; i < docs.size(); i++) {
+            requests.add(
+                    new ReplaceOneModel<>(filters.get(i), docs.get(i), upsert));
+        }
+
+        try {
+
+            collection.bulkWrite(requests,
+                    new BulkWriteOptions().ordered(false));
 
         } catch (Exception e) {
 
@@ -190,7 +253,7 @@ public class MongoDB {
             return false;
         }
 
-        showRecord(tableName);
+        DBAuditLog.logChange(tableName, "replace", docs);
 
         return true;
     }
@@ -221,7 +284,7 @@ public class MongoDB {
             return false;
         }
 
-        showRecord(tableName);
+        DBAuditLog.logChange(tableName, "update", record);
 
         return true;
     }
@@ -253,7 +316,7 @@ public class MongoDB {
             return false;
         }
 
-        showRecord(tableName);
+        DBAuditLog.logChange(tableName, "delete", record);
 
         return true;
     }
@@ -293,7 +356,15 @@ public class MongoDB {
         return recordList;
     }
 
-    private HashMap<String, Object> convertDocumentToHashMap(Document doc) {
+    /**
+     * API for closing connections to MongoDB
+     */
+    public void close() {
+
+        mongoClient.close();
+    }
+
+    static HashMap<String, Object> convertDocumentToHashMap(Document doc) {
         HashMap<String, Object> resourceMap = new HashMap<>();
 
         Set<Entry<String, Object>> entrySet = doc.entrySet();
@@ -315,25 +386,4 @@ public class MongoDB {
 
         return resourceMap;
     }
-
-    private void showRecord(String tableName) {
-
-        MongoCollection<Document> collection = db.getCollection(tableName);
-        MongoCursor<Document> cursor = collection.find().iterator();
-
-        Log.i("<" + tableName + ">");
-
-        HashMap<String, Object> records = null;
-        int index = 0;
-        while (cursor.hasNext()) {
-
-            Document doc = cursor.next();
-            records = convertDocumentToHashMap(doc);
-
-            Log.i("[" + index + "] " + records.toString());
-            index++;
-        }
-
-        cursor.close();
-    }
 }
@@ -0,0 +1,222 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.rdserver.db;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.bson.Document;
+
+/**
+ *
+ * This class provides a set of APIs to keep the tables of the resource
+ * directory in MongoDB.
+ *
+ */
+public class MongoDBStorage implements IStorage {
+
+    private MongoDB                            mMongoDB      = null;
+    private AsyncMongoDB                       mAsyncMongoDB = null;
+    private HashMap<String, ArrayList<String>> mKeyField     = new HashMap<>();
+
+    /**
+     * API creating clients to MongoDB
+     * 
+     * @param host
+     *            host of MongoDatabase
+     * @param dbname
+     *            database name
+     * @throws Exception
+     */
+    public MongoDBStorage(String host, String dbname) throws Exception {
+
+        mMongoDB = new MongoDB(host, dbname);
+        mAsyncMongoDB = new AsyncMongoDB(host, dbname);
+    }
+
+    @Override
+    public void createTable(String tableName, ArrayList<String> keys) {
+
+        mMongoDB.createTable(tableName);
+        mMongoDB.createIndex(tableName, keys);
+        mKeyField.put(tableName, keys);
+    }
+
+    @Override
+    public Boolean insertRecord(String tableName,
+            HashMap<String, Object> record) {
+
+        return mMongoDB.insertRecord(tableName, createDocument(record));
+    }
+
+    @Override
+    public Boolean insertAndReplaceRecords(String tableName,
+            List<HashMap<String, Object>> records) {
+
+        if (records.size() == 1) {
+            HashMap<String, Object> record = records.get(0);
+
+            return mMongoDB.insertAndReplaceRecord(tableName,
+                    getKeyFilter(tableName, record), createDocument(record));
+        }
+
+        ArrayList<Document> docs = new ArrayList<>(records.size());
+        ArrayList<Document> filters = new ArrayList<>(records.size());
+
+        for (HashMap<String, Object> record : records) {
+            docs.add(createDocument(record));
+            filters.add(getKeyFilter(tableName, record));
+        }
+
+        return mMongoDB.insertAndReplaceRecords(tableName, filters, docs);
+    }
+
+    @Override
+    public Boolean updateRecord(String tableName,
+            HashMap<String, Object> record) {
+
+        return mMongoDB.updateRecord(tableName,
+                getKeyFilter(tableName, record), createDocument(record));
+    }
+
+    @Override
+    public Boolean deleteRecord(String tableName,
+            HashMap<String, Object> condition) {
+
+        return mMongoDB.deleteRecord(tableName, createDocument(condition));
+    }
+
+    @Override
+    public Boolean deleteRecords(String tableName,
+            HashMap<String, Object> condition, String field,
+            List<?> values) {
+
+        return mMongoDB.deleteRecord(tableName,
+                createInDocument(condition, field, values));
+    }
+
+    @Override
+    public ArrayList<HashMap<String, Object>> selectRecord(String tableName,
+            HashMap<String, Object> condition) {
+
+        return mMongoDB.selectRecord(tableName, createDocument(condition));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> insertAndReplaceRecordsAsync(
+            String tableName, List<HashMap<String, Object>> records) {
+
+        if (records.size() == 1) {
+            HashMap<String, Object> record = records.get(0);
+
+            return mAsyncMongoDB.insertAndReplaceRecord(tableName,
+                    getKeyFilter(tableName, record), createDocument(record));
+        }
+
+        ArrayList<Document> docs = new ArrayList<>(records.size());
+        ArrayList<Document> filters = new ArrayList<>(records.size());
+
+        for (HashMap<String, Object> record : records) {
+            docs.add(createDocument(record));
+            filters.add(getKeyFilter(tableName, record));
+        }
+
+        return mAsyncMongoDB.insertAndReplaceRecords(tableName, filters, docs);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteRecordAsync(String tableName,
+            HashMap<String, Object> condition) {
+
+        return mAsyncMongoDB.deleteRecord(tableName,
+                createDocument(condition));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteRecordsAsync(String tableName,
+            HashMap<String, Object> condition, String field,
+            List<?> values) {
+
+        return mAsyncMongoDB.deleteRecord(tableName,
+                createInDocument(condition, field, values));
+    }
+
+    @Override
+    public CompletableFuture<ArrayList<HashMap<String, Object>>> selectRecordAsync(
+            String tableName, HashMap<String, Object> condition) {
+
+        return mAsyncMongoDB.selectRecord(tableName,
+                createDocument(condition));
+    }
+
+    @Override
+    public void close() {
+
+        mMongoDB.close();
+        mAsyncMongoDB.close();
+    }
+
+    private Document getKeyFilter(String tableName,
+            HashMap<String, Object> record) {
+
+        Document filterDoc = new Document();
+
+        ArrayList<String> keys = mKeyField.get(tableName);
+
+        for (String key : keys) {
+
+            Object value = record.get(key);
+            filterDoc.append(key, value);
+        }
+
+        return filterDoc;
+    }
+
+    private Document createDocument(HashMap<String, Object> record) {
+
+        Document doc = new Document();
+        Set<Entry<String, Object>> resEntrySet = record.entrySet();
+        Iterator<Entry<String, Object>> entryIter = resEntrySet.iterator();
+
+        while (entryIter.hasNext()) {
+            Map.Entry<String, Object> entry = (Map.Entry<String, Object>) entryIter
+                    .next();
+            doc.append(entry.getKey().toString(), entry.getValue());
+        }
+
+        return doc;
+    }
+
+    // records of the condition, with the field holding one of the values
+    private Document createInDocument(HashMap<String, Object> condition,
+            String field, List<?> values) {
+
+        return createDocument(condition).append(field,
+                new Document("$in", values));
+    }
+}
@@ -24,6 +24,9 @@ package org.iotivity.cloud.rdserver.resources.directory;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 import org.iotivity.cloud.base.exception.ServerException.BadRequestException;
 import org.iotivity.cloud.rdserver.Constants;
@@ -38,32 +41,66 @@ import org.iotivity.cloud.util.Log;
  */
 public class RDManager {
 
-    private InsManager                         mInsManager       = new InsManager();
-    private PayloadManager                     mPayloadManager   = new PayloadManager();
+    private InsManager                                      mInsManager     = new InsManager();
+    private PayloadManager                                  mPayloadManager = new PayloadManager();
 
-    private ArrayList<HashMap<String, Object>> mResourcePresence = new ArrayList<>();
+    // di, last operation on resources of the device
+    private ConcurrentHashMap<String, CompletableFuture<?>> mDeviceQueue    = new ConcurrentHashMap<>();
 
     /**
-     * API for handling resource-publish process
+     * API for handling resource-publish process. ins of the links in the
+     * request payload are set, so it can be sent as response payload once
+     * completed.
      * 
      * @param requestPayload
      *            request payload
-     * @return response payload
+     * @return completed with resource information to notify
      */
-    public HashMap<String, Object> publishResource(
+    public CompletableFuture<ArrayList<HashMap<String, Object>>> publishResource(
             HashMap<String, Object> requestPayload) {
 
         HashMap<String, Object> deviceInfo = setResourceDeviceInfo(
                 requestPayload);
         ArrayList<HashMap<String, Object>> links = getLinks(requestPayload);
+        String di = deviceInfo.get(Constants.DEVICE_ID).toString();
+
+        return runInOrder(di, () -> {
+            // check ins and set ins
+            setResourceIns(di, links);
+
+            return storeResource(links, deviceInfo);
+        });
+    }
+
+    // Operations on a device run one after another, in the order requested,
+    // while those of other devices are in flight
+    private <T> CompletableFuture<T> runInOrder(String di,
+            Supplier<CompletableFuture<T>> operation) {
 
-        // check ins and set ins
-        setResourceIns(deviceInfo.get(Constants.DEVICE_ID).toString(), links);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture<?> previous = mDeviceQueue.put(di, result);
 
-        storeResource(links, deviceInfo);
+        if (previous == null) {
+            previous = CompletableFuture.completedFuture(null);
+        }
+
+        previous.whenComplete((previousResult, previousError) -> {
+            try {
+                operation.get().whenComplete((value, error) -> {
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else {
+                        result.complete(value);
+                    }
+                });
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
 
-        return requestPayload;
+        result.whenComplete((value, error) -> mDeviceQueue.remove(di, result));
 
+        return result;
     }
 
     // set di, n, lt info
@@ -80,7 +117,8 @@ public class RDManager {
 
     }
 
-    private void storeResource(ArrayList<HashMap<String, Object>> links,
+    private CompletableFuture<ArrayList<HashMap<String, Object>>> storeResource(
+            ArrayList<HashMap<String, Object>> links,
             HashMap<String, Object> deviceInfo) {
 
         ArrayList<HashMap<String, Object>> resourcePresence = new ArrayList<>();
@@ -92,27 +130,36 @@ public class RDManager {
             mPayloadManager.changePolicyTypeToStore(storeLink);
             storeInfo.putAll(storeLink);
             storeInfo.putAll(deviceInfo);
-            storeResourceInDB(storeInfo);
             resourcePresence.add(storeInfo);
         }
-        setmResourcePresence(resourcePresence);
 
+        return storeResourceInDB(resourcePresence);
     }
 
-    private void storeResourceInDB(HashMap<String, Object> rdInfo) {
-        HashMap<String, Object> condition = new HashMap<>();
-        condition.put(Constants.DEVICE_ID, rdInfo.get(Constants.DEVICE_ID));
-        condition.put(Constants.INS, rdInfo.get(Constants.INS));
-        if (checkResourceExist(condition).isEmpty()) {
-            DBManager.getInstance().insertRecord(Constants.RD_TABLE, rdInfo);
-            // set resource presence
-            rdInfo.put(Constants.TRIGGER, Constants.RES_CREATE);
-        } else {
-            DBManager.getInstance().insertAndReplaceRecord(Constants.RD_TABLE,
-                    rdInfo);
-            rdInfo.put(Constants.TRIGGER, Constants.RES_CHANGE);
+    // Upserts every link keyed on di and ins in one bulk write
+    private CompletableFuture<ArrayList<HashMap<String, Object>>> storeResourceInDB(
+            ArrayList<HashMap<String, Object>> rdInfoList) {
+        ResourceIndex resourceIndex = ResourceIndex.getInstance();
+
+        ArrayList<Boolean> existList = new ArrayList<>(rdInfoList.size());
+        for (HashMap<String, Object> rdInfo : rdInfoList) {
+            existList.add(resourceIndex.containsResource(
+                    rdInfo.get(Constants.DEVICE_ID).toString(),
+                    (int) rdInfo.get(Constants.INS)));
         }
 
+        return DBManager.getInstance()
+                .insertAndReplaceRecordsAsync(Constants.RD_TABLE, rdInfoList)
+                .thenApply(stored -> {
+                    for (int i = 0; i < rdInfoList.size(); i++) {
+                        HashMap<String, Object> rdInfo = rdInfoList.get(i);
+                        resourceIndex.putResource(rdInfo);
+                        // set resource presence
+                        rdInfo.put(Constants.TRIGGER, existList.get(i)
+                                ? Constants.RES_CHANGE : Constants.RES_CREATE);
+                    }
+                    return rdInfoList;
+                });
     }
 
     private void setResourceIns(String di,
@@ -151,45 +198,66 @@ public class RDManager {
      * 
      * @param di
      *            device id
-     * @param ins
-     *            unique id of resource
+     * @param insList
+     *            unique ids of resources, or null for every resource
+     * @return completed with resource information to notify
      */
-    public void deleteResource(String di, List<String> insList) {
+    public CompletableFuture<ArrayList<HashMap<String, Object>>> deleteResource(
+            String di, List<String> insList) {
 
-        HashMap<String, Object> condition = new HashMap<>();
-        condition.put(Constants.DEVICE_ID, di);
+        return runInOrder(di, () -> {
+            // Records to notify are read from the resource index
+            ArrayList<HashMap<String, Object>> foundRecord = ResourceIndex
+                    .getInstance().selectResource(di, null, null);
 
-        ArrayList<HashMap<String, Object>> foundRecord = new ArrayList<>();
+            HashMap<String, Object> condition = new HashMap<>();
+            condition.put(Constants.DEVICE_ID, di);
 
-        if (insList == null) {
-            foundRecord = checkResourceExist(condition);
-            DBManager.getInstance().deleteRecord(Constants.RD_TABLE, condition);
-        } else {
+            if (insList == null) {
+                return DBManager.getInstance()
+                        .deleteRecordAsync(Constants.RD_TABLE, condition)
+                        .thenApply(deleted -> {
+                            ResourceIndex.getInstance().removeResource(di,
+                                    null);
+                            return setDeleteTrigger(foundRecord);
+                        });
+            }
+
+            ArrayList<Integer> deleteInsList = new ArrayList<>();
             for (String ins : insList) {
-                condition.put(Constants.INS, Integer.parseInt(ins));
-                if (!checkResourceExist(condition).isEmpty()) {
-                    foundRecord.add(checkResourceExist(condition).get(0));
-                    DBManager.getInstance().deleteRecord(Constants.RD_TABLE,
-                            condition);
-                }
+                deleteInsList.add(Integer.parseInt(ins));
             }
-        }
+            foundRecord.removeIf(
+                    record -> !deleteInsList.contains(record.get(Constants.INS)));
 
-        if (!foundRecord.isEmpty()) {
-            // set resource presence
+            ArrayList<Integer> deletedInsList = new ArrayList<>();
             for (HashMap<String, Object> record : foundRecord) {
-                record.put(Constants.TRIGGER, Constants.RES_DELETE);
+                deletedInsList.add((int) record.get(Constants.INS));
             }
-            setmResourcePresence(foundRecord);
-        }
-    }
 
-    private ArrayList<HashMap<String, Object>> checkResourceExist(
-            HashMap<String, Object> condition) {
-        ArrayList<HashMap<String, Object>> records = DBManager.getInstance()
-                .selectRecord(Constants.RD_TABLE, condition);
+            if (deletedInsList.isEmpty()) {
+                return CompletableFuture.completedFuture(foundRecord);
+            }
 
-        return records;
+            // every resource in one delete
+            return DBManager.getInstance()
+                    .deleteRecordsAsync(Constants.RD_TABLE, condition,
+                            Constants.INS, deletedInsList)
+                    .thenApply(deleted -> {
+                        ResourceIndex.getInstance().removeResource(di,
+                                deletedInsList);
+                        return setDeleteTrigger(foundRecord);
+                    });
+        });
+    }
+
+    private ArrayList<HashMap<String, Object>> setDeleteTrigger(
+            ArrayList<HashMap<String, Object>> foundRecord) {
+        // set resource presence
+        for (HashMap<String, Object> record : foundRecord) {
+            record.put(Constants.TRIGGER, Constants.RES_DELETE);
+        }
+        return foundRecord;
     }
 
     /**
@@ -206,29 +274,32 @@ public class RDManager {
     public ArrayList<Object> discoverResource(List<String> diList,
             List<String> rtList, List<String> ifList) {
 
-        HashMap<String, Object> condition = new HashMap<>();
-
         ArrayList<Object> response = new ArrayList<>();
 
         if (diList == null) {
             return response;
         }
 
+        // Answered from the resource index, without database round trips
+        ArrayList<String> onDiList = getPresenceOnDevices(diList);
+
         if (rtList == null && ifList == null) {
-            readResource(diList, condition, response);
+            readResource(onDiList, null, null, response);
         }
 
+        String rt = null;
         if (rtList != null) {
-            for (String rt : rtList) {
-                condition.put(Constants.RESOURCE_TYPE, rt);
-                readResource(diList, condition, response);
+            for (String rtValue : rtList) {
+                rt = rtValue;
+                readResource(onDiList, rt, null, response);
             }
         }
 
         if (ifList != null) {
             for (String itf : ifList) {
-                condition.put(Constants.INTERFACE, itf);
-                readResource(diList, condition, response);
+                // rt of the last rt query still applies, as it did when
+                // both were put in one database condition
+                readResource(onDiList, rt, itf, response);
             }
         }
 
@@ -237,15 +308,12 @@ public class RDManager {
         return response;
     }
 
-    private void readResource(List<String> diList,
-            HashMap<String, Object> condition, ArrayList<Object> response) {
-
-        ArrayList<String> onDiList = getPresenceOnDevices(diList);
+    private void readResource(List<String> onDiList, String rt, String itf,
+            ArrayList<Object> response) {
 
         for (String di : onDiList) {
-            condition.put(Constants.DEVICE_ID, di);
-            ArrayList<HashMap<String, Object>> records = DBManager.getInstance()
-                    .selectRecord(Constants.RD_TABLE, condition);
+            ArrayList<HashMap<String, Object>> records = ResourceIndex
+                    .getInstance().selectResource(di, rt, itf);
 
             if (!records.isEmpty()) {
                 response.add(makeDiscoverResponseSegment(records));
@@ -256,15 +324,10 @@ public class RDManager {
 
     private ArrayList<String> getPresenceOnDevices(List<String> diList) {
         ArrayList<String> onDiList = new ArrayList<>();
-        HashMap<String, Object> condition = new HashMap<>();
 
         for (String di : diList) {
-            condition.put(Constants.DEVICE_ID, di);
-            HashMap<String, Object> record = DBManager.getInstance()
-                    .selectOneRecord(Constants.PRESENCE_TABLE, condition);
-
-            if (!record.isEmpty() && record.get(Constants.PRESENCE_STATE)
-                    .equals(Constants.PRESENCE_ON)) {
+            if (Constants.PRESENCE_ON
+                    .equals(ResourceIndex.getInstance().getPresence(di))) {
                 onDiList.add(di);
             }
 
@@ -295,19 +358,4 @@ public class RDManager {
         return responseSegment;
 
     }
-
-    private void setmResourcePresence(
-            ArrayList<HashMap<String, Object>> resourcePresence) {
-        this.mResourcePresence = resourcePresence;
-    }
-
-    /**
-     * API for getting resource information to notify
-     * 
-     * @return resource information
-     */
-    public ArrayList<HashMap<String, Object>> getmResourcePresence() {
-        return mResourcePresence;
-    }
-
 }
\ No newline at end of file
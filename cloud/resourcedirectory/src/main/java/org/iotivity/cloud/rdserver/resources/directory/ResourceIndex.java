@@ -0,0 +1,374 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.rdserver.resources.directory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.iotivity.cloud.rdserver.Constants;
+import org.iotivity.cloud.rdserver.db.DBManager;
+import org.iotivity.cloud.util.Log;
+
+/**
+ *
+ * This class provides a set of APIs to look up published resources and device
+ * presence in memory. It is kept coherent with the RD and presence tables by
+ * the managers writing them, so discovery does not read the database.
+ *
+ */
+public class ResourceIndex {
+
+    // Created on the first getInstance call, without a lock on later calls
+    private static class InstanceHolder {
+        private static final ResourceIndex INSTANCE = new ResourceIndex();
+
+        static {
+            INSTANCE.load();
+        }
+    }
+
+    // di, links by ins. Resources of a device are added and removed while
+    // its entry is computed, so entries emptied meanwhile are dropped
+    ConcurrentHashMap<String, TreeMap<Integer, HashMap<String, Object>>> mDeviceIndex       = new ConcurrentHashMap<>();
+    // di, href, ins
+    ConcurrentHashMap<String, ConcurrentHashMap<String, Integer>>        mHrefIndex         = new ConcurrentHashMap<>();
+    // rt, di, ins list
+    ConcurrentHashMap<String, ConcurrentHashMap<String, Set<Integer>>>   mResourceTypeIndex = new ConcurrentHashMap<>();
+    // if, di, ins list
+    ConcurrentHashMap<String, ConcurrentHashMap<String, Set<Integer>>>   mInterfaceIndex    = new ConcurrentHashMap<>();
+    // di, presence state
+    private ConcurrentHashMap<String, String>                                    mPresenceIndex     = new ConcurrentHashMap<>();
+
+    // Empty index, records are loaded only for the shared instance
+    ResourceIndex() {
+    }
+
+    /**
+     * API to return ResourceIndex object. Records stored so far are loaded
+     * on the first call.
+     * 
+     * @return ResourceIndex object
+     */
+    public static ResourceIndex getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    private void load() {
+        HashMap<String, Object> condition = new HashMap<>();
+
+        for (HashMap<String, Object> record : DBManager.getInstance()
+                .selectRecord(Constants.RD_TABLE, condition)) {
+            putResource(record);
+        }
+
+        for (HashMap<String, Object> record : DBManager.getInstance()
+                .selectRecord(Constants.PRESENCE_TABLE, condition)) {
+            updatePresence(record);
+        }
+
+        Log.d("Resource index loaded, " + mDeviceIndex.size() + " devices");
+    }
+
+    /**
+     * API for adding or replacing a published resource
+     * 
+     * @param record
+     *            resource record as stored in the RD table
+     */
+    public void putResource(HashMap<String, Object> record) {
+        String di = record.get(Constants.DEVICE_ID).toString();
+        int ins = (int) record.get(Constants.INS);
+        HashMap<String, Object> resource = new HashMap<>(record);
+
+        mDeviceIndex.compute(di, (key, links) -> {
+            if (links == null) {
+                links = new TreeMap<>();
+            }
+
+            synchronized (links) {
+                HashMap<String, Object> oldResource = links.put(ins,
+                        resource);
+                if (oldResource != null) {
+                    removeFromIndexes(di, ins, oldResource);
+                }
+                Object href = resource.get(Constants.HREF);
+                if (href != null) {
+                    mHrefIndex
+                            .computeIfAbsent(di,
+                                    hrefKey -> new ConcurrentHashMap<>())
+                            .put(href.toString(), ins);
+                }
+                addToIndex(mResourceTypeIndex,
+                        resource.get(Constants.RESOURCE_TYPE), di, ins);
+                addToIndex(mInterfaceIndex,
+                        resource.get(Constants.INTERFACE), di, ins);
+                return links;
+            }
+        });
+    }
+
+    /**
+     * API for removing published resources of a device
+     * 
+     * @param di
+     *            device id
+     * @param insList
+     *            unique ids of resources, or null for every resource
+     */
+    public void removeResource(String di, List<Integer> insList) {
+        mDeviceIndex.computeIfPresent(di, (key, links) -> {
+            synchronized (links) {
+                Collection<Integer> removeList = insList != null ? insList
+                        : new ArrayList<>(links.keySet());
+                for (Integer ins : removeList) {
+                    HashMap<String, Object> oldResource = links.remove(ins);
+                    if (oldResource != null) {
+                        removeFromIndexes(di, ins, oldResource);
+                    }
+                }
+                return links.isEmpty() ? null : links;
+            }
+        });
+    }
+
+    /**
+     * API for checking if a resource is published
+     * 
+     * @param di
+     *            device id
+     * @param ins
+     *            unique id of resource
+     * @return true if published
+     */
+    public boolean containsResource(String di, int ins) {
+        TreeMap<Integer, HashMap<String, Object>> links = mDeviceIndex
+                .get(di);
+
+        if (links == null) {
+            return false;
+        }
+
+        synchronized (links) {
+            return links.containsKey(ins);
+        }
+    }
+
+    /**
+     * API for getting ins of a published resource
+     * 
+     * @param di
+     *            device id
+     * @param href
+     *            resource uri
+     * @return ins, or -1 if not published
+     */
+    public int getIns(String di, String href) {
+        ConcurrentHashMap<String, Integer> hrefs = mHrefIndex.get(di);
+        Integer ins = hrefs != null ? hrefs.get(href) : null;
+        return ins != null ? ins : -1;
+    }
+
+    /**
+     * API for getting the largest ins published by a device
+     * 
+     * @param di
+     *            device id
+     * @return largest ins, or 0 if none
+     */
+    public int getMaxIns(String di) {
+        TreeMap<Integer, HashMap<String, Object>> links = mDeviceIndex
+                .get(di);
+
+        if (links == null) {
+            return 0;
+        }
+
+        synchronized (links) {
+            return links.isEmpty() ? 0 : links.lastKey();
+        }
+    }
+
+    /**
+     * API for getting published resources of a device
+     * 
+     * @param di
+     *            device id
+     * @param rt
+     *            resource type the resources have, or null for any
+     * @param itf
+     *            interface the resources have, or null for any
+     * @return resource records ordered by ins
+     */
+    public ArrayList<HashMap<String, Object>> selectResource(String di,
+            String rt, String itf) {
+        ArrayList<HashMap<String, Object>> records = new ArrayList<>();
+
+        TreeMap<Integer, HashMap<String, Object>> links = mDeviceIndex
+                .get(di);
+
+        if (links == null) {
+            return records;
+        }
+
+        Set<Integer> rtInsList = rt != null
+                ? getIndexed(mResourceTypeIndex, rt, di) : null;
+        Set<Integer> ifInsList = itf != null
+                ? getIndexed(mInterfaceIndex, itf, di) : null;
+
+        if ((rt != null && rtInsList.isEmpty())
+                || (itf != null && ifInsList.isEmpty())) {
+            return records;
+        }
+
+        synchronized (links) {
+            for (Map.Entry<Integer, HashMap<String, Object>> link : links
+                    .entrySet()) {
+                if ((rtInsList == null || rtInsList.contains(link.getKey()))
+                        && (ifInsList == null
+                                || ifInsList.contains(link.getKey()))) {
+                    records.add(new HashMap<>(link.getValue()));
+                }
+            }
+        }
+
+        return records;
+    }
+
+    /**
+     * API for updating device presence
+     * 
+     * @param record
+     *            presence record as stored in the presence table
+     */
+    public void updatePresence(HashMap<String, Object> record) {
+        Object di = record.get(Constants.DEVICE_ID);
+        Object state = record.get(Constants.PRESENCE_STATE);
+
+        if (di == null) {
+            return;
+        }
+
+        if (state == null) {
+            mPresenceIndex.remove(di.toString());
+        } else {
+            mPresenceIndex.put(di.toString(), state.toString());
+        }
+    }
+
+    /**
+     * API for getting device presence
+     * 
+     * @param di
+     *            device id
+     * @return presence state, or null if not reported
+     */
+    public String getPresence(String di) {
+        return mPresenceIndex.get(di);
+    }
+
+    /**
+     * API for dropping every indexed record
+     */
+    public void clear() {
+        mDeviceIndex.clear();
+        mHrefIndex.clear();
+        mResourceTypeIndex.clear();
+        mInterfaceIndex.clear();
+        mPresenceIndex.clear();
+    }
+
+    private void removeFromIndexes(String di, int ins,
+            HashMap<String, Object> resource) {
+        Object href = resource.get(Constants.HREF);
+        if (href != null) {
+            mHrefIndex.computeIfPresent(di, (key, hrefs) -> {
+                hrefs.remove(href.toString(), ins);
+                return hrefs.isEmpty() ? null : hrefs;
+            });
+        }
+        removeFromIndex(mResourceTypeIndex,
+                resource.get(Constants.RESOURCE_TYPE), di, ins);
+        removeFromIndex(mInterfaceIndex, resource.get(Constants.INTERFACE),
+                di, ins);
+    }
+
+    private void addToIndex(
+            ConcurrentHashMap<String, ConcurrentHashMap<String, Set<Integer>>> index,
+            Object values, String di, int ins) {
+        for (String value : toValueList(values)) {
+            index.compute(value, (key, devices) -> {
+                if (devices == null) {
+                    devices = new ConcurrentHashMap<>();
+                }
+                devices.computeIfAbsent(di,
+                        diKey -> ConcurrentHashMap.newKeySet()).add(ins);
+                return devices;
+            });
+        }
+    }
+
+    private void removeFromIndex(
+            ConcurrentHashMap<String, ConcurrentHashMap<String, Set<Integer>>> index,
+            Object values, String di, int ins) {
+        for (String value : toValueList(values)) {
+            index.computeIfPresent(value, (key, devices) -> {
+                devices.computeIfPresent(di, (diKey, insList) -> {
+                    insList.remove(ins);
+                    return insList.isEmpty() ? null : insList;
+                });
+                return devices.isEmpty() ? null : devices;
+            });
+        }
+    }
+
+    private Set<Integer> getIndexed(
+            ConcurrentHashMap<String, ConcurrentHashMap<String, Set<Integer>>> index,
+            String value, String di) {
+        ConcurrentHashMap<String, Set<Integer>> devices = index.get(value);
+        Set<Integer> insList = devices != null ? devices.get(di) : null;
+        return insList != null ? insList : Collections.emptySet();
+    }
+
+    // rt and if are stored either as a value or as a list of values
+    private List<String> toValueList(Object values) {
+        if (values == null) {
+            return Collections.emptyList();
+        }
+
+        if (values instanceof Collection) {
+            List<String> valueList = new ArrayList<>();
+            for (Object value : (Collection<?>) values) {
+                valueList.add(value.toString());
+            }
+            return valueList;
+        }
+
+        return Collections.singletonList(values.toString());
+    }
+}
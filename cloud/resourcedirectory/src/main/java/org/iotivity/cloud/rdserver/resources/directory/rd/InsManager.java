@@ -21,11 +21,9 @@
  */
 package org.iotivity.cloud.rdserver.resources.directory.rd;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
-import org.iotivity.cloud.rdserver.Constants;
-import org.iotivity.cloud.rdserver.db.DBManager;
+import org.iotivity.cloud.rdserver.resources.directory.ResourceIndex;
 
 /**
  *
@@ -34,11 +32,12 @@ import org.iotivity.cloud.rdserver.db.DBManager;
  */
 public class InsManager {
 
-    private HashMap<String, Integer> mNextIns      = new HashMap<>();
-    private int                      mInitialValue = 1;
+    // di, last created ins
+    private ConcurrentHashMap<String, Integer> mLastIns      = new ConcurrentHashMap<>();
+    private int                                mInitialValue = 1;
 
     /**
-     * API for getting ins from DB
+     * API for getting ins of published resource
      * 
      * @param di
      *            device id
@@ -48,17 +47,7 @@ public class InsManager {
      */
     public int getIns(String di, String href) {
 
-        HashMap<String, Object> condition = new HashMap<>();
-        condition.put(Constants.DEVICE_ID, di);
-        condition.put(Constants.HREF, href);
-        ArrayList<HashMap<String, Object>> records = DBManager.getInstance()
-                .selectRecord(Constants.RD_TABLE, condition);
-
-        if (records.isEmpty()) {
-            return -1;
-        } else {
-            return (int) (records.get(0).get(Constants.INS));
-        }
+        return ResourceIndex.getInstance().getIns(di, href);
     }
 
     /**
@@ -69,16 +58,12 @@ public class InsManager {
      * @return created ins
      */
     public int createIns(String di) {
-        Object objectIns;
 
-        objectIns = mNextIns.get(di);
-        if (objectIns == null) {
-            mNextIns.put(di, mInitialValue + 1);
-            return mInitialValue;
-        } else {
-            int ins = (int) objectIns;
-            mNextIns.put(di, ins + 1);
-            return ins;
-        }
+        // Continues after ins published before a restart
+        return mLastIns.compute(di,
+                (key, lastIns) -> lastIns == null
+                        ? Math.max(mInitialValue,
+                                ResourceIndex.getInstance().getMaxIns(di) + 1)
+                        : lastIns + 1);
     }
 }
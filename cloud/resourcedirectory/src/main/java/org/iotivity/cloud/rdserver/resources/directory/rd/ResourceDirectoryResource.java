@@ -25,6 +25,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.iotivity.cloud.base.device.Device;
 import org.iotivity.cloud.base.exception.ServerException;
@@ -60,7 +61,7 @@ public class ResourceDirectoryResource extends Resource {
     public void onDefaultRequestReceived(Device srcDevice, IRequest request)
             throws ServerException {
 
-        IResponse response = null;
+        CompletableFuture<IResponse> response = null;
 
         switch (request.getMethod()) {
             case POST:
@@ -76,11 +77,8 @@ public class ResourceDirectoryResource extends Resource {
                         request.getMethod() + " request type is not supported");
         }
 
-        srcDevice.sendResponse(response);
-
-        PresenceManager.getInstance()
-                .notifyToObservers(mRdManager.getmResourcePresence());
-
+        // Answered from database callbacks, not blocking the caller
+        sendResponseAsync(srcDevice, request, response);
     }
 
     private void checkLinksProperty(HashMap<String, Object> payload) {
@@ -98,7 +96,7 @@ public class ResourceDirectoryResource extends Resource {
         }
     }
 
-    private IResponse handlePostRequest(IRequest request)
+    private CompletableFuture<IResponse> handlePostRequest(IRequest request)
             throws ServerException {
 
         HashMap<String, Object> payload = mCbor
@@ -112,17 +110,21 @@ public class ResourceDirectoryResource extends Resource {
         // check mandatory property
         checkLinksProperty(payload);
 
-        HashMap<String, Object> response = mRdManager.publishResource(payload);
-
-        Log.d("publish response : " + response);
+        return mRdManager.publishResource(payload)
+                .thenApply(resourcePresence -> {
+                    Log.d("publish response : " + payload);
 
-        return MessageBuilder.createResponse(request, ResponseStatus.CHANGED,
-                ContentFormat.APPLICATION_CBOR,
-                mCbor.encodingPayloadToCbor(response));
+                    PresenceManager.getInstance()
+                            .notifyToObservers(resourcePresence);
 
+                    return MessageBuilder.createResponse(request,
+                            ResponseStatus.CHANGED,
+                            ContentFormat.APPLICATION_CBOR,
+                            mCbor.encodingPayloadToCbor(payload));
+                });
     }
 
-    private IResponse handleDeleteRequest(IRequest request)
+    private CompletableFuture<IResponse> handleDeleteRequest(IRequest request)
             throws ServerException {
 
         HashMap<String, List<String>> queryMap = request.getUriQueryMap();
@@ -132,12 +134,20 @@ public class ResourceDirectoryResource extends Resource {
         List<String> diList = queryMap.get(Constants.DEVICE_ID);
         List<String> insList = queryMap.get(Constants.INS);
 
-        mRdManager.deleteResource(diList.get(0), insList);
+        return mRdManager.deleteResource(diList.get(0), insList)
+                .thenApply(resourcePresence -> {
+                    PresenceManager.getInstance()
+                            .notifyToObservers(resourcePresence);
 
-        IResponse response = MessageBuilder.createResponse(request,
-                ResponseStatus.DELETED);
+                    // every resource of the device is deleted
+                    if (insList == null) {
+                        PresenceManager.getInstance()
+                                .removeDevice(diList.get(0));
+                    }
 
-        return response;
+                    return MessageBuilder.createResponse(request,
+                            ResponseStatus.DELETED);
+                });
     }
 
 }
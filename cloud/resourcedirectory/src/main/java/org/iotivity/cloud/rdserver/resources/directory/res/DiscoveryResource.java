@@ -50,6 +50,7 @@ public class DiscoveryResource extends Resource {
 
     public DiscoveryResource() {
         super(Arrays.asList(Constants.PREFIX_OIC, Constants.WELL_KNOWN_URI));
+        setBlocking(true);
     }
 
     @Override
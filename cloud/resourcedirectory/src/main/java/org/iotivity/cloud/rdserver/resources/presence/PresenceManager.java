@@ -26,6 +26,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import org.iotivity.cloud.base.device.Device;
 import org.iotivity.cloud.base.exception.ServerException.InternalServerErrorException;
@@ -35,6 +38,7 @@ import org.iotivity.cloud.base.protocols.enums.ContentFormat;
 import org.iotivity.cloud.base.protocols.enums.ResponseStatus;
 import org.iotivity.cloud.rdserver.Constants;
 import org.iotivity.cloud.rdserver.db.DBManager;
+import org.iotivity.cloud.rdserver.resources.directory.ResourceIndex;
 import org.iotivity.cloud.util.Cbor;
 import org.iotivity.cloud.util.Log;
 
@@ -43,15 +47,34 @@ import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
 
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
 /**
  * 
  * This class provides a set of APIs handle requests about presence
  *
  */
 public class PresenceManager {
-    private static PresenceManager        mPresenceManager = new PresenceManager();
-
-    private Cbor<HashMap<String, Object>> mCbor            = new Cbor<>();
+    // Time in milliseconds within which presence changes of a device are sent
+    // as one notification
+    public static final long                           DEFAULT_COALESCING_WINDOW = 100;
+
+    private static PresenceManager                     mPresenceManager          = new PresenceManager();
+
+    private Cbor<HashMap<String, Object>>              mCbor                     = new Cbor<>();
+    private CBORFactory                                mCborFactory              = new CBORFactory();
+
+    // Its thread starts with the first coalesced notification
+    private HashedWheelTimer                           mTimer                    = new HashedWheelTimer(
+            new DefaultThreadFactory("presence-notifier", true), 10,
+            TimeUnit.MILLISECONDS);
+    private volatile long                              mCoalescingWindow         = DEFAULT_COALESCING_WINDOW;
+    // di of devices whose notification waits for the window to close
+    private Set<String>                                mPendingDevices           = ConcurrentHashMap
+            .newKeySet();
+    // di, device presence payload last encoded, kept while subscribed
+    private ConcurrentHashMap<String, EncodedPresence> mPayloadCache             = new ConcurrentHashMap<>();
 
     private static class PresenceSubscriber {
         PresenceSubscriber(Device subscriber, IRequest request) {
@@ -66,16 +89,26 @@ public class PresenceManager {
     private static class PresenceInfo {
 
         PresenceInfo() {
-            mSubscriber = new HashMap<>();
-            mSubscribedDevices = new HashMap<>();
-            mSequenceNumber = new HashMap<>();
+            mSubscriber = new ConcurrentHashMap<>();
+            mSubscribedDevices = new ConcurrentHashMap<>();
+            mSequenceNumber = new ConcurrentHashMap<>();
         }
 
         // di , token, Subscriber list
-        private HashMap<String, HashMap<String, PresenceSubscriber>> mSubscriber;
+        private ConcurrentHashMap<String, ConcurrentHashMap<String, PresenceSubscriber>> mSubscriber;
         // token, di list
-        private HashMap<String, List<String>>                        mSubscribedDevices;
-        private HashMap<String, Long>                                mSequenceNumber;
+        private ConcurrentHashMap<String, List<String>>                                  mSubscribedDevices;
+        private ConcurrentHashMap<String, Long>                                          mSequenceNumber;
+    }
+
+    private static class EncodedPresence {
+        EncodedPresence(String state, byte[] payload) {
+            mState = state;
+            mPayload = payload;
+        }
+
+        public String mState;
+        public byte[] mPayload;
     }
 
     private PresenceInfo mDevicePresence   = null;
@@ -95,6 +128,17 @@ public class PresenceManager {
         return mPresenceManager;
     }
 
+    /**
+     * API to set the time within which presence changes of a device are
+     * folded into one notification
+     * 
+     * @param coalescingWindow
+     *            time in milliseconds, 0 to notify every change at once
+     */
+    public void setCoalescingWindow(long coalescingWindow) {
+        mCoalescingWindow = Math.max(coalescingWindow, 0);
+    }
+
     /**
      * API to add observer
      * 
@@ -113,16 +157,11 @@ public class PresenceManager {
         PresenceInfo presenceInfo = getPresenceInfo(presenceType);
 
         for (String deviceId : deviceIdList) {
-            HashMap<String, PresenceSubscriber> subscribers = presenceInfo.mSubscriber
-                    .get(deviceId);
-
-            if (subscribers == null) {
-                subscribers = new HashMap<>();
-                presenceInfo.mSubscriber.put(deviceId, subscribers);
-            }
-
-            subscribers.put(request.getRequestId(),
-                    new PresenceSubscriber(srcDevice, request));
+            presenceInfo.mSubscriber
+                    .computeIfAbsent(deviceId,
+                            key -> new ConcurrentHashMap<>())
+                    .put(request.getRequestId(),
+                            new PresenceSubscriber(srcDevice, request));
         }
 
         presenceInfo.mSubscribedDevices.put(request.getRequestId(),
@@ -146,7 +185,7 @@ public class PresenceManager {
         PresenceInfo presenceInfo = getPresenceInfo(presenceType);
 
         for (String deviceId : deviceIdList) {
-            HashMap<String, PresenceSubscriber> subscribers = presenceInfo.mSubscriber
+            ConcurrentHashMap<String, PresenceSubscriber> subscribers = presenceInfo.mSubscriber
                     .get(deviceId);
 
             if (subscribers == null) {
@@ -154,18 +193,58 @@ public class PresenceManager {
             }
 
             subscribers.remove(request.getRequestId());
+
+            if (presenceInfo == mDevicePresence && subscribers.isEmpty()) {
+                mPayloadCache.remove(deviceId);
+            }
         }
     }
 
     /**
-     * API for notifying to observers about device presence
+     * API to forget presence payload encoded for device deleted from resource
+     * directory
+     * 
+     * @param deviceId
+     *            device id
+     */
+    public void removeDevice(String deviceId) {
+        mPayloadCache.remove(deviceId);
+    }
+
+    /**
+     * API for notifying to observers about device presence. changes of the
+     * device within the coalescing window are sent as one notification of
+     * the state at its end.
      * 
      * @param deviceId
      *            device id
      */
     public void notifyToObservers(String deviceId) {
 
-        HashMap<String, PresenceSubscriber> tokenNSubscribers = mDevicePresence.mSubscriber
+        // Subscribing later is answered with the state at that time
+        if (!hasSubscriber(mDevicePresence, deviceId)) {
+            return;
+        }
+
+        long coalescingWindow = mCoalescingWindow;
+
+        if (coalescingWindow == 0) {
+            sendDevicePresence(deviceId);
+            return;
+        }
+
+        if (mPendingDevices.add(deviceId)) {
+            mTimer.newTimeout(timeout -> {
+                // Changes from now on need another notification
+                mPendingDevices.remove(deviceId);
+                sendDevicePresence(deviceId);
+            }, coalescingWindow, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void sendDevicePresence(String deviceId) {
+
+        ConcurrentHashMap<String, PresenceSubscriber> tokenNSubscribers = mDevicePresence.mSubscriber
                 .get(deviceId);
 
         if (tokenNSubscribers != null) {
@@ -181,6 +260,15 @@ public class PresenceManager {
         }
     }
 
+    private boolean hasSubscriber(PresenceInfo presenceInfo,
+            String deviceId) {
+
+        ConcurrentHashMap<String, PresenceSubscriber> tokenNSubscribers = presenceInfo.mSubscriber
+                .get(deviceId);
+
+        return tokenNSubscribers != null && !tokenNSubscribers.isEmpty();
+    }
+
     /**
      * API to make response payload about device presence
      * 
@@ -190,47 +278,69 @@ public class PresenceManager {
      */
     public byte[] makeResponsePayload(List<String> deviceList) {
 
-        HashMap<String, Object> getPayload = new HashMap<>();
+        if (deviceList.size() == 1) {
+            return getDevicePayload(deviceList.get(0));
+        }
+
         ArrayList<HashMap<String, Object>> prsList = new ArrayList<>();
 
         for (String deviceId : deviceList) {
-            HashMap<String, Object> payloadSegment = new HashMap<>();
+            prsList.add(makePayloadSegment(deviceId, getDeviceState(deviceId)));
+        }
 
-            String deviceState = getDeviceState(deviceId);
+        return encodePresenceList(prsList);
+    }
 
-            payloadSegment.put(Constants.DEVICE_ID, deviceId);
+    // Encoded once per state of the device, shared by subscribers and gets.
+    // Devices no one subscribes are encoded for each get instead
+    private byte[] getDevicePayload(String deviceId) {
 
-            if (deviceState != null) {
-                payloadSegment.put(Constants.PRESENCE_STATE, deviceState);
-            } else {
-                payloadSegment.put(Constants.PRESENCE_STATE,
-                        Constants.PRESENCE_OFF);
-            }
-            prsList.add(payloadSegment);
+        String deviceState = getDeviceState(deviceId);
+
+        EncodedPresence encoded = mPayloadCache.get(deviceId);
+
+        if (encoded != null && encoded.mState.equals(deviceState)) {
+            return encoded.mPayload;
         }
-        getPayload.put(Constants.PRESENCE_LIST, prsList);
-        Log.i("Device presence observe response : " + getPayload.toString());
 
-        return mCbor.encodingPayloadToCbor(getPayload);
+        byte[] payload = encodePresenceList(
+                Arrays.asList(makePayloadSegment(deviceId, deviceState)));
 
+        if (hasSubscriber(mDevicePresence, deviceId)) {
+            mPayloadCache.put(deviceId,
+                    new EncodedPresence(deviceState, payload));
+        }
+
+        return payload;
     }
 
-    private String getDeviceState(String deviceId) {
+    private HashMap<String, Object> makePayloadSegment(String deviceId,
+            String deviceState) {
 
-        HashMap<String, Object> condition = new HashMap<>();
-        condition.put(Constants.DEVICE_ID, deviceId);
+        HashMap<String, Object> payloadSegment = new HashMap<>();
 
-        String state = null;
+        payloadSegment.put(Constants.DEVICE_ID, deviceId);
+        payloadSegment.put(Constants.PRESENCE_STATE, deviceState);
 
-        ArrayList<HashMap<String, Object>> readRecords = DBManager.getInstance()
-                .selectRecord(Constants.PRESENCE_TABLE, condition);
+        return payloadSegment;
+    }
 
-        if (!readRecords.isEmpty()
-                && readRecords.get(0).get(Constants.PRESENCE_STATE) != null) {
-            state = readRecords.get(0).get(Constants.PRESENCE_STATE).toString();
-        }
+    private byte[] encodePresenceList(
+            List<HashMap<String, Object>> prsList) {
+
+        HashMap<String, Object> getPayload = new HashMap<>();
+        getPayload.put(Constants.PRESENCE_LIST, prsList);
+        Log.i("Device presence observe response : " + getPayload.toString());
+
+        return mCbor.encodingPayloadToCbor(getPayload);
+    }
+
+    // Read from the resource index, which holds the presence table
+    private String getDeviceState(String deviceId) {
 
-        return state;
+        String state = ResourceIndex.getInstance().getPresence(deviceId);
+
+        return state != null ? state : Constants.PRESENCE_OFF;
     }
 
     private PresenceInfo getPresenceInfo(String presenceType) {
@@ -269,37 +379,65 @@ public class PresenceManager {
 
         String deviceId = obj.toString();
 
-        HashMap<String, PresenceSubscriber> tokenNSubscribers = mResourcePresence.mSubscriber
+        ConcurrentHashMap<String, PresenceSubscriber> tokenNSubscribers = mResourcePresence.mSubscriber
                 .get(deviceId);
 
-        if (tokenNSubscribers != null) {
+        if (tokenNSubscribers != null && !tokenNSubscribers.isEmpty()) {
+
+            // Only the sequence number differs between subscribers
+            ArrayList<byte[]> resourcePayloads = new ArrayList<>();
+            for (HashMap<String, Object> resource : resourceInfo) {
+                resourcePayloads.add(makeResourcePayload(resource));
+            }
 
             for (PresenceSubscriber subscriber : tokenNSubscribers.values()) {
 
-                for (HashMap<String, Object> resource : resourceInfo) {
+                for (byte[] resourcePayload : resourcePayloads) {
                     subscriber.mSubscriber.sendResponse(
                             MessageBuilder.createResponse(subscriber.mRequest,
                                     ResponseStatus.CONTENT,
                                     ContentFormat.APPLICATION_CBOR,
                                     makeResponsePayload(
                                             subscriber.mRequest.getRequestId(),
-                                            resource)));
+                                            resourcePayload)));
                 }
             }
         }
     }
 
+    // Prepends the sequence number of the subscriber to the encoded resource.
+    // Both are indefinite length maps, so the start of the resource map is
+    // dropped and its fields and end follow the sequence number.
     private byte[] makeResponsePayload(String requestId,
-            HashMap<String, Object> resource) {
+            byte[] resourcePayload) {
 
         ByteArrayOutputStream out = new ByteArrayOutputStream();
-        CBORFactory f = new CBORFactory();
         try {
-            JsonGenerator gen = f.createGenerator(out, JsonEncoding.UTF8);
+            JsonGenerator gen = mCborFactory.createGenerator(out,
+                    JsonEncoding.UTF8);
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
             gen.writeStartObject();
-            long sequenceId = mResourcePresence.mSequenceNumber.get(requestId);
+            long sequenceId = mResourcePresence.mSequenceNumber
+                    .merge(requestId, (long) 1, Long::sum) - 1;
             gen.writeNumberField(Constants.NON, sequenceId);
-            mResourcePresence.mSequenceNumber.put(requestId, sequenceId + 1);
+            gen.close();
+        } catch (Exception e) {
+            throw new InternalServerErrorException(
+                    "notification payload cbor encoding error");
+        }
+
+        out.write(resourcePayload, 1, resourcePayload.length - 1);
+
+        return out.toByteArray();
+    }
+
+    private byte[] makeResourcePayload(HashMap<String, Object> resource) {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            JsonGenerator gen = mCborFactory.createGenerator(out,
+                    JsonEncoding.UTF8);
+            gen.writeStartObject();
             gen.writeNumberField(Constants.RESOURCE_TTL, Long.parseLong(
                     checkPayload(resource, Constants.RESOURCE_TTL).toString()));
 
@@ -344,5 +482,6 @@ public class PresenceManager {
     public void updateDevicePresence(HashMap<String, Object> payload) {
         DBManager.getInstance().insertAndReplaceRecord(Constants.PRESENCE_TABLE,
                 payload);
+        ResourceIndex.getInstance().updatePresence(payload);
     }
 }
@@ -50,6 +50,7 @@ public class DevicePresenceResource extends Resource {
     public DevicePresenceResource() {
         super(Arrays.asList(Constants.PREFIX_OIC,
                 Constants.DEVICE_PRESENCE_URI));
+        setBlocking(true);
 
     }
 
@@ -45,6 +45,7 @@ public class ResPresenceResource extends Resource {
 
     public ResPresenceResource() {
         super(Arrays.asList(Constants.PREFIX_OIC, Constants.RES_PRESENCE_URI));
+        setBlocking(true);
     }
 
     @Override
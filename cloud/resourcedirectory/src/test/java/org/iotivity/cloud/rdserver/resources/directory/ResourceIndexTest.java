@@ -0,0 +1,170 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.rdserver.resources.directory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.iotivity.cloud.rdserver.Constants;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResourceIndexTest {
+    private ResourceIndex mResourceIndex = null;
+
+    @Before
+    public void setUp() throws Exception {
+        // filled by the test only, no database is read
+        mResourceIndex = new ResourceIndex();
+    }
+
+    @Test
+    public void testPutResource() throws Exception {
+        mResourceIndex.putResource(
+                makeRecord("di1", 1, "/a/light", "core.light", "oic.if.a"));
+        mResourceIndex.putResource(
+                makeRecord("di1", 3, "/a/fan", "core.fan", "oic.if.a"));
+
+        assertTrue(mResourceIndex.containsResource("di1", 1));
+        assertFalse(mResourceIndex.containsResource("di2", 1));
+        assertEquals(3, mResourceIndex.getIns("di1", "/a/fan"));
+        assertEquals(-1, mResourceIndex.getIns("di1", "/a/door"));
+        assertEquals(3, mResourceIndex.getMaxIns("di1"));
+        assertEquals(0, mResourceIndex.getMaxIns("di2"));
+
+        ArrayList<HashMap<String, Object>> records = mResourceIndex
+                .selectResource("di1", null, null);
+
+        // ordered by ins
+        assertEquals(2, records.size());
+        assertEquals("/a/light", records.get(0).get(Constants.HREF));
+        assertEquals("/a/fan", records.get(1).get(Constants.HREF));
+    }
+
+    @Test
+    public void testPutResource_replaced() throws Exception {
+        mResourceIndex.putResource(
+                makeRecord("di1", 1, "/a/light", "core.light", "oic.if.a"));
+        mResourceIndex.putResource(
+                makeRecord("di1", 1, "/a/lamp", "core.lamp", "oic.if.a"));
+
+        assertEquals(-1, mResourceIndex.getIns("di1", "/a/light"));
+        assertEquals(1, mResourceIndex.getIns("di1", "/a/lamp"));
+        assertTrue(mResourceIndex.selectResource("di1", "core.light", null)
+                .isEmpty());
+        assertEquals(1, mResourceIndex.selectResource("di1", "core.lamp", null)
+                .size());
+        assertFalse(
+                mResourceIndex.mResourceTypeIndex.containsKey("core.light"));
+    }
+
+    @Test
+    public void testSelectResource_byTypeAndInterface() throws Exception {
+        mResourceIndex.putResource(
+                makeRecord("di1", 1, "/a/light", "core.light", "oic.if.a"));
+        mResourceIndex.putResource(
+                makeRecord("di1", 2, "/a/fan", "core.fan", "oic.if.a"));
+        mResourceIndex.putResource(
+                makeRecord("di1", 3, "/a/led", "core.light", "oic.if.s"));
+        mResourceIndex.putResource(
+                makeRecord("di2", 1, "/a/light", "core.light", "oic.if.a"));
+
+        ArrayList<HashMap<String, Object>> records = mResourceIndex
+                .selectResource("di1", "core.light", null);
+
+        assertEquals(2, records.size());
+        assertEquals(1, records.get(0).get(Constants.INS));
+        assertEquals(3, records.get(1).get(Constants.INS));
+
+        records = mResourceIndex.selectResource("di1", "core.light",
+                "oic.if.s");
+
+        assertEquals(1, records.size());
+        assertEquals("/a/led", records.get(0).get(Constants.HREF));
+
+        assertEquals(2, mResourceIndex.selectResource("di1", null, "oic.if.a")
+                .size());
+        assertTrue(mResourceIndex.selectResource("di1", "core.door", null)
+                .isEmpty());
+        assertTrue(mResourceIndex.selectResource("di3", null, null).isEmpty());
+    }
+
+    @Test
+    public void testRemoveResource() throws Exception {
+        mResourceIndex.putResource(
+                makeRecord("di1", 1, "/a/light", "core.light", "oic.if.a"));
+        mResourceIndex.putResource(
+                makeRecord("di1", 2, "/a/fan", "core.fan", "oic.if.a"));
+
+        mResourceIndex.removeResource("di1", Arrays.asList(1));
+
+        assertFalse(mResourceIndex.containsResource("di1", 1));
+        assertEquals(-1, mResourceIndex.getIns("di1", "/a/light"));
+        assertTrue(mResourceIndex.selectResource("di1", "core.light", null)
+                .isEmpty());
+        assertEquals(1, mResourceIndex.selectResource("di1", null, "oic.if.a")
+                .size());
+
+        // every resource of the device
+        mResourceIndex.removeResource("di1", null);
+
+        assertTrue(mResourceIndex.selectResource("di1", null, null).isEmpty());
+        assertEquals(0, mResourceIndex.getMaxIns("di1"));
+
+        // nothing left behind for the device
+        assertTrue(mResourceIndex.mDeviceIndex.isEmpty());
+        assertTrue(mResourceIndex.mHrefIndex.isEmpty());
+        assertTrue(mResourceIndex.mResourceTypeIndex.isEmpty());
+        assertTrue(mResourceIndex.mInterfaceIndex.isEmpty());
+    }
+
+    @Test
+    public void testUpdatePresence() throws Exception {
+        HashMap<String, Object> record = new HashMap<>();
+        record.put(Constants.DEVICE_ID, "di1");
+        record.put(Constants.PRESENCE_STATE, Constants.PRESENCE_ON);
+
+        mResourceIndex.updatePresence(record);
+        assertEquals(Constants.PRESENCE_ON, mResourceIndex.getPresence("di1"));
+
+        record.remove(Constants.PRESENCE_STATE);
+        mResourceIndex.updatePresence(record);
+        assertNull(mResourceIndex.getPresence("di1"));
+    }
+
+    private HashMap<String, Object> makeRecord(String di, int ins,
+            String href, String rt, String itf) {
+        HashMap<String, Object> record = new HashMap<>();
+        record.put(Constants.DEVICE_ID, di);
+        record.put(Constants.INS, ins);
+        record.put(Constants.HREF, href);
+        record.put(Constants.RESOURCE_TYPE, Arrays.asList(rt));
+        record.put(Constants.INTERFACE, Arrays.asList(itf));
+        return record;
+    }
+}
@@ -22,12 +22,15 @@
 package org.iotivity.cloud.testrdserver;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.iotivity.cloud.base.device.CoapDevice;
 import org.iotivity.cloud.base.protocols.IRequest;
@@ -40,6 +43,7 @@ import org.iotivity.cloud.base.protocols.enums.Observe;
 import org.iotivity.cloud.base.protocols.enums.RequestMethod;
 import org.iotivity.cloud.base.protocols.enums.ResponseStatus;
 import org.iotivity.cloud.rdserver.Constants;
+import org.iotivity.cloud.rdserver.resources.presence.PresenceManager;
 import org.iotivity.cloud.rdserver.resources.presence.device.DevicePresenceResource;
 import org.iotivity.cloud.util.Cbor;
 import org.junit.After;
@@ -221,6 +225,56 @@ public class DevicePresenceResourceTest {
         assertTrue(checkResponseCode(mResponse, ResponseStatus.CHANGED));
     }
 
+    @Test
+    public void testSubscribeRequest_coalescedNotification()
+            throws Exception {
+        System.out.println("\t------testSubscribeRequest_coalescedNotification");
+        CoapDevice observerDevice = mock(CoapDevice.class);
+        CountDownLatch observerLatch = new CountDownLatch(2);
+        AtomicInteger responseCount = new AtomicInteger();
+        AtomicReference<CoapResponse> lastResponse = new AtomicReference<>();
+        // callback mock for observer Device, sent on the timer thread
+        Mockito.doAnswer(new Answer<Object>() {
+            @Override
+            public CoapResponse answer(InvocationOnMock invocation)
+                    throws Throwable {
+                CoapResponse response = (CoapResponse) invocation
+                        .getArguments()[0];
+                responseCount.incrementAndGet();
+                lastResponse.set(response);
+                observerLatch.countDown();
+
+                return null;
+            }
+
+        }).when(observerDevice).sendResponse(Mockito.anyObject());
+        IRequest subRequest = makePresenceGetRequest(Observe.SUBSCRIBE);
+        mMockDevicePresenceResource.onDefaultRequestReceived(observerDevice,
+                subRequest);
+        // POST device presence on, off and on within the window
+        mLatch = new CountDownLatch(3);
+        for (String state : new String[] { Constants.PRESENCE_ON,
+                Constants.PRESENCE_OFF, Constants.PRESENCE_ON }) {
+            HashMap<String, Object> payload = new HashMap<>();
+            payload.put(Constants.DEVICE_ID, RDServerTestUtils.DI);
+            payload.put(Constants.PRESENCE_STATE, state);
+            IRequest request = MessageBuilder.createRequest(
+                    RequestMethod.POST, RDServerTestUtils.DEVICE_PRS_REQ_URI,
+                    null, ContentFormat.APPLICATION_CBOR,
+                    mCbor.encodingPayloadToCbor(payload));
+            mMockDevicePresenceResource.onDefaultRequestReceived(mMockDevice,
+                    request);
+        }
+        assertTrue(mLatch.await(2L, SECONDS));
+        // assertion: subscribe response and one notification
+        assertTrue(observerLatch.await(2L, SECONDS));
+        // assertion for observer device (state after the flaps)
+        assertTrue(checkPayloadProperty(lastResponse.get(),
+                Constants.PRESENCE_STATE, Constants.PRESENCE_ON));
+        Thread.sleep(PresenceManager.DEFAULT_COALESCING_WINDOW * 3);
+        assertEquals(2, responseCount.get());
+    }
+
     private boolean checkPayloadProperty(IResponse response,
             String propertyName, String propertyValue) {
         HashMap<String, Object> payloadData = mCbor
@@ -37,9 +37,9 @@ import org.iotivity.cloud.base.protocols.coap.CoapResponse;
 import org.iotivity.cloud.base.protocols.enums.RequestMethod;
 import org.iotivity.cloud.base.protocols.enums.ResponseStatus;
 import org.iotivity.cloud.rdserver.Constants;
-import org.iotivity.cloud.rdserver.db.DBManager;
 import org.iotivity.cloud.rdserver.resources.directory.rd.ResourceDirectoryResource;
 import org.iotivity.cloud.rdserver.resources.directory.res.DiscoveryResource;
+import org.iotivity.cloud.rdserver.resources.presence.PresenceManager;
 import org.iotivity.cloud.util.Cbor;
 import org.junit.After;
 import org.junit.Before;
@@ -98,14 +98,16 @@ public class DiscoveryResourceTest {
         HashMap<String, Object> presenceinfo = new HashMap<>();
         presenceinfo.put(Constants.DEVICE_ID, RDServerTestUtils.DI);
         presenceinfo.put(Constants.PRESENCE_STATE, Constants.PRESENCE_ON);
-        DBManager.getInstance().insertRecord(Constants.PRESENCE_TABLE,
-                presenceinfo);
+        PresenceManager.getInstance().updateDevicePresence(presenceinfo);
 
         IRequest request = MessageBuilder.createRequest(RequestMethod.GET,
                 RDServerTestUtils.DISCOVERY_REQ_URI,
                 "rt=core.light;di=" + RDServerTestUtils.DI);
         mRDResource.onDefaultRequestReceived(mockDevice,
                 RDServerTestUtils.makePublishRequest());
+        // discover after the publish is stored
+        assertTrue(mLatch.await(2L, SECONDS));
+        mLatch = new CountDownLatch(1);
         mDiscoveryResource.onDefaultRequestReceived(mockDevice, request);
         // assertion: if the response status is "CONTENT"
         // assertion : if the payload contains resource info
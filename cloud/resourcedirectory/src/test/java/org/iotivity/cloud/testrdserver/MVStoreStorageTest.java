@@ -0,0 +1,188 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.testrdserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.iotivity.cloud.rdserver.Constants;
+import org.iotivity.cloud.rdserver.db.MVStoreStorage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MVStoreStorageTest {
+    private File           mStoreFile = null;
+    private MVStoreStorage mStorage   = null;
+
+    @Before
+    public void setUp() throws Exception {
+        mStoreFile = File.createTempFile("rdstore", ".mv.db");
+        mStoreFile.delete();
+        mStorage = openStorage();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mStorage.close();
+        mStoreFile.delete();
+    }
+
+    @Test
+    public void testSelectRecord_byKey() throws Exception {
+        mStorage.insertAndReplaceRecords(Constants.RD_TABLE,
+                Arrays.asList(makeRecord("di1", 1, "/a/light", "core.light"),
+                        makeRecord("di1", 2, "/a/fan", "core.fan"),
+                        makeRecord("di2", 1, "/a/light", "core.light")));
+
+        HashMap<String, Object> condition = new HashMap<>();
+        condition.put(Constants.DEVICE_ID, "di1");
+        condition.put(Constants.INS, 2);
+
+        ArrayList<HashMap<String, Object>> records = mStorage
+                .selectRecord(Constants.RD_TABLE, condition);
+
+        assertEquals(1, records.size());
+        assertEquals("/a/fan", records.get(0).get(Constants.HREF));
+    }
+
+    @Test
+    public void testSelectRecord_byDeviceAndListElement() throws Exception {
+        mStorage.insertAndReplaceRecords(Constants.RD_TABLE,
+                Arrays.asList(makeRecord("di1", 1, "/a/light", "core.light"),
+                        makeRecord("di1", 2, "/a/fan", "core.fan"),
+                        makeRecord("di10", 1, "/a/light", "core.light")));
+
+        HashMap<String, Object> condition = new HashMap<>();
+        condition.put(Constants.DEVICE_ID, "di1");
+        condition.put(Constants.RESOURCE_TYPE, "core.light");
+
+        ArrayList<HashMap<String, Object>> records = mStorage
+                .selectRecord(Constants.RD_TABLE, condition);
+
+        assertEquals(1, records.size());
+        assertEquals(1, records.get(0).get(Constants.INS));
+
+        condition.remove(Constants.DEVICE_ID);
+        assertEquals(2, mStorage.selectRecord(Constants.RD_TABLE, condition)
+                .size());
+    }
+
+    @Test
+    public void testInsertRecord_duplicated() throws Exception {
+        assertTrue(mStorage.insertRecord(Constants.RD_TABLE,
+                makeRecord("di1", 1, "/a/light", "core.light")));
+        assertFalse(mStorage.insertRecord(Constants.RD_TABLE,
+                makeRecord("di1", 1, "/a/fan", "core.fan")));
+    }
+
+    @Test
+    public void testUpdateRecord_notExist() throws Exception {
+        assertFalse(mStorage.updateRecord(Constants.RD_TABLE,
+                makeRecord("di1", 1, "/a/light", "core.light")));
+    }
+
+    @Test
+    public void testDeleteRecord_byDevice() throws Exception {
+        mStorage.insertAndReplaceRecords(Constants.RD_TABLE,
+                Arrays.asList(makeRecord("di1", 1, "/a/light", "core.light"),
+                        makeRecord("di1", 2, "/a/fan", "core.fan"),
+                        makeRecord("di2", 1, "/a/light", "core.light")));
+
+        HashMap<String, Object> condition = new HashMap<>();
+        condition.put(Constants.DEVICE_ID, "di1");
+
+        assertTrue(mStorage.deleteRecord(Constants.RD_TABLE, condition));
+        assertTrue(mStorage.selectRecord(Constants.RD_TABLE, condition)
+                .isEmpty());
+        assertEquals(1, mStorage
+                .selectRecord(Constants.RD_TABLE, new HashMap<>()).size());
+    }
+
+    @Test
+    public void testDeleteRecords_byDeviceAndIns() throws Exception {
+        mStorage.insertAndReplaceRecords(Constants.RD_TABLE,
+                Arrays.asList(makeRecord("di1", 1, "/a/light", "core.light"),
+                        makeRecord("di1", 2, "/a/fan", "core.fan"),
+                        makeRecord("di1", 3, "/a/door", "core.door"),
+                        makeRecord("di2", 1, "/a/light", "core.light")));
+
+        HashMap<String, Object> condition = new HashMap<>();
+        condition.put(Constants.DEVICE_ID, "di1");
+
+        assertTrue(mStorage.deleteRecords(Constants.RD_TABLE, condition,
+                Constants.INS, Arrays.asList(1, 3)));
+
+        ArrayList<HashMap<String, Object>> records = mStorage
+                .selectRecord(Constants.RD_TABLE, condition);
+
+        assertEquals(1, records.size());
+        assertEquals("/a/fan", records.get(0).get(Constants.HREF));
+        assertEquals(2, mStorage
+                .selectRecord(Constants.RD_TABLE, new HashMap<>()).size());
+    }
+
+    @Test
+    public void testRecordsKeptAcrossRestart() throws Exception {
+        mStorage.insertAndReplaceRecords(Constants.RD_TABLE,
+                Arrays.asList(makeRecord("di1", 1, "/a/light", "core.light")));
+
+        mStorage.close();
+        mStorage = openStorage();
+
+        ArrayList<HashMap<String, Object>> records = mStorage
+                .selectRecord(Constants.RD_TABLE, new HashMap<>());
+
+        assertEquals(1, records.size());
+        assertEquals("/a/light", records.get(0).get(Constants.HREF));
+        assertEquals(Arrays.asList("core.light"),
+                records.get(0).get(Constants.RESOURCE_TYPE));
+    }
+
+    private MVStoreStorage openStorage() {
+        MVStoreStorage storage = new MVStoreStorage(
+                mStoreFile.getAbsolutePath());
+
+        ArrayList<String> keys = new ArrayList<>();
+        keys.add(Constants.DEVICE_ID);
+        keys.add(Constants.INS);
+        storage.createTable(Constants.RD_TABLE, keys);
+
+        return storage;
+    }
+
+    private HashMap<String, Object> makeRecord(String di, int ins,
+            String href, String rt) {
+        HashMap<String, Object> record = new HashMap<>();
+        record.put(Constants.DEVICE_ID, di);
+        record.put(Constants.INS, ins);
+        record.put(Constants.HREF, href);
+        record.put(Constants.RESOURCE_TYPE, Arrays.asList(rt));
+        return record;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.testrdserver;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.iotivity.cloud.rdserver.Constants;
+import org.iotivity.cloud.rdserver.db.MongoDB;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ *
+ * This class measures write latency of a table against its size. Writes must
+ * not get slower as the table grows. It needs a MongoDB listening on
+ * 127.0.0.1, and writes to a database of its own, so records of a resource
+ * directory using the same MongoDB are not touched.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MongoDBWriteBenchmark {
+
+    private static final String BENCHMARK_DB_NAME = "RD_BENCHMARK_DB";
+
+    @Param({ "100", "10000", "100000" })
+    public int      tableSize;
+
+    private MongoDB mMongoDB = null;
+    private int     mIns     = 0;
+
+    @Setup
+    public void setUp() throws Exception {
+        mMongoDB = new MongoDB("127.0.0.1", BENCHMARK_DB_NAME);
+        mMongoDB.createTable(Constants.RD_TABLE);
+
+        ArrayList<String> keys = new ArrayList<>();
+        keys.add(Constants.DEVICE_ID);
+        keys.add(Constants.INS);
+        mMongoDB.createIndex(Constants.RD_TABLE, keys);
+
+        for (int ins = 0; ins < tableSize; ins++) {
+            mMongoDB.getMongoDatabase().getCollection(Constants.RD_TABLE)
+                    .insertOne(makeRecord(ins));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        mMongoDB.getMongoDatabase().drop();
+        mMongoDB.close();
+    }
+
+    @Benchmark
+    public Boolean replaceRecord() {
+        mIns = (mIns + 1) % tableSize;
+        Document filter = new Document(Constants.DEVICE_ID,
+                RDServerTestUtils.DI).append(Constants.INS, mIns);
+        return mMongoDB.insertAndReplaceRecord(Constants.RD_TABLE, filter,
+                makeRecord(mIns));
+    }
+
+    private Document makeRecord(int ins) {
+        return new Document(Constants.DEVICE_ID, RDServerTestUtils.DI)
+                .append(Constants.INS, ins)
+                .append(Constants.HREF, "/a/light" + ins)
+                .append(Constants.RESOURCE_TYPE, "core.light");
+    }
+}
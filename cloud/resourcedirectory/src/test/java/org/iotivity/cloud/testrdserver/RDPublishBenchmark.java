@@ -0,0 +1,133 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.testrdserver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.iotivity.cloud.rdserver.Constants;
+import org.iotivity.cloud.rdserver.db.DBManager;
+import org.iotivity.cloud.rdserver.resources.directory.RDManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ *
+ * This class measures resource publish latency against the number of links in
+ * a publish request. It needs a MongoDB listening on 127.0.0.1.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RDPublishBenchmark {
+
+    @Param({ "1", "10", "50" })
+    public int                                 linkCount;
+
+    private RDManager                          mRDManager  = null;
+    private ArrayList<HashMap<String, Object>> mStoreInfos = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws Exception {
+        RDServerTestUtils.resetRDDatabase();
+        mRDManager = new RDManager();
+
+        // Links are published once so that every run replaces them
+        mRDManager.publishResource(makePublishPayload()).join();
+        for (int i = 0; i < linkCount; i++) {
+            HashMap<String, Object> storeInfo = new HashMap<>();
+            storeInfo.put(Constants.DEVICE_ID, RDServerTestUtils.DI);
+            storeInfo.put(Constants.HREF, "/a/light" + i);
+            storeInfo.put(Constants.INS, i + 1);
+            storeInfo.put(Constants.RESOURCE_TYPE, "core.light");
+            mStoreInfos.add(storeInfo);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        RDServerTestUtils.resetRDDatabase();
+    }
+
+    @Benchmark
+    public Object publishBulk() {
+        return mRDManager.publishResource(makePublishPayload()).join();
+    }
+
+    // Per-link round trips the publish path made before bulk writes: the ins
+    // lookup by href InsManager made, the duplicate check and the upsert
+    @Benchmark
+    public int publishPerLink() {
+        int found = 0;
+        for (HashMap<String, Object> storeInfo : mStoreInfos) {
+            HashMap<String, Object> insCondition = new HashMap<>();
+            insCondition.put(Constants.DEVICE_ID,
+                    storeInfo.get(Constants.DEVICE_ID));
+            insCondition.put(Constants.HREF, storeInfo.get(Constants.HREF));
+            found += DBManager.getInstance()
+                    .selectRecord(Constants.RD_TABLE, insCondition).size();
+
+            HashMap<String, Object> condition = new HashMap<>();
+            condition.put(Constants.DEVICE_ID,
+                    storeInfo.get(Constants.DEVICE_ID));
+            condition.put(Constants.INS, storeInfo.get(Constants.INS));
+            found += DBManager.getInstance()
+                    .selectRecord(Constants.RD_TABLE, condition).size();
+            DBManager.getInstance().insertAndReplaceRecord(Constants.RD_TABLE,
+                    storeInfo);
+        }
+        return found;
+    }
+
+    private HashMap<String, Object> makePublishPayload() {
+        HashMap<String, Object> payload = new HashMap<>();
+        payload.put(Constants.DEVICE_ID, RDServerTestUtils.DI);
+        ArrayList<HashMap<String, Object>> links = new ArrayList<>();
+        for (int i = 0; i < linkCount; i++) {
+            HashMap<String, Object> link = new HashMap<>();
+            ArrayList<String> rt = new ArrayList<>();
+            rt.add("core.light");
+            ArrayList<String> itf = new ArrayList<>();
+            itf.add("oic.if.baseline");
+            HashMap<String, Object> policy = new HashMap<>();
+            policy.put(Constants.BITMAP, 5);
+            link.put(Constants.HREF, "/a/light" + i);
+            link.put(Constants.RESOURCE_TYPE, rt);
+            link.put(Constants.INTERFACE, itf);
+            link.put(Constants.POLICY, policy);
+            link.put(Constants.INS, 0);
+            link.put(Constants.RESOURCE_TTL, 3000);
+            links.add(link);
+        }
+        payload.put(Constants.LINKS, links);
+        return payload;
+    }
+}
@@ -9,6 +9,7 @@ import org.iotivity.cloud.base.protocols.enums.ContentFormat;
 import org.iotivity.cloud.base.protocols.enums.RequestMethod;
 import org.iotivity.cloud.rdserver.Constants;
 import org.iotivity.cloud.rdserver.db.MongoDB;
+import org.iotivity.cloud.rdserver.resources.directory.ResourceIndex;
 import org.iotivity.cloud.util.Cbor;
 
 public class RDServerTestUtils {
@@ -49,7 +50,11 @@ public class RDServerTestUtils {
 
     public static void resetRDDatabase() throws Exception {
         MongoDB mongoDB = new MongoDB("127.0.0.1", Constants.RD_DB_NAME);
+        mongoDB.deleteTable(Constants.RD_TABLE);
+        mongoDB.deleteTable(Constants.PRESENCE_TABLE);
         mongoDB.createTable(Constants.RD_TABLE);
         mongoDB.createTable(Constants.PRESENCE_TABLE);
+        mongoDB.close();
+        ResourceIndex.getInstance().clear();
     }
 }
@@ -111,6 +111,8 @@ public class ResourceDirectoryResourceTest {
         System.out.println("\t------testHandleDeleteRequestByDi_existVaule");
         IRequest request = MessageBuilder.createRequest(RequestMethod.DELETE,
                 RDServerTestUtils.RD_REQ_URI, "di=" + RDServerTestUtils.DI);
+        // responses of publish and delete
+        mLatch = new CountDownLatch(2);
         mRDResource.onDefaultRequestReceived(mockDevice,
                 RDServerTestUtils.makePublishRequest());
         mRDResource.onDefaultRequestReceived(mockDevice, request);
@@ -140,6 +142,8 @@ public class ResourceDirectoryResourceTest {
         IRequest request = MessageBuilder.createRequest(RequestMethod.DELETE,
                 RDServerTestUtils.RD_REQ_URI,
                 "di=" + RDServerTestUtils.DI + ";ins=1");
+        // responses of publish and delete
+        mLatch = new CountDownLatch(2);
         mRDResource.onDefaultRequestReceived(mockDevice,
                 RDServerTestUtils.makePublishRequest());
         mRDResource.onDefaultRequestReceived(mockDevice, request);
@@ -171,5 +171,9 @@ public class ServerSystem extends ResourceManager {
         for (Server server : mServerList) {
             server.stopServer();
         }
+
+        if (getResourceExecutor() != null) {
+            getResourceExecutor().shutdown();
+        }
     }
 }
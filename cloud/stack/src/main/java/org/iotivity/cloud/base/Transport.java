@@ -0,0 +1,147 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.base;
+
+import org.iotivity.cloud.util.Log;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+
+/**
+ *
+ * This class provides a set of APIs to choose the socket transport of servers
+ * and connectors. Native epoll is used on Linux when it can be loaded, NIO
+ * otherwise.
+ *
+ */
+public enum Transport {
+    AUTO, EPOLL, NIO;
+
+    /**
+     * API for parsing transport name
+     * 
+     * @param name
+     *            auto, epoll or nio. null is treated as auto.
+     * @return transport
+     */
+    public static Transport fromName(String name) {
+        if (name == null || name.isEmpty()) {
+            return AUTO;
+        }
+
+        switch (name.toLowerCase()) {
+            case "auto":
+                return AUTO;
+            case "epoll":
+                return EPOLL;
+            case "nio":
+                return NIO;
+            default:
+                throw new IllegalArgumentException(
+                        "Unsupported transport " + name);
+        }
+    }
+
+    /**
+     * API for resolving the transport to use on this machine
+     * 
+     * @return EPOLL if native epoll is available and not disabled, NIO
+     *         otherwise
+     */
+    public Transport resolve() {
+        if (this == NIO) {
+            return NIO;
+        }
+
+        if (Epoll.isAvailable()) {
+            return EPOLL;
+        }
+
+        if (this == EPOLL) {
+            Log.w("Native epoll is not available, falling back to NIO: "
+                    + Epoll.unavailabilityCause());
+        }
+        return NIO;
+    }
+
+    /**
+     * API for checking whether the transport supports SO_REUSEPORT, which
+     * lets several server channels bind the same port
+     * 
+     * @return true if SO_REUSEPORT is supported
+     */
+    public boolean isReusePortSupported() {
+        return resolve() == EPOLL;
+    }
+
+    /**
+     * API for creating event loop group of the transport
+     * 
+     * @param nThreads
+     *            number of threads, 0 for the netty default
+     * @return event loop group
+     */
+    public EventLoopGroup newEventLoopGroup(int nThreads) {
+        switch (resolve()) {
+            case EPOLL:
+                return new EpollEventLoopGroup(nThreads);
+            default:
+                return new NioEventLoopGroup(nThreads);
+        }
+    }
+
+    /**
+     * API for getting server channel class of the transport
+     * 
+     * @return server socket channel class
+     */
+    public Class<? extends ServerChannel> getServerChannelClass() {
+        switch (resolve()) {
+            case EPOLL:
+                return EpollServerSocketChannel.class;
+            default:
+                return NioServerSocketChannel.class;
+        }
+    }
+
+    /**
+     * API for getting client channel class of the transport
+     * 
+     * @return socket channel class
+     */
+    public Class<? extends SocketChannel> getSocketChannelClass() {
+        switch (resolve()) {
+            case EPOLL:
+                return EpollSocketChannel.class;
+            default:
+                return NioSocketChannel.class;
+        }
+    }
+}
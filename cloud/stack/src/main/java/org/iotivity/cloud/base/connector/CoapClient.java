@@ -21,7 +21,11 @@
  */
 package org.iotivity.cloud.base.connector;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.iotivity.cloud.base.OICConstants;
 import org.iotivity.cloud.base.device.IRequestChannel;
@@ -30,21 +34,42 @@ import org.iotivity.cloud.base.exception.ClientException;
 import org.iotivity.cloud.base.exception.ClientException.RequesterGoneException;
 import org.iotivity.cloud.base.protocols.IRequest;
 import org.iotivity.cloud.base.protocols.IResponse;
+import org.iotivity.cloud.base.protocols.MessageBuilder;
 import org.iotivity.cloud.base.protocols.coap.CoapRequest;
 import org.iotivity.cloud.base.protocols.coap.CoapResponse;
 import org.iotivity.cloud.base.protocols.enums.Observe;
+import org.iotivity.cloud.base.protocols.enums.ResponseStatus;
 import org.iotivity.cloud.util.Bytes;
 import org.iotivity.cloud.util.Log;
 
 import io.netty.channel.Channel;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.Timeout;
+import io.netty.util.concurrent.DefaultThreadFactory;
 
 public class CoapClient implements IRequestChannel, IResponseEventHandler {
 
+    // Default time an upstream request waits for its response
+    public static final long DEFAULT_REQUEST_TIMEOUT  = 60000;
+
+    // Consecutive timeouts after which the connection is seen as unhealthy
+    public static final int  UNHEALTHY_TIMEOUT_COUNT  = 3;
+
+    // Time after which an unhealthy connection is given requests again
+    public static final long UNHEALTHY_RETRY_INTERVAL = 5000;
+
+    // Shared by all clients, its thread starts with the first request
+    private static final HashedWheelTimer mTimer = new HashedWheelTimer(
+            new DefaultThreadFactory("coap-client-timer", true), 100,
+            TimeUnit.MILLISECONDS);
+
     private class RequestInfo {
         private byte[]                originToken     = null;
         private IRequest              originRequest   = null;
         private IResponseEventHandler responseHandler = null;
         private Observe               observe         = Observe.NOTHING;
+        private Timeout               timeout         = null;
 
         public RequestInfo(byte[] originToken, IRequest originRequest,
                 IResponseEventHandler responseHandler, Observe observe) {
@@ -55,27 +80,101 @@ public class CoapClient implements IRequestChannel, IResponseEventHandler {
         }
     }
 
-    private HashMap<Long, RequestInfo> mTokenExchanger = new HashMap<>();
-    private Long                       mToken          = 0L;
-    private Channel                    mChannel        = null;
+    private ConcurrentHashMap<Long, RequestInfo> mTokenExchanger      = new ConcurrentHashMap<>();
+    private AtomicLong                           mToken               = new AtomicLong();
+    private Channel                              mChannel             = null;
+    private long                                 mRequestTimeout      = DEFAULT_REQUEST_TIMEOUT;
+    private int                                  mMaxInFlightRequests = 0;
+    private AtomicInteger                        mInFlightCount       = new AtomicInteger();
+    private AtomicInteger                        mTimeoutCount        = new AtomicInteger();
+    private volatile long                        mLastTimeoutTime     = 0;
 
-    private HashMap<Long, Long>        mSubscription   = new HashMap<>();
+    private ConcurrentHashMap<Long, Long>        mSubscription        = new ConcurrentHashMap<>();
 
     public CoapClient(Channel channel) {
         mChannel = channel;
     }
 
+    /**
+     * API for setting how long a request waits for its response. Requests
+     * without a response in time are answered with GATEWAY_TIMEOUT.
+     * Subscriptions never expire.
+     * 
+     * @param requestTimeout
+     *            timeout in milliseconds
+     */
+    public void setRequestTimeout(long requestTimeout) {
+        mRequestTimeout = requestTimeout;
+    }
+
+    /**
+     * API for limiting requests waiting for a response. Further requests are
+     * answered with SERVICE_UNAVAILABLE until responses arrive or time out.
+     * Subscriptions are not limited.
+     * 
+     * @param maxInFlightRequests
+     *            maximum in-flight requests, 0 for no limit
+     */
+    public void setMaxInFlightRequests(int maxInFlightRequests) {
+        mMaxInFlightRequests = maxInFlightRequests;
+    }
+
+    /**
+     * API for getting number of requests waiting for a response, excluding
+     * subscriptions
+     * 
+     * @return in-flight request count
+     */
+    public int getInFlightCount() {
+        return mInFlightCount.get();
+    }
+
+    /**
+     * API for checking whether requests can be sent on this client. The
+     * connection must be open and the upstream must not have let several
+     * requests time out in a row. Such a connection is retried after a while.
+     * 
+     * @return true if healthy
+     */
+    public boolean isHealthy() {
+        return mChannel.isActive()
+                && (mTimeoutCount.get() < UNHEALTHY_TIMEOUT_COUNT
+                        || System.currentTimeMillis()
+                                - mLastTimeoutTime > UNHEALTHY_RETRY_INTERVAL);
+    }
+
+    public Channel getChannel() {
+        return mChannel;
+    }
+
+    /**
+     * API for getting number of requests waiting for a response, including
+     * subscriptions
+     * 
+     * @return pending request count
+     */
+    public int getPendingRequestCount() {
+        return mTokenExchanger.size();
+    }
+
     @Override
     public void sendRequest(IRequest request,
             IResponseEventHandler responseEvent) {
+        // Backpressure for a slow upstream, checked loosely without a lock
+        if (mMaxInFlightRequests > 0
+                && request.getObserve() == Observe.NOTHING
+                && mInFlightCount.get() >= mMaxInFlightRequests) {
+            Log.w("Too many requests in flight to " + mChannel.remoteAddress());
+            deliverResponse(responseEvent, MessageBuilder.createResponse(
+                    request, ResponseStatus.SERVICE_UNAVAILABLE));
+            return;
+        }
+
         // Exchange request token to internal token and
         // add token with responseHandler to map
         try {
             byte[] token = null;
             long newToken;
-            synchronized (mToken) {
-                newToken = mToken;
-            }
 
             CoapRequest coapRequest = (CoapRequest) request;
 
@@ -85,12 +184,27 @@ public class CoapClient implements IRequestChannel, IResponseEventHandler {
 
             switch (request.getObserve()) {
                 case UNSUBSCRIBE:
-                    newToken = removeObserve(Bytes.bytesToLong(token));
+                    Long observeToken = removeObserve(
+                            Bytes.bytesToLong(token));
+
+                    // Not subscribed through this client, or unsubscribed
+                    if (observeToken == null) {
+                        deliverResponse(responseEvent, MessageBuilder
+                                .createResponse(request,
+                                        ResponseStatus.NOT_FOUND));
+                        return;
+                    }
+
+                    newToken = observeToken;
                     break;
 
                 case SUBSCRIBE:
+                    newToken = mToken.getAndIncrement();
                     addObserve(Bytes.bytesToLong(token), newToken);
+                    break;
+
                 default:
+                    newToken = mToken.getAndIncrement();
                     // We create temp token
                     // TODO: temporal handling
                     if (request.getUriPath()
@@ -98,17 +212,31 @@ public class CoapClient implements IRequestChannel, IResponseEventHandler {
                         addObserve(Bytes.bytesToLong(token), newToken);
                         observe = Observe.SUBSCRIBE;
                     }
-                    synchronized (mToken) {
-                        newToken = mToken++;
-                    }
                     break;
             }
 
             coapRequest.setToken(Bytes.longTo8Bytes(newToken));
-            mTokenExchanger.put(newToken,
-                    new RequestInfo(token, request, responseEvent, observe));
+            // Origin request is kept until its response is handled
+            RequestInfo reqInfo = new RequestInfo(token, coapRequest.retain(),
+                    responseEvent, observe);
 
-            mChannel.writeAndFlush(request);
+            // Deadline is set before the response can be looked up
+            if (observe != Observe.SUBSCRIBE) {
+                mInFlightCount.incrementAndGet();
+                final long timeoutToken = newToken;
+                reqInfo.timeout = mTimer.newTimeout(
+                        timeout -> onRequestTimeout(timeoutToken, reqInfo),
+                        mRequestTimeout, TimeUnit.MILLISECONDS);
+            }
+
+            RequestInfo prevInfo = mTokenExchanger.put(newToken, reqInfo);
+            if (prevInfo != null) {
+                releaseRequestInfo(prevInfo);
+            }
+
+            // Keep a zero-copy payload alive until the encoder of the
+            // upstream channel has written it
+            mChannel.writeAndFlush(coapRequest.retain());
 
         } catch (Exception e) {
             Log.f(mChannel, e);
@@ -124,29 +252,91 @@ public class CoapClient implements IRequestChannel, IResponseEventHandler {
         // Response is always CoapResponse
         CoapResponse coapResponse = (CoapResponse) response;
 
-        RequestInfo reqInfo = mTokenExchanger
-                .get(Bytes.bytesToLong(coapResponse.getToken()));
+        long token = Bytes.bytesToLong(coapResponse.getToken());
+        RequestInfo reqInfo = mTokenExchanger.get(token);
+
+        // Subscription response should stored
+        boolean requestDone = reqInfo != null
+                && reqInfo.observe != Observe.SUBSCRIBE;
 
-        if (reqInfo == null) {
-            throw new RequesterGoneException("Unable to find "
-                    + Bytes.bytesToLong(coapResponse.getToken()));
+        // Removing only this info, the request may just have timed out
+        if (reqInfo == null
+                || (requestDone && !mTokenExchanger.remove(token, reqInfo))) {
+            throw new RequesterGoneException("Unable to find " + token);
         }
 
+        if (mTimeoutCount.get() != 0) {
+            mTimeoutCount.set(0);
+        }
         ((CoapRequest) reqInfo.originRequest).setToken(reqInfo.originToken);
 
-        // Subscription response should stored
-        if (reqInfo.observe != Observe.SUBSCRIBE) {
-            mTokenExchanger.remove(Bytes.bytesToLong(coapResponse.getToken()));
-            if (mSubscription
-                    .containsKey(Bytes.bytesToLong(reqInfo.originToken))) {
-                mSubscription.remove(Bytes.bytesToLong(reqInfo.originToken));
+        if (requestDone) {
+            reqInfo.timeout.cancel();
+            mInFlightCount.decrementAndGet();
+            mSubscription.remove(Bytes.bytesToLong(reqInfo.originToken));
+        }
+
+        try {
+            if (reqInfo.responseHandler != null) {
+                coapResponse.setToken(reqInfo.originToken);
+                reqInfo.responseHandler.onResponseReceived(coapResponse);
+            }
+        } finally {
+            if (requestDone) {
+                ReferenceCountUtil.release(reqInfo.originRequest);
             }
         }
+    }
+
+    // Runs on the timer thread, the requester is answered on the event loop
+    // of this channel like a real response would be
+    private void onRequestTimeout(long token, RequestInfo reqInfo) {
+        if (!mTokenExchanger.remove(token, reqInfo)) {
+            return;
+        }
+
+        mInFlightCount.decrementAndGet();
+        mTimeoutCount.incrementAndGet();
+        mLastTimeoutTime = System.currentTimeMillis();
+        Log.w("Request " + token + " to " + mChannel.remoteAddress()
+                + " timed out");
+
+        ((CoapRequest) reqInfo.originRequest).setToken(reqInfo.originToken);
+        IResponse response = MessageBuilder.createResponse(
+                reqInfo.originRequest, ResponseStatus.GATEWAY_TIMEOUT);
+
+        try {
+            mChannel.eventLoop().execute(() -> {
+                try {
+                    deliverResponse(reqInfo.responseHandler, response);
+                } finally {
+                    ReferenceCountUtil.release(reqInfo.originRequest);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            ReferenceCountUtil.release(reqInfo.originRequest);
+        }
+    }
+
+    private void deliverResponse(IResponseEventHandler responseHandler,
+            IResponse response) {
+        if (responseHandler == null) {
+            return;
+        }
+
+        try {
+            responseHandler.onResponseReceived(response);
+        } catch (Exception e) {
+            Log.f(mChannel, e);
+        }
+    }
 
-        if (reqInfo.responseHandler != null) {
-            coapResponse.setToken(reqInfo.originToken);
-            reqInfo.responseHandler.onResponseReceived(coapResponse);
+    private void releaseRequestInfo(RequestInfo reqInfo) {
+        if (reqInfo.timeout != null) {
+            reqInfo.timeout.cancel();
+            mInFlightCount.decrementAndGet();
         }
+        ReferenceCountUtil.release(reqInfo.originRequest);
     }
 
     public void addObserve(long token, long newtoken) {
@@ -24,9 +24,7 @@ package org.iotivity.cloud.base.connector;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.*;
 import io.netty.channel.ChannelHandler.Sharable;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.ssl.SslProvider;
@@ -34,6 +32,7 @@ import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.handler.timeout.IdleStateHandler;
 import org.iotivity.cloud.base.OICConstants;
+import org.iotivity.cloud.base.Transport;
 import org.iotivity.cloud.base.protocols.coap.*;
 import org.iotivity.cloud.base.protocols.coap.PingMessage;
 import org.iotivity.cloud.util.Log;
@@ -42,13 +41,12 @@ import javax.net.ssl.SSLException;
 import java.io.File;
 import java.net.InetSocketAddress;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class CoapConnector {
 
     public CoapConnector() {
 
-        mBootstrap.group(mConnectorGroup);
-        mBootstrap.channel(NioSocketChannel.class);
         mBootstrap.option(ChannelOption.TCP_NODELAY, true);
         mBootstrap.option(ChannelOption.SO_KEEPALIVE, true);
         mBootstrap.option(ChannelOption.SO_REUSEADDR, true);
@@ -89,6 +87,8 @@ public class CoapConnector {
 
         private Boolean              mTlsMode           = false;
         private Boolean              mKeepAlive         = false;
+        private boolean              mZeroCopyDecoding  = false;
+        private boolean              mPooledMessages    = false;
         InetSocketAddress            mInetSocketAddress = null;
         String                       mRootCertFiePath   = null;
 
@@ -100,6 +100,14 @@ public class CoapConnector {
             this.mKeepAlive = keepAlive;
         }
 
+        public void setZeroCopyDecoding(boolean zeroCopyDecoding) {
+            this.mZeroCopyDecoding = zeroCopyDecoding;
+        }
+
+        public void setPooledMessages(boolean pooledMessages) {
+            this.mPooledMessages = pooledMessages;
+        }
+
         public void setInetSocketAddress(InetSocketAddress address) {
             this.mInetSocketAddress = address;
         }
@@ -136,7 +144,7 @@ public class CoapConnector {
                         mInetSocketAddress.getPort()));
             }
 
-            p.addLast(new CoapDecoder());
+            p.addLast(new CoapDecoder(mZeroCopyDecoding, mPooledMessages));
             p.addLast(new CoapEncoder());
             p.addLast(new CoapLogHandler());
 
@@ -151,14 +159,67 @@ public class CoapConnector {
         }
     }
 
-    HashMap<Channel, CoapClient> mChannelMap     = new HashMap<>();
-    Bootstrap                    mBootstrap      = new Bootstrap();
-    EventLoopGroup               mConnectorGroup = new NioEventLoopGroup();
-    Timer                        mTimer          = new Timer();
+    ConcurrentHashMap<Channel, CoapClient> mChannelMap          = new ConcurrentHashMap<>();
+    Bootstrap                              mBootstrap           = new Bootstrap();
+    EventLoopGroup                         mConnectorGroup      = null;
+    Transport                              mTransport           = Transport.AUTO;
+    Timer                                  mTimer               = new Timer();
+    boolean                                mZeroCopyDecoding    = false;
+    boolean                                mPooledMessages      = false;
+    long                                   mRequestTimeout      = CoapClient.DEFAULT_REQUEST_TIMEOUT;
+    int                                    mMaxInFlightRequests = 0;
+
+    /**
+     * API for setting socket transport of connections. Takes effect only
+     * before the first connection is requested.
+     * 
+     * @param transport
+     *            transport to use, AUTO picks epoll when available
+     */
+    public void setTransport(Transport transport) {
+        mTransport = transport;
+    }
+
+    public void setZeroCopyDecoding(boolean zeroCopyDecoding) {
+        mZeroCopyDecoding = zeroCopyDecoding;
+    }
+
+    public void setPooledMessages(boolean pooledMessages) {
+        mPooledMessages = pooledMessages;
+    }
+
+    /**
+     * API for setting how long requests on connections wait for a response
+     * before GATEWAY_TIMEOUT is returned
+     * 
+     * @param requestTimeout
+     *            timeout in milliseconds
+     */
+    public void setRequestTimeout(long requestTimeout) {
+        mRequestTimeout = requestTimeout;
+    }
+
+    /**
+     * API for limiting in-flight requests per connection. Requests beyond
+     * the limit are answered with SERVICE_UNAVAILABLE.
+     * 
+     * @param maxInFlightRequests
+     *            maximum in-flight requests, 0 for no limit
+     */
+    public void setMaxInFlightRequests(int maxInFlightRequests) {
+        mMaxInFlightRequests = maxInFlightRequests;
+    }
 
     public void connect(final String connectionName, final InetSocketAddress inetSocketAddress,
             boolean tlsMode, boolean keepAlive) {
 
+        if (mConnectorGroup == null) {
+            Transport transport = mTransport.resolve();
+            mConnectorGroup = transport.newEventLoopGroup(0);
+            mBootstrap.group(mConnectorGroup);
+            mBootstrap.channel(transport.getSocketChannelClass());
+        }
+
         CoapConnectorInitializer initializer = new CoapConnectorInitializer();
 
         if (tlsMode == true) {
@@ -168,18 +229,22 @@ public class CoapConnector {
         }
 
         initializer.setKeepAlive(keepAlive);
+        initializer.setZeroCopyDecoding(mZeroCopyDecoding);
+        initializer.setPooledMessages(mPooledMessages);
         initializer.addHandler(new CoapPacketHandler());
-        mBootstrap.handler(initializer);
-        doConnect(connectionName, inetSocketAddress, tlsMode);
+        // Each connection keeps its own bootstrap, so reconnects keep their
+        // initializer
+        Bootstrap bootstrap = mBootstrap.clone().handler(initializer);
+        doConnect(bootstrap, connectionName, inetSocketAddress);
     }
 
-    private void doConnect(final String connectionName, final InetSocketAddress inetSocketAddress, final boolean tlsMode) {
-        mBootstrap.connect(inetSocketAddress).addListener(new ChannelFutureListener() {
+    private void doConnect(final Bootstrap bootstrap, final String connectionName, final InetSocketAddress inetSocketAddress) {
+        bootstrap.connect(inetSocketAddress).addListener(new ChannelFutureListener() {
                 @Override public void operationComplete(ChannelFuture future) throws Exception {
                     if(!future.isSuccess()) {
                         Log.d("Connection to " + inetSocketAddress.getHostString() + " was not successful. Retrying...");
                         future.channel().close();
-                        scheduleConnect(connectionName, inetSocketAddress, tlsMode, 5000);
+                        scheduleConnect(bootstrap, connectionName, inetSocketAddress, 5000);
                     } else {
                         connectionEstablished(connectionName, future.channel());
                         addCloseDetectListener(future.channel());
@@ -189,28 +254,40 @@ public class CoapConnector {
             private void addCloseDetectListener(Channel channel) {
                 channel.closeFuture().addListener((ChannelFutureListener) future -> {
                     Log.d("Connection to " + inetSocketAddress.getHostString() + " was lost. Retrying...");
-                    scheduleConnect(connectionName, inetSocketAddress, tlsMode, 5);
+                    connectionLost(connectionName, channel);
+                    scheduleConnect(bootstrap, connectionName, inetSocketAddress, 5);
                 });
             }
         });
     }
 
-    private void scheduleConnect(String connectionName, InetSocketAddress inetSocketAddress, boolean tlsMode, long millis) {
+    private void scheduleConnect(Bootstrap bootstrap, String connectionName, InetSocketAddress inetSocketAddress, long millis) {
         mTimer.schedule( new TimerTask() {
             @Override
             public void run() {
-                doConnect(connectionName, inetSocketAddress, tlsMode);
+                doConnect(bootstrap, connectionName, inetSocketAddress);
             }
         }, millis );
     }
 
     public void connectionEstablished(String connectionName, Channel channel) {
         CoapClient coapClient = new CoapClient(channel);
+        coapClient.setRequestTimeout(mRequestTimeout);
+        coapClient.setMaxInFlightRequests(mMaxInFlightRequests);
         mChannelMap.put(channel, coapClient);
         ConnectorPool.addConnection(connectionName, coapClient);
     }
 
+    public void connectionLost(String connectionName, Channel channel) {
+        CoapClient coapClient = mChannelMap.remove(channel);
+        if (coapClient != null) {
+            ConnectorPool.removeConnection(connectionName, coapClient);
+        }
+    }
+
     public void disconenct() throws Exception {
-        mConnectorGroup.shutdownGracefully().await();
+        if (mConnectorGroup != null) {
+            mConnectorGroup.shutdownGracefully().await();
+        }
     }
 }
@@ -0,0 +1,175 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.base.connector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.iotivity.cloud.base.device.IRequestChannel;
+import org.iotivity.cloud.base.device.IResponseEventHandler;
+import org.iotivity.cloud.base.protocols.IRequest;
+import org.iotivity.cloud.base.protocols.MessageBuilder;
+import org.iotivity.cloud.base.protocols.coap.CoapRequest;
+import org.iotivity.cloud.base.protocols.enums.Observe;
+import org.iotivity.cloud.base.protocols.enums.ResponseStatus;
+import org.iotivity.cloud.util.Bytes;
+import org.iotivity.cloud.util.Log;
+
+/**
+ *
+ * This class spreads requests to one backend over several connections,
+ * which may lead to different replicas of the backend.
+ *
+ */
+public class ConnectionGroup implements IRequestChannel {
+
+    public enum SelectionPolicy {
+        ROUND_ROBIN, LEAST_IN_FLIGHT;
+
+        /**
+         * API for parsing policy name given in configuration
+         * 
+         * @param name
+         *            round-robin or least-in-flight, null for round-robin
+         * @return selection policy
+         */
+        public static SelectionPolicy fromName(String name) {
+            if (name == null || name.isEmpty()) {
+                return ROUND_ROBIN;
+            }
+            return valueOf(name.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
+    private String                           mName            = null;
+    private SelectionPolicy                  mSelectionPolicy = SelectionPolicy.ROUND_ROBIN;
+    private CopyOnWriteArrayList<CoapClient> mClients         = new CopyOnWriteArrayList<>();
+    private AtomicInteger                    mNextClient      = new AtomicInteger();
+
+    public ConnectionGroup(String name) {
+        mName = name;
+    }
+
+    public void setSelectionPolicy(SelectionPolicy selectionPolicy) {
+        mSelectionPolicy = selectionPolicy;
+    }
+
+    public void addClient(CoapClient coapClient) {
+        mClients.add(coapClient);
+    }
+
+    public void removeClient(CoapClient coapClient) {
+        mClients.remove(coapClient);
+    }
+
+    public List<CoapClient> getClients() {
+        return mClients;
+    }
+
+    @Override
+    public void sendRequest(IRequest request,
+            IResponseEventHandler responseEvent) {
+        CoapClient coapClient = null;
+
+        // Unsubscribe must reach the connection holding the subscription
+        if (request.getObserve() == Observe.UNSUBSCRIBE) {
+            coapClient = findSubscriber(request);
+        }
+
+        if (coapClient == null) {
+            coapClient = selectClient();
+        }
+
+        if (coapClient == null) {
+            Log.w("No connection to " + mName);
+            if (responseEvent != null) {
+                try {
+                    responseEvent.onResponseReceived(MessageBuilder
+                            .createResponse(request,
+                                    ResponseStatus.SERVICE_UNAVAILABLE));
+                } catch (Exception e) {
+                    Log.e("Unable to answer request to " + mName, e);
+                }
+            }
+            return;
+        }
+
+        coapClient.sendRequest(request, responseEvent);
+    }
+
+    private CoapClient findSubscriber(IRequest request) {
+        long token = Bytes.bytesToLong(((CoapRequest) request).getToken());
+        for (CoapClient coapClient : mClients) {
+            if (coapClient.isObserveRequest(token) != null) {
+                return coapClient;
+            }
+        }
+        return null;
+    }
+
+    private CoapClient selectClient() {
+        Object[] clients = mClients.toArray();
+        if (clients.length == 0) {
+            return null;
+        }
+
+        CoapClient selected = null;
+
+        switch (mSelectionPolicy) {
+            case LEAST_IN_FLIGHT:
+                for (Object client : clients) {
+                    CoapClient coapClient = (CoapClient) client;
+                    if (coapClient.isHealthy() && (selected == null
+                            || coapClient.getInFlightCount() < selected
+                                    .getInFlightCount())) {
+                        selected = coapClient;
+                    }
+                }
+                break;
+
+            default:
+                int start = (mNextClient.getAndIncrement() & 0x7FFFFFFF)
+                        % clients.length;
+                for (int i = 0; i < clients.length; i++) {
+                    CoapClient coapClient = (CoapClient) clients[(start + i)
+                            % clients.length];
+                    if (coapClient.isHealthy()) {
+                        selected = coapClient;
+                        break;
+                    }
+                }
+                break;
+        }
+
+        // No healthy connection, keep trying open ones rather than failing
+        if (selected == null) {
+            for (Object client : clients) {
+                if (((CoapClient) client).getChannel().isActive()) {
+                    return (CoapClient) client;
+                }
+            }
+        }
+
+        return selected;
+    }
+}
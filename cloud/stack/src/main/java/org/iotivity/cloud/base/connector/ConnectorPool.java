@@ -23,15 +23,21 @@ package org.iotivity.cloud.base.connector;
 
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.iotivity.cloud.base.Transport;
+import org.iotivity.cloud.base.connector.ConnectionGroup.SelectionPolicy;
 import org.iotivity.cloud.base.device.IRequestChannel;
 
 public class ConnectorPool {
 
-    static ConcurrentHashMap<String, IRequestChannel> mConnection = new ConcurrentHashMap<>();
+    static ConcurrentHashMap<String, ConnectionGroup> mConnection      = new ConcurrentHashMap<>();
 
-    static CoapConnector                    mConnector  = new CoapConnector();
+    static CoapConnector                              mConnector       = new CoapConnector();
+
+    static SelectionPolicy                            mSelectionPolicy = SelectionPolicy.ROUND_ROBIN;
 
     public ConnectorPool() {
 
@@ -39,20 +45,100 @@ public class ConnectorPool {
 
     public static void requestConnection(String connectionName, InetSocketAddress inetAddr,
          boolean tlsMode, boolean keepAlive) throws InterruptedException {
-        mConnector.connect(connectionName, inetAddr, tlsMode, keepAlive);
+        requestConnection(connectionName, Arrays.asList(inetAddr), 1, tlsMode,
+                keepAlive);
+    }
+
+    /**
+     * API for connecting to a backend served by several addresses. Requests
+     * to the connection name are spread over all established connections.
+     * 
+     * @param connectionName
+     *            name of the backend, e.g. rd
+     * @param inetAddrs
+     *            addresses of backend replicas
+     * @param connectionCount
+     *            connections opened to each address
+     * @param tlsMode
+     *            true for TLS connections
+     * @param keepAlive
+     *            true to ping idle connections
+     */
+    public static void requestConnection(String connectionName,
+            List<InetSocketAddress> inetAddrs, int connectionCount,
+            boolean tlsMode, boolean keepAlive) throws InterruptedException {
+        getConnectionGroup(connectionName);
+        for (InetSocketAddress inetAddr : inetAddrs) {
+            for (int i = 0; i < connectionCount; i++) {
+                mConnector.connect(connectionName, inetAddr, tlsMode,
+                        keepAlive);
+            }
+        }
+    }
+
+    /**
+     * API for setting how requests are spread over connections of a backend
+     * 
+     * @param selectionPolicy
+     *            ROUND_ROBIN or LEAST_IN_FLIGHT
+     */
+    public static void setSelectionPolicy(SelectionPolicy selectionPolicy) {
+        mSelectionPolicy = selectionPolicy;
+        for (ConnectionGroup connectionGroup : mConnection.values()) {
+            connectionGroup.setSelectionPolicy(selectionPolicy);
+        }
+    }
+
+    public static void setTransport(Transport transport) {
+        mConnector.setTransport(transport);
+    }
+
+    public static void setZeroCopyDecoding(boolean zeroCopyDecoding) {
+        mConnector.setZeroCopyDecoding(zeroCopyDecoding);
+    }
+
+    public static void setPooledMessages(boolean pooledMessages) {
+        mConnector.setPooledMessages(pooledMessages);
+    }
+
+    public static void setRequestTimeout(long requestTimeout) {
+        mConnector.setRequestTimeout(requestTimeout);
+    }
+
+    public static void setMaxInFlightRequests(int maxInFlightRequests) {
+        mConnector.setMaxInFlightRequests(maxInFlightRequests);
     }
 
     public static IRequestChannel getConnection(String name) {
         return mConnection.get(name);
     }
 
+    // Lists every connection, so subscriptions can be found on the client
+    // holding them
     public static ArrayList<IRequestChannel> getConnectionList() {
-        return new ArrayList<IRequestChannel>(mConnection.values());
+        ArrayList<IRequestChannel> connectionList = new ArrayList<>();
+        for (ConnectionGroup connectionGroup : mConnection.values()) {
+            connectionList.addAll(connectionGroup.getClients());
+        }
+        return connectionList;
+    }
+
+    public static void addConnection(String name, CoapClient coapClient) {
+        getConnectionGroup(name).addClient(coapClient);
+    }
+
+    public static void removeConnection(String name, CoapClient coapClient) {
+        ConnectionGroup connectionGroup = mConnection.get(name);
+        if (connectionGroup != null) {
+            connectionGroup.removeClient(coapClient);
+        }
     }
 
-    public static void addConnection(String name, IRequestChannel requestChannel) {
-        if (mConnection.containsKey(name))
-            mConnection.remove(name);
-        mConnection.put(name, requestChannel);
+    private static ConnectionGroup getConnectionGroup(String name) {
+        return mConnection.computeIfAbsent(name, key -> {
+            ConnectionGroup connectionGroup = new ConnectionGroup(key);
+            connectionGroup.setSelectionPolicy(mSelectionPolicy);
+            return connectionGroup;
+        });
     }
 }
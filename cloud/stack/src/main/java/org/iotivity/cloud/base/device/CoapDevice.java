@@ -25,6 +25,7 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map.Entry;
 
 import org.iotivity.cloud.base.connector.CoapClient;
 import org.iotivity.cloud.base.connector.ConnectorPool;
@@ -40,6 +41,7 @@ import org.iotivity.cloud.util.Bytes;
 import org.iotivity.cloud.util.Log;
 
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.ReferenceCountUtil;
 
 public class CoapDevice extends Device {
     private CoapClient                 mCoapClient         = null;
@@ -127,12 +129,14 @@ public class CoapDevice extends Device {
 
     public void addObserveRequest(Long token, IRequest request) {
 
-        mObserveRequestList.put(token, request);
+        // Observe request is kept until the observation ends
+        ReferenceCountUtil.release(mObserveRequestList.put(token,
+                ReferenceCountUtil.retain(request)));
     }
 
     public void removeObserveRequest(Long token) {
 
-        mObserveRequestList.remove(token);
+        ReferenceCountUtil.release(mObserveRequestList.remove(token));
     }
 
     // This is called by cloud resource model
@@ -141,16 +145,19 @@ public class CoapDevice extends Device {
         // This message must converted to CoapResponse
         CoapResponse coapResponse = (CoapResponse) response;
 
-        Iterator<Long> iterator = mObserveRequestList.keySet().iterator();
+        Iterator<Entry<Long, IRequest>> iterator = mObserveRequestList
+                .entrySet().iterator();
         while (iterator.hasNext()) {
-            Long token = iterator.next();
+            Entry<Long, IRequest> entry = iterator.next();
             Long respToken = Bytes.bytesToLong(coapResponse.getToken());
-            if (respToken.equals(token)
+            if (respToken.equals(entry.getKey())
                     && coapResponse.getObserve() == Observe.NOTHING) {
                 iterator.remove();
+                ReferenceCountUtil.release(entry.getValue());
             }
         }
-        ctx.channel().writeAndFlush(response);
+        // Keep a zero-copy payload alive until the encoder has written it
+        ctx.channel().writeAndFlush(coapResponse.retain());
     }
 
     public IRequestChannel getRequestChannel() {
@@ -203,5 +210,10 @@ public class CoapDevice extends Device {
                 }
             }
         }
+
+        for (IRequest request : mObserveRequestList.values()) {
+            ReferenceCountUtil.release(request);
+        }
+        mObserveRequestList.clear();
     }
 }
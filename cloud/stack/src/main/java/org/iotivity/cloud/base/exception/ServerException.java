@@ -127,4 +127,16 @@ public class ServerException extends RuntimeException {
             super(ResponseStatus.NOT_IMPLEMENTED, msg);
         }
     }
+
+    public static class ServiceUnavailableException extends ServerException {
+        private static final long serialVersionUID = 3105278314262745139L;
+
+        public ServiceUnavailableException() {
+            super(ResponseStatus.SERVICE_UNAVAILABLE);
+        }
+
+        public ServiceUnavailableException(String msg) {
+            super(ResponseStatus.SERVICE_UNAVAILABLE, msg);
+        }
+    }
 }
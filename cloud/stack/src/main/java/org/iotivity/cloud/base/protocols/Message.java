@@ -21,74 +21,16 @@
  */
 package org.iotivity.cloud.base.protocols;
 
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.StringTokenizer;
 
 public abstract class Message implements IRequest, IResponse, ISignaling {
-    protected List<byte[]> uri_path  = null;
-    protected List<byte[]> uri_query = null;
-    protected byte[]       payload   = null;
+    protected byte[] payload = null;
 
     // Message properties are intersection of HTTP and COAP with observe.
-
-    @Override
-    public List<String> getUriPathSegments() {
-        if (uri_path == null) {
-            return null;
-        }
-        List<String> segments = new ArrayList<>();
-        for (byte[] pathSegment : uri_path) {
-            segments.add(new String(pathSegment, StandardCharsets.UTF_8));
-        }
-        return segments;
-    }
-
-    @Override
-    public String getUriPath() {
-        if (uri_path == null) {
-            return null;
-        }
-        StringBuilder path = new StringBuilder("/");
-        int nItem = uri_path.size();
-        for (byte[] pathSegment : uri_path) {
-            path.append(new String(pathSegment, StandardCharsets.UTF_8));
-            if (--nItem > 0) {
-                path.append('/');
-            }
-        }
-        return path.toString();
-    }
-
-    @Override
-    public String getUriQuery() {
-        if (uri_query == null) {
-            return null;
-        }
-        StringBuilder uriQuery = new StringBuilder();
-        int nItem = uri_query.size();
-        for (byte[] querySegment : uri_query) {
-            uriQuery.append(new String(querySegment, StandardCharsets.UTF_8));
-            if (--nItem > 0) {
-                uriQuery.append(';');
-            }
-        }
-        return uriQuery.toString();
-    }
-
-    @Override
-    public List<String> getUriQuerySegments() {
-        if (uri_query == null) {
-            return null;
-        }
-        List<String> segments = new ArrayList<>();
-        for (byte[] querySegment : uri_query) {
-            segments.add(new String(querySegment, StandardCharsets.UTF_8));
-        }
-        return segments;
-    }
+    // URI path and query are provided by the protocol specific message.
 
     @Override
     public HashMap<String, List<String>> getUriQueryMap() {
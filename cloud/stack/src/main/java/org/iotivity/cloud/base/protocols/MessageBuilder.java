@@ -70,7 +70,7 @@ public class MessageBuilder {
         if (request instanceof CoapRequest) {
             CoapRequest coapRequest = (CoapRequest) request;
             CoapResponse coapResponse = new CoapResponse(responseStatus);
-            coapResponse.setUriPath(coapRequest.getUriPath());
+            coapResponse.copyUriPath(coapRequest);
             coapResponse.setToken(coapRequest.getToken());
             if (payload != null) {
                 coapResponse.setContentFormat(format);
@@ -38,12 +38,43 @@ public class CoapDecoder extends ByteToMessageDecoder {
         SHIM_HEADER, OPTION_PAYLOAD_LENGTH, CODE_TOKEN_OPTION, PAYLOAD, FINISH
     }
 
-    private ParsingState nextState           = ParsingState.SHIM_HEADER;
-    private int          bufferToRead        = 1;
-    private int          tokenLength         = 0;
-    private int          optionPayloadLength = 0;
-    private CoapMessage  partialMsg          = null;
-    private int          websocketLength     = -1;
+    private ParsingState  nextState           = ParsingState.SHIM_HEADER;
+    private int           bufferToRead        = 1;
+    private int           tokenLength         = 0;
+    private int           optionPayloadLength = 0;
+    private CoapMessage   partialMsg          = null;
+    private int           websocketLength     = -1;
+    private boolean       partialMsgPending   = false;
+    private final boolean zeroCopy;
+    private final boolean pooled;
+
+    public CoapDecoder() {
+        this(false);
+    }
+
+    /**
+     * @param zeroCopy
+     *            if true, payloads are kept as retained slices of the inbound
+     *            buffer instead of being copied. Decoded messages must be
+     *            released, which the inbound handlers and the encoder do.
+     */
+    public CoapDecoder(boolean zeroCopy) {
+        this(zeroCopy, false);
+    }
+
+    /**
+     * @param zeroCopy
+     *            if true, payloads are kept as retained slices of the inbound
+     *            buffer instead of being copied
+     * @param pooled
+     *            if true, requests and responses are taken from recycler
+     *            pools. They are recycled when released at the end of the
+     *            pipeline, so handlers keeping them must retain them.
+     */
+    public CoapDecoder(boolean zeroCopy, boolean pooled) {
+        this.zeroCopy = zeroCopy;
+        this.pooled = pooled;
+    }
 
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in,
@@ -109,12 +140,16 @@ public class CoapDecoder extends ByteToMessageDecoder {
                     case CODE_TOKEN_OPTION:
                         int code = in.readByte() & 0xFF;
                         if (code <= 31) {
-                            partialMsg = new CoapRequest(code);
+                            partialMsg = pooled ? CoapRequest.newInstance(code)
+                                    : new CoapRequest(code);
                         } else if (code > 224) {
                             partialMsg = new CoapSignaling(code);
                         } else {
-                            partialMsg = new CoapResponse(code);
+                            partialMsg = pooled
+                                    ? CoapResponse.newInstance(code)
+                                    : new CoapResponse(code);
                         }
+                        partialMsgPending = true;
 
                         if (tokenLength > 0) {
                             byte[] token = new byte[tokenLength];
@@ -144,9 +179,14 @@ public class CoapDecoder extends ByteToMessageDecoder {
                         break;
 
                     case PAYLOAD:
-                        byte[] payload = new byte[bufferToRead];
-                        in.readBytes(payload);
-                        partialMsg.setPayload(payload);
+                        if (zeroCopy) {
+                            partialMsg.setPayloadBuffer(
+                                    in.readRetainedSlice(bufferToRead));
+                        } else {
+                            byte[] payload = new byte[bufferToRead];
+                            in.readBytes(payload);
+                            partialMsg.setPayload(payload);
+                        }
                         nextState = ParsingState.FINISH;
                         bufferToRead = 0;
                         break;
@@ -154,6 +194,7 @@ public class CoapDecoder extends ByteToMessageDecoder {
                     case FINISH:
                         nextState = ParsingState.SHIM_HEADER;
                         bufferToRead = 1;
+                        partialMsgPending = false;
                         out.add(partialMsg);
                         break;
 
@@ -161,7 +202,8 @@ public class CoapDecoder extends ByteToMessageDecoder {
                         break;
                 }
             }
-            in.discardReadBytes();
+            // Read bytes are discarded by ByteToMessageDecoder when the
+            // cumulation is not shared with any payload slice
         } catch (Throwable t) {
             ResponseStatus responseStatus = t instanceof ServerException
                     ? ((ServerException) t).getErrorResponse()
@@ -169,10 +211,25 @@ public class CoapDecoder extends ByteToMessageDecoder {
             Log.f(ctx.channel(), t);
             ctx.writeAndFlush(
                     MessageBuilder.createResponse(partialMsg, responseStatus));
+            releasePartialMsg();
             ctx.close();
         }
     }
 
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx)
+            throws Exception {
+        releasePartialMsg();
+    }
+
+    // Releases message being decoded, which was not passed to the pipeline
+    private void releasePartialMsg() {
+        if (partialMsgPending) {
+            partialMsgPending = false;
+            partialMsg.release();
+        }
+    }
+
     public void decode(ByteBuf in, List<Object> out, int length)
             throws Exception {
         websocketLength = length;
@@ -186,6 +243,9 @@ public class CoapDecoder extends ByteToMessageDecoder {
 
         int startPos = byteBuf.readerIndex();
 
+        coapMessage.ensureOptionCapacity(
+                measureOptionValues(byteBuf, maxLength));
+
         int firstByte = byteBuf.readByte() & 0xFF;
 
         while (firstByte != 0xFF && maxLength > 0) {
@@ -193,24 +253,21 @@ public class CoapDecoder extends ByteToMessageDecoder {
             int optionLength = firstByte & 0x0F;
 
             if (optionDelta == 13) {
-                optionDelta = 13 + byteBuf.readByte() & 0xFF;
+                optionDelta = 13 + (byteBuf.readByte() & 0xFF);
             } else if (optionDelta == 14) {
                 optionDelta = 269 + ((byteBuf.readByte() & 0xFF) << 8)
                         + (byteBuf.readByte() & 0xFF);
             }
 
             if (optionLength == 13) {
-                optionLength = 13 + byteBuf.readByte() & 0xFF;
+                optionLength = 13 + (byteBuf.readByte() & 0xFF);
             } else if (optionLength == 14) {
                 optionLength = 269 + ((byteBuf.readByte() & 0xFF) << 8)
                         + (byteBuf.readByte() & 0xFF);
             }
 
             int curOptionNum = preOptionNum + optionDelta;
-            byte[] optionValue = new byte[optionLength];
-            byteBuf.readBytes(optionValue);
-
-            coapMessage.addOption(curOptionNum, optionValue);
+            coapMessage.addOption(curOptionNum, byteBuf, optionLength);
 
             preOptionNum = curOptionNum;
             if (maxLength > byteBuf.readerIndex() - startPos) {
@@ -223,4 +280,41 @@ public class CoapDecoder extends ByteToMessageDecoder {
         // return option length
         return byteBuf.readerIndex() - startPos;
     }
+
+    // Sums up option value lengths without moving the reader index, so the
+    // option table is allocated once
+    private int measureOptionValues(ByteBuf byteBuf, int maxLength) {
+        int valuesLength = 0;
+        int pos = byteBuf.readerIndex();
+        int endPos = pos + maxLength;
+
+        while (pos < endPos) {
+            int firstByte = byteBuf.getByte(pos++) & 0xFF;
+            if (firstByte == 0xFF) {
+                break;
+            }
+
+            int optionDelta = (firstByte & 0xF0) >>> 4;
+            int optionLength = firstByte & 0x0F;
+
+            if (optionDelta == 13) {
+                pos += 1;
+            } else if (optionDelta == 14) {
+                pos += 2;
+            }
+
+            if (optionLength == 13) {
+                optionLength = 13 + (byteBuf.getByte(pos++) & 0xFF);
+            } else if (optionLength == 14) {
+                optionLength = 269 + ((byteBuf.getByte(pos) & 0xFF) << 8)
+                        + (byteBuf.getByte(pos + 1) & 0xFF);
+                pos += 2;
+            }
+
+            valuesLength += optionLength;
+            pos += optionLength;
+        }
+
+        return Math.min(valuesLength, maxLength);
+    }
 }
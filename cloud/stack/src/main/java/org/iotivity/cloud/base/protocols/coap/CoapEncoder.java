@@ -21,16 +21,42 @@
  */
 package org.iotivity.cloud.base.protocols.coap;
 
-import java.util.List;
-
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
 
 public class CoapEncoder extends MessageToByteEncoder<CoapMessage> {
 
-    private boolean isboolWebSocket = false;
+    private static final CoapOption[] OPTIONS         = CoapOption.values();
+
+    // shim header (max 5 bytes) + code
+    private static final int          MAX_HEADER_SIZE = 6;
+
+    private boolean                   isboolWebSocket = false;
+
+    // options length of the message the buffer was allocated for, so the
+    // options are not walked again to encode it
+    private CoapMessage               mSizedMessage   = null;
+    private int                       mOptionsLength  = 0;
+
+    @Override
+    protected ByteBuf allocateBuffer(ChannelHandlerContext ctx,
+            CoapMessage msg, boolean preferDirect) throws Exception {
+        mOptionsLength = calcOptionsLength(msg);
+        mSizedMessage = msg;
+
+        int size = MAX_HEADER_SIZE + msg.getTokenLength() + mOptionsLength;
+
+        if (msg.getPayloadSize() > 0) {
+            size += 1 + msg.getPayloadSize();
+        }
+
+        if (preferDirect) {
+            return ctx.alloc().ioBuffer(size);
+        } else {
+            return ctx.alloc().heapBuffer(size);
+        }
+    }
 
     @Override
     protected void encode(ChannelHandlerContext ctx, CoapMessage msg,
@@ -38,23 +64,19 @@ public class CoapEncoder extends MessageToByteEncoder<CoapMessage> {
 
         CoapMessage coapMessage = (CoapMessage) msg;
 
-        ByteBuf optBuf = Unpooled.directBuffer();
-
-        /**
-         * encode options
-         */
-        encodeOptions(optBuf, coapMessage);
+        long length = 0;
 
-        long length = optBuf.readableBytes();
+        if (!isboolWebSocket) {
+            length = coapMessage == mSizedMessage ? mOptionsLength
+                    : calcOptionsLength(coapMessage);
 
-        if (coapMessage.getPayloadSize() > 0) {
-            // + 1 means 8bits delimiter
-            length += 1 + coapMessage.getPayloadSize();
+            if (coapMessage.getPayloadSize() > 0) {
+                // + 1 means 8bits delimiter
+                length += 1 + coapMessage.getPayloadSize();
+            }
         }
 
-        if (isboolWebSocket) {
-            length = 0;
-        }
+        mSizedMessage = null;
 
         calcShimHeader(coapMessage, out, length);
 
@@ -64,16 +86,20 @@ public class CoapEncoder extends MessageToByteEncoder<CoapMessage> {
             out.writeBytes(coapMessage.getToken());
         }
 
-        // Write option
-        if (optBuf.readableBytes() > 0) {
-            out.writeBytes(optBuf);
-        }
-
-        optBuf.release();
+        /**
+         * encode options
+         */
+        encodeOptions(out, coapMessage);
 
         if (coapMessage.getPayloadSize() > 0) {
             out.writeByte(255);
-            out.writeBytes(coapMessage.getPayload());
+            ByteBuf payloadBuf = coapMessage.getPayloadBuffer();
+            if (payloadBuf != null) {
+                out.writeBytes(payloadBuf, payloadBuf.readerIndex(),
+                        payloadBuf.readableBytes());
+            } else {
+                out.writeBytes(coapMessage.getPayload());
+            }
         }
     }
 
@@ -99,45 +125,63 @@ public class CoapEncoder extends MessageToByteEncoder<CoapMessage> {
         } else if (length < 4294967294L) {
             byteBuf.writeByte(
                     (15 & 0x0F) << 4 | (coapMessage.getTokenLength() & 0x0F));
-            byte[] size = new byte[4];
-            long payload = length - 65805;
-            for (int i = 3; i > -1; i--) {
-                size[i] = (byte) (payload & 0xFF);
-                payload >>= 8;
-            }
-            byteBuf.writeBytes(size);
+            byteBuf.writeInt((int) (length - 65805));
         } else {
             throw new IllegalArgumentException(
                     "Length must be less than 4GB " + length);
         }
     }
 
-    private void encodeOptions(ByteBuf byteBuf, CoapMessage coapMessage)
-            throws Exception {
+    private int calcOptionsLength(CoapMessage coapMessage) {
+        int length = 0;
         int preOptionNum = 0;
 
-        for (CoapOption opt : CoapOption.values()) {
+        for (CoapOption opt : OPTIONS) {
             int optionNum = opt.getvalue();
-            List<byte[]> values = coapMessage.getOption(optionNum);
-            if (values != null) {
-                if (values.size() > 0) {
-                    for (byte[] value : values) {
-                        writeOption(optionNum - preOptionNum,
-                                value != null ? value.length : 0, byteBuf,
-                                value);
-                        preOptionNum = optionNum;
-                    }
-
-                } else {
-                    writeOption(optionNum - preOptionNum, 0, byteBuf, null);
-                    preOptionNum = optionNum;
+            int count = coapMessage.getOptionValueCount(optionNum);
+            for (int i = 0; i < count; i++) {
+                int optionLength = coapMessage.getOptionValueLength(optionNum,
+                        i);
+                length += 1 + calcExtendedLength(optionNum - preOptionNum)
+                        + calcExtendedLength(optionLength) + optionLength;
+                preOptionNum = optionNum;
+            }
+        }
+
+        return length;
+    }
+
+    private int calcExtendedLength(int value) {
+        if (value < 13) {
+            return 0;
+        } else if (value < 269) {
+            return 1;
+        } else {
+            return 2;
+        }
+    }
+
+    private void encodeOptions(ByteBuf byteBuf, CoapMessage coapMessage) {
+        int preOptionNum = 0;
+
+        for (CoapOption opt : OPTIONS) {
+            int optionNum = opt.getvalue();
+            int count = coapMessage.getOptionValueCount(optionNum);
+            for (int i = 0; i < count; i++) {
+                int optionLength = coapMessage.getOptionValueLength(optionNum,
+                        i);
+                writeOptionHeader(optionNum - preOptionNum, optionLength,
+                        byteBuf);
+                if (optionLength > 0) {
+                    coapMessage.writeOptionValue(optionNum, i, byteBuf);
                 }
+                preOptionNum = optionNum;
             }
         }
     }
 
-    private void writeOption(int optionDelta, int optionLength, ByteBuf byteBuf,
-            byte[] value) {
+    private void writeOptionHeader(int optionDelta, int optionLength,
+            ByteBuf byteBuf) {
 
         if (optionDelta < 13) {
             if (optionLength < 13) {
@@ -195,9 +239,5 @@ public class CoapEncoder extends MessageToByteEncoder<CoapMessage> {
             throw new IllegalArgumentException(
                     "Unsupported option delta " + optionDelta);
         }
-
-        if (optionLength > 0) {
-            byteBuf.writeBytes(value);
-        }
     }
 }
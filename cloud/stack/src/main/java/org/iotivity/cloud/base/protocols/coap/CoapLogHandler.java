@@ -71,20 +71,7 @@ public class CoapLogHandler extends ChannelDuplexHandler {
     public void write(ChannelHandlerContext ctx, Object msg,
             ChannelPromise promise) {
 
-        String log = null;
-
-        if (msg instanceof CoapRequest) {
-            log = composeCoapRequest(
-                    ctx.channel().id().asLongText().substring(26),
-                    (CoapRequest) msg);
-        } else if (msg instanceof CoapResponse) {
-            log = composeCoapResponse(ctx.channel().id().asLongText()
-                    .substring(26), (CoapResponse) msg);
-        }
-
-        if (log != null) {
-            Log.v(log);
-        }
+        printLog(ctx, msg);
 
         ctx.writeAndFlush(msg);
     }
@@ -93,6 +80,17 @@ public class CoapLogHandler extends ChannelDuplexHandler {
     public void channelRead(ChannelHandlerContext ctx, Object msg)
             throws Exception {
 
+        printLog(ctx, msg);
+
+        ctx.fireChannelRead(msg);
+    }
+
+    private void printLog(ChannelHandlerContext ctx, Object msg) {
+        // Composing reads the payload, which would copy zero-copy payloads
+        if (!Log.isLoggable(Log.VERBOSE)) {
+            return;
+        }
+
         String log = null;
 
         if (msg instanceof CoapRequest) {
@@ -107,8 +105,6 @@ public class CoapLogHandler extends ChannelDuplexHandler {
         if (log != null) {
             Log.v(log);
         }
-
-        ctx.fireChannelRead(msg);
     }
 
     private String composeCoapRequest(String channelId, CoapRequest request) {
@@ -26,6 +26,8 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.iotivity.cloud.base.exception.ServerException.BadOptionException;
 import org.iotivity.cloud.base.protocols.Message;
@@ -33,30 +35,50 @@ import org.iotivity.cloud.base.protocols.enums.ContentFormat;
 import org.iotivity.cloud.base.protocols.enums.Observe;
 import org.iotivity.cloud.util.Bytes;
 
-public abstract class CoapMessage extends Message {
+import io.netty.buffer.ByteBuf;
+import io.netty.util.IllegalReferenceCountException;
+import io.netty.util.ReferenceCounted;
+import io.netty.util.ResourceLeak;
+import io.netty.util.ResourceLeakDetector;
 
-    protected byte[]       mToken          = null;
-    protected int          mObserve        = -1;
+public abstract class CoapMessage extends Message implements ReferenceCounted {
 
-    // Option fields
-    protected List<byte[]> if_match        = null;
-    protected byte[]       uri_host        = null;
-    protected List<byte[]> etag            = null;
-    protected boolean      if_none_match   = false;
-    protected byte[]       uri_port        = null;
-    protected List<byte[]> location_path   = null;
+    private static final AtomicIntegerFieldUpdater<CoapMessage> refCntUpdater = AtomicIntegerFieldUpdater
+            .newUpdater(CoapMessage.class, "mRefCnt");
 
-    protected byte[]       max_age         = null;
-    protected byte[]       accept          = null;
-    protected List<byte[]> location_query  = null;
-    protected byte[]       proxy_uri       = null;
-    protected byte[]       proxy_scheme    = null;
-    protected byte[]       size1           = null;
-    protected byte[]       content_format  = null;
+    private static final ResourceLeakDetector<CoapMessage> leakDetector = new ResourceLeakDetector<>(
+            CoapMessage.class);
 
-    // OCF spec Option fields
-    protected byte[]       accept_version  = null;
-    protected byte[]       content_version = null;
+    // Pooled messages taken and not yet recycled
+    private static final LongAdder pooledCount = new LongAdder();
+
+    // Option table entry is (number, offset, length)
+    private static final int ENTRY_SIZE        = 3;
+
+    protected byte[]         mToken            = null;
+    protected int            mObserve          = -1;
+
+    // Options are kept in one backing array, indexed by entries sorted by
+    // option number. Observe is kept separately because it is updated per
+    // notification.
+    private byte[]           mOptionData       = null;
+    private int              mOptionDataSize   = 0;
+    private int[]            mOptionEntries    = null;
+    private int              mOptionCount      = 0;
+
+    // Decoded URI strings, built on first access
+    private String           mUriPath          = null;
+    private String[]         mUriPathSegments  = null;
+    private String           mUriQuery         = null;
+    private String[]         mUriQuerySegments = null;
+
+    // Payload view on the inbound buffer, set by zero-copy decoding
+    private ByteBuf          mPayloadBuf       = null;
+    private volatile int     mRefCnt           = 1;
+
+    // Set while the message is taken from a recycler pool
+    private boolean          mPooled           = false;
+    private ResourceLeak     mLeak             = null;
 
     public CoapMessage() {
     }
@@ -65,252 +87,677 @@ public abstract class CoapMessage extends Message {
 
     public void addOption(int optnum, byte[] value) {
         switch (optnum) {
-            // IF_MATCH
-            case 1:
-                if (if_match == null) {
-                    if_match = new ArrayList<>();
-                }
-                if_match.add(value);
-                break;
-
-            // URI_HOST
-            case 3:
-                uri_host = value;
-                break;
-
-            // ETAG
-            case 4:
-                if (etag == null) {
-                    etag = new ArrayList<>();
-                }
-                etag.add(value);
+            // OBSERVE
+            case 6:
+                mObserve = Bytes.bytesToInt(value);
                 break;
 
             // IF_NONE_MATCH
             case 5:
-                if_none_match = true;
+                if (findOption(optnum) == -1) {
+                    putOption(optnum, null, 0, 0);
+                }
                 break;
 
-            // URI_PORT
-            case 7:
-                uri_port = value;
+            default:
+                if (!isSupportedOption(optnum)) {
+                    break;
+                }
+                if (!isRepeatableOption(optnum)) {
+                    removeOption(optnum);
+                }
+                putOption(optnum, value, 0, value != null ? value.length : 0);
                 break;
+        }
+    }
 
-            // LOCATION_PATH
-            case 8:
-                if (location_path == null) {
-                    location_path = new ArrayList<>();
+    /**
+     * API for adding option read from a received buffer. The value is copied
+     * into the option table without an intermediate array.
+     * 
+     * @param optnum
+     *            option number
+     * @param byteBuf
+     *            buffer positioned at the option value
+     * @param length
+     *            length of the option value
+     */
+    public void addOption(int optnum, ByteBuf byteBuf, int length) {
+        switch (optnum) {
+            // OBSERVE
+            case 6:
+                int observe = 0;
+                for (int i = 0; i < length; i++) {
+                    observe = (observe << 8) | (byteBuf.readByte() & 0xFF);
                 }
-                location_path.add(value);
+                mObserve = observe;
                 break;
 
-            // URI_PATH
-            case 11:
-                if (uri_path == null) {
-                    uri_path = new ArrayList<>();
+            // IF_NONE_MATCH
+            case 5:
+                byteBuf.skipBytes(length);
+                if (findOption(optnum) == -1) {
+                    putOption(optnum, null, 0, 0);
                 }
-                uri_path.add(value);
                 break;
 
-            // CONTENT_FORMAT
-            case 12:
-                content_format = value;
+            default:
+                if (!isSupportedOption(optnum)) {
+                    byteBuf.skipBytes(length);
+                    break;
+                }
+                if (!isRepeatableOption(optnum)) {
+                    removeOption(optnum);
+                }
+                int offset = reserveOptionData(length);
+                byteBuf.readBytes(mOptionData, offset, length);
+                addOptionEntry(optnum, offset, length);
                 break;
+        }
+    }
 
-            // MAX_AGE
-            case 14:
-                max_age = value;
-                break;
+    /**
+     * API for reserving option table space before decoding.
+     * 
+     * @param dataSize
+     *            upper bound of the size of option values to be added
+     */
+    public void ensureOptionCapacity(int dataSize) {
+        if (dataSize > 0 && (mOptionData == null
+                || mOptionData.length - mOptionDataSize < dataSize)) {
+            growOptionData(dataSize, true);
+        }
+    }
 
-            // URI_QUERY
-            case 15:
-                if (uri_query == null) {
-                    uri_query = new ArrayList<>();
-                }
-                uri_query.add(value);
-                break;
+    public List<byte[]> getOption(int optnum) {
+        switch (optnum) {
+            // IF_NONE_MATCH
+            case 5:
+                return findOption(optnum) != -1 ? new ArrayList<byte[]>()
+                        : null;
 
-            // ACCEPT
-            case 17:
-                accept = value;
-                break;
+            // OBSERVE
+            case 6:
+                return mObserve != -1
+                        ? Arrays.asList(Bytes.intToMax4Bytes(mObserve)) : null;
+        }
 
-            // LOCATION_QUERY
-            case 20:
-                if (location_query == null) {
-                    location_query = new ArrayList<>();
+        List<byte[]> values = null;
+        for (int i = 0; i < mOptionCount; i++) {
+            if (getEntryNumber(i) == optnum) {
+                if (values == null) {
+                    values = new ArrayList<>();
                 }
-                location_query.add(value);
-                break;
+                values.add(getEntryValue(i));
+            }
+        }
 
-            // PROXY_URI
-            case 35:
-                proxy_uri = value;
-                break;
+        return values;
+    }
 
-            // PROXY_SCHEME
-            case 39:
-                proxy_scheme = value;
-                break;
+    // Option access for CoapEncoder, without building value lists
 
-            // SIZE1
-            case 60:
-                size1 = value;
-                break;
+    int getOptionValueCount(int optnum) {
+        if (optnum == 6) {
+            return mObserve != -1 ? 1 : 0;
+        }
 
-            // OBSERVE
-            case 6:
-                mObserve = Bytes.bytesToInt(value);
+        int count = 0;
+        for (int i = 0; i < mOptionCount; i++) {
+            int entryNumber = getEntryNumber(i);
+            if (entryNumber == optnum) {
+                count++;
+            } else if (entryNumber > optnum) {
                 break;
+            }
+        }
+        return count;
+    }
 
-            // ACCEPT_VERSION
-            case 2049:
-                accept_version = value;
-                break;
+    int getOptionValueLength(int optnum, int index) {
+        if (optnum == 6) {
+            return getObserveLength();
+        }
 
-            // CONTENT_VERSION
-            case 2053:
-                content_version = value;
-                break;
+        return mOptionEntries[(findOption(optnum) + index) * ENTRY_SIZE + 2];
+    }
 
-            default: {
-                if (optnum % 2 == 1) {
-                    throw new BadOptionException(
-                            "unrecognized critical option # " + optnum
-                                    + " received");
-                }
+    void writeOptionValue(int optnum, int index, ByteBuf out) {
+        if (optnum == 6) {
+            for (int i = getObserveLength() - 1; i >= 0; i--) {
+                out.writeByte((mObserve >>> (i * 8)) & 0xFF);
             }
+            return;
         }
+
+        int entry = (findOption(optnum) + index) * ENTRY_SIZE;
+        out.writeBytes(mOptionData, mOptionEntries[entry + 1],
+                mOptionEntries[entry + 2]);
     }
 
-    public List<byte[]> getOption(int optnum) {
+    private int getObserveLength() {
+        if ((mObserve & 0xFF000000) != 0) {
+            return 4;
+        } else if ((mObserve & 0x00FF0000) != 0) {
+            return 3;
+        } else if ((mObserve & 0x0000FF00) != 0) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private static boolean isSupportedOption(int optnum) {
         switch (optnum) {
-            // IF_MATCH
-            case 1:
-                return if_match;
+            case 1: // IF_MATCH
+            case 3: // URI_HOST
+            case 4: // ETAG
+            case 5: // IF_NONE_MATCH
+            case 7: // URI_PORT
+            case 8: // LOCATION_PATH
+            case 11: // URI_PATH
+            case 12: // CONTENT_FORMAT
+            case 14: // MAX_AGE
+            case 15: // URI_QUERY
+            case 17: // ACCEPT
+            case 20: // LOCATION_QUERY
+            case 35: // PROXY_URI
+            case 39: // PROXY_SCHEME
+            case 60: // SIZE1
+            case 2049: // ACCEPT_VERSION
+            case 2053: // CONTENT_VERSION
+                return true;
+        }
 
-            // URI_HOST
-            case 3:
-                return uri_host != null ? Arrays.asList(uri_host) : null;
+        if (optnum % 2 == 1) {
+            throw new BadOptionException(
+                    "unrecognized critical option # " + optnum + " received");
+        }
 
-            // ETAG
-            case 4:
-                return etag;
+        return false;
+    }
 
-            // IF_NONE_MATCH
-            case 5:
-                return if_none_match == true ? new ArrayList<byte[]>() : null;
+    private static boolean isRepeatableOption(int optnum) {
+        switch (optnum) {
+            case 1: // IF_MATCH
+            case 4: // ETAG
+            case 8: // LOCATION_PATH
+            case 11: // URI_PATH
+            case 15: // URI_QUERY
+            case 20: // LOCATION_QUERY
+                return true;
+        }
+        return false;
+    }
 
-            // URI_PORT
-            case 7:
-                return uri_port != null ? Arrays.asList(uri_port) : null;
+    private int getEntryNumber(int index) {
+        return mOptionEntries[index * ENTRY_SIZE];
+    }
 
-            // LOCATION_PATH
-            case 8:
-                return location_path;
+    private byte[] getEntryValue(int index) {
+        int offset = mOptionEntries[index * ENTRY_SIZE + 1];
+        return Arrays.copyOfRange(mOptionData, offset,
+                offset + mOptionEntries[index * ENTRY_SIZE + 2]);
+    }
 
-            // URI_PATH
-            case 11:
-                return uri_path;
+    private String getEntryString(int index) {
+        return new String(mOptionData, mOptionEntries[index * ENTRY_SIZE + 1],
+                mOptionEntries[index * ENTRY_SIZE + 2],
+                StandardCharsets.UTF_8);
+    }
 
-            // CONTENT_FORMAT
-            case 12:
-                return content_format != null ? Arrays.asList(content_format)
-                        : null;
+    private int findOption(int optnum) {
+        for (int i = 0; i < mOptionCount; i++) {
+            int entryNumber = getEntryNumber(i);
+            if (entryNumber == optnum) {
+                return i;
+            } else if (entryNumber > optnum) {
+                break;
+            }
+        }
+        return -1;
+    }
 
-            // MAX_AGE
-            case 14:
-                return max_age != null ? Arrays.asList(max_age) : null;
+    // Reads option value as unsigned integer, 0 if option is absent
+    private int getOptionInt(int optnum) {
+        int index = findOption(optnum);
+        if (index == -1) {
+            return 0;
+        }
 
-            // URI_QUERY
-            case 15:
-                return uri_query;
+        int offset = mOptionEntries[index * ENTRY_SIZE + 1];
+        int length = mOptionEntries[index * ENTRY_SIZE + 2];
+        int value = 0;
+        for (int i = 0; i < length; i++) {
+            value = (value << 8) | (mOptionData[offset + i] & 0xFF);
+        }
+        return value;
+    }
 
-            // ACCEPT
-            case 17:
-                return accept != null ? Arrays.asList(accept) : null;
+    private void setOption(int optnum, byte[] value) {
+        removeOption(optnum);
+        putOption(optnum, value, 0, value.length);
+    }
 
-            // LOCATION_QUERY
-            case 20:
-                return location_query;
+    private void putOption(int optnum, byte[] value, int valueOffset,
+            int length) {
+        int offset = reserveOptionData(length);
+        if (length > 0) {
+            System.arraycopy(value, valueOffset, mOptionData, offset, length);
+        }
+        addOptionEntry(optnum, offset, length);
+    }
 
-            // PROXY_URI
-            case 35:
-                return proxy_uri != null ? Arrays.asList(proxy_uri) : null;
+    private int reserveOptionData(int length) {
+        if (mOptionData == null
+                || mOptionData.length - mOptionDataSize < length) {
+            growOptionData(length, false);
+        }
+        int offset = mOptionDataSize;
+        mOptionDataSize += length;
+        return offset;
+    }
 
-            // PROXY_SCHEME
-            case 39:
-                return proxy_scheme != null ? Arrays.asList(proxy_scheme)
-                        : null;
+    private void growOptionData(int required, boolean exact) {
+        // Compact values of removed options while growing
+        int liveSize = 0;
+        for (int i = 0; i < mOptionCount; i++) {
+            liveSize += mOptionEntries[i * ENTRY_SIZE + 2];
+        }
 
-            // SIZE1
-            case 60:
-                return size1 != null ? Arrays.asList(size1) : null;
+        byte[] data = new byte[exact ? liveSize + required
+                : Math.max(64, (liveSize + required) * 2)];
+        int dataSize = 0;
+        for (int i = 0; i < mOptionCount; i++) {
+            int entry = i * ENTRY_SIZE;
+            System.arraycopy(mOptionData, mOptionEntries[entry + 1], data,
+                    dataSize, mOptionEntries[entry + 2]);
+            mOptionEntries[entry + 1] = dataSize;
+            dataSize += mOptionEntries[entry + 2];
+        }
 
-            // OBSERVE
-            case 6:
-                return mObserve != -1
-                        ? Arrays.asList(Bytes.intToMax4Bytes(mObserve)) : null;
+        mOptionData = data;
+        mOptionDataSize = dataSize;
+    }
 
-            // ACCEPT_VERSION
-            case 2049:
-                return accept_version != null ? Arrays.asList(accept_version)
-                        : null;
+    private void addOptionEntry(int optnum, int offset, int length) {
+        if (mOptionEntries == null) {
+            mOptionEntries = new int[8 * ENTRY_SIZE];
+        } else if (mOptionEntries.length == mOptionCount * ENTRY_SIZE) {
+            mOptionEntries = Arrays.copyOf(mOptionEntries,
+                    mOptionEntries.length * 2);
+        }
 
-            // CONTENT_VERSION
-            case 2053:
-                return content_version != null ? Arrays.asList(content_version)
-                        : null;
+        // Keep entries sorted by number, after values of the same number
+        int index = mOptionCount;
+        while (index > 0 && getEntryNumber(index - 1) > optnum) {
+            index--;
+        }
+
+        if (index < mOptionCount) {
+            System.arraycopy(mOptionEntries, index * ENTRY_SIZE,
+                    mOptionEntries, (index + 1) * ENTRY_SIZE,
+                    (mOptionCount - index) * ENTRY_SIZE);
+        }
+
+        mOptionEntries[index * ENTRY_SIZE] = optnum;
+        mOptionEntries[index * ENTRY_SIZE + 1] = offset;
+        mOptionEntries[index * ENTRY_SIZE + 2] = length;
+        mOptionCount++;
+
+        invalidateUriCache(optnum);
+    }
+
+    private void removeOption(int optnum) {
+        int count = 0;
+        for (int i = 0; i < mOptionCount; i++) {
+            if (getEntryNumber(i) != optnum) {
+                if (count != i) {
+                    System.arraycopy(mOptionEntries, i * ENTRY_SIZE,
+                            mOptionEntries, count * ENTRY_SIZE, ENTRY_SIZE);
+                }
+                count++;
+            }
+        }
+
+        if (count != mOptionCount) {
+            mOptionCount = count;
+            invalidateUriCache(optnum);
+        }
+    }
+
+    private void invalidateUriCache(int optnum) {
+        switch (optnum) {
+            // URI_PATH
+            case 11:
+                mUriPath = null;
+                mUriPathSegments = null;
+                break;
+
+            // URI_QUERY
+            case 15:
+                mUriQuery = null;
+                mUriQuerySegments = null;
+                break;
+        }
+    }
+
+    private String[] getOptionStrings(int optnum) {
+        int index = findOption(optnum);
+        if (index == -1) {
+            return null;
+        }
+
+        int count = getOptionValueCount(optnum);
+        String[] strings = new String[count];
+        for (int i = 0; i < count; i++) {
+            strings[i] = getEntryString(index + i);
+        }
+        return strings;
+    }
+
+    private void setOptionStrings(int optnum, String value, String regex,
+            boolean skipEmpty) {
+        removeOption(optnum);
+
+        if (value == null || value.length() == 0) {
+            return;
         }
 
-        return null;
+        for (String segment : value.split(regex)) {
+            if (skipEmpty && segment.length() == 0)
+                continue;
+            byte[] bytes = segment.getBytes(StandardCharsets.UTF_8);
+            putOption(optnum, bytes, 0, bytes.length);
+        }
     }
 
     public void setPayload(byte[] payload) {
+        releasePayloadBuf();
         this.payload = payload;
     }
 
-    public void setUriPath(String path) {
-        if (uri_path == null) {
-            uri_path = new ArrayList<>();
-        } else {
-            uri_path.clear();
+    /**
+     * API for setting payload as a view on a received buffer. The message
+     * takes over one reference of the buffer, which is released when the
+     * message itself is released or the payload is replaced.
+     * 
+     * @param payloadBuf
+     *            retained buffer holding the payload
+     */
+    public void setPayloadBuffer(ByteBuf payloadBuf) {
+        releasePayloadBuf();
+        this.payload = null;
+        this.mPayloadBuf = payloadBuf;
+        if (!mPooled) {
+            this.mRefCnt = 1;
         }
+    }
+
+    /**
+     * API for getting payload buffer set by zero-copy decoding.
+     * 
+     * @return payload buffer, or null if payload is held as a byte array
+     */
+    public ByteBuf getPayloadBuffer() {
+        return mPayloadBuf;
+    }
 
-        if (path == null || path.length() == 0) {
-            uri_path.clear();
-            uri_path = null;
+    @Override
+    public byte[] getPayload() {
+        ByteBuf payloadBuf = mPayloadBuf;
+        if (payload == null && payloadBuf != null) {
+            // Materialize once, handlers that inspect the payload expect an
+            // array. The buffer is kept until the message is released, an
+            // encoder may be writing it on another thread
+            byte[] copied = new byte[payloadBuf.readableBytes()];
+            payloadBuf.getBytes(payloadBuf.readerIndex(), copied);
+            payload = copied;
+        }
+        return payload;
+    }
+
+    @Override
+    public int getPayloadSize() {
+        ByteBuf payloadBuf = mPayloadBuf;
+        if (payloadBuf != null) {
+            return payloadBuf.readableBytes();
+        }
+        return super.getPayloadSize();
+    }
+
+    private void releasePayloadBuf() {
+        ByteBuf payloadBuf = mPayloadBuf;
+        mPayloadBuf = null;
+        if (payloadBuf != null) {
+            payloadBuf.release();
+        }
+    }
+
+    /**
+     * API for getting number of pooled messages which are taken and not yet
+     * released. Tests use it to check that every pooled message reaches the
+     * end of the pipeline.
+     * 
+     * @return number of pooled messages in use
+     */
+    public static long getPooledMessageCount() {
+        return pooledCount.sum();
+    }
+
+    /**
+     * API for checking whether the message is taken from a recycler pool. A
+     * pooled message is recycled when its last reference is released, so
+     * anyone keeping it beyond the current call must retain it.
+     * 
+     * @return true if the message is pooled
+     */
+    public boolean isPooled() {
+        return mPooled;
+    }
+
+    // Called by subclasses on a message taken from their recycler
+    protected void initPooled() {
+        mPooled = true;
+        mRefCnt = 1;
+        mLeak = leakDetector.open(this);
+        pooledCount.increment();
+    }
+
+    // Hands the cleared message back to its recycler
+    protected void recycle() {
+    }
+
+    private void deallocate() {
+        releasePayloadBuf();
+
+        if (!mPooled) {
             return;
         }
 
-        String[] pathSegments = path.split("/");
-        for (String pathSegment : pathSegments) {
-            if (pathSegment.length() == 0)
-                continue;
-            uri_path.add(pathSegment.getBytes(StandardCharsets.UTF_8));
+        if (mLeak != null) {
+            mLeak.close();
+            mLeak = null;
+        }
+        pooledCount.decrement();
+
+        // Keep option arrays for the next message taken from the pool
+        payload = null;
+        mToken = null;
+        mObserve = -1;
+        mOptionDataSize = 0;
+        mOptionCount = 0;
+        mUriPath = null;
+        mUriPathSegments = null;
+        mUriQuery = null;
+        mUriQuerySegments = null;
+        mPooled = false;
+
+        recycle();
+    }
+
+    // Reference counting applies to pooled messages and while the payload is
+    // a buffer view. Other messages can be written any number of times.
+    private boolean isRefCounted() {
+        return mPooled || mPayloadBuf != null;
+    }
+
+    @Override
+    public int refCnt() {
+        return isRefCounted() ? mRefCnt : 1;
+    }
+
+    @Override
+    public CoapMessage retain() {
+        return retain(1);
+    }
+
+    @Override
+    public CoapMessage retain(int increment) {
+        if (isRefCounted()) {
+            int refCnt = refCntUpdater.getAndAdd(this, increment);
+            if (refCnt <= 0) {
+                refCntUpdater.getAndAdd(this, -increment);
+                throw new IllegalReferenceCountException(refCnt, increment);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public CoapMessage touch() {
+        return touch(null);
+    }
+
+    @Override
+    public CoapMessage touch(Object hint) {
+        if (mLeak != null) {
+            mLeak.record(hint);
+        }
+        ByteBuf payloadBuf = mPayloadBuf;
+        if (payloadBuf != null) {
+            payloadBuf.touch(hint);
+        }
+        return this;
+    }
+
+    @Override
+    public boolean release() {
+        return release(1);
+    }
+
+    @Override
+    public boolean release(int decrement) {
+        if (!isRefCounted()) {
+            return false;
+        }
+
+        int refCnt = refCntUpdater.addAndGet(this, -decrement);
+        if (refCnt < 0) {
+            refCntUpdater.getAndAdd(this, decrement);
+            throw new IllegalReferenceCountException(refCnt + decrement,
+                    -decrement);
         }
+
+        if (refCnt == 0) {
+            deallocate();
+            return true;
+        }
+        return false;
+    }
+
+    public void setUriPath(String path) {
+        setOptionStrings(11, path, "/", true);
     }
 
     public void setUriQuery(String query) {
-        if (uri_query == null) {
-            uri_query = new ArrayList<>();
-        } else {
-            uri_query.clear();
+        setOptionStrings(15, query, ";", false);
+    }
+
+    /**
+     * API for copying uri path of other message. Option values are copied as
+     * they are, so the path is not decoded and split again.
+     * 
+     * @param message
+     *            message to copy uri path from
+     */
+    public void copyUriPath(CoapMessage message) {
+        removeOption(11);
+
+        int index = message.findOption(11);
+        if (index != -1) {
+            int count = message.getOptionValueCount(11);
+            for (int i = index; i < index + count; i++) {
+                int entry = i * ENTRY_SIZE;
+                putOption(11, message.mOptionData,
+                        message.mOptionEntries[entry + 1],
+                        message.mOptionEntries[entry + 2]);
+            }
         }
 
-        if (query == null || query.length() == 0) {
-            uri_query.clear();
-            uri_query = null;
-            return;
+        // Cached strings are never modified, so they can be shared
+        mUriPath = message.mUriPath;
+        mUriPathSegments = message.mUriPathSegments;
+    }
+
+    @Override
+    public List<String> getUriPathSegments() {
+        String[] segments = getUriPathSegmentArray();
+        if (segments == null) {
+            return null;
         }
+        // Callers may modify the list, so hand out a copy
+        return new ArrayList<>(Arrays.asList(segments));
+    }
+
+    @Override
+    public String getUriPath() {
+        if (mUriPath == null) {
+            String[] segments = getUriPathSegmentArray();
+            if (segments == null) {
+                return null;
+            }
+            mUriPath = "/" + String.join("/", segments);
+        }
+        return mUriPath;
+    }
+
+    @Override
+    public String getUriQuery() {
+        if (mUriQuery == null) {
+            String[] segments = getUriQuerySegmentArray();
+            if (segments == null) {
+                return null;
+            }
+            mUriQuery = String.join(";", segments);
+        }
+        return mUriQuery;
+    }
+
+    @Override
+    public List<String> getUriQuerySegments() {
+        String[] segments = getUriQuerySegmentArray();
+        if (segments == null) {
+            return null;
+        }
+        return new ArrayList<>(Arrays.asList(segments));
+    }
 
-        String[] querySegments = query.split(";");
-        for (String querySegment : querySegments) {
-            uri_query.add(querySegment.getBytes(StandardCharsets.UTF_8));
+    private String[] getUriPathSegmentArray() {
+        if (mUriPathSegments == null) {
+            mUriPathSegments = getOptionStrings(11);
         }
+        return mUriPathSegments;
+    }
+
+    private String[] getUriQuerySegmentArray() {
+        if (mUriQuerySegments == null) {
+            mUriQuerySegments = getOptionStrings(15);
+        }
+        return mUriQuerySegments;
     }
 
     public String getPayloadString() {
+        byte[] payload = getPayload();
         if (payload == null)
             return "";
         return new String(payload, Charset.forName("UTF-8"));
@@ -416,16 +863,16 @@ public abstract class CoapMessage extends Message {
                 value = 60;
                 break;
         }
-        content_format = new byte[] { value };
+        setOption(12, new byte[] { value });
     }
 
     public ContentFormat getContentFormat() {
 
-        if (content_format == null) {
+        if (findOption(12) == -1) {
             return ContentFormat.NO_CONTENT;
         }
 
-        int contentFormat = Bytes.bytesToInt(content_format);
+        int contentFormat = getOptionInt(12);
 
         switch (contentFormat) {
             case 40:
@@ -452,19 +899,11 @@ public abstract class CoapMessage extends Message {
     }
 
     public int getContentFormatValue() {
-        if (content_format == null) {
-            return 0;
-        } else {
-            return Bytes.bytesToInt(content_format);
-        }
+        return getOptionInt(12);
     }
 
     public int getAcceptVersionValue() {
-        if (accept_version == null) {
-            return 0;
-        } else {
-            return Bytes.bytesToInt(accept_version);
-        }
+        return getOptionInt(2049);
     }
 
     public void setVersionValue(int value) {
@@ -473,42 +912,21 @@ public abstract class CoapMessage extends Message {
     }
 
     public void setAcceptVersionValue(int value) {
-        accept_version = new byte[] { (byte) ((value >> 8) & 0xFF),
-                (byte) (value & 0xFF) };
+        setOption(2049, new byte[] { (byte) ((value >> 8) & 0xFF),
+                (byte) (value & 0xFF) });
     }
 
     public int getContentVersionValue() {
-        if (content_version == null) {
-            return 0;
-        } else {
-            return Bytes.bytesToInt(content_version);
-        }
+        return getOptionInt(2053);
     }
 
     public void setContentVersionValue(int value) {
-        content_version = new byte[] { (byte) ((value >> 8) & 0xFF),
-                (byte) (value & 0xFF) };
+        setOption(2053, new byte[] { (byte) ((value >> 8) & 0xFF),
+                (byte) (value & 0xFF) });
     }
 
     @Override
     public void setLocationPath(String locationPath) {
-        if (location_path == null) {
-            location_path = new ArrayList<>();
-        } else {
-            location_path.clear();
-        }
-
-        if (locationPath == null || locationPath.length() == 0) {
-            location_path.clear();
-            location_path = null;
-            return;
-        }
-
-        String[] pathSegments = locationPath.split("/");
-        for (String pathSegment : pathSegments) {
-            if (pathSegment.length() == 0)
-                continue;
-            location_path.add(pathSegment.getBytes(StandardCharsets.UTF_8));
-        }
+        setOptionStrings(8, locationPath, "/", true);
     }
-}
+}
\ No newline at end of file
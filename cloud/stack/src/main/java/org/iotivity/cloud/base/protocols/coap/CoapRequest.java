@@ -26,27 +26,58 @@ import org.iotivity.cloud.base.protocols.enums.RequestMethod;
 import org.iotivity.cloud.base.protocols.enums.ResponseStatus;
 import org.iotivity.cloud.base.protocols.enums.SignalingMethod;
 
+import io.netty.util.Recycler;
+import io.netty.util.Recycler.Handle;
+
 public class CoapRequest extends CoapMessage {
-    private RequestMethod mRequestMethod;
+    private static final Recycler<CoapRequest> RECYCLER = new Recycler<CoapRequest>() {
+        @Override
+        protected CoapRequest newObject(Handle<CoapRequest> handle) {
+            return new CoapRequest(handle);
+        }
+    };
+
+    private RequestMethod       mRequestMethod;
+    private Handle<CoapRequest> mRecyclerHandle = null;
+
+    private CoapRequest(Handle<CoapRequest> handle) {
+        mRecyclerHandle = handle;
+    }
 
     public CoapRequest(RequestMethod requestMethod) {
         mRequestMethod = requestMethod;
     }
 
     public CoapRequest(int code) {
+        mRequestMethod = getRequestMethod(code);
+    }
+
+    /**
+     * API for taking request from the recycler pool. The request is recycled
+     * when it is released for the last time.
+     * 
+     * @param code
+     *            CoAP method code
+     * @return pooled request
+     */
+    public static CoapRequest newInstance(int code) {
+        RequestMethod requestMethod = getRequestMethod(code);
+        CoapRequest coapRequest = RECYCLER.get();
+        coapRequest.mRequestMethod = requestMethod;
+        coapRequest.initPooled();
+        return coapRequest;
+    }
+
+    private static RequestMethod getRequestMethod(int code) {
         switch (code) {
             case 1:
-                mRequestMethod = RequestMethod.GET;
-                break;
+                return RequestMethod.GET;
             case 2:
-                mRequestMethod = RequestMethod.POST;
-                break;
+                return RequestMethod.POST;
             case 3:
-                mRequestMethod = RequestMethod.PUT;
-                break;
+                return RequestMethod.PUT;
             case 4:
-                mRequestMethod = RequestMethod.DELETE;
-                break;
+                return RequestMethod.DELETE;
             default:
                 // unrecognized or unsupported Method Code MUST generate
                 // a 4.05 (Method Not Allowed) piggybacked response. (RFC7252)
@@ -54,6 +85,12 @@ public class CoapRequest extends CoapMessage {
         }
     }
 
+    @Override
+    protected void recycle() {
+        mRequestMethod = null;
+        mRecyclerHandle.recycle(this);
+    }
+
     @Override
     public int getCode() {
         switch (mRequestMethod) {
@@ -25,85 +25,104 @@ import org.iotivity.cloud.base.protocols.enums.RequestMethod;
 import org.iotivity.cloud.base.protocols.enums.ResponseStatus;
 import org.iotivity.cloud.base.protocols.enums.SignalingMethod;
 
+import io.netty.util.Recycler;
+import io.netty.util.Recycler.Handle;
+
 public class CoapResponse extends CoapMessage {
-    private ResponseStatus mResponseStatus;
+    private static final Recycler<CoapResponse> RECYCLER = new Recycler<CoapResponse>() {
+        @Override
+        protected CoapResponse newObject(Handle<CoapResponse> handle) {
+            return new CoapResponse(handle);
+        }
+    };
+
+    private ResponseStatus       mResponseStatus;
+    private Handle<CoapResponse> mRecyclerHandle = null;
+
+    private CoapResponse(Handle<CoapResponse> handle) {
+        mRecyclerHandle = handle;
+    }
 
     public CoapResponse(ResponseStatus responseStatus) {
         mResponseStatus = responseStatus;
     }
 
     public CoapResponse(int code) {
+        mResponseStatus = getResponseStatus(code);
+    }
+
+    /**
+     * API for taking response from the recycler pool. The response is
+     * recycled when it is released for the last time.
+     * 
+     * @param code
+     *            CoAP response code
+     * @return pooled response
+     */
+    public static CoapResponse newInstance(int code) {
+        CoapResponse coapResponse = RECYCLER.get();
+        coapResponse.mResponseStatus = getResponseStatus(code);
+        coapResponse.initPooled();
+        return coapResponse;
+    }
+
+    private static ResponseStatus getResponseStatus(int code) {
         switch (code) {
             case 65:
-                mResponseStatus = ResponseStatus.CREATED;
-                break;
+                return ResponseStatus.CREATED;
             case 66:
-                mResponseStatus = ResponseStatus.DELETED;
-                break;
+                return ResponseStatus.DELETED;
             case 67:
-                mResponseStatus = ResponseStatus.VALID;
-                break;
+                return ResponseStatus.VALID;
             case 68:
-                mResponseStatus = ResponseStatus.CHANGED;
-                break;
+                return ResponseStatus.CHANGED;
             case 69:
-                mResponseStatus = ResponseStatus.CONTENT;
-                break;
+                return ResponseStatus.CONTENT;
             case 128:
-                mResponseStatus = ResponseStatus.BAD_REQUEST;
-                break;
+                return ResponseStatus.BAD_REQUEST;
             case 129:
-                mResponseStatus = ResponseStatus.UNAUTHORIZED;
-                break;
+                return ResponseStatus.UNAUTHORIZED;
             case 130:
-                mResponseStatus = ResponseStatus.BAD_OPTION;
-                break;
+                return ResponseStatus.BAD_OPTION;
             case 131:
-                mResponseStatus = ResponseStatus.FORBIDDEN;
-                break;
+                return ResponseStatus.FORBIDDEN;
             case 132:
-                mResponseStatus = ResponseStatus.NOT_FOUND;
-                break;
+                return ResponseStatus.NOT_FOUND;
             case 133:
-                mResponseStatus = ResponseStatus.METHOD_NOT_ALLOWED;
-                break;
+                return ResponseStatus.METHOD_NOT_ALLOWED;
             case 134:
-                mResponseStatus = ResponseStatus.NOT_ACCEPTABLE;
-                break;
+                return ResponseStatus.NOT_ACCEPTABLE;
             case 140:
-                mResponseStatus = ResponseStatus.PRECONDITION_FAILED;
-                break;
+                return ResponseStatus.PRECONDITION_FAILED;
             case 141:
-                mResponseStatus = ResponseStatus.REQUEST_ENTITY_TOO_LARGE;
-                break;
+                return ResponseStatus.REQUEST_ENTITY_TOO_LARGE;
             case 143:
-                mResponseStatus = ResponseStatus.UNSUPPORTED_CONTENT_FORMAT;
-                break;
+                return ResponseStatus.UNSUPPORTED_CONTENT_FORMAT;
             case 160:
-                mResponseStatus = ResponseStatus.INTERNAL_SERVER_ERROR;
-                break;
+                return ResponseStatus.INTERNAL_SERVER_ERROR;
             case 161:
-                mResponseStatus = ResponseStatus.NOT_IMPLEMENTED;
-                break;
+                return ResponseStatus.NOT_IMPLEMENTED;
             case 162:
-                mResponseStatus = ResponseStatus.BAD_GATEWAY;
-                break;
+                return ResponseStatus.BAD_GATEWAY;
             case 163:
-                mResponseStatus = ResponseStatus.SERVICE_UNAVAILABLE;
-                break;
+                return ResponseStatus.SERVICE_UNAVAILABLE;
             case 164:
-                mResponseStatus = ResponseStatus.GATEWAY_TIMEOUT;
-                break;
+                return ResponseStatus.GATEWAY_TIMEOUT;
             case 165:
-                mResponseStatus = ResponseStatus.PROXY_NOT_SUPPORTED;
-                break;
+                return ResponseStatus.PROXY_NOT_SUPPORTED;
             default:
                 // unrecognized response code is treated as being equivalent to
                 // the generic response code of 4.00 (RFC7252)
-                mResponseStatus = ResponseStatus.BAD_REQUEST;
+                return ResponseStatus.BAD_REQUEST;
         }
     }
 
+    @Override
+    protected void recycle() {
+        mResponseStatus = null;
+        mRecyclerHandle.recycle(this);
+    }
+
     @Override
     public int getCode() {
         // TODO Auto-generated method stub
@@ -33,6 +33,8 @@ import org.iotivity.cloud.base.protocols.enums.RequestMethod;
 import org.iotivity.cloud.base.protocols.enums.ResponseStatus;
 import org.iotivity.cloud.base.protocols.enums.SignalingMethod;
 
+import io.netty.buffer.ByteBuf;
+
 public class CoapSignaling extends CoapMessage {
     private SignalingMethod mSignalingMethod;
 
@@ -123,6 +125,18 @@ public class CoapSignaling extends CoapMessage {
         }
     }
 
+    @Override
+    public void addOption(int optnum, ByteBuf byteBuf, int length) {
+        byte[] value = new byte[length];
+        byteBuf.readBytes(value);
+        addOption(optnum, value);
+    }
+
+    @Override
+    public void ensureOptionCapacity(int dataSize) {
+        // Signaling options are kept in their own fields
+    }
+
     private void addCsmOption(int optnum, byte[] value) {
         switch (optnum) {
             // SERVER_NAME
@@ -252,6 +266,33 @@ public class CoapSignaling extends CoapMessage {
         return null;
     }
 
+    // Signaling messages are rare, so the encoder reads them through the
+    // option lists
+
+    @Override
+    int getOptionValueCount(int optnum) {
+        List<byte[]> values = getOption(optnum);
+        return values != null ? Math.max(values.size(), 1) : 0;
+    }
+
+    @Override
+    int getOptionValueLength(int optnum, int index) {
+        List<byte[]> values = getOption(optnum);
+        if (values == null || values.isEmpty() || values.get(index) == null) {
+            return 0;
+        }
+        return values.get(index).length;
+    }
+
+    @Override
+    void writeOptionValue(int optnum, int index, ByteBuf out) {
+        List<byte[]> values = getOption(optnum);
+        if (values != null && !values.isEmpty()
+                && values.get(index) != null) {
+            out.writeBytes(values.get(index));
+        }
+    }
+
     public List<byte[]> getCsmOption(int optnum) {
         switch (optnum) {
             // SERVER_NAME
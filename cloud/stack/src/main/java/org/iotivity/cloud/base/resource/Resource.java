@@ -25,6 +25,8 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.iotivity.cloud.base.device.Device;
 import org.iotivity.cloud.base.device.IRequestEventHandler;
@@ -33,11 +35,19 @@ import org.iotivity.cloud.base.exception.ServerException.BadRequestException;
 import org.iotivity.cloud.base.exception.ServerException.NotFoundException;
 import org.iotivity.cloud.base.exception.ServerException.PreconditionFailedException;
 import org.iotivity.cloud.base.protocols.IRequest;
+import org.iotivity.cloud.base.protocols.IResponse;
+import org.iotivity.cloud.base.protocols.MessageBuilder;
+import org.iotivity.cloud.base.protocols.enums.ResponseStatus;
+import org.iotivity.cloud.util.Log;
+
+import io.netty.util.ReferenceCountUtil;
 
 public class Resource implements IRequestEventHandler {
 
     private List<String> mPathSegments;
 
+    private boolean      mBlocking = false;
+
     public interface Functional {
         void queryHandler(Device srcDevice, IRequest request)
                 throws ServerException;
@@ -58,6 +68,22 @@ public class Resource implements IRequestEventHandler {
         mPathSegments = pathSegments;
     }
 
+    /**
+     * API for marking handlers of this resource as blocking, e.g. waiting on
+     * a database. Blocking resources are run by the resource executor of the
+     * resource manager instead of the event loop.
+     * 
+     * @param blocking
+     *            true if handlers may block
+     */
+    public void setBlocking(boolean blocking) {
+        mBlocking = blocking;
+    }
+
+    public boolean isBlocking() {
+        return mBlocking;
+    }
+
     @Override
     final public void onRequestReceived(Device srcDevice, IRequest request)
             throws ServerException {
@@ -84,6 +110,41 @@ public class Resource implements IRequestEventHandler {
         throw new NotFoundException("No handlers registered");
     }
 
+    /**
+     * API for sending a response completed later, e.g. by a database
+     * callback. The request is kept until the response is sent, and a failure
+     * is answered like an exception thrown by a handler.
+     * 
+     * @param srcDevice
+     *            device that sent the request
+     * @param request
+     *            received request
+     * @param response
+     *            response to be sent when completed
+     */
+    public void sendResponseAsync(Device srcDevice, IRequest request,
+            CompletableFuture<IResponse> response) {
+        ReferenceCountUtil.retain(request);
+        response.whenComplete((result, error) -> {
+            try {
+                if (error == null) {
+                    srcDevice.sendResponse(result);
+                    return;
+                }
+
+                Throwable cause = error instanceof CompletionException
+                        && error.getCause() != null ? error.getCause() : error;
+                Log.w("Request handling failed", cause);
+                srcDevice.sendResponse(MessageBuilder.createResponse(request,
+                        cause instanceof ServerException
+                                ? ((ServerException) cause).getErrorResponse()
+                                : ResponseStatus.INTERNAL_SERVER_ERROR));
+            } finally {
+                ReferenceCountUtil.release(request);
+            }
+        });
+    }
+
     public boolean checkQueryException(String property,
             HashMap<String, List<String>> queryData) {
         return checkQueryException(Arrays.asList(property), queryData);
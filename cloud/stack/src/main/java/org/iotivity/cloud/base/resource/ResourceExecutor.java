@@ -0,0 +1,173 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.base.resource;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.iotivity.cloud.base.device.Device;
+import org.iotivity.cloud.base.exception.ServerException;
+import org.iotivity.cloud.base.protocols.IRequest;
+import org.iotivity.cloud.base.protocols.MessageBuilder;
+import org.iotivity.cloud.base.protocols.enums.ResponseStatus;
+import org.iotivity.cloud.util.Log;
+
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ *
+ * This class runs blocking resource handlers on worker threads so they do
+ * not stall the event loops. Each device is bound to one worker lane, so
+ * requests from a device are handled in the order they arrived.
+ *
+ */
+public class ResourceExecutor {
+
+    public static final int      DEFAULT_THREAD_COUNT = Runtime.getRuntime()
+            .availableProcessors() * 4;
+
+    public static final int      DEFAULT_QUEUE_SIZE   = 1024;
+
+    private ThreadPoolExecutor[] mLanes               = null;
+
+    private LongAdder            mRejectedCount       = new LongAdder();
+
+    public ResourceExecutor() {
+        this(DEFAULT_THREAD_COUNT, DEFAULT_QUEUE_SIZE);
+    }
+
+    /**
+     * @param threadCount
+     *            number of worker lanes, each served by one thread
+     * @param queueSize
+     *            requests each lane can hold before new ones are rejected
+     *            with SERVICE_UNAVAILABLE
+     */
+    public ResourceExecutor(int threadCount, int queueSize) {
+        DefaultThreadFactory threadFactory = new DefaultThreadFactory(
+                "resource-worker");
+        mLanes = new ThreadPoolExecutor[Math.max(threadCount, 1)];
+        for (int i = 0; i < mLanes.length; i++) {
+            mLanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<Runnable>(queueSize),
+                    threadFactory);
+        }
+    }
+
+    /**
+     * API for running request handler on the lane of the source device
+     * 
+     * @param srcDevice
+     *            device that sent the request
+     * @param request
+     *            received request, retained until the handler returns
+     * @param requestHandler
+     *            handler to run
+     */
+    public void execute(Device srcDevice, IRequest request,
+            Resource requestHandler) {
+        ReferenceCountUtil.retain(request);
+        try {
+            getLane(srcDevice).execute(
+                    () -> runHandler(srcDevice, request, requestHandler));
+        } catch (RejectedExecutionException e) {
+            mRejectedCount.increment();
+            ReferenceCountUtil.release(request);
+            throw new ServerException.ServiceUnavailableException(
+                    "Resource workers are busy");
+        }
+    }
+
+    private void runHandler(Device srcDevice, IRequest request,
+            Resource requestHandler) {
+        try {
+            requestHandler.onRequestReceived(srcDevice, request);
+        } catch (ServerException e) {
+            Log.f(srcDevice.getCtx().channel(), e);
+            srcDevice.sendResponse(MessageBuilder.createResponse(request,
+                    e.getErrorResponse()));
+        } catch (Throwable t) {
+            Log.f(srcDevice.getCtx().channel(), t);
+            srcDevice.sendResponse(MessageBuilder.createResponse(request,
+                    ResponseStatus.INTERNAL_SERVER_ERROR));
+        } finally {
+            ReferenceCountUtil.release(request);
+        }
+    }
+
+    private ThreadPoolExecutor getLane(Device srcDevice) {
+        return mLanes[(System.identityHashCode(srcDevice) & 0x7FFFFFFF)
+                % mLanes.length];
+    }
+
+    /**
+     * API for getting number of requests waiting on all lanes
+     * 
+     * @return queued request count
+     */
+    public int getQueueDepth() {
+        int queueDepth = 0;
+        for (ThreadPoolExecutor lane : mLanes) {
+            queueDepth += lane.getQueue().size();
+        }
+        return queueDepth;
+    }
+
+    /**
+     * API for getting number of requests waiting on the deepest lane
+     * 
+     * @return queued request count of the busiest lane
+     */
+    public int getMaxLaneQueueDepth() {
+        int queueDepth = 0;
+        for (ThreadPoolExecutor lane : mLanes) {
+            queueDepth = Math.max(queueDepth, lane.getQueue().size());
+        }
+        return queueDepth;
+    }
+
+    /**
+     * API for getting number of requests rejected because a lane was full
+     * 
+     * @return rejected request count
+     */
+    public long getRejectedCount() {
+        return mRejectedCount.sum();
+    }
+
+    public int getThreadCount() {
+        return mLanes.length;
+    }
+
+    public void shutdown() throws InterruptedException {
+        for (ThreadPoolExecutor lane : mLanes) {
+            lane.shutdown();
+        }
+        for (ThreadPoolExecutor lane : mLanes) {
+            lane.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -29,12 +29,29 @@ import org.iotivity.cloud.base.protocols.IRequest;
 
 public class ResourceManager implements IRequestEventHandler {
 
-    private URIPathNode mPathList = new URIPathNode();
+    private URIPathNode      mPathList         = new URIPathNode();
+
+    private ResourceExecutor mResourceExecutor = null;
 
     public void addResource(Resource resource) {
         mPathList.addHandler(resource.getUriPathSegments(), resource);
     }
 
+    /**
+     * API for setting executor running blocking resources. Without one, all
+     * resources are handled on the event loop.
+     * 
+     * @param resourceExecutor
+     *            executor for resources marked as blocking
+     */
+    public void setResourceExecutor(ResourceExecutor resourceExecutor) {
+        mResourceExecutor = resourceExecutor;
+    }
+
+    public ResourceExecutor getResourceExecutor() {
+        return mResourceExecutor;
+    }
+
     @Override
     public void onRequestReceived(Device srcDevice, IRequest request)
             throws ServerException {
@@ -47,6 +64,13 @@ public class ResourceManager implements IRequestEventHandler {
         if (requestHandler == null)
             throw new InternalServerErrorException("Unsupport URI");
 
+        if (mResourceExecutor != null && requestHandler instanceof Resource
+                && ((Resource) requestHandler).isBlocking()) {
+            mResourceExecutor.execute(srcDevice, request,
+                    (Resource) requestHandler);
+            return;
+        }
+
         // Allocate new token and forward to other handler.
         // Only some handlers required to have new token.
         requestHandler.onRequestReceived(srcDevice, request);
@@ -31,13 +31,29 @@ import io.netty.channel.ChannelHandler;
 
 public class CoapServer extends Server {
 
+    private boolean mZeroCopyDecoding = false;
+    private boolean mPooledMessages   = false;
+
     public CoapServer(InetSocketAddress inetSocketAddress) {
         super(inetSocketAddress);
     }
 
+    public CoapServer(InetSocketAddress inetSocketAddress,
+            boolean zeroCopyDecoding) {
+        super(inetSocketAddress);
+        mZeroCopyDecoding = zeroCopyDecoding;
+    }
+
+    public CoapServer(InetSocketAddress inetSocketAddress,
+            boolean zeroCopyDecoding, boolean pooledMessages) {
+        super(inetSocketAddress);
+        mZeroCopyDecoding = zeroCopyDecoding;
+        mPooledMessages = pooledMessages;
+    }
+
     @Override
     protected ChannelHandler[] onQueryDefaultHandler() {
-        return new ChannelHandler[] { new CoapDecoder(), new CoapEncoder(),
-                new CoapLogHandler() };
+        return new ChannelHandler[] { new CoapDecoder(mZeroCopyDecoding,
+                mPooledMessages), new CoapEncoder(), new CoapLogHandler() };
     }
 }
\ No newline at end of file
@@ -0,0 +1,147 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.base.server;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+/**
+ *
+ * This class coalesces flushes so several messages written to a channel go
+ * out with one syscall. Flushes during a read are done when the read
+ * completes. Other flushes, e.g. notifications forwarded from other devices,
+ * are done at the end of the current event loop task. After the given number
+ * of consolidated flushes the channel is flushed right away.
+ *
+ */
+public class FlushConsolidationHandler extends ChannelDuplexHandler {
+
+    public static final int       DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES = 256;
+
+    private final int             mExplicitFlushAfterFlushes;
+    private final Runnable        mFlushTask;
+    private int                   mFlushPendingCount                   = 0;
+    private boolean               mReadInProgress                      = false;
+    private boolean               mFlushScheduled                      = false;
+    private ChannelHandlerContext mCtx                                 = null;
+
+    public FlushConsolidationHandler() {
+        this(DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES);
+    }
+
+    /**
+     * @param explicitFlushAfterFlushes
+     *            number of consolidated flushes after which the channel is
+     *            flushed without waiting
+     */
+    public FlushConsolidationHandler(int explicitFlushAfterFlushes) {
+        mExplicitFlushAfterFlushes = explicitFlushAfterFlushes;
+        mFlushTask = this::runScheduledFlush;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        mCtx = ctx;
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        if (++mFlushPendingCount == mExplicitFlushAfterFlushes) {
+            flushNow(ctx);
+        } else if (!mReadInProgress && !mFlushScheduled) {
+            // Flush after the task writing to this channel is done
+            mFlushScheduled = true;
+            ctx.channel().eventLoop().execute(mFlushTask);
+        }
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg)
+            throws Exception {
+        mReadInProgress = true;
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx)
+            throws Exception {
+        mReadInProgress = false;
+        flushIfNeeded(ctx);
+        ctx.fireChannelReadComplete();
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx)
+            throws Exception {
+        if (!ctx.channel().isWritable()) {
+            flushIfNeeded(ctx);
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause)
+            throws Exception {
+        mReadInProgress = false;
+        flushIfNeeded(ctx);
+        ctx.fireExceptionCaught(cause);
+    }
+
+    @Override
+    public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise)
+            throws Exception {
+        flushIfNeeded(ctx);
+        ctx.disconnect(promise);
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise)
+            throws Exception {
+        flushIfNeeded(ctx);
+        ctx.close(promise);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        flushIfNeeded(ctx);
+    }
+
+    private void runScheduledFlush() {
+        mFlushScheduled = false;
+        // A read in progress flushes when it completes
+        if (!mReadInProgress) {
+            flushIfNeeded(mCtx);
+        }
+    }
+
+    private void flushIfNeeded(ChannelHandlerContext ctx) {
+        if (mFlushPendingCount > 0) {
+            flushNow(ctx);
+        }
+    }
+
+    private void flushNow(ChannelHandlerContext ctx) {
+        mFlushPendingCount = 0;
+        ctx.flush();
+    }
+}
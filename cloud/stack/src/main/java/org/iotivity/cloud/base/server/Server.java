@@ -30,6 +30,7 @@ import java.util.List;
 import javax.net.ssl.SSLException;
 
 import org.iotivity.cloud.base.OICConstants;
+import org.iotivity.cloud.base.Transport;
 import org.iotivity.cloud.util.Log;
 
 import io.netty.bootstrap.ServerBootstrap;
@@ -37,9 +38,8 @@ import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 import io.netty.handler.ssl.SslContext;
@@ -47,15 +47,23 @@ import io.netty.handler.ssl.SslContextBuilder;
 
 public abstract class Server {
 
-    EventLoopGroup    acceptorGroup      = new NioEventLoopGroup(1);
+    EventLoopGroup    acceptorGroup       = null;
 
-    EventLoopGroup    workerGroup        = new NioEventLoopGroup();
+    EventLoopGroup    workerGroup         = null;
 
-    ServerInitializer mServerInitializer = new ServerInitializer();
+    Transport         mTransport          = Transport.AUTO;
 
-    InetSocketAddress mInetSocketAddress = null;
+    int               mAcceptorCount      = 1;
 
-    SslContext        mSslContext        = null;
+    int               mWorkerCount        = 0;
+
+    int               mFlushConsolidation = 0;
+
+    ServerInitializer mServerInitializer  = new ServerInitializer();
+
+    InetSocketAddress mInetSocketAddress  = null;
+
+    SslContext        mSslContext         = null;
 
     private class ServerInitializer extends ChannelInitializer<SocketChannel> {
         private List<ChannelHandler> additionalHandlers = new ArrayList<>();
@@ -75,6 +83,10 @@ public abstract class Server {
                 p.addLast(mSslContext.newHandler(ch.alloc()));
             }
 
+            if (mFlushConsolidation > 0) {
+                p.addLast(new FlushConsolidationHandler(mFlushConsolidation));
+            }
+
             p.addLast(onQueryDefaultHandler());
 
             for (ChannelHandler handler : additionalHandlers) {
@@ -87,6 +99,51 @@ public abstract class Server {
         mInetSocketAddress = inetSocketAddress;
     }
 
+    /**
+     * API for setting socket transport of the server
+     * 
+     * @param transport
+     *            transport to use, AUTO picks epoll when available
+     */
+    public void setTransport(Transport transport) {
+        mTransport = transport;
+    }
+
+    /**
+     * API for setting number of acceptor threads. With more than one, the
+     * port is bound once per acceptor using SO_REUSEPORT, so the kernel
+     * spreads incoming connections. Only supported on epoll transport.
+     * 
+     * @param acceptorCount
+     *            number of acceptor threads
+     */
+    public void setAcceptorCount(int acceptorCount) {
+        mAcceptorCount = acceptorCount;
+    }
+
+    /**
+     * API for setting number of event loop threads serving connections
+     * 
+     * @param workerCount
+     *            number of event loop threads, 0 for twice the number of
+     *            processors
+     */
+    public void setWorkerCount(int workerCount) {
+        mWorkerCount = workerCount;
+    }
+
+    /**
+     * API for coalescing flushes of connections, so a burst of messages to a
+     * connection is written with one syscall
+     * 
+     * @param explicitFlushAfterFlushes
+     *            consolidated flushes after which a connection is flushed
+     *            right away, 0 to flush every message
+     */
+    public void setFlushConsolidation(int explicitFlushAfterFlushes) {
+        mFlushConsolidation = explicitFlushAfterFlushes;
+    }
+
     public void startServer(boolean tlsMode)
             throws CertificateException, SSLException, InterruptedException {
 
@@ -104,14 +161,35 @@ public abstract class Server {
                         .build();
             }
 
+            Transport transport = mTransport.resolve();
+            int acceptorCount = mAcceptorCount;
+            if (acceptorCount > 1 && !transport.isReusePortSupported()) {
+                Log.w("SO_REUSEPORT needs epoll transport, using one acceptor");
+                acceptorCount = 1;
+            }
+
+            acceptorGroup = transport.newEventLoopGroup(acceptorCount);
+            workerGroup = transport.newEventLoopGroup(mWorkerCount);
+
             ServerBootstrap b = new ServerBootstrap();
             b.group(acceptorGroup, workerGroup);
-            b.channel(NioServerSocketChannel.class);
+            b.channel(transport.getServerChannelClass());
             b.handler(new LoggingHandler(LogLevel.INFO));
 
+            if (acceptorCount > 1) {
+                b.option(EpollChannelOption.SO_REUSEPORT, true);
+            }
+
             b.childHandler(mServerInitializer);
 
-            b.bind(mInetSocketAddress).sync();
+            // Each bind registers a server channel on the next acceptor
+            for (int i = 0; i < acceptorCount; i++) {
+                b.bind(mInetSocketAddress).sync();
+            }
+
+            Log.i("Server listens on " + mInetSocketAddress + " with "
+                    + transport + " transport, " + acceptorCount
+                    + " acceptor(s)");
         } catch (Exception e) {
             e.printStackTrace();
             throw e;
@@ -120,8 +198,12 @@ public abstract class Server {
     }
 
     public void stopServer() throws Exception {
-        acceptorGroup.shutdownGracefully().await();
-        workerGroup.shutdownGracefully().await();
+        if (acceptorGroup != null) {
+            acceptorGroup.shutdownGracefully().await();
+        }
+        if (workerGroup != null) {
+            workerGroup.shutdownGracefully().await();
+        }
     }
 
     public void addHandler(ChannelHandler handler) {
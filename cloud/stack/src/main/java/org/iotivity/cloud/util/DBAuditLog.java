@@ -0,0 +1,78 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * This class provides a set of APIs to trace database changes for debugging.
+ * Only the changed record is logged, and tracing is off unless a sample rate
+ * is set.
+ *
+ */
+public class DBAuditLog {
+
+    public static final int     AUDIT_OFF    = 0;
+
+    private static volatile int mSampleRate  = AUDIT_OFF;
+    private static AtomicLong   mChangeCount = new AtomicLong();
+
+    /**
+     * API for setting how often database changes are logged. It can be
+     * changed while the server is running.
+     * 
+     * @param sampleRate
+     *            1 to log every change, n to log every n-th change, 0 to turn
+     *            tracing off
+     */
+    public static void setSampleRate(int sampleRate) {
+        mSampleRate = sampleRate < 0 ? AUDIT_OFF : sampleRate;
+    }
+
+    public static int getSampleRate() {
+        return mSampleRate;
+    }
+
+    /**
+     * API for logging a database change if it is sampled
+     * 
+     * @param tableName
+     *            table name of the change
+     * @param operation
+     *            kind of the change
+     * @param record
+     *            changed record or filter, converted to string only when
+     *            logged
+     */
+    public static void logChange(String tableName, String operation,
+            Object record) {
+        int sampleRate = mSampleRate;
+
+        if (sampleRate == AUDIT_OFF
+                || mChangeCount.getAndIncrement() % sampleRate != 0) {
+            return;
+        }
+
+        Log.i("<" + tableName + "> " + operation + " " + record);
+    }
+}
@@ -102,6 +102,10 @@ public class Log {
         logLevel = level;
     }
 
+    public static boolean isLoggable(int level) {
+        return logLevel <= level;
+    }
+
     public static void v(String log) {
         printLog(VERBOSE, log);
     }
@@ -0,0 +1,200 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.base.connector;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.iotivity.cloud.base.exception.ClientException.RequesterGoneException;
+import org.iotivity.cloud.base.protocols.IRequest;
+import org.iotivity.cloud.base.protocols.IResponse;
+import org.iotivity.cloud.base.protocols.MessageBuilder;
+import org.iotivity.cloud.base.protocols.coap.CoapRequest;
+import org.iotivity.cloud.base.protocols.coap.CoapResponse;
+import org.iotivity.cloud.base.protocols.enums.Observe;
+import org.iotivity.cloud.base.protocols.enums.RequestMethod;
+import org.iotivity.cloud.base.protocols.enums.ResponseStatus;
+import org.iotivity.cloud.util.Bytes;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultChannelId;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+
+public class CoapClientTest {
+
+    private EmbeddedChannel                  mChannel    = null;
+    private CoapClient                       mCoapClient = null;
+    private ConcurrentLinkedQueue<IResponse> mResponses  = new ConcurrentLinkedQueue<>();
+
+    @Before
+    public void setUp() {
+        mChannel = new EmbeddedChannel(DefaultChannelId.newInstance());
+        mCoapClient = new CoapClient(mChannel);
+    }
+
+    private IRequest sendRequest() {
+        IRequest request = MessageBuilder.createRequest(RequestMethod.GET,
+                "/a/b", null);
+        mCoapClient.sendRequest(request,
+                response -> mResponses.add(response));
+        return request;
+    }
+
+    // Builds the upstream answer, before the client restores origin token
+    private IResponse answer(IRequest request) {
+        return MessageBuilder.createResponse(request, ResponseStatus.CONTENT);
+    }
+
+    @Test
+    public void testResponseGetsOriginToken() throws Exception {
+        IRequest request = sendRequest();
+        CoapRequest upstreamRequest = mChannel.readOutbound();
+        IResponse response = answer(upstreamRequest);
+
+        mCoapClient.onResponseReceived(response);
+
+        assertEquals(0, mCoapClient.getPendingRequestCount());
+        assertArrayEquals("tmptoken".getBytes(),
+                ((CoapRequest) request).getToken());
+        assertEquals(1, mResponses.size());
+    }
+
+    @Test
+    public void testConcurrentRequestsGetUniqueTokens() throws Exception {
+        // Embedded channel queues are not thread-safe, drop writes instead
+        mChannel = new EmbeddedChannel(DefaultChannelId.newInstance(),
+                new ChannelOutboundHandlerAdapter() {
+                    @Override
+                    public void write(ChannelHandlerContext ctx, Object msg,
+                            ChannelPromise promise) {
+                        ReferenceCountUtil.release(msg);
+                        promise.setSuccess();
+                    }
+                });
+        mCoapClient = new CoapClient(mChannel);
+
+        ConcurrentLinkedQueue<IRequest> requests = new ConcurrentLinkedQueue<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    requests.add(sendRequest());
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(4000, mCoapClient.getPendingRequestCount());
+
+        // Forwarded requests carry the upstream token
+        Set<Long> tokens = new HashSet<>();
+        List<IResponse> responses = new ArrayList<>();
+        for (IRequest upstreamRequest : requests) {
+            tokens.add(Bytes
+                    .bytesToLong(((CoapRequest) upstreamRequest).getToken()));
+            responses.add(answer(upstreamRequest));
+        }
+        assertEquals(4000, tokens.size());
+
+        for (IResponse response : responses) {
+            mCoapClient.onResponseReceived(response);
+        }
+        assertEquals(0, mCoapClient.getPendingRequestCount());
+        assertEquals(4000, mResponses.size());
+    }
+
+    @Test
+    public void testExpiredRequestGetsGatewayTimeout() throws Exception {
+        mCoapClient.setRequestTimeout(100);
+        IRequest request = sendRequest();
+        IResponse lateResponse = answer(mChannel.readOutbound());
+
+        // Timeout is handed to the event loop of the channel
+        long deadline = System.currentTimeMillis() + 5000;
+        while (mResponses.isEmpty()
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            mChannel.runPendingTasks();
+        }
+
+        IResponse response = mResponses.poll();
+        assertEquals(ResponseStatus.GATEWAY_TIMEOUT, response.getStatus());
+        assertArrayEquals(((CoapRequest) request).getToken(),
+                ((CoapResponse) response).getToken());
+        assertEquals(0, mCoapClient.getPendingRequestCount());
+        assertEquals(0, mCoapClient.getInFlightCount());
+
+        try {
+            mCoapClient.onResponseReceived(lateResponse);
+            fail("late response should not find its requester");
+        } catch (RequesterGoneException e) {
+            assertNull(mResponses.poll());
+        }
+    }
+
+    @Test
+    public void testUnknownUnsubscribeGetsNotFound() throws Exception {
+        CoapRequest request = (CoapRequest) MessageBuilder
+                .createRequest(RequestMethod.GET, "/a/b", null);
+        request.setObserve(Observe.UNSUBSCRIBE);
+        mCoapClient.sendRequest(request,
+                response -> mResponses.add(response));
+
+        assertNull(mChannel.readOutbound());
+        assertEquals(ResponseStatus.NOT_FOUND, mResponses.poll().getStatus());
+        assertEquals(0, mCoapClient.getPendingRequestCount());
+    }
+
+    @Test
+    public void testInFlightLimitRejectsRequest() throws Exception {
+        mCoapClient.setMaxInFlightRequests(2);
+        sendRequest();
+        sendRequest();
+        sendRequest();
+
+        assertEquals(2, mCoapClient.getInFlightCount());
+        assertEquals(ResponseStatus.SERVICE_UNAVAILABLE,
+                mResponses.poll().getStatus());
+
+        mCoapClient.onResponseReceived(answer(mChannel.readOutbound()));
+        sendRequest();
+
+        assertEquals(2, mCoapClient.getInFlightCount());
+        assertEquals(1, mResponses.size());
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.base.connector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.iotivity.cloud.base.connector.ConnectionGroup.SelectionPolicy;
+import org.iotivity.cloud.base.protocols.IRequest;
+import org.iotivity.cloud.base.protocols.IResponse;
+import org.iotivity.cloud.base.protocols.MessageBuilder;
+import org.iotivity.cloud.base.protocols.coap.CoapRequest;
+import org.iotivity.cloud.base.protocols.enums.Observe;
+import org.iotivity.cloud.base.protocols.enums.RequestMethod;
+import org.iotivity.cloud.base.protocols.enums.ResponseStatus;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.netty.channel.DefaultChannelId;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+public class ConnectionGroupTest {
+
+    private ConnectionGroup       mConnectionGroup = null;
+    private List<EmbeddedChannel> mChannels        = new ArrayList<>();
+    private List<IResponse>       mResponses       = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        mConnectionGroup = new ConnectionGroup("rd");
+        for (int i = 0; i < 3; i++) {
+            EmbeddedChannel channel = new EmbeddedChannel(
+                    DefaultChannelId.newInstance());
+            mChannels.add(channel);
+            mConnectionGroup.addClient(new CoapClient(channel));
+        }
+    }
+
+    private IRequest sendRequest(Observe observe) {
+        IRequest request = MessageBuilder.createRequest(RequestMethod.GET,
+                "/a/b", null);
+        ((CoapRequest) request).setObserve(observe);
+        mConnectionGroup.sendRequest(request,
+                response -> mResponses.add(response));
+        return request;
+    }
+
+    @Test
+    public void testRoundRobinSkipsClosedConnection() throws Exception {
+        mChannels.get(1).close();
+
+        for (int i = 0; i < 4; i++) {
+            sendRequest(Observe.NOTHING);
+        }
+
+        assertEquals(2, mChannels.get(0).outboundMessages().size());
+        assertEquals(0, mChannels.get(1).outboundMessages().size());
+        assertEquals(2, mChannels.get(2).outboundMessages().size());
+    }
+
+    @Test
+    public void testLeastInFlightPicksIdleConnection() throws Exception {
+        mConnectionGroup.setSelectionPolicy(SelectionPolicy.LEAST_IN_FLIGHT);
+
+        for (int i = 0; i < 3; i++) {
+            sendRequest(Observe.NOTHING);
+        }
+        CoapRequest upstreamRequest = mChannels.get(1).readOutbound();
+        mConnectionGroup.getClients().get(1).onResponseReceived(MessageBuilder
+                .createResponse(upstreamRequest, ResponseStatus.CONTENT));
+        sendRequest(Observe.NOTHING);
+
+        assertNotNull(mChannels.get(1).readOutbound());
+        assertEquals(1, mChannels.get(0).outboundMessages().size());
+        assertEquals(1, mChannels.get(2).outboundMessages().size());
+    }
+
+    @Test
+    public void testUnsubscribeReachesSubscribedConnection()
+            throws Exception {
+        sendRequest(Observe.NOTHING);
+        sendRequest(Observe.SUBSCRIBE);
+        sendRequest(Observe.UNSUBSCRIBE);
+
+        assertEquals(1, mChannels.get(0).outboundMessages().size());
+        assertEquals(2, mChannels.get(1).outboundMessages().size());
+        assertEquals(0, mChannels.get(2).outboundMessages().size());
+    }
+
+    @Test
+    public void testEmptyGroupAnswersServiceUnavailable() throws Exception {
+        mConnectionGroup = new ConnectionGroup("rd");
+
+        sendRequest(Observe.NOTHING);
+
+        assertEquals(ResponseStatus.SERVICE_UNAVAILABLE,
+                mResponses.get(0).getStatus());
+    }
+}
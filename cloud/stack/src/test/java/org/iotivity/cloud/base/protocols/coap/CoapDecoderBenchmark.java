@@ -0,0 +1,131 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.base.protocols.coap;
+
+import java.util.concurrent.TimeUnit;
+
+import org.iotivity.cloud.base.protocols.MessageBuilder;
+import org.iotivity.cloud.base.protocols.enums.ContentFormat;
+import org.iotivity.cloud.base.protocols.enums.RequestMethod;
+import org.iotivity.cloud.util.Log;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ *
+ * This class compares copying, zero-copy and pooled decoding of a burst of
+ * CoAP requests arriving in one read.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CoapDecoderBenchmark {
+
+    private static final int MESSAGES_PER_READ = 64;
+
+    @Param({ "0", "128", "1024" })
+    private int              payloadSize;
+
+    private ByteBuf          mFrames;
+
+    @Setup
+    public void setUp() {
+        Log.setLogLevel(Log.ERROR);
+
+        byte[] payload = payloadSize > 0 ? new byte[payloadSize] : null;
+        EmbeddedChannel encoder = new EmbeddedChannel(new CoapEncoder());
+        mFrames = PooledByteBufAllocator.DEFAULT.directBuffer();
+
+        for (int i = 0; i < MESSAGES_PER_READ; i++) {
+            encoder.writeOutbound(MessageBuilder.createRequest(
+                    RequestMethod.POST, "/oic/route/device-id/a/light",
+                    "if=oic.if.baseline;rt=core.light",
+                    ContentFormat.APPLICATION_CBOR, payload));
+            ByteBuf frame = encoder.readOutbound();
+            mFrames.writeBytes(frame);
+            frame.release();
+        }
+        encoder.finish();
+    }
+
+    @TearDown
+    public void tearDown() {
+        mFrames.release();
+    }
+
+    @Benchmark
+    public void copyingDecode(Blackhole blackhole) {
+        decode(false, false, blackhole);
+    }
+
+    @Benchmark
+    public void zeroCopyDecode(Blackhole blackhole) {
+        decode(true, false, blackhole);
+    }
+
+    @Benchmark
+    public void pooledZeroCopyDecode(Blackhole blackhole) {
+        decode(true, true, blackhole);
+    }
+
+    private void decode(boolean zeroCopy, boolean pooled,
+            Blackhole blackhole) {
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new CoapDecoder(zeroCopy, pooled));
+        channel.writeInbound(mFrames.retainedDuplicate());
+
+        Object msg;
+        while ((msg = channel.readInbound()) != null) {
+            blackhole.consume(msg);
+            ReferenceCountUtil.release(msg);
+        }
+        channel.finish();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(CoapDecoderBenchmark.class.getSimpleName()).build())
+                        .run();
+    }
+}
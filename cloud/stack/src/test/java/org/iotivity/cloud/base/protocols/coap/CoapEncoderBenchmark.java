@@ -0,0 +1,99 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.base.protocols.coap;
+
+import java.util.concurrent.TimeUnit;
+
+import org.iotivity.cloud.base.protocols.MessageBuilder;
+import org.iotivity.cloud.base.protocols.enums.ContentFormat;
+import org.iotivity.cloud.base.protocols.enums.RequestMethod;
+import org.iotivity.cloud.base.protocols.enums.ResponseStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+
+/**
+ *
+ * This class measures encoding of a typical observe notification. Run with
+ * "-prof gc" to see the allocation rate per encoded message.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CoapEncoderBenchmark {
+
+    @Param({ "0", "128", "1024" })
+    private int          payloadSize;
+
+    private CoapEncoder  mEncoder = new CoapEncoder();
+    private CoapResponse mResponse;
+    private ByteBuf      mOut;
+
+    @Setup
+    public void setUp() {
+        CoapRequest request = (CoapRequest) MessageBuilder.createRequest(
+                RequestMethod.GET, "/oic/route/device-id/a/light",
+                "if=oic.if.baseline");
+        request.setSequenceNumber(0);
+
+        mResponse = (CoapResponse) MessageBuilder.createResponse(request,
+                ResponseStatus.CONTENT, ContentFormat.APPLICATION_CBOR,
+                payloadSize > 0 ? new byte[payloadSize] : null);
+        mOut = PooledByteBufAllocator.DEFAULT.directBuffer(2048);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mOut.release();
+    }
+
+    @Benchmark
+    public int encode() throws Exception {
+        mOut.clear();
+        mEncoder.encode(mResponse, mOut, false);
+        return mOut.readableBytes();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(CoapEncoderBenchmark.class.getSimpleName()).build())
+                        .run();
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.base.protocols.coap;
+
+import static org.junit.Assert.assertEquals;
+
+import org.iotivity.cloud.base.protocols.MessageBuilder;
+import org.iotivity.cloud.base.protocols.enums.ContentFormat;
+import org.iotivity.cloud.base.protocols.enums.RequestMethod;
+import org.junit.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+public class CoapEncoderTest {
+
+    @Test
+    public void testEncode_sizedOnChannel() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new CoapEncoder());
+
+        // options of each message differ from the one before
+        CoapMessage[] messages = new CoapMessage[] {
+                createRequest("/a/light", null, new byte[20]),
+                createRequest("/oic/route/device-id/a/light",
+                        "if=oic.if.baseline", new byte[300]),
+                createRequest("/a", null, null) };
+
+        for (CoapMessage message : messages) {
+            ByteBuf expected = Unpooled.buffer();
+            new CoapEncoder().encode(message, expected, false);
+
+            channel.writeOutbound(message);
+            ByteBuf encoded = channel.readOutbound();
+
+            assertEquals(expected, encoded);
+
+            expected.release();
+            encoded.release();
+        }
+    }
+
+    private CoapMessage createRequest(String uriPath, String uriQuery,
+            byte[] payload) {
+        return (CoapMessage) MessageBuilder.createRequest(RequestMethod.POST,
+                uriPath, uriQuery, ContentFormat.APPLICATION_CBOR, payload);
+    }
+}
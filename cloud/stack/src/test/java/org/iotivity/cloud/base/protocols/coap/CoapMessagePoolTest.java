@@ -0,0 +1,231 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.base.protocols.coap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.iotivity.cloud.base.protocols.IResponse;
+import org.iotivity.cloud.base.protocols.MessageBuilder;
+import org.iotivity.cloud.base.protocols.enums.ContentFormat;
+import org.iotivity.cloud.base.protocols.enums.RequestMethod;
+import org.iotivity.cloud.base.protocols.enums.ResponseStatus;
+import org.iotivity.cloud.util.Log;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultChannelId;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ResourceLeakDetector;
+
+public class CoapMessagePoolTest {
+
+    private static final String URI_PATH  = "/oic/route/device-id/a/light";
+    private static final String URI_QUERY = "if=oic.if.baseline";
+
+    private long                mPooledCount;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        Log.createfile();
+        Log.setLogLevel(Log.ERROR);
+        // Report every pooled message which is collected without release
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+    }
+
+    @Before
+    public void setUp() {
+        mPooledCount = CoapMessage.getPooledMessageCount();
+    }
+
+    @After
+    public void tearDown() {
+        // Leak check: every pooled message taken by a test is released
+        assertEquals(mPooledCount, CoapMessage.getPooledMessageCount());
+    }
+
+    @Test
+    public void testPooledRequestIsRecycled() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new CoapDecoder(false, true));
+
+        channel.writeInbound(encodeRequest(new byte[] { 1, 2, 3 }));
+        CoapRequest request = channel.readInbound();
+
+        assertTrue(request.isPooled());
+        assertEquals(1, request.refCnt());
+        assertEquals(URI_PATH, request.getUriPath());
+        assertEquals(URI_QUERY, request.getUriQuery());
+        assertEquals(mPooledCount + 1, CoapMessage.getPooledMessageCount());
+
+        assertTrue(request.release());
+        assertFalse(request.isPooled());
+        assertNull(request.getUriPath());
+        assertNull(request.getToken());
+
+        // Same thread takes the recycled instance again
+        channel.writeInbound(encodeRequest(null));
+        CoapRequest nextRequest = channel.readInbound();
+
+        assertSame(request, nextRequest);
+        assertEquals(URI_PATH, nextRequest.getUriPath());
+        assertNull(nextRequest.getPayload());
+
+        nextRequest.release();
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testPooledZeroCopyReleasedAtPipelineEnd() throws Exception {
+        final CoapRequest[] received = new CoapRequest[1];
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new CoapDecoder(true, true),
+                new SimpleChannelInboundHandler<CoapRequest>() {
+                    @Override
+                    protected void channelRead0(ChannelHandlerContext ctx,
+                            CoapRequest msg) {
+                        received[0] = msg;
+                    }
+                });
+
+        ByteBuf frame = encodeRequest(new byte[128]);
+        channel.writeInbound(frame);
+
+        assertNotNull(received[0]);
+        assertFalse(received[0].isPooled());
+        assertEquals(0, frame.refCnt());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testRetainedRequestOutlivesPipeline() throws Exception {
+        final CoapRequest[] kept = new CoapRequest[1];
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new CoapDecoder(true, true),
+                new SimpleChannelInboundHandler<CoapRequest>() {
+                    @Override
+                    protected void channelRead0(ChannelHandlerContext ctx,
+                            CoapRequest msg) {
+                        kept[0] = (CoapRequest) msg.retain();
+                    }
+                });
+
+        channel.writeInbound(encodeRequest(new byte[] { 1, 2, 3 }));
+
+        assertTrue(kept[0].isPooled());
+        assertEquals(1, kept[0].refCnt());
+        assertEquals(URI_PATH, kept[0].getUriPath());
+        assertEquals(3, kept[0].getPayload().length);
+
+        assertTrue(kept[0].release());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testPayloadBufferKeptUntilRelease() throws Exception {
+        final CoapRequest[] kept = new CoapRequest[1];
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new CoapDecoder(true, true),
+                new SimpleChannelInboundHandler<CoapRequest>() {
+                    @Override
+                    protected void channelRead0(ChannelHandlerContext ctx,
+                            CoapRequest msg) {
+                        kept[0] = (CoapRequest) msg.retain();
+                    }
+                });
+
+        ByteBuf frame = encodeRequest(new byte[] { 1, 2, 3 });
+        channel.writeInbound(frame);
+
+        // Reading the payload does not free the buffer an encoder may write
+        assertEquals(3, kept[0].getPayload().length);
+        assertNotNull(kept[0].getPayloadBuffer());
+        assertTrue(frame.refCnt() > 0);
+
+        ByteBuf out = Unpooled.buffer();
+        new CoapEncoder().encode(kept[0], out, false);
+        assertTrue(out.readableBytes() > 3);
+        out.release();
+
+        assertTrue(kept[0].release());
+        assertEquals(0, frame.refCnt());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testResponseCopiesUriPath() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new CoapDecoder(false, true));
+
+        channel.writeInbound(encodeRequest(null));
+        CoapRequest request = channel.readInbound();
+
+        IResponse response = MessageBuilder.createResponse(request,
+                ResponseStatus.CONTENT);
+        request.release();
+
+        assertEquals(URI_PATH, response.getUriPath());
+        assertEquals(5,
+                ((CoapResponse) response).getUriPathSegments().size());
+        assertFalse(((CoapResponse) response).isPooled());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testDecodeErrorReleasesPartialMessage() throws Exception {
+        // Error log needs a full length channel id
+        EmbeddedChannel channel = new EmbeddedChannel(
+                DefaultChannelId.newInstance(), new CoapDecoder(true, true));
+
+        // GET with unknown critical option #9
+        ByteBuf frame = Unpooled.buffer();
+        frame.writeByte(0x10);
+        frame.writeByte(0x01);
+        frame.writeByte(0x90);
+
+        channel.writeInbound(frame);
+
+        assertNull(channel.readInbound());
+        IResponse response = channel.readOutbound();
+        assertEquals(ResponseStatus.BAD_OPTION, response.getStatus());
+        assertFalse(channel.isOpen());
+    }
+
+    private ByteBuf encodeRequest(byte[] payload) throws Exception {
+        CoapRequest request = (CoapRequest) MessageBuilder.createRequest(
+                RequestMethod.POST, URI_PATH, URI_QUERY,
+                ContentFormat.APPLICATION_CBOR, payload);
+        ByteBuf frame = Unpooled.buffer();
+        new CoapEncoder().encode(request, frame, false);
+        return frame;
+    }
+}
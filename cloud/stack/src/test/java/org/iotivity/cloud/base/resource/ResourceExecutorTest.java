@@ -0,0 +1,182 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.base.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.iotivity.cloud.base.device.Device;
+import org.iotivity.cloud.base.exception.ServerException;
+import org.iotivity.cloud.base.exception.ServerException.ServiceUnavailableException;
+import org.iotivity.cloud.base.protocols.IRequest;
+import org.iotivity.cloud.base.protocols.IResponse;
+import org.iotivity.cloud.base.protocols.MessageBuilder;
+import org.iotivity.cloud.base.protocols.enums.RequestMethod;
+import org.junit.After;
+import org.junit.Test;
+
+public class ResourceExecutorTest {
+
+    private ResourceExecutor mExecutor = null;
+
+    private class TestDevice extends Device {
+        public TestDevice() {
+            super(null);
+        }
+
+        @Override
+        public void sendResponse(IResponse response) {
+        }
+
+        @Override
+        public void onConnected() {
+        }
+
+        @Override
+        public void onDisconnected() {
+        }
+
+        @Override
+        public String getDeviceId() {
+            return null;
+        }
+
+        @Override
+        public String getUserId() {
+            return null;
+        }
+
+        @Override
+        public String getAccessToken() {
+            return null;
+        }
+    }
+
+    private class RecordingResource extends Resource {
+        private List<Thread>   mThreads = new ArrayList<>();
+        private List<String>   mQueries = new ArrayList<>();
+        private CountDownLatch mStarted = new CountDownLatch(1);
+        private CountDownLatch mRelease = null;
+        private CountDownLatch mDone    = null;
+
+        public RecordingResource(boolean blocking, int requestCount) {
+            super(Arrays.asList("a", "b"));
+            setBlocking(blocking);
+            mDone = new CountDownLatch(requestCount);
+        }
+
+        @Override
+        public void onDefaultRequestReceived(Device srcDevice,
+                IRequest request) throws ServerException {
+            mStarted.countDown();
+            try {
+                if (mRelease != null) {
+                    mRelease.await();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this) {
+                mThreads.add(Thread.currentThread());
+                mQueries.add(request.getUriQuery());
+            }
+            mDone.countDown();
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (mExecutor != null) {
+            mExecutor.shutdown();
+        }
+    }
+
+    private IRequest makeRequest(String query) {
+        return MessageBuilder.createRequest(RequestMethod.GET, "/a/b", query);
+    }
+
+    @Test
+    public void testNonBlockingResourceRunsInline() throws Exception {
+        mExecutor = new ResourceExecutor(2, 16);
+        ResourceManager resourceManager = new ResourceManager();
+        resourceManager.setResourceExecutor(mExecutor);
+        RecordingResource resource = new RecordingResource(false, 1);
+        resourceManager.addResource(resource);
+
+        resourceManager.onRequestReceived(new TestDevice(),
+                makeRequest("seq=0"));
+
+        assertEquals(Thread.currentThread(), resource.mThreads.get(0));
+    }
+
+    @Test
+    public void testBlockingResourceKeepsDeviceOrder() throws Exception {
+        mExecutor = new ResourceExecutor(4, 256);
+        ResourceManager resourceManager = new ResourceManager();
+        resourceManager.setResourceExecutor(mExecutor);
+        RecordingResource resource = new RecordingResource(true, 200);
+        resourceManager.addResource(resource);
+
+        Device device = new TestDevice();
+        for (int i = 0; i < 200; i++) {
+            resourceManager.onRequestReceived(device, makeRequest("seq=" + i));
+        }
+
+        assertTrue(resource.mDone.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 200; i++) {
+            assertEquals("seq=" + i, resource.mQueries.get(i));
+            assertNotEquals(Thread.currentThread(), resource.mThreads.get(i));
+        }
+    }
+
+    @Test
+    public void testFullLaneRejectsRequest() throws Exception {
+        mExecutor = new ResourceExecutor(1, 1);
+        RecordingResource resource = new RecordingResource(true, 2);
+        resource.mRelease = new CountDownLatch(1);
+        Device device = new TestDevice();
+
+        mExecutor.execute(device, makeRequest("seq=0"), resource);
+        assertTrue(resource.mStarted.await(5, TimeUnit.SECONDS));
+        mExecutor.execute(device, makeRequest("seq=1"), resource);
+        assertEquals(1, mExecutor.getQueueDepth());
+
+        try {
+            mExecutor.execute(device, makeRequest("seq=2"), resource);
+            fail("request should be rejected");
+        } catch (ServiceUnavailableException e) {
+            assertEquals(1, mExecutor.getRejectedCount());
+        }
+
+        resource.mRelease.countDown();
+        assertTrue(resource.mDone.await(5, TimeUnit.SECONDS));
+        assertEquals(0, mExecutor.getQueueDepth());
+    }
+}
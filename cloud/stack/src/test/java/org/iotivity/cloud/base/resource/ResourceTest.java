@@ -0,0 +1,151 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.base.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.iotivity.cloud.base.device.Device;
+import org.iotivity.cloud.base.exception.ServerException.BadRequestException;
+import org.iotivity.cloud.base.protocols.IRequest;
+import org.iotivity.cloud.base.protocols.IResponse;
+import org.iotivity.cloud.base.protocols.MessageBuilder;
+import org.iotivity.cloud.base.protocols.coap.CoapRequest;
+import org.iotivity.cloud.base.protocols.enums.RequestMethod;
+import org.iotivity.cloud.base.protocols.enums.ResponseStatus;
+import org.junit.Test;
+
+public class ResourceTest {
+
+    private Resource mResource = new Resource(Arrays.asList("a", "b"));
+
+    private class TestDevice extends Device {
+        private List<IResponse> mResponses = new ArrayList<>();
+
+        public TestDevice() {
+            super(null);
+        }
+
+        @Override
+        public void sendResponse(IResponse response) {
+            mResponses.add(response);
+        }
+
+        @Override
+        public void onConnected() {
+        }
+
+        @Override
+        public void onDisconnected() {
+        }
+
+        @Override
+        public String getDeviceId() {
+            return null;
+        }
+
+        @Override
+        public String getUserId() {
+            return null;
+        }
+
+        @Override
+        public String getAccessToken() {
+            return null;
+        }
+    }
+
+    private IRequest makeRequest() {
+        return MessageBuilder.createRequest(RequestMethod.GET, "/a/b", null);
+    }
+
+    // Pooled, so it is reference counted like a received request
+    private CoapRequest makePooledRequest() {
+        CoapRequest request = CoapRequest.newInstance(1);
+        request.setToken("token".getBytes());
+        request.setUriPath("/a/b");
+        return request;
+    }
+
+    @Test
+    public void testAsyncResponseSentWhenCompleted() throws Exception {
+        TestDevice device = new TestDevice();
+        CoapRequest request = makePooledRequest();
+        CompletableFuture<IResponse> response = new CompletableFuture<>();
+
+        mResource.sendResponseAsync(device, request, response);
+        assertTrue(device.mResponses.isEmpty());
+        assertEquals(2, request.refCnt());
+
+        response.complete(
+                MessageBuilder.createResponse(request, ResponseStatus.CONTENT));
+
+        assertEquals(1, device.mResponses.size());
+        assertEquals(ResponseStatus.CONTENT,
+                device.mResponses.get(0).getStatus());
+        assertEquals(1, request.refCnt());
+        request.release();
+    }
+
+    @Test
+    public void testAsyncServerExceptionAnswered() throws Exception {
+        TestDevice device = new TestDevice();
+        IRequest request = makeRequest();
+
+        mResource.sendResponseAsync(device, request,
+                CompletableFuture.supplyAsync(() -> {
+                    throw new BadRequestException("bad request");
+                }));
+
+        assertTrue(waitForResponse(device));
+        assertEquals(ResponseStatus.BAD_REQUEST,
+                device.mResponses.get(0).getStatus());
+    }
+
+    @Test
+    public void testAsyncFailureAnsweredAsInternalError() throws Exception {
+        TestDevice device = new TestDevice();
+        CoapRequest request = makePooledRequest();
+        CompletableFuture<IResponse> response = new CompletableFuture<>();
+
+        mResource.sendResponseAsync(device, request, response);
+        response.completeExceptionally(new IllegalStateException("db down"));
+
+        assertEquals(ResponseStatus.INTERNAL_SERVER_ERROR,
+                device.mResponses.get(0).getStatus());
+        assertEquals(1, request.refCnt());
+        request.release();
+    }
+
+    private boolean waitForResponse(TestDevice device)
+            throws InterruptedException {
+        for (int i = 0; i < 100 && device.mResponses.isEmpty(); i++) {
+            Thread.sleep(20);
+        }
+        return !device.mResponses.isEmpty();
+    }
+}
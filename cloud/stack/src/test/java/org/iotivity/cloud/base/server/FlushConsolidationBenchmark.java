@@ -0,0 +1,163 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.base.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.iotivity.cloud.base.protocols.IResponse;
+import org.iotivity.cloud.base.protocols.MessageBuilder;
+import org.iotivity.cloud.base.protocols.coap.CoapEncoder;
+import org.iotivity.cloud.base.protocols.coap.CoapResponse;
+import org.iotivity.cloud.base.protocols.enums.ContentFormat;
+import org.iotivity.cloud.base.protocols.enums.RequestMethod;
+import org.iotivity.cloud.base.protocols.enums.ResponseStatus;
+import org.iotivity.cloud.util.Log;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ *
+ * This class measures flushes, i.e. write syscalls, per notification when a
+ * burst of observe notifications is fanned out to observing devices. Divide
+ * the flushes counter by the messages counter to get syscalls per message.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FlushConsolidationBenchmark {
+
+    private static final int OBSERVERS = 16;
+
+    @Param({ "1", "8", "64" })
+    private int              burstSize;
+
+    @Param({ "false", "true" })
+    private boolean          consolidated;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class WriteCounters {
+        public long flushes;
+        public long messages;
+    }
+
+    private class FlushCounter extends ChannelOutboundHandlerAdapter {
+        private WriteCounters mCounters = null;
+
+        @Override
+        public void flush(ChannelHandlerContext ctx) throws Exception {
+            if (mCounters != null) {
+                mCounters.flushes++;
+            }
+            ctx.flush();
+        }
+    }
+
+    private List<EmbeddedChannel> mObservers     = new ArrayList<>();
+    private List<FlushCounter>    mFlushCounters = new ArrayList<>();
+    private IResponse             mNotification  = null;
+
+    @Setup
+    public void setUp() {
+        Log.setLogLevel(Log.ERROR);
+
+        for (int i = 0; i < OBSERVERS; i++) {
+            FlushCounter flushCounter = new FlushCounter();
+            EmbeddedChannel channel = new EmbeddedChannel(flushCounter);
+            if (consolidated) {
+                channel.pipeline().addLast(new FlushConsolidationHandler());
+            }
+            channel.pipeline().addLast(new CoapEncoder());
+            mObservers.add(channel);
+            mFlushCounters.add(flushCounter);
+        }
+
+        CoapResponse notification = (CoapResponse) MessageBuilder
+                .createResponse(
+                        MessageBuilder.createRequest(RequestMethod.GET,
+                                "/oic/route/device-id/a/light", null),
+                        ResponseStatus.CONTENT, ContentFormat.APPLICATION_CBOR,
+                        new byte[64]);
+        mNotification = notification;
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (EmbeddedChannel channel : mObservers) {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    @Benchmark
+    public void fanOut(WriteCounters counters) {
+        for (FlushCounter flushCounter : mFlushCounters) {
+            flushCounter.mCounters = counters;
+        }
+
+        // Each notification is forwarded to every observer, then the event
+        // loop task ends
+        for (int i = 0; i < burstSize; i++) {
+            for (EmbeddedChannel channel : mObservers) {
+                channel.writeAndFlush(mNotification);
+            }
+        }
+        counters.messages += burstSize * OBSERVERS;
+
+        for (EmbeddedChannel channel : mObservers) {
+            channel.runPendingTasks();
+            Object msg;
+            while ((msg = channel.readOutbound()) != null) {
+                ReferenceCountUtil.release(msg);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(FlushConsolidationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
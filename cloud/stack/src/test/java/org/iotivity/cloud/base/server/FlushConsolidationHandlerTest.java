@@ -0,0 +1,102 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.base.server;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+public class FlushConsolidationHandlerTest {
+
+    private int             mFlushCount = 0;
+    private EmbeddedChannel mChannel    = null;
+
+    private class FlushCounter extends ChannelOutboundHandlerAdapter {
+        @Override
+        public void flush(ChannelHandlerContext ctx) throws Exception {
+            mFlushCount++;
+            ctx.flush();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mChannel = new EmbeddedChannel(new FlushCounter(),
+                new FlushConsolidationHandler(4));
+    }
+
+    @Test
+    public void testFlushesOutsideReadAreDoneAfterTask() throws Exception {
+        mChannel.writeAndFlush("a");
+        mChannel.writeAndFlush("b");
+        mChannel.writeAndFlush("c");
+        assertEquals(0, mFlushCount);
+
+        mChannel.runPendingTasks();
+
+        assertEquals(1, mFlushCount);
+        assertEquals(3, mChannel.outboundMessages().size());
+    }
+
+    @Test
+    public void testFlushesDuringReadAreDoneOnReadComplete()
+            throws Exception {
+        mChannel.pipeline().fireChannelRead("request");
+        mChannel.writeAndFlush("a");
+        mChannel.writeAndFlush("b");
+        mChannel.runPendingTasks();
+        assertEquals(0, mFlushCount);
+
+        mChannel.pipeline().fireChannelReadComplete();
+
+        assertEquals(1, mFlushCount);
+        assertEquals(2, mChannel.outboundMessages().size());
+    }
+
+    @Test
+    public void testExplicitFlushAfterLimit() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            mChannel.writeAndFlush(i);
+        }
+        assertEquals(2, mFlushCount);
+
+        mChannel.runPendingTasks();
+
+        assertEquals(3, mFlushCount);
+        assertEquals(10, mChannel.outboundMessages().size());
+    }
+
+    @Test
+    public void testCloseFlushesPendingMessages() throws Exception {
+        mChannel.writeAndFlush("a");
+
+        mChannel.close();
+
+        assertEquals(1, mFlushCount);
+        assertEquals(1, mChannel.outboundMessages().size());
+    }
+}
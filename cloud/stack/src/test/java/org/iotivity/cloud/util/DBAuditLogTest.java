@@ -0,0 +1,90 @@
+/*
+ * //******************************************************************
+ * //
+ * // Copyright 2016 Samsung Electronics All Rights Reserved.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * //
+ * // Licensed under the Apache License, Version 2.0 (the "License");
+ * // you may not use this file except in compliance with the License.
+ * // You may obtain a copy of the License at
+ * //
+ * //      http://www.apache.org/licenses/LICENSE-2.0
+ * //
+ * // Unless required by applicable law or agreed to in writing, software
+ * // distributed under the License is distributed on an "AS IS" BASIS,
+ * // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * // See the License for the specific language governing permissions and
+ * // limitations under the License.
+ * //
+ * //-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package org.iotivity.cloud.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DBAuditLogTest {
+
+    private PrintStream           mStdout = System.out;
+    private ByteArrayOutputStream mOutput = new ByteArrayOutputStream();
+
+    @Before
+    public void setUp() {
+        System.setOut(new PrintStream(mOutput, true));
+    }
+
+    @After
+    public void tearDown() {
+        System.setOut(mStdout);
+        DBAuditLog.setSampleRate(DBAuditLog.AUDIT_OFF);
+    }
+
+    @Test
+    public void testNothingLoggedByDefault() {
+        DBAuditLog.logChange("audittable", "insert", "record");
+
+        assertEquals(0, countLogged());
+    }
+
+    @Test
+    public void testEveryChangeLogged() {
+        DBAuditLog.setSampleRate(1);
+
+        for (int i = 0; i < 3; i++) {
+            DBAuditLog.logChange("audittable", "insert", "record" + i);
+        }
+
+        assertEquals(3, countLogged());
+    }
+
+    @Test
+    public void testChangesSampled() {
+        DBAuditLog.setSampleRate(2);
+
+        for (int i = 0; i < 4; i++) {
+            DBAuditLog.logChange("audittable", "update", "record" + i);
+        }
+
+        assertEquals(2, countLogged());
+    }
+
+    @Test
+    public void testNegativeSampleRateTurnsOff() {
+        DBAuditLog.setSampleRate(-1);
+        DBAuditLog.logChange("audittable", "delete", "record");
+
+        assertEquals(DBAuditLog.AUDIT_OFF, DBAuditLog.getSampleRate());
+        assertEquals(0, countLogged());
+    }
+
+    private int countLogged() {
+        return mOutput.toString().split("<audittable>", -1).length - 1;
+    }
+}